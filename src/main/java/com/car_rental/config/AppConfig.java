@@ -6,10 +6,13 @@ import java.io.InputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Properties;
+import java.util.zip.Deflater;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.car_rental.serializer.Compression;
+
 public class AppConfig {
     
     private final Logger logger = LoggerFactory.getLogger(AppConfig.class);
@@ -80,6 +83,66 @@ public class AppConfig {
         return combinePaths(basePath, filename);
     }
 
+    public String getSmileFilePath(String entityType) {
+        String basePath = getBaseDataPath();
+        String key = String.format("data.path.%s.smile", entityType.toLowerCase());
+        String filename = getProperty(key);
+
+        if (filename == null) {
+            logger.warn("Smile filename not found for entity: {}. Using default.", entityType);
+            filename = String.format("%s.smile", entityType.toLowerCase());
+        }
+
+        return combinePaths(basePath, filename);
+    }
+
+    /**
+     * How {@code entityType}'s data files are compressed when saved, from
+     * {@code compression.<entity>} ({@code none}, {@code gzip} or {@code lz4}) and
+     * {@code compression.<entity>.level}; uncompressed by default.
+     */
+    public Compression getCompression(String entityType) {
+        String key = String.format("compression.%s", entityType.toLowerCase());
+        return Compression.of(getProperty(key, "none"), getIntProperty(key + ".level", Deflater.DEFAULT_COMPRESSION));
+    }
+
+    /**
+     * Size in bytes from which data files are read through memory mappings, from
+     * {@code data.read.mmap.threshold.mb}; -1, the default, always uses buffered reads.
+     */
+    public long getMemoryMapThreshold() {
+        int megabytes = getIntProperty("data.read.mmap.threshold.mb", -1);
+        return megabytes < 0 ? -1 : megabytes * 1024L * 1024L;
+    }
+
+    /**
+     * True if {@code storage.<entity>} is set to {@code offheap}; repositories default to heap storage.
+     */
+    public boolean isOffHeapStorage(String entityType) {
+        String key = String.format("storage.%s", entityType.toLowerCase());
+        return "offheap".equalsIgnoreCase(getProperty(key, "heap").trim());
+    }
+
+    /**
+     * True if sealed month partitions of {@code entityType} are offloaded to
+     * {@link #getPartitionArchivePath(String)}; off by default.
+     */
+    public boolean isPartitionOffload(String entityType) {
+        return getBooleanProperty(String.format("partition.offload.%s", entityType.toLowerCase()), false);
+    }
+
+    public Path getPartitionArchivePath(String entityType) {
+        return Paths.get(getBaseDataPath(), "partitions", entityType.toLowerCase());
+    }
+
+    /**
+     * Directory of the mutation journal's segments; the entity files it compacts into
+     * live under the same base path.
+     */
+    public Path getJournalPath() {
+        return Paths.get(getBaseDataPath(), "journal");
+    }
+
     public String getBaseDataPath() {
         return getProperty("data.path.base", "./data");
     }
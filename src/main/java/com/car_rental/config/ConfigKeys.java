@@ -9,10 +9,32 @@ public final class ConfigKeys {
     public static final String DATA_PATH_BASE = "data.path.base";
     public static final String DATA_PATH_CARS_JSON = "data.path.cars.json";
     public static final String DATA_PATH_CARS_YAML = "data.path.cars.yaml";
+    public static final String DATA_PATH_CARS_SMILE = "data.path.cars.smile";
     public static final String DATA_PATH_CUSTOMERS_JSON = "data.path.customers.json";
     public static final String DATA_PATH_CUSTOMERS_YAML = "data.path.customers.yaml";
+    public static final String DATA_PATH_CUSTOMERS_SMILE = "data.path.customers.smile";
     public static final String DATA_PATH_RENTALS_JSON = "data.path.rentals.json";
     public static final String DATA_PATH_RENTALS_YAML = "data.path.rentals.yaml";
+    public static final String DATA_PATH_RENTALS_SMILE = "data.path.rentals.smile";
+
+    public static final String DATA_READ_MMAP_THRESHOLD_MB = "data.read.mmap.threshold.mb";
+
+    public static final String STORAGE_RENTALS = "storage.rentals";
+    public static final String STORAGE_PAYMENTS = "storage.payments";
+    public static final String LOADER_HYDRATE = "loader.hydrate";
+
+    public static final String PARTITION_SEAL_AFTER_MONTHS = "partition.seal.after.months";
+    public static final String PARTITION_OFFLOAD_RENTALS = "partition.offload.rentals";
+    public static final String PARTITION_OFFLOAD_PAYMENTS = "partition.offload.payments";
+
+    public static final String JOURNAL_ENABLED = "journal.enabled";
+    public static final String JOURNAL_SYNC = "journal.sync";
+    public static final String JOURNAL_COMPACT_INTERVAL = "journal.compact.interval.seconds";
+
+    public static final String ADMIN_METRICS_RESET_ENABLED = "admin.metrics.reset.enabled";
+
+    public static final String COMPRESSION_RENTALS = "compression.rentals";
+    public static final String COMPRESSION_PAYMENTS = "compression.payments";
 
     public static final String TEST_DATA_COUNT = "test.data.count";
 }
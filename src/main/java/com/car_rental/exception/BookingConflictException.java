@@ -0,0 +1,9 @@
+package com.car_rental.exception;
+
+public class BookingConflictException extends InvalidDataException{
+
+    public BookingConflictException(String message){
+        super(message);
+    }
+
+}
@@ -0,0 +1,21 @@
+package com.car_rental.exception;
+
+public class ConcurrentUpdateException extends RuntimeException{
+
+    public ConcurrentUpdateException(){
+        super();
+    }
+
+    public ConcurrentUpdateException(String message){
+        super(message);
+    }
+
+    public ConcurrentUpdateException(Throwable e){
+        super(e);
+    }
+
+    public ConcurrentUpdateException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
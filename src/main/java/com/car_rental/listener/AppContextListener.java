@@ -1,18 +1,25 @@
 package com.car_rental.listener;
 
+import java.time.YearMonth;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.car_rental.config.AppConfig;
+import com.car_rental.config.ConfigKeys;
 import com.car_rental.model.Branch;
 import com.car_rental.model.Car;
 import com.car_rental.model.Customer;
 import com.car_rental.model.Payment;
 import com.car_rental.model.Rental;
+import com.car_rental.persistence.MutationJournal;
 import com.car_rental.persistence.PersistenceManager;
 import com.car_rental.repository.BranchRepository;
 import com.car_rental.repository.CarRepository;
 import com.car_rental.repository.CustomerRepository;
+import com.car_rental.repository.OffHeapRecordStore;
+import com.car_rental.repository.PartitionArchive;
+import com.car_rental.repository.PartitionedRepository;
 import com.car_rental.repository.PaymentRepository;
 import com.car_rental.repository.RentalRepository;
 import com.car_rental.service.LoadResult;
@@ -47,8 +54,12 @@ public class AppContextListener implements ServletContextListener {
             BranchRepository branchRepository = new BranchRepository();
             CarRepository carRepository = new CarRepository();
             CustomerRepository customerRepository = new CustomerRepository();
-            RentalRepository rentalRepository = new RentalRepository();
-            PaymentRepository paymentRepository = new PaymentRepository();
+            RentalRepository rentalRepository = config.isOffHeapStorage("rentals")
+                    ? new RentalRepository(new OffHeapRecordStore<>(Rental.class))
+                    : new RentalRepository();
+            PaymentRepository paymentRepository = config.isOffHeapStorage("payments")
+                    ? new PaymentRepository(new OffHeapRecordStore<>(Payment.class))
+                    : new PaymentRepository();
             logger.info("Repositories created successfully.");
 
             logger.info("Loading data from JSON files...");
@@ -61,10 +72,34 @@ public class AppContextListener implements ServletContextListener {
                     rentalRepository,
                     new ParallelLoadingStrategy()
             );
-            paymentRepository.addAll(persistenceManager.load("payments", Payment.class, "JSON"));
+            dataLoader.loadEntity("payments", Payment.class, paymentRepository);
 
             logger.info("Data loading completed: " + loadResult);
 
+            MutationJournal journal = null;
+            if (config.getBooleanProperty(ConfigKeys.JOURNAL_ENABLED, false)) {
+                journal = new MutationJournal(config.getJournalPath(), persistenceManager,
+                        config.getBooleanProperty(ConfigKeys.JOURNAL_SYNC, true));
+                journal.register("branches", Branch.class, branchRepository);
+                journal.register("cars", Car.class, carRepository);
+                journal.register("customers", Customer.class, customerRepository);
+                journal.register("rentals", Rental.class, rentalRepository);
+                journal.register("payments", Payment.class, paymentRepository);
+                journal.replay();
+            }
+
+            if (config.getBooleanProperty(ConfigKeys.LOADER_HYDRATE, false)) {
+                dataLoader.hydrate(carRepository, customerRepository, rentalRepository, paymentRepository);
+            }
+
+            configurePartitions(config, rentalRepository, "rentals", Rental.class);
+            configurePartitions(config, paymentRepository, "payments", Payment.class);
+
+            if (journal != null) {
+                journal.start(config.getIntProperty(ConfigKeys.JOURNAL_COMPACT_INTERVAL, 300));
+                context.setAttribute("mutationJournal", journal);
+            }
+
             logger.info("Storing repositories and PersistenceManager in ServletContext...");
             context.setAttribute("branchRepository", branchRepository);
             context.setAttribute("carRepository", carRepository);
@@ -72,6 +107,7 @@ public class AppContextListener implements ServletContextListener {
             context.setAttribute("rentalRepository", rentalRepository);
             context.setAttribute("paymentRepository", paymentRepository);
             context.setAttribute("persistenceManager", persistenceManager);
+            context.setAttribute("appConfig", config);
             logger.info("Repositories and PersistenceManager stored successfully.");
 
             long initTime = System.currentTimeMillis() - startTime;
@@ -82,6 +118,23 @@ public class AppContextListener implements ServletContextListener {
         }
     }
 
+    // Seals the months older than partition.seal.after.months and, if enabled for the
+    // entity, offloads them to the partition archive under data.path.base.
+    private <T> void configurePartitions(AppConfig config, PartitionedRepository<T> repository,
+                                         String entityType, Class<T> type) {
+        boolean offload = config.isPartitionOffload(entityType);
+        if (offload) {
+            repository.setArchive(new PartitionArchive<>(config.getPartitionArchivePath(entityType), type));
+        }
+
+        int sealAfterMonths = config.getIntProperty(ConfigKeys.PARTITION_SEAL_AFTER_MONTHS, 0);
+        if (sealAfterMonths > 0) {
+            int sealed = repository.sealBefore(YearMonth.now().minusMonths(sealAfterMonths));
+            int offloaded = offload ? repository.offloadSealed() : 0;
+            logger.info("Sealed {} {} partitions, offloaded {} items", sealed, entityType, offloaded);
+        }
+    }
+
     @Override
     public void contextDestroyed(ServletContextEvent event) {
         ServletContext context = event.getServletContext();
@@ -99,33 +152,41 @@ public class AppContextListener implements ServletContextListener {
             RentalRepository rentalRepository = (RentalRepository) context.getAttribute("rentalRepository");
 
             PersistenceManager persistenceManager = (PersistenceManager) context.getAttribute("persistenceManager");
-
-            if (persistenceManager != null) {
+            MutationJournal journal = (MutationJournal) context.getAttribute("mutationJournal");
+
+            if (journal != null) {
+                // Every change is already journaled; compacting folds it into the entity files.
+                logger.info("Compacting mutation journal before shutdown...");
+                System.out.println("[SHUTDOWN] Compacting mutation journal...");
+                journal.compact();
+                journal.close();
+                System.out.println("[SHUTDOWN] All data saved successfully!");
+            } else if (persistenceManager != null) {
                 logger.info("Saving data to JSON files before shutdown...");
                 System.out.println("[SHUTDOWN] Saving data to JSON files...");
 
                 if (branchRepository != null) {
-                    persistenceManager.save(branchRepository.getAll(), "branches", Branch.class, "JSON");
+                    int saved = persistenceManager.save(branchRepository, "branches", Branch.class, "JSON");
                     logger.info("Branches saved successfully.");
-                    System.out.println("[SHUTDOWN] Branches saved: " + branchRepository.getAll().size() + " items");
+                    System.out.println("[SHUTDOWN] Branches saved: " + saved + " items");
                 }
 
                 if (carRepository != null) {
-                    persistenceManager.save(carRepository.getAll(), "cars", Car.class, "JSON");
+                    int saved = persistenceManager.save(carRepository, "cars", Car.class, "JSON");
                     logger.info("Cars saved successfully.");
-                    System.out.println("[SHUTDOWN] Cars saved: " + carRepository.getAll().size() + " items");
+                    System.out.println("[SHUTDOWN] Cars saved: " + saved + " items");
                 }
 
                 if (customerRepository != null) {
-                    persistenceManager.save(customerRepository.getAll(), "customers", Customer.class, "JSON");
+                    int saved = persistenceManager.save(customerRepository, "customers", Customer.class, "JSON");
                     logger.info("Customers saved successfully.");
-                    System.out.println("[SHUTDOWN] Customers saved: " + customerRepository.getAll().size() + " items");
+                    System.out.println("[SHUTDOWN] Customers saved: " + saved + " items");
                 }
 
                 if (rentalRepository != null) {
-                    persistenceManager.save(rentalRepository.getAll(), "rentals", Rental.class, "JSON");
+                    int saved = persistenceManager.save(rentalRepository, "rentals", Rental.class, "JSON");
                     logger.info("Rentals saved successfully.");
-                    System.out.println("[SHUTDOWN] Rentals saved: " + rentalRepository.getAll().size() + " items");
+                    System.out.println("[SHUTDOWN] Rentals saved: " + saved + " items");
                 }
 
                 logger.info("Data saved successfully");
@@ -142,6 +203,8 @@ public class AppContextListener implements ServletContextListener {
             context.removeAttribute("paymentRepository");
             context.removeAttribute("rentalRepository");
             context.removeAttribute("persistenceManager");
+            context.removeAttribute("mutationJournal");
+            context.removeAttribute("appConfig");
             
             System.out.println("========================================");
             System.out.println("APPLICATION SHUTDOWN - Cleanup complete");
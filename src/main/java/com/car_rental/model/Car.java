@@ -13,7 +13,13 @@ import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
 
-public class Car implements Comparable<Car> {
+public class Car extends ObservableEntity<Car> implements Comparable<Car> {
+
+    // Property names reported to change listeners; the license plate is the identity and is not observed.
+    public static final String MODEL = "model";
+    public static final String YEAR = "year";
+    public static final String MILEAGE = "mileage";
+    public static final String STATUS = "status";
 
     @NotBlank(message = "License plate cannot be null or blank")
     @Pattern(
@@ -95,11 +101,11 @@ public class Car implements Comparable<Car> {
     }
 
     public static Comparator<Car> byYear() {
-        return Comparator.comparing(Car::getYear);
+        return Comparator.comparingInt(Car::getYear);
     }
 
     public static Comparator<Car> byMileage() {
-        return Comparator.comparing(Car::getMileage);
+        return Comparator.comparingDouble(Car::getMileage);
     }
 
     public void setLicensePlate(String licensePlate){
@@ -111,7 +117,10 @@ public class Car implements Comparable<Car> {
     }
 
     public void setModel(String model){
+        checkChange(MODEL);
+        String oldModel = this.model;
         this.model = model;
+        fireChange(MODEL, oldModel, model);
     }
 
     public String getModel(){
@@ -119,7 +128,10 @@ public class Car implements Comparable<Car> {
     }
 
     public void setYear(int year){
+        checkChange(YEAR);
+        int oldYear = this.year;
         this.year = year;
+        fireChange(YEAR, oldYear, year);
     }
 
     public int getYear(){
@@ -127,7 +139,10 @@ public class Car implements Comparable<Car> {
     }
 
     public void setMileage(double mileage){
+        checkChange(MILEAGE);
+        double oldMileage = this.mileage;
         this.mileage = mileage;
+        fireChange(MILEAGE, oldMileage, mileage);
     }
 
     public double getMileage(){
@@ -135,13 +150,27 @@ public class Car implements Comparable<Car> {
     }
 
     public void setStatus(CarStatus status) {
+        checkChange(STATUS);
+        CarStatus oldStatus = this.status;
         this.status = status;
+        fireChange(STATUS, oldStatus, status);
     }
 
     public CarStatus getStatus() {
         return status;
     }
 
+    @Override
+    public void revertChange(String property, Object value) {
+        switch (property) {
+            case MODEL -> model = (String) value;
+            case YEAR -> year = (Integer) value;
+            case MILEAGE -> mileage = (Double) value;
+            case STATUS -> status = (CarStatus) value;
+            default -> throw new IllegalArgumentException("Car has no observed property " + property);
+        }
+    }
+
     public static Car createCar(String licensePlate, String model, int year, double mileage, CarStatus status){
         Car car = new Car(licensePlate, model, year, mileage, status);
         ValidationUtil.validate(car);
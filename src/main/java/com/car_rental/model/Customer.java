@@ -3,6 +3,7 @@ package com.car_rental.model;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.Comparator;
+import java.util.function.ToLongFunction;
 
 import com.car_rental.util.ValidationUtil;
 
@@ -40,6 +41,8 @@ public record Customer (
     String birthDate
     ) implements Comparable<Customer> {
 
+    private static final DateTimeFormatter BIRTH_DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
     public Customer(String firstName, String lastName, String driverLicense, String birthDate){
         this.firstName = firstName;
         this.lastName = lastName;
@@ -63,8 +66,15 @@ public record Customer (
     }
 
     public static Comparator<Customer> byBirthDate(){
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yyyy");
-        return Comparator.comparing(c -> LocalDate.parse(c.birthDate(), formatter));
+        return Comparator.comparingLong(birthDateKey());
+    }
+
+    /**
+     * Birth date as an epoch day, for sorting by a key computed once per customer
+     * rather than parsing the date on every comparison.
+     */
+    public static ToLongFunction<Customer> birthDateKey(){
+        return c -> LocalDate.parse(c.birthDate(), BIRTH_DATE_FORMAT).toEpochDay();
     }
 
 }
@@ -0,0 +1,18 @@
+package com.car_rental.model;
+
+/**
+ * Notified after a property of an {@link ObservableEntity} was changed in place.
+ * Listeners run synchronously on the thread that called the setter.
+ */
+@FunctionalInterface
+public interface EntityChangeListener<E> {
+
+    void onChange(E entity, String property, Object oldValue, Object newValue);
+
+    /**
+     * Called before {@code property} is changed; throwing refuses the change, leaving the
+     * entity as it was.
+     */
+    default void beforeChange(E entity, String property) {
+    }
+}
@@ -0,0 +1,77 @@
+package com.car_rental.model;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Base class for entities whose setters announce changes, so structures derived from them
+ * (repository indexes, aggregates) can follow in-place mutations instead of rescanning.
+ * Setters ask the listeners first, so a repository storing the entity can refuse a change
+ * that does not run through it. Entities nobody subscribed to pay one null field and two
+ * null checks per setter call.
+ */
+public abstract class ObservableEntity<E extends ObservableEntity<E>> {
+
+    @JsonIgnore
+    private transient volatile List<EntityChangeListener<? super E>> listeners;
+
+    public void addChangeListener(EntityChangeListener<? super E> listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
+        }
+        synchronized (this) {
+            if (listeners == null) {
+                listeners = new CopyOnWriteArrayList<>();
+            }
+            if (!listeners.contains(listener)) {
+                listeners.add(listener);
+            }
+        }
+    }
+
+    public void removeChangeListener(EntityChangeListener<? super E> listener) {
+        List<EntityChangeListener<? super E>> current = listeners;
+        if (current != null) {
+            current.remove(listener);
+        }
+    }
+
+    /**
+     * Lets the listeners refuse a change of {@code property} before the setter makes it.
+     */
+    @SuppressWarnings("unchecked")
+    protected void checkChange(String property) {
+        List<EntityChangeListener<? super E>> current = listeners;
+        if (current == null) {
+            return;
+        }
+        for (EntityChangeListener<? super E> listener : current) {
+            listener.beforeChange((E) this, property);
+        }
+    }
+
+    /**
+     * Sets {@code property} back to {@code value} without asking or notifying anyone, for
+     * a repository undoing a change it has not published yet.
+     *
+     * @throws IllegalArgumentException if the entity has no such observed property
+     */
+    public abstract void revertChange(String property, Object value);
+
+    /**
+     * Notifies listeners that {@code property} changed, unless the value stayed the same.
+     */
+    @SuppressWarnings("unchecked")
+    protected void fireChange(String property, Object oldValue, Object newValue) {
+        List<EntityChangeListener<? super E>> current = listeners;
+        if (current == null || Objects.equals(oldValue, newValue)) {
+            return;
+        }
+        for (EntityChangeListener<? super E> listener : current) {
+            listener.onChange((E) this, property, oldValue, newValue);
+        }
+    }
+}
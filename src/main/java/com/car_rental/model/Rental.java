@@ -5,6 +5,7 @@ import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.Comparator;
 import java.util.Objects;
+import java.util.function.ToLongFunction;
 
 import com.car_rental.exception.InvalidDataException;
 import com.fasterxml.jackson.annotation.JsonCreator;
@@ -81,6 +82,18 @@ public class Rental implements Comparable<Rental> {
         return Comparator.comparing(Rental::getEndDate);
     }
 
+    /**
+     * Rental length in days, the key {@link #compareTo} orders by, for sorting with the
+     * key computed once per rental.
+     */
+    public static ToLongFunction<Rental> durationKey(){
+        return rental -> ChronoUnit.DAYS.between(rental.getStartDate(), rental.getEndDate());
+    }
+
+    public static ToLongFunction<Rental> startDateKey(){
+        return rental -> rental.getStartDate().toEpochDay();
+    }
+
     public String getId() {
         return id;
     }
@@ -99,6 +112,14 @@ public class Rental implements Comparable<Rental> {
         return car;
     }
 
+    /**
+     * Points this rental at an already-known car without reserving it again.
+     * Used when loaded rentals are re-linked to the shared instance in the car repository.
+     */
+    public void setCarReference(Car car){
+        this.car = car;
+    }
+
     public void setCustomer(Customer customer){
         this.customer = customer;
     }
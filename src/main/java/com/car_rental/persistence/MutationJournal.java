@@ -0,0 +1,659 @@
+package com.car_rental.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.car_rental.exception.DataSerializationException;
+import com.car_rental.exception.InvalidDataException;
+import com.car_rental.repository.BulkResult;
+import com.car_rental.repository.GenericRepository;
+import com.car_rental.repository.MutationListener;
+import com.car_rental.repository.UnitOfWork;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Append-only journal of repository mutations, kept next to the entity files so that a
+ * change is on disk as soon as the write that made it returns, not only at shutdown.
+ *
+ * <p>Every put, delete and clear of a registered repository is collected for the thread
+ * making it, and when the write publishes, all it changed becomes one record:
+ * {@code int length, int CRC32C, body}, where the body holds each change's operation,
+ * entity type, identity and, for a put, the entity as JSON. A {@link UnitOfWork} across
+ * several repositories is one write, so a crash tears at most one record and replay never
+ * applies half of one; the changes of a write that is undone are discarded. The record
+ * is buffered while the repository still holds its write lock, so records follow the
+ * order writes publish in. The writer then releases the lock and waits until its record
+ * is on disk before it returns. Readers thus never wait for the disk and may see a change
+ * a crash loses, but a change that survives never depends on one that is lost: whatever
+ * a later write derived from it is recorded after it. Whichever waiting writer gets there
+ * first writes and syncs everything buffered so far, so concurrent writers, to the same
+ * repository or to others, share one sync (group commit). If the journal cannot be
+ * written, the writes waiting for it fail, though they stay in memory, and every later
+ * write is undone and fails, since the journal no longer matches the repositories.
+ *
+ * <p>The journal is split into numbered segments. {@link #replay()} applies all of them,
+ * in order, on top of the entity files loaded at startup; it stops at the first torn or
+ * corrupt record, which is where a crash interrupted the last write. {@link #compact()}
+ * starts a new segment and takes a snapshot of every repository at the same point, under
+ * all their write locks, then saves the snapshots as the entity files and deletes the
+ * older segments: every record in those belongs to a write the snapshots contain. Puts
+ * and deletes carry whole entities, so replaying records that the saved files already
+ * contain is harmless.
+ */
+public class MutationJournal implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(MutationJournal.class);
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int MAX_RECORD_SIZE = 256 << 20;
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final byte CLEAR = 3;
+    private static final byte UNIT = 4;
+
+    private static final byte[] CORRUPT = new byte[0];
+
+    private final Path directory;
+    private final PersistenceManager persistenceManager;
+    private final boolean sync;
+    private final ObjectMapper mapper;
+    private final Map<String, Registration<?>> registrations = new LinkedHashMap<>();
+
+    // Group commit state: records appended so far, records on disk, and whether some
+    // writer is currently writing a batch. Guarded by lock.
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private long appended;
+    private long durable;
+    private long changes;
+    private boolean flushing;
+    private IOException failure;
+    private FileChannel channel;
+    private long segment;
+    private long flushes;
+
+    // The last record each thread appended and has not yet waited for.
+    private final ThreadLocal<long[]> unsynced = ThreadLocal.withInitial(() -> new long[1]);
+
+    // The changes of each thread's write in progress, not yet framed as a record.
+    private final ThreadLocal<Unit> units = ThreadLocal.withInitial(Unit::new);
+
+    private final Object compaction = new Object();
+    private ScheduledExecutorService compactor;
+
+    private record Registration<T>(String entityType, Class<T> type, GenericRepository<T> repository) {
+
+        // Takes the repository's current snapshot and returns what saves it as the entity file.
+        Runnable checkpoint(PersistenceManager persistenceManager) {
+            List<T> items = repository.snapshot();
+            return () -> persistenceManager.save(items, entityType, type, "JSON");
+        }
+    }
+
+    /**
+     * @param sync true to force every batch to the storage device, false to only hand it
+     *             to the operating system, which survives a process crash but not a power loss
+     */
+    public MutationJournal(Path directory, PersistenceManager persistenceManager, boolean sync) {
+        this.directory = directory;
+        this.persistenceManager = persistenceManager;
+        this.sync = sync;
+        this.mapper = new ObjectMapper();
+        this.mapper.registerModule(new JavaTimeModule());
+    }
+
+    /**
+     * Journals {@code repository} under {@code entityType}, the name its entity file is
+     * saved under. Must be called before {@link #replay()} and {@link #start}.
+     */
+    public <T> void register(String entityType, Class<T> type, GenericRepository<T> repository) {
+        if (entityType == null || type == null || repository == null) {
+            throw new IllegalArgumentException("Entity type, class and repository cannot be null");
+        }
+        registrations.put(entityType, new Registration<>(entityType, type, repository));
+    }
+
+    /**
+     * Applies every record of every segment to the registered repositories, in order.
+     * Returns the number of changes applied.
+     */
+    public int replay() {
+        int applied = 0;
+        Batch<?> batch = null;
+        try {
+            replay:
+            for (long number : segments()) {
+                Path file = segmentPath(number);
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                    byte[] body;
+                    while ((body = readRecord(in, file)) != null) {
+                        if (body == CORRUPT) {
+                            // Anything after the damage may depend on the lost record.
+                            logger.warn("Stopped replaying at a damaged record in {}", file);
+                            break replay;
+                        }
+                        for (byte[] change : changesOf(body)) {
+                            batch = apply(batch, change);
+                            applied++;
+                        }
+                    }
+                }
+            }
+            if (batch != null) {
+                batch.flush();
+            }
+        } catch (IOException e) {
+            throw new DataSerializationException("Failed to replay mutation journal in " + directory, e);
+        }
+        logger.info("Replayed {} journal records from {}", applied, directory);
+        return applied;
+    }
+
+    /**
+     * Starts journaling the registered repositories in a new segment and, if
+     * {@code compactionIntervalSeconds} is positive, compacting at that interval.
+     */
+    public void start(long compactionIntervalSeconds) {
+        List<Long> existing = segments();
+        lock.lock();
+        try {
+            segment = existing.isEmpty() ? 1 : existing.get(existing.size() - 1) + 1;
+            channel = openSegment(segment);
+        } finally {
+            lock.unlock();
+        }
+        registrations.values().forEach(this::attach);
+
+        if (compactionIntervalSeconds > 0) {
+            compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "journal-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            compactor.scheduleWithFixedDelay(this::compactQuietly,
+                    compactionIntervalSeconds, compactionIntervalSeconds, TimeUnit.SECONDS);
+        }
+        logger.info("Journaling {} repositories to segment {} in {}", registrations.size(), segment, directory);
+    }
+
+    /**
+     * Folds the journal into the entity files: switches to a new segment and snapshots
+     * every registered repository at that point, then saves the snapshots and deletes the
+     * segments they now cover. Writers wait only while the segment is switched.
+     */
+    public void compact() {
+        synchronized (compaction) {
+            long start = System.currentTimeMillis();
+            List<GenericRepository<?>> repositories = new ArrayList<>();
+            registrations.values().forEach(registration -> repositories.add(registration.repository()));
+            long[] covered = new long[1];
+            List<Runnable> saves = new ArrayList<>();
+            // No write is in progress under the locks, so the old segments hold exactly the
+            // records of writes the snapshots contain.
+            UnitOfWork.runLocked(repositories, () -> {
+                covered[0] = rotate();
+                registrations.values().forEach(registration -> saves.add(registration.checkpoint(persistenceManager)));
+            });
+            saves.forEach(Runnable::run);
+            for (long number : segments()) {
+                if (number <= covered[0]) {
+                    try {
+                        Files.deleteIfExists(segmentPath(number));
+                    } catch (IOException e) {
+                        throw new DataSerializationException("Failed to delete journal segment " + number, e);
+                    }
+                }
+            }
+            logger.info("Compacted mutation journal up to segment {} in {} ms", covered[0], System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * Number of batches written so far; fewer than records appended when writers shared syncs.
+     */
+    public long flushCount() {
+        lock.lock();
+        try {
+            return flushes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of changes journaled so far; fewer records hold them when writes changed several items.
+     */
+    public long changeCount() {
+        lock.lock();
+        try {
+            return changes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long recordCount() {
+        lock.lock();
+        try {
+            return appended;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops journaling and writes out what is buffered. The repositories keep their
+     * contents; their changes are no longer recorded.
+     */
+    @Override
+    public void close() {
+        if (compactor != null) {
+            compactor.shutdownNow();
+        }
+        registrations.values().forEach(registration -> registration.repository().setMutationListener(null));
+        lock.lock();
+        try {
+            if (channel != null) {
+                awaitFlushLocked();
+                writeLocked(drainLocked());
+                channel.close();
+                channel = null;
+            }
+        } catch (IOException e) {
+            throw new DataSerializationException("Failed to close mutation journal", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private <T> void attach(Registration<T> registration) {
+        String entityType = registration.entityType();
+        registration.repository().setMutationListener(new MutationListener<>() {
+            @Override
+            public void onPut(String identity, T item) {
+                append(PUT, entityType, identity, item);
+            }
+
+            @Override
+            public void onDelete(String identity) {
+                append(DELETE, entityType, identity, null);
+            }
+
+            @Override
+            public void onClear() {
+                append(CLEAR, entityType, "", null);
+            }
+
+            @Override
+            public void beforePublish() {
+                seal();
+            }
+
+            @Override
+            public void awaitDurable() {
+                MutationJournal.this.awaitDurable();
+            }
+
+            @Override
+            public void onRollback() {
+                units.get().reset();
+            }
+        });
+    }
+
+    private void append(byte operation, String entityType, String identity, Object item) {
+        byte[] body;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(operation);
+            out.writeUTF(entityType);
+            out.writeUTF(identity);
+            if (item != null) {
+                out.write(mapper.writeValueAsBytes(item));
+            }
+            out.flush();
+            body = bytes.toByteArray();
+        } catch (IOException e) {
+            throw new DataSerializationException("Failed to journal " + entityType + " " + identity, e);
+        }
+        units.get().add(body);
+    }
+
+    // Frames the changes this thread's write made as one record and buffers it, in the
+    // order the writes publish in, since the repository still holds its write lock.
+    private void seal() {
+        Unit unit = units.get();
+        if (unit.count == 0) {
+            return;
+        }
+        byte[] body = unit.frame();
+        int count = unit.count;
+        unit.reset();
+        if (body.length > MAX_RECORD_SIZE) {
+            throw new DataSerializationException(String.format(
+                    "A write of %d changes is too large to journal: %d bytes", count, body.length));
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(body);
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES * 2).putInt(body.length).putInt((int) crc.getValue());
+
+        lock.lock();
+        try {
+            if (channel == null) {
+                throw new DataSerializationException("Mutation journal is not open");
+            }
+            if (failure != null) {
+                throw new DataSerializationException("Mutation journal write failed", failure);
+            }
+            pending.write(header.array(), 0, header.capacity());
+            pending.write(body, 0, body.length);
+            changes += count;
+            unsynced.get()[0] = ++appended;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Blocks until everything this thread appended is on disk, writing it, and whatever
+    // else is buffered, itself unless another writer is already doing so.
+    private void awaitDurable() {
+        long[] mine = unsynced.get();
+        long target = mine[0];
+        if (target == 0) {
+            return;
+        }
+        mine[0] = 0;
+
+        lock.lock();
+        try {
+            while (durable < target) {
+                if (failure != null) {
+                    throw new DataSerializationException("Mutation journal write failed", failure);
+                }
+                if (flushing) {
+                    flushed.awaitUninterruptibly();
+                    continue;
+                }
+                flushing = true;
+                byte[] batch = drainLocked();
+                long batchEnd = appended;
+                lock.unlock();
+                IOException error = null;
+                try {
+                    write(batch);
+                } catch (IOException e) {
+                    error = e;
+                } finally {
+                    lock.lock();
+                    flushing = false;
+                }
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durable = batchEnd;
+                    flushes++;
+                }
+                flushed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Writes out the current segment and continues in a new one; returns the old number.
+    private long rotate() {
+        lock.lock();
+        try {
+            awaitFlushLocked();
+            writeLocked(drainLocked());
+            long covered = segment;
+            if (channel != null) {
+                channel.close();
+                segment++;
+                channel = openSegment(segment);
+            }
+            return covered;
+        } catch (IOException e) {
+            throw new DataSerializationException("Failed to rotate mutation journal", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void awaitFlushLocked() {
+        while (flushing) {
+            flushed.awaitUninterruptibly();
+        }
+    }
+
+    private byte[] drainLocked() {
+        byte[] batch = pending.toByteArray();
+        pending.reset();
+        return batch;
+    }
+
+    private void writeLocked(byte[] batch) throws IOException {
+        if (batch.length > 0) {
+            write(batch);
+            flushes++;
+        }
+        durable = appended;
+        flushed.signalAll();
+    }
+
+    private void write(byte[] batch) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(batch);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (sync) {
+            channel.force(false);
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            logger.error("Scheduled journal compaction failed", e);
+        }
+    }
+
+    // Returns the next record's body, null at the end of the segment, or CORRUPT for a
+    // record that was cut short or whose length or checksum does not add up.
+    private byte[] readRecord(DataInputStream in, Path file) throws IOException {
+        int length;
+        int checksum;
+        try {
+            length = in.readInt();
+            checksum = in.readInt();
+        } catch (EOFException e) {
+            // A header cut short by a crash counts as the end too: nothing follows it.
+            return null;
+        }
+        if (length < 0 || length > MAX_RECORD_SIZE) {
+            logger.debug("Invalid record length {} in {}", length, file);
+            return CORRUPT;
+        }
+        byte[] body = in.readNBytes(length);
+        if (body.length < length) {
+            logger.debug("Torn record at the end of {}", file);
+            return CORRUPT;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(body);
+        if ((int) crc.getValue() != checksum) {
+            logger.debug("Checksum mismatch in {}", file);
+            return CORRUPT;
+        }
+        return body;
+    }
+
+    // The changes a record holds: those of a whole write, or the one change of a record
+    // written before writes were framed.
+    private static List<byte[]> changesOf(byte[] body) throws IOException {
+        if (body.length == 0 || body[0] != UNIT) {
+            return List.of(body);
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body, 1, body.length - 1));
+        int count = in.readInt();
+        List<byte[]> changes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] change = new byte[in.readInt()];
+            in.readFully(change);
+            changes.add(change);
+        }
+        return changes;
+    }
+
+    private Batch<?> apply(Batch<?> batch, byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        byte operation = in.readByte();
+        String entityType = in.readUTF();
+        String identity = in.readUTF();
+
+        Registration<?> registration = registrations.get(entityType);
+        if (registration == null) {
+            logger.warn("Skipping journal record for unregistered entity type {}", entityType);
+            return batch;
+        }
+        if (batch == null || batch.registration != registration || batch.operation != operation) {
+            if (batch != null) {
+                batch.flush();
+            }
+            batch = new Batch<>(registration, operation);
+        }
+        batch.add(identity, in);
+        return batch;
+    }
+
+    // The changes one thread's write has made so far, each as {@code int length, body}.
+    private static final class Unit {
+        private final ByteArrayOutputStream changes = new ByteArrayOutputStream();
+        private int count;
+
+        void add(byte[] change) {
+            ByteBuffer length = ByteBuffer.allocate(Integer.BYTES).putInt(change.length);
+            changes.write(length.array(), 0, Integer.BYTES);
+            changes.write(change, 0, change.length);
+            count++;
+        }
+
+        byte[] frame() {
+            byte[] framed = changes.toByteArray();
+            return ByteBuffer.allocate(1 + Integer.BYTES + framed.length).put(UNIT).putInt(count).put(framed).array();
+        }
+
+        void reset() {
+            changes.reset();
+            count = 0;
+        }
+    }
+
+    // Consecutive changes of one operation on one repository, applied with one bulk call.
+    private final class Batch<T> {
+        private final Registration<T> registration;
+        private final byte operation;
+        private final List<T> items = new ArrayList<>();
+        private final List<String> identities = new ArrayList<>();
+
+        Batch(Registration<T> registration, byte operation) {
+            this.registration = registration;
+            this.operation = operation;
+        }
+
+        void add(String identity, InputStream json) throws IOException {
+            switch (operation) {
+                case PUT -> items.add(mapper.readValue(json, registration.type()));
+                case DELETE -> identities.add(identity);
+                default -> {
+                }
+            }
+        }
+
+        void flush() {
+            GenericRepository<T> repository = registration.repository();
+            switch (operation) {
+                case PUT -> report(repository.upsertAll(items));
+                case DELETE -> repository.removeAllByIdentity(identities);
+                case CLEAR -> repository.clear();
+                default -> logger.warn("Skipping journal records with unknown operation {}", operation);
+            }
+        }
+
+        // A rejected put would be dropped for good by the next compaction; stop instead.
+        private void report(BulkResult result) {
+            int rejected = result.count(BulkResult.Outcome.REJECTED);
+            if (rejected > 0) {
+                throw new InvalidDataException(String.format("%d journaled %s puts were rejected on replay: %s",
+                        rejected, registration.entityType(), String.join("; ", result.rejections())));
+            }
+        }
+    }
+
+    private List<Long> segments() {
+        List<Long> numbers = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return numbers;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    numbers.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    logger.warn("Ignoring unexpected file in journal directory: {}", file);
+                }
+            }
+        } catch (IOException e) {
+            throw new DataSerializationException("Failed to list journal segments in " + directory, e);
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private FileChannel openSegment(long number) {
+        try {
+            Files.createDirectories(directory);
+            return FileChannel.open(segmentPath(number),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new DataSerializationException("Failed to open journal segment " + number, e);
+        }
+    }
+}
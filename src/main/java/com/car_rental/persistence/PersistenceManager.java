@@ -3,14 +3,19 @@ package com.car_rental.persistence;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.car_rental.config.AppConfig;
 import com.car_rental.exception.DataSerializationException;
+import com.car_rental.repository.GenericRepository;
+import com.car_rental.repository.RepositorySnapshot;
+import com.car_rental.serializer.AbstractDataSerializer;
 import com.car_rental.serializer.DataSerializer;
 import com.car_rental.serializer.JsonDataSerializer;
+import com.car_rental.serializer.SmileDataSerializer;
 import com.car_rental.serializer.YamlDataSerializer;
 
 public class PersistenceManager {
@@ -29,6 +34,14 @@ public class PersistenceManager {
     private void initializeSerializers() {
         serializers.put("JSON", new JsonDataSerializer<>());
         serializers.put("YAML", new YamlDataSerializer<>());
+        serializers.put("SMILE", new SmileDataSerializer<>());
+
+        long mapThreshold = config.getMemoryMapThreshold();
+        for (DataSerializer<?> serializer : serializers.values()) {
+            if (serializer instanceof AbstractDataSerializer<?> fileSerializer) {
+                fileSerializer.setMemoryMapThreshold(mapThreshold);
+            }
+        }
         logger.debug("Registered serializers: {}", serializers.keySet());
     }
 
@@ -50,7 +63,7 @@ public class PersistenceManager {
                 items.size(), entityType, formatUpper, filePath);
 
         try {
-            serializer.serialize(items, filePath);
+            serializer.serializeAll(items, filePath, config.getCompression(entityType));
             logger.info("Successfully saved {} {} items to {}", items.size(), entityType, formatUpper);
         } catch (DataSerializationException e) {
             logger.error("Failed to save {} to {}: {}", entityType, formatUpper, e.getMessage());
@@ -58,6 +71,38 @@ public class PersistenceManager {
         }
     }
 
+    /**
+     * Saves the repository's current snapshot straight from its iterator: a consistent
+     * version, written item by item, with no list built first. Returns the number saved.
+     */
+    public <T> int save(GenericRepository<T> repository,
+                        String entityType,
+                        Class<T> clazz,
+                        String format) throws DataSerializationException {
+        validateParameters(entityType, clazz);
+
+        if (repository == null) {
+            throw new DataSerializationException("Repository cannot be null");
+        }
+
+        String formatUpper = format.toUpperCase();
+        DataSerializer<T> serializer = getSerializer(formatUpper);
+        String filePath = getFilePath(entityType, formatUpper);
+        RepositorySnapshot<T> snapshot = repository.snapshot();
+
+        logger.info("Saving {} items of type {} (version {}) to {} file: {}",
+                snapshot.size(), entityType, snapshot.version(), formatUpper, filePath);
+
+        try {
+            int count = serializer.serializeAll(snapshot, filePath, config.getCompression(entityType));
+            logger.info("Successfully saved {} {} items to {}", count, entityType, formatUpper);
+            return count;
+        } catch (DataSerializationException e) {
+            logger.error("Failed to save {} to {}: {}", entityType, formatUpper, e.getMessage());
+            throw e;
+        }
+    }
+
     public <T> List<T> load(String entityType,
                             Class<T> clazz,
                             String format) throws DataSerializationException {
@@ -80,6 +125,35 @@ public class PersistenceManager {
         }
     }
 
+    /**
+     * Streams the entity file into {@code sink} in batches of {@code batchSize} instead of
+     * materialising the whole list first; see {@link DataSerializer#deserializeInto}.
+     * Returns the number of items read.
+     */
+    public <T> int loadInto(String entityType,
+                            Class<T> clazz,
+                            String format,
+                            int batchSize,
+                            Consumer<List<T>> sink) throws DataSerializationException {
+
+        validateParameters(entityType, clazz);
+
+        String formatUpper = format.toUpperCase();
+        DataSerializer<T> serializer = getSerializer(formatUpper);
+        String filePath = getFilePath(entityType, formatUpper);
+
+        logger.info("Streaming {} from {} file: {}", entityType, formatUpper, filePath);
+
+        try {
+            int count = serializer.deserializeInto(filePath, clazz, batchSize, sink);
+            logger.info("Successfully streamed {} items of type {}", count, entityType);
+            return count;
+        } catch (DataSerializationException e) {
+            logger.error("Failed to stream {} from {}: {}", entityType, formatUpper, e.getMessage());
+            throw e;
+        }
+    }
+
     public <T> void saveAllFormats(List<T> items,
                                    String entityType,
                                    Class<T> clazz) throws DataSerializationException {
@@ -121,6 +195,7 @@ public class PersistenceManager {
         return switch (format) {
             case "JSON" -> config.getJsonFilePath(entityType);
             case "YAML" -> config.getYamlFilePath(entityType);
+            case "SMILE" -> config.getSmileFilePath(entityType);
             default -> throw new IllegalArgumentException("Unsupported format: " + format);
         };
     }
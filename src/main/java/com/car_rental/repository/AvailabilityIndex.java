@@ -0,0 +1,178 @@
+package com.car_rental.repository;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongFunction;
+import java.util.function.UnaryOperator;
+
+import com.car_rental.exception.BookingConflictException;
+import com.car_rental.model.Rental;
+
+/**
+ * Bookings of every car as one {@link IntervalTree} per license plate, so whether a car is
+ * free for a period is answered in O(log n) of that car's rental history. A car returned
+ * on a day can be picked up again the same day: a rental occupies the days from its start
+ * date up to, but not including, its end date, and a same-day rental occupies its one day.
+ *
+ * <p>The index also guards writes: {@link #validate} rejects a rental that would double-book
+ * its car, and the repository checks it before anything is stored. Rentals moved out to a
+ * partition archive keep their bookings here, in trees of their own under ids of their own,
+ * so a car stays booked for them until they are restored.
+ */
+final class AvailabilityIndex implements RepositoryIndex<Rental> {
+
+    private static final UnaryOperator<String> PLATE_KEY = HashIndex.ignoringCase();
+
+    private final String name;
+    private final Map<String, IntervalTree> bookings = new HashMap<>();
+    private LongFunction<Rental> resolver = sequence -> null;
+
+    private final Map<String, IntervalTree> archived = new HashMap<>();
+    private final Map<Long, ArchivedBooking> archivedBookings = new HashMap<>();
+    private final Map<String, Long> archivedIds = new HashMap<>();
+    private long nextArchivedId;
+
+    private record ArchivedBooking(String rentalId, String key, long start) {
+    }
+
+    AvailabilityIndex(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    boolean isFree(String licensePlate, LocalDate from, LocalDate to) {
+        String key = PLATE_KEY.apply(licensePlate);
+        long start = from.toEpochDay();
+        long last = lastDay(from, to);
+        return overlap(bookings.get(key), start, last, -1L) == null
+                && overlap(archived.get(key), start, last, -1L) == null;
+    }
+
+    @Override
+    public void validate(long sequence, Rental rental) {
+        String key = keyOf(rental);
+        if (key == null) {
+            return;
+        }
+        long start = rental.getStartDate().toEpochDay();
+        long last = lastDay(rental.getStartDate(), rental.getEndDate());
+        String bookedBy = null;
+        IntervalTree.Interval conflict = overlap(bookings.get(key), start, last, sequence);
+        if (conflict != null) {
+            Rental booked = resolver.apply(conflict.id());
+            bookedBy = booked == null ? null : booked.getId();
+        } else {
+            // A rental being restored, or one reusing an archived id, replaces its archived booking.
+            Long own = archivedIds.get(rental.getId());
+            conflict = overlap(archived.get(key), start, last, own == null ? -1L : own);
+            bookedBy = conflict == null ? null : archivedBookings.get(conflict.id()).rentalId();
+        }
+        if (conflict != null) {
+            throw new BookingConflictException(String.format("Car %s is already booked on %s%s",
+                    rental.getCar().getLicensePlate(), LocalDate.ofEpochDay(Math.max(start, conflict.start())),
+                    bookedBy == null ? "" : " by rental " + bookedBy));
+        }
+    }
+
+    @Override
+    public void bind(LongFunction<Rental> resolver) {
+        this.resolver = resolver;
+    }
+
+    @Override
+    public void onAdd(long sequence, Rental rental) {
+        String key = keyOf(rental);
+        if (key != null) {
+            bookings.computeIfAbsent(key, k -> new IntervalTree())
+                    .insert(rental.getStartDate().toEpochDay(),
+                            lastDay(rental.getStartDate(), rental.getEndDate()), sequence);
+        }
+        dropArchived(rental.getId());
+    }
+
+    @Override
+    public void onRemove(long sequence, Rental rental) {
+        String key = keyOf(rental);
+        IntervalTree tree = key == null ? null : bookings.get(key);
+        if (tree != null && tree.remove(rental.getStartDate().toEpochDay(), sequence)) {
+            dropIfEmpty(key, tree);
+            return;
+        }
+        // The rental was changed in place after it was indexed; find the booking by sequence.
+        for (Map.Entry<String, IntervalTree> entry : bookings.entrySet()) {
+            if (entry.getValue().removeById(sequence)) {
+                dropIfEmpty(entry.getKey(), entry.getValue());
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean keepsArchived() {
+        return true;
+    }
+
+    @Override
+    public void onArchived(Rental rental) {
+        String key = keyOf(rental);
+        if (key == null || rental.getId() == null) {
+            return;
+        }
+        dropArchived(rental.getId());
+        long id = nextArchivedId++;
+        long start = rental.getStartDate().toEpochDay();
+        archived.computeIfAbsent(key, k -> new IntervalTree())
+                .insert(start, lastDay(rental.getStartDate(), rental.getEndDate()), id);
+        archivedBookings.put(id, new ArchivedBooking(rental.getId(), key, start));
+        archivedIds.put(rental.getId(), id);
+    }
+
+    @Override
+    public void clear() {
+        bookings.clear();
+        archived.clear();
+        archivedBookings.clear();
+        archivedIds.clear();
+    }
+
+    private void dropArchived(String rentalId) {
+        Long id = rentalId == null ? null : archivedIds.remove(rentalId);
+        if (id == null) {
+            return;
+        }
+        ArchivedBooking booking = archivedBookings.remove(id);
+        IntervalTree tree = archived.get(booking.key());
+        tree.remove(booking.start(), id);
+        if (tree.isEmpty()) {
+            archived.remove(booking.key());
+        }
+    }
+
+    private void dropIfEmpty(String key, IntervalTree tree) {
+        if (tree.isEmpty()) {
+            bookings.remove(key);
+        }
+    }
+
+    private static IntervalTree.Interval overlap(IntervalTree tree, long start, long last, long excludedId) {
+        return tree == null ? null : tree.findOverlap(start, last, excludedId);
+    }
+
+    private static String keyOf(Rental rental) {
+        if (rental.getCar() == null || rental.getCar().getLicensePlate() == null
+                || rental.getStartDate() == null || rental.getEndDate() == null) {
+            return null;
+        }
+        return PLATE_KEY.apply(rental.getCar().getLicensePlate());
+    }
+
+    // Last occupied epoch day: the end date itself is free for the next pickup.
+    private static long lastDay(LocalDate start, LocalDate end) {
+        return Math.max(start.toEpochDay(), end.toEpochDay() - 1);
+    }
+}
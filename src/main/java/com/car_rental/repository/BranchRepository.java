@@ -13,32 +13,35 @@ public class BranchRepository extends GenericRepository<Branch>{
 
     private static final Logger logger = LoggerFactory.getLogger(BranchRepository.class);
 
+    static final String BY_LOCATION = "location";
+    static final String SORTED_BY_LOCATION = "sorted:location";
 
     public BranchRepository(){
         super(Branch::name, "Branch");
+        registerIndex(new NgramIndex<>(BY_LOCATION, Branch::location));
+        registerSortedView(SORTED_BY_LOCATION, Branch.byLocation());
     }
 
     public List<Branch> sortByLocation(){
-        return sortByComparator(Branch.byLocation());
+        return sortByView(SORTED_BY_LOCATION);
     }
 
     public Optional<Branch> findByName(String name){
         if(name == null){
-            logger.warn(String.format("findByName called with null name"));
+            logger.warn("findByName called with null name");
             return Optional.empty();
         }
-        logger.info(String.format("Trying to find Branch by %s", name));
+        logger.debug("Trying to find Branch by {}", name);
         return findByIdentity(name);
     }
 
     public List<Branch> findByLocation(String location){
         if(location == null){
-            logger.warn(String.format("findByLocation called with null location"));
+            logger.warn("findByLocation called with null location");
             return Collections.emptyList();
         }
-        logger.info(String.format("Trying to find Branch by %s", location));
-        return findByPredicate(x -> x.location().trim().toLowerCase().contains(location.trim().toLowerCase()))
-            .toList();
+        logger.debug("Trying to find Branch by {}", location);
+        return findBySubstring(BY_LOCATION, location);
     }
 
     
@@ -0,0 +1,85 @@
+package com.car_rental.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-item outcome of a bulk repository operation, stored as one byte per input item
+ * in input order, plus a count per outcome and the reason each rejected item was refused.
+ */
+public final class BulkResult {
+
+    public enum Outcome {
+        ADDED,
+        UPDATED,
+        REMOVED,
+        DUPLICATE,
+        MISSING,
+        REJECTED
+    }
+
+    private static final Outcome[] OUTCOMES = Outcome.values();
+
+    private final byte[] outcomes;
+    private final int[] counts = new int[OUTCOMES.length];
+    private final List<String> rejections = new ArrayList<>();
+
+    BulkResult(int size) {
+        this.outcomes = new byte[size];
+    }
+
+    void record(int index, Outcome outcome) {
+        outcomes[index] = (byte) outcome.ordinal();
+        counts[outcome.ordinal()]++;
+    }
+
+    void reject(int index, String reason) {
+        record(index, Outcome.REJECTED);
+        rejections.add(reason);
+    }
+
+    public int size() {
+        return outcomes.length;
+    }
+
+    public Outcome outcome(int index) {
+        return OUTCOMES[outcomes[index]];
+    }
+
+    public int count(Outcome outcome) {
+        return counts[outcome.ordinal()];
+    }
+
+    /**
+     * Why items were rejected, in input order, e.g. {@code "Rental R2: Car AA1111 is already
+     * booked on 2024-03-18 by rental R1"}. Null input items are rejected without a reason.
+     */
+    public List<String> rejections() {
+        return Collections.unmodifiableList(rejections);
+    }
+
+    /**
+     * True if at least one item changed the repository.
+     */
+    public boolean modified() {
+        return count(Outcome.ADDED) + count(Outcome.UPDATED) + count(Outcome.REMOVED) > 0;
+    }
+
+    public Map<Outcome, Integer> summary() {
+        Map<Outcome, Integer> summary = new EnumMap<>(Outcome.class);
+        for (Outcome outcome : OUTCOMES) {
+            if (counts[outcome.ordinal()] > 0) {
+                summary.put(outcome, counts[outcome.ordinal()]);
+            }
+        }
+        return summary;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BulkResult { size=%d, %s }", size(), summary());
+    }
+}
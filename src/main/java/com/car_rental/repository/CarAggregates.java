@@ -0,0 +1,92 @@
+package com.car_rental.repository;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+import com.car_rental.model.Car;
+import com.car_rental.model.CarStatus;
+
+/**
+ * Running fleet totals: cars per status and total mileage. Every add, remove and observed
+ * status or mileage change adjusts them in O(1), so the aggregates never need a scan.
+ * The mileage total is kept in whole thousandths, so adding and taking back the same
+ * mileage cancels exactly and no rounding error builds up over the uptime.
+ */
+final class CarAggregates implements RepositoryIndex<Car> {
+
+    private static final CarStatus[] STATUSES = CarStatus.values();
+    private static final double MILEAGE_SCALE = 1_000.0;
+
+    private final String name;
+    private final int[] statusCounts = new int[STATUSES.length];
+    private int cars;
+    private long totalMileage;
+
+    CarAggregates(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    Map<CarStatus, Integer> countByStatus() {
+        Map<CarStatus, Integer> result = new EnumMap<>(CarStatus.class);
+        for (CarStatus status : STATUSES) {
+            if (statusCounts[status.ordinal()] > 0) {
+                result.put(status, statusCounts[status.ordinal()]);
+            }
+        }
+        return result;
+    }
+
+    double averageMileage() {
+        return cars == 0 ? 0.0 : totalMileage / MILEAGE_SCALE / cars;
+    }
+
+    @Override
+    public void onAdd(long sequence, Car car) {
+        cars++;
+        totalMileage += scaled(car.getMileage());
+        count(car.getStatus(), 1);
+    }
+
+    @Override
+    public void onRemove(long sequence, Car car) {
+        cars--;
+        totalMileage -= scaled(car.getMileage());
+        count(car.getStatus(), -1);
+    }
+
+    @Override
+    public void onChange(long sequence, Car car, String property, Object oldValue) {
+        switch (property) {
+            case Car.STATUS -> {
+                count((CarStatus) oldValue, -1);
+                count(car.getStatus(), 1);
+            }
+            case Car.MILEAGE -> totalMileage += scaled(car.getMileage()) - scaled((Double) oldValue);
+            default -> {
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(statusCounts, 0);
+        cars = 0;
+        totalMileage = 0;
+    }
+
+    private static long scaled(double mileage) {
+        return Math.round(mileage * MILEAGE_SCALE);
+    }
+
+    private void count(CarStatus status, int delta) {
+        if (status != null) {
+            statusCounts[status.ordinal()] += delta;
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.car_rental.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntPredicate;
+
+import com.car_rental.model.Car;
+import com.car_rental.model.CarStatus;
+
+/**
+ * Column-oriented copy of the fleet: one primitive array per field, one row per car.
+ * Filters, sorts and aggregates walk the arrays directly, so a fleet-wide scan touches
+ * a few contiguous arrays instead of every {@link Car} object and never boxes a value.
+ * The {@link Car} objects are kept alongside as the row view handed back to callers.
+ *
+ * <p>Rows are kept in insertion-sequence order: new sequences are always appended,
+ * an update rewrites its row in place, and a removal leaves a tombstone that is
+ * compacted away once tombstones outnumber live rows.
+ */
+final class CarColumns implements RepositoryIndex<Car> {
+
+    private static final byte NO_STATUS = -1;
+    private static final int MIN_COMPACTION = 32;
+    private static final CarStatus[] STATUSES = CarStatus.values();
+
+    private final String name;
+
+    private long[] sequences = new long[16];
+    private int[] years = new int[16];
+    private double[] mileages = new double[16];
+    private byte[] statuses = new byte[16];
+    private int[] models = new int[16];
+    private Car[] cars = new Car[16];
+    private int rows;
+    private int tombstones;
+
+    // Dictionary encoding of the model column; codes are never reused.
+    private final List<String> modelDictionary = new ArrayList<>();
+    private final Map<String, Integer> modelCodes = new HashMap<>();
+
+    CarColumns(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    int size() {
+        return rows - tombstones;
+    }
+
+    List<Car> filter(IntPredicate rowFilter) {
+        List<Car> result = new ArrayList<>();
+        for (int row = 0; row < rows; row++) {
+            if (cars[row] != null && rowFilter.test(row)) {
+                result.add(cars[row]);
+            }
+        }
+        return result;
+    }
+
+    List<Car> findByYearBetween(int from, int to) {
+        return sortedRows(row -> years[row] >= from && years[row] <= to, this::compareYears);
+    }
+
+    List<Car> findByMileageBetween(double min, double max, boolean maxInclusive) {
+        return sortedRows(row -> mileages[row] >= min
+                && (maxInclusive ? mileages[row] <= max : mileages[row] < max), this::compareMileages);
+    }
+
+    List<Car> findByStatus(CarStatus status) {
+        byte code = (byte) status.ordinal();
+        return filter(row -> statuses[row] == code);
+    }
+
+    List<Car> findByModel(String model) {
+        Integer code = modelCodes.get(model);
+        if (code == null) {
+            return List.of();
+        }
+        int wanted = code;
+        return filter(row -> models[row] == wanted);
+    }
+
+    List<Car> sortByYear() {
+        return sortedRows(row -> true, this::compareYears);
+    }
+
+    List<Car> sortByMileage() {
+        return sortedRows(row -> true, this::compareMileages);
+    }
+
+    Map<CarStatus, Integer> countByStatus() {
+        int[] counts = new int[STATUSES.length];
+        for (int row = 0; row < rows; row++) {
+            if (cars[row] != null && statuses[row] != NO_STATUS) {
+                counts[statuses[row]]++;
+            }
+        }
+
+        Map<CarStatus, Integer> result = new EnumMap<>(CarStatus.class);
+        for (CarStatus status : STATUSES) {
+            if (counts[status.ordinal()] > 0) {
+                result.put(status, counts[status.ordinal()]);
+            }
+        }
+        return result;
+    }
+
+    Map<String, Integer> countByModel() {
+        int[] counts = new int[modelDictionary.size()];
+        for (int row = 0; row < rows; row++) {
+            if (cars[row] != null && models[row] >= 0) {
+                counts[models[row]]++;
+            }
+        }
+
+        Map<String, Integer> result = new TreeMap<>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0) {
+                result.put(modelDictionary.get(code), counts[code]);
+            }
+        }
+        return result;
+    }
+
+    double averageMileage() {
+        double total = 0;
+        int count = 0;
+        for (int row = 0; row < rows; row++) {
+            if (cars[row] != null) {
+                total += mileages[row];
+                count++;
+            }
+        }
+        return count == 0 ? 0.0 : total / count;
+    }
+
+    Map<Integer, Double> averageMileageByYear() {
+        int minYear = Integer.MAX_VALUE;
+        int maxYear = Integer.MIN_VALUE;
+        for (int row = 0; row < rows; row++) {
+            if (cars[row] != null) {
+                minYear = Math.min(minYear, years[row]);
+                maxYear = Math.max(maxYear, years[row]);
+            }
+        }
+        if (minYear > maxYear) {
+            return new TreeMap<>();
+        }
+
+        double[] totals = new double[maxYear - minYear + 1];
+        int[] counts = new int[totals.length];
+        for (int row = 0; row < rows; row++) {
+            if (cars[row] != null) {
+                totals[years[row] - minYear] += mileages[row];
+                counts[years[row] - minYear]++;
+            }
+        }
+
+        Map<Integer, Double> result = new TreeMap<>();
+        for (int i = 0; i < totals.length; i++) {
+            if (counts[i] > 0) {
+                result.put(minYear + i, totals[i] / counts[i]);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void onAdd(long sequence, Car car) {
+        int row = rowOf(sequence);
+        if (row < 0) {
+            if (tombstones >= MIN_COMPACTION && tombstones > rows / 2) {
+                compact();
+            }
+            ensureCapacity(rows + 1);
+            row = rows++;
+            sequences[row] = sequence;
+        } else if (cars[row] == null) {
+            tombstones--;
+        }
+
+        years[row] = car.getYear();
+        mileages[row] = car.getMileage();
+        statuses[row] = car.getStatus() == null ? NO_STATUS : (byte) car.getStatus().ordinal();
+        models[row] = encodeModel(car.getModel());
+        cars[row] = car;
+    }
+
+    @Override
+    public void onRemove(long sequence, Car car) {
+        int row = rowOf(sequence);
+        if (row < 0 || cars[row] == null) {
+            return;
+        }
+        // The row keeps its sequence so that the add half of an update lands back in place.
+        cars[row] = null;
+        tombstones++;
+    }
+
+    // Rewrites the one changed cell of the row; other properties are not stored in columns.
+    @Override
+    public void onChange(long sequence, Car car, String property, Object oldValue) {
+        int row = rowOf(sequence);
+        if (row < 0 || cars[row] == null) {
+            return;
+        }
+        switch (property) {
+            case Car.STATUS -> statuses[row] = car.getStatus() == null ? NO_STATUS : (byte) car.getStatus().ordinal();
+            case Car.MILEAGE -> mileages[row] = car.getMileage();
+            case Car.YEAR -> years[row] = car.getYear();
+            case Car.MODEL -> models[row] = encodeModel(car.getModel());
+            default -> {
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(cars, 0, rows, null);
+        rows = 0;
+        tombstones = 0;
+    }
+
+    private int compareYears(int a, int b) {
+        return Integer.compare(years[a], years[b]);
+    }
+
+    private int compareMileages(int a, int b) {
+        return Double.compare(mileages[a], mileages[b]);
+    }
+
+    // Stable merge sort of live row numbers, so equal keys stay in insertion order.
+    private List<Car> sortedRows(IntPredicate rowFilter, IntBinaryOperator comparator) {
+        int[] selected = new int[size()];
+        int count = 0;
+        for (int row = 0; row < rows; row++) {
+            if (cars[row] != null && rowFilter.test(row)) {
+                selected[count++] = row;
+            }
+        }
+
+        int[] buffer = new int[count];
+        mergeSort(selected, buffer, 0, count, comparator);
+
+        List<Car> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(cars[selected[i]]);
+        }
+        return result;
+    }
+
+    private static void mergeSort(int[] rows, int[] buffer, int from, int to, IntBinaryOperator comparator) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(rows, buffer, from, middle, comparator);
+        mergeSort(rows, buffer, middle, to, comparator);
+        if (comparator.applyAsInt(rows[middle - 1], rows[middle]) <= 0) {
+            return;
+        }
+
+        System.arraycopy(rows, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && comparator.applyAsInt(buffer[left], buffer[right]) <= 0)) {
+                rows[i] = buffer[left++];
+            } else {
+                rows[i] = buffer[right++];
+            }
+        }
+    }
+
+    private int rowOf(long sequence) {
+        if (rows == 0 || sequence > sequences[rows - 1]) {
+            return -1;
+        }
+        int row = Arrays.binarySearch(sequences, 0, rows, sequence);
+        return row >= 0 ? row : -1;
+    }
+
+    private int encodeModel(String model) {
+        if (model == null) {
+            return -1;
+        }
+        Integer code = modelCodes.get(model);
+        if (code == null) {
+            code = modelDictionary.size();
+            modelDictionary.add(model);
+            modelCodes.put(model, code);
+        }
+        return code;
+    }
+
+    private void compact() {
+        int live = 0;
+        for (int row = 0; row < rows; row++) {
+            if (cars[row] != null) {
+                sequences[live] = sequences[row];
+                years[live] = years[row];
+                mileages[live] = mileages[row];
+                statuses[live] = statuses[row];
+                models[live] = models[row];
+                cars[live] = cars[row];
+                live++;
+            }
+        }
+        Arrays.fill(cars, live, rows, null);
+        rows = live;
+        tombstones = 0;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= sequences.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, sequences.length * 2);
+        sequences = Arrays.copyOf(sequences, newCapacity);
+        years = Arrays.copyOf(years, newCapacity);
+        mileages = Arrays.copyOf(mileages, newCapacity);
+        statuses = Arrays.copyOf(statuses, newCapacity);
+        models = Arrays.copyOf(models, newCapacity);
+        cars = Arrays.copyOf(cars, newCapacity);
+    }
+}
@@ -2,46 +2,175 @@ package com.car_rental.repository;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.car_rental.model.Car;
+import com.car_rental.model.CarStatus;
 
 public class CarRepository extends GenericRepository<Car>{
     private static final Logger logger = LoggerFactory.getLogger(CarRepository.class);
 
+    public static final String BY_YEAR = "year";
+    public static final String BY_MILEAGE = "mileage";
+    public static final String BY_MODEL = "model";
+    public static final String BY_STATUS = "status";
+    static final String AGGREGATES = "aggregates";
+    static final String COLUMNS = "columns";
+
+    // Primitive column store; null unless the repository was created in columnar mode.
+    private final CarColumns columns;
+    // Running status counts and mileage total; null in columnar mode, where the columns answer instead.
+    private final CarAggregates aggregates;
 
     public CarRepository(){
+        this(false);
+    }
+
+    /**
+     * @param columnar keep year, mileage, status and model in primitive columns instead of
+     *                 range indexes, so fleet-wide filters and aggregates run without boxing
+     */
+    public CarRepository(boolean columnar){
         super(Car::getLicensePlate, "Car");
+        if (columnar) {
+            columns = new CarColumns(COLUMNS);
+            aggregates = null;
+            registerIndex(columns);
+        } else {
+            columns = null;
+            aggregates = new CarAggregates(AGGREGATES);
+            registerIndex(new RangeIndex<>(BY_YEAR, Car.YEAR, Car::getYear));
+            registerIndex(new RangeIndex<>(BY_MILEAGE, Car.MILEAGE, Car::getMileage));
+            registerIndex(new HashIndex<>(BY_STATUS, Car.STATUS,
+                    car -> car.getStatus() == null ? null : car.getStatus().name(), UnaryOperator.identity()));
+            registerIndex(aggregates);
+        }
+        registerIndex(new NgramIndex<>(BY_MODEL, Car::getModel));
+    }
+
+    public boolean isColumnar(){
+        return columns != null;
     }
 
     public List<Car> sortByYear(){
-        return sortByComparator(Car.byYear());
+        if (columns != null) {
+            return scanColumns(RepositoryMetrics.Operation.SORT, CarColumns::sortByYear);
+        }
+        return findInRange(BY_YEAR, null, null);
     }
 
     public List<Car> sortByMileage(){
-        return sortByComparator(Car.byMileage());
+        if (columns != null) {
+            return scanColumns(RepositoryMetrics.Operation.SORT, CarColumns::sortByMileage);
+        }
+        return findInRange(BY_MILEAGE, null, null);
     }
 
     public Optional<Car> findByLicensePlate(String licensePlate){
         if(licensePlate == null){
-            logger.warn(String.format("findByLicensePlate called with null licensePlate"));
+            logger.warn("findByLicensePlate called with null licensePlate");
             return Optional.empty();
         }
-        logger.info(String.format("Trying to find Car by %s", licensePlate));
+        logger.debug("Trying to find Car by {}", licensePlate);
         return findByIdentity(licensePlate);
     }
 
     public List<Car> findByModel(String model){
         if(model == null){
-            logger.warn(String.format("findByModel called with null model"));
+            logger.warn("findByModel called with null model");
+            return Collections.emptyList();
+        }
+        logger.debug("Trying to find Car by {}", model);
+        return findBySubstring(BY_MODEL, model);
+    }
+
+    public List<Car> findByYearBetween(int from, int to){
+        logger.debug("Trying to find Cars made between {} and {}", from, to);
+        if (columns != null) {
+            return scanColumns(RepositoryMetrics.Operation.SCAN, c -> c.findByYearBetween(from, to));
+        }
+        return findInRange(BY_YEAR, from, to);
+    }
+
+    public List<Car> findByMileageBetween(double min, double max){
+        logger.debug("Trying to find Cars with mileage between {} and {}", min, max);
+        if (columns != null) {
+            return scanColumns(RepositoryMetrics.Operation.SCAN, c -> c.findByMileageBetween(min, max, true));
+        }
+        return findInRange(BY_MILEAGE, min, max);
+    }
+
+    public List<Car> findByMileageBelow(double max){
+        logger.debug("Trying to find Cars with mileage below {}", max);
+        if (columns != null) {
+            return scanColumns(RepositoryMetrics.Operation.SCAN,
+                    c -> c.findByMileageBetween(Double.NEGATIVE_INFINITY, max, false));
+        }
+        return findInRange(BY_MILEAGE, null, false, max, false);
+    }
+
+    public List<Car> findByStatus(CarStatus status){
+        if(status == null){
+            logger.warn("findByStatus called with null status");
             return Collections.emptyList();
         }
-        logger.info(String.format("Trying to find Car by %s", model));
-        return findByPredicate(x -> x.getModel().trim().toLowerCase().contains(model.trim().toLowerCase()))
-            .toList();
+        logger.debug("Trying to find Cars with status {}", status);
+        if (columns != null) {
+            return scanColumns(RepositoryMetrics.Operation.SCAN, c -> c.findByStatus(status));
+        }
+        return findByIndex(BY_STATUS, status.name());
+    }
+
+    public Map<CarStatus, Integer> countByStatus(){
+        if (columns != null) {
+            return scanColumns(RepositoryMetrics.Operation.SCAN, CarColumns::countByStatus);
+        }
+        return read(aggregates::countByStatus);
     }
-    
+
+    public Map<String, Integer> countByModel(){
+        if (columns != null) {
+            return scanColumns(RepositoryMetrics.Operation.SCAN, CarColumns::countByModel);
+        }
+        Map<String, Integer> counts = new TreeMap<>();
+        snapshot().forEach(car -> {
+            if (car.getModel() != null) {
+                counts.merge(car.getModel(), 1, Integer::sum);
+            }
+        });
+        return counts;
+    }
+
+    public double averageMileage(){
+        if (columns != null) {
+            return scanColumns(RepositoryMetrics.Operation.SCAN, CarColumns::averageMileage);
+        }
+        return read(aggregates::averageMileage);
+    }
+
+    public Map<Integer, Double> averageMileageByYear(){
+        if (columns != null) {
+            return scanColumns(RepositoryMetrics.Operation.SCAN, CarColumns::averageMileageByYear);
+        }
+        return snapshot().stream().collect(Collectors.groupingBy(Car::getYear, TreeMap::new,
+                Collectors.averagingDouble(Car::getMileage)));
+    }
+
+    private <R> R scanColumns(RepositoryMetrics.Operation operation, Function<CarColumns, R> query){
+        long start = System.nanoTime();
+        try {
+            return read(() -> query.apply(columns));
+        } finally {
+            metrics().record(operation, start);
+        }
+    }
+
 }
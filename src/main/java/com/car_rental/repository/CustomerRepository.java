@@ -3,6 +3,7 @@ package com.car_rental.repository;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.ToLongFunction;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,38 +13,46 @@ import com.car_rental.model.Customer;
 public class CustomerRepository  extends GenericRepository<Customer>{
     private static final Logger logger = LoggerFactory.getLogger(CustomerRepository.class);
 
+    static final String SORTED_BY_FIRST_NAME = "sorted:firstName";
+    static final String SORTED_BY_LAST_NAME = "sorted:lastName";
+    static final String BY_BIRTH_DATE = "birthDate";
 
     public CustomerRepository(){
         super(Customer::driverLicense, "Customer");
+        registerSortedView(SORTED_BY_FIRST_NAME, Customer.byFirstName());
+        registerSortedView(SORTED_BY_LAST_NAME, Customer.byLastName());
+        // Keyed by epoch day, so each birth date is parsed once on insert rather than on every comparison.
+        ToLongFunction<Customer> birthDateKey = Customer.birthDateKey();
+        registerIndex(new RangeIndex<>(BY_BIRTH_DATE, customer -> birthDateKey.applyAsLong(customer)));
     }
 
     public List<Customer> sortByFirstName(){
-        return sortByComparator(Customer.byFirstName());
+        return sortByView(SORTED_BY_FIRST_NAME);
     }
 
     public List<Customer> sortByLastName(){
-        return sortByComparator(Customer.byLastName());
+        return sortByView(SORTED_BY_LAST_NAME);
     }
 
     public List<Customer> sortByBirthDate(){
-        return sortByComparator(Customer.byBirthDate());
+        return findInRange(BY_BIRTH_DATE, null, null);
     }
 
     public Optional<Customer> findByDriverLicense(String driverLicence){
         if(driverLicence == null){
-            logger.warn(String.format("findByDriverLicense called with null driverLicence"));
+            logger.warn("findByDriverLicense called with null driverLicence");
             return Optional.empty();
         }
-        logger.info(String.format("Trying to find Customer by %s", driverLicence));
+        logger.debug("Trying to find Customer by {}", driverLicence);
         return findByIdentity(driverLicence);
     }
 
     public List<Customer> findByBirthDate(String birthDate){
         if(birthDate == null){
-            logger.warn(String.format("findByBirthDate called with null birthDate"));
+            logger.warn("findByBirthDate called with null birthDate");
             return Collections.emptyList();
         }
-        logger.info(String.format("Trying to find Customer by %s", birthDate));
+        logger.debug("Trying to find Customer by {}", birthDate);
         return findByPredicate(x -> x.birthDate().equals(birthDate))
             .toList();
     }
@@ -1,248 +1,1609 @@
 package com.car_rental.repository;
 
 import com.car_rental.exception.InvalidDataException;
+import com.car_rental.model.EntityChangeListener;
+import com.car_rental.model.ObservableEntity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class GenericRepository<T> {
     private static final Logger logger = LoggerFactory.getLogger(GenericRepository.class);
 
-    private final List<T> items;
+    private static final String DEFAULT_VIEW = "sorted:default";
+    private static final String IDENTITY_VIEW = "sorted:identity";
+
+    // Primary index: identity -> (insertion sequence, item). Makes lookups, duplicate
+    // checks, updates and removals O(1); the sequence locates the item in the snapshot.
+    // Written under the write lock only; a concurrent map so point lookups can read it
+    // optimistically, see slotOf.
+    private final Map<String, Slot> items;
     private final IdentityExtractor<T> identityExtractor;
     private final String entityType;
 
+    // Current immutable version of the contents, in insertion order. Writers publish a
+    // new one after each mutation; getAll() and snapshot() hand it out without copying.
+    private volatile RepositorySnapshot<T> snapshot;
+    private long nextSequence;
+    // What a bulk write or unit of work has built but not yet published, so indexes that
+    // resolve sequences mid-write also see the items added earlier in it. Write lock only.
+    private PersistentSequence<Object> unpublished;
+
+    // The commit applying a unit of work's in-place changes, whose setters notify this
+    // repository on the thread that already holds the write lock.
+    private Commit changing;
+
+    // How to take back the write in progress, newest step first, should it fail before it
+    // is published, and the store records it replaced or removed, which are released only
+    // once it is. Write lock only.
+    private final Deque<Runnable> undo = new ArrayDeque<>();
+    private final List<Runnable> releases = new ArrayList<>();
+    // The mutation listener that recorded the write published under the current write
+    // lock, for the writer to wait on once it has released the lock. Write lock only.
+    private MutationListener<T> recorder;
+
+    private final Map<String, RepositoryIndex<T>> indexes = new LinkedHashMap<>();
+
+    // Writers take the exclusive lock; readers share the read lock, so a lookup or a
+    // caller's predicate never runs against a map that is being restructured.
+    private final StampedLock lock = new StampedLock();
+
+    private final RepositoryMetrics metrics;
+
+    // Where the entities themselves live; items, snapshots and indexes only hold handles.
+    private final RecordStore<T> store;
+
+    // Subscribed to every stored entity that announces its own changes; only heap-stored
+    // entities are observed, since off-heap accessors hand out detached copies. Refuses
+    // any change that does not run through change() or a unit of work.
+    private final EntityChangeListener<Object> changeListener = new EntityChangeListener<>() {
+        @Override
+        public void beforeChange(Object entity, String property) {
+            ownCommit(entity, property);
+        }
+
+        @Override
+        public void onChange(Object entity, String property, Object oldValue, Object newValue) {
+            onEntityChange(entity, property, oldValue, newValue);
+        }
+    };
+
+    private volatile MutationListener<T> mutationListener;
+
+    // Entity version: the repository version that last wrote the entity. It grows with
+    // every add, replace and observed in-place change, so a unit of work can tell whether
+    // an entity it read was written since.
+    private record Slot(long sequence, Object handle, long version) {
+    }
+
+    // Global order in which a unit of work takes the write locks of several repositories,
+    // so two commits over overlapping repositories can never deadlock.
+    private static final AtomicLong COMMIT_ORDER = new AtomicLong();
+    private final long commitOrder = COMMIT_ORDER.incrementAndGet();
+
     public GenericRepository(IdentityExtractor<T> identityExtractor, String entityType) {
-        this.items = new ArrayList<>();
+        this(identityExtractor, entityType, RecordStore.onHeap());
+    }
+
+    public GenericRepository(IdentityExtractor<T> identityExtractor, String entityType, RecordStore<T> store) {
+        this.items = new ConcurrentHashMap<>();
         this.identityExtractor = identityExtractor;
         this.entityType = entityType;
-        logger.info(String.format("Created repository for %s", entityType));
+        this.store = store;
+        this.metrics = new RepositoryMetrics(entityType);
+        this.snapshot = new RepositorySnapshot<>(PersistentSequence.empty(), 0L,
+                store, identityExtractor, this::sequenceOf);
+        logger.debug("Created repository for {}", entityType);
     }
 
-    public synchronized boolean add(T item) {
-        if (item == null) {
-            logger.warn(String.format("Attempted to add null %s", entityType));
-            return false;
-        }
+    public boolean add(T item) {
+        long start = System.nanoTime();
+        try {
+            if (item == null) {
+                logger.warn("Attempted to add null {}", entityType);
+                return false;
+            }
 
-        String identity = identityExtractor.extractIdentity(item);
-        if (findByIdentity(identity).isPresent()) {
-            logger.warn(String.format("Cannot add %s - already exists with identity: ", identity));
-            return false;
-        }
+            String identity = identityExtractor.extractIdentity(item);
+            long stamp = lock.writeLock();
+            try {
+                if (items.containsKey(identity)) {
+                    logger.warn("Cannot add {} - already exists with identity: {}", entityType, identity);
+                    return false;
+                }
+                validate(nextSequence, item);
+                publish(append(snapshot.items(), identity, item));
+            } finally {
+                unlockWrite(stamp);
+            }
 
-        boolean added = items.add(item);
-        if (added) {
-            logger.info(String.format("Added %s: %s", entityType, identity));
+            logger.debug("Added {}: {}", entityType, identity);
+            return true;
+        } finally {
+            metrics.record(RepositoryMetrics.Operation.ADD, start);
         }
-        return added;
     }
 
-    public synchronized boolean addAll(List<T> list) {
+    public boolean addAll(List<T> list) {
         if (list == null) {
-            logger.warn(String.format("Attempted to add null %ss", entityType));
+            logger.warn("Attempted to add null {}s", entityType);
             return false;
         }
+        return insertAll(list).modified();
+    }
 
-        boolean modified = false;
-        for (T item : list) {
-            String identity = identityExtractor.extractIdentity(item);
-            if (findByIdentity(identity).isPresent()) {
-                logger.warn(String.format("Cannot add %s - already exists with identity: ", identity));
-            } else {
-
-                if (items.add(item)) {
-                    modified = true;
-                    logger.info(String.format("Added %s: %s", entityType, identity));
+    /**
+     * Adds the items whose identity is new, all under a single write lock, and reports what
+     * became of each: items already present are {@link BulkResult.Outcome#DUPLICATE}, items
+     * an index constraint refuses are {@link BulkResult.Outcome#REJECTED} with the reason.
+     */
+    public BulkResult insertAll(List<T> list) {
+        long start = System.nanoTime();
+        try {
+            BulkResult result = applyBulk(list, (current, index, item, report) -> {
+                String identity = identityExtractor.extractIdentity(item);
+                if (items.containsKey(identity)) {
+                    report.record(index, BulkResult.Outcome.DUPLICATE);
+                    return current;
                 }
+                if (rejects(nextSequence, item, index, report)) {
+                    return current;
+                }
+                report.record(index, BulkResult.Outcome.ADDED);
+                return append(current, identity, item);
+            });
 
-            }
+            logger.debug("Added {} {} items, skipped {} duplicates and {} rejected", result.count(BulkResult.Outcome.ADDED),
+                    entityType, result.count(BulkResult.Outcome.DUPLICATE), result.count(BulkResult.Outcome.REJECTED));
+            return result;
+        } finally {
+            metrics.record(RepositoryMetrics.Operation.ADD, start);
         }
+    }
+
+    /**
+     * Adds new items and replaces existing ones with the same identity, all under a single
+     * write lock. Within the batch, a later item with the same identity replaces an earlier one.
+     */
+    public BulkResult upsertAll(List<T> list) {
+        long start = System.nanoTime();
+        try {
+            BulkResult result = applyBulk(list, (current, index, item, report) -> {
+                String identity = identityExtractor.extractIdentity(item);
+                Slot existing = items.get(identity);
+                if (rejects(existing == null ? nextSequence : existing.sequence(), item, index, report)) {
+                    return current;
+                }
+                if (existing == null) {
+                    report.record(index, BulkResult.Outcome.ADDED);
+                    return append(current, identity, item);
+                }
+                report.record(index, BulkResult.Outcome.UPDATED);
+                return replace(current, identity, existing, item);
+            });
 
-        return modified;
+            logger.debug("Upserted {} items: {}", entityType, result);
+            return result;
+        } finally {
+            metrics.record(RepositoryMetrics.Operation.ADD, start);
+        }
     }
 
-    public synchronized boolean update(T newItem) {
-        if (newItem == null) {
-            throw new InvalidDataException(entityType + " cannot be null");
+    /**
+     * Replaces existing items under a single write lock; items whose identity is unknown
+     * are reported as {@link BulkResult.Outcome#MISSING}.
+     */
+    public BulkResult updateAll(List<T> list) {
+        long start = System.nanoTime();
+        try {
+            BulkResult result = applyBulk(list, (current, index, item, report) -> {
+                String identity = identityExtractor.extractIdentity(item);
+                Slot existing = items.get(identity);
+                if (existing == null) {
+                    report.record(index, BulkResult.Outcome.MISSING);
+                    return current;
+                }
+                if (rejects(existing.sequence(), item, index, report)) {
+                    return current;
+                }
+                report.record(index, BulkResult.Outcome.UPDATED);
+                return replace(current, identity, existing, item);
+            });
+
+            logger.debug("Updated {} items: {}", entityType, result);
+            return result;
+        } finally {
+            metrics.record(RepositoryMetrics.Operation.UPDATE, start);
         }
+    }
 
-        String identity = identityExtractor.extractIdentity(newItem);
-        Optional<T> existingItem = findByIdentity(identity);
+    public BulkResult removeAllByIdentity(List<String> identities) {
+        long start = System.nanoTime();
+        try {
+            BulkResult result = applyBulk(identities, (current, index, identity, report) -> {
+                Slot existing = items.get(identity);
+                if (existing == null) {
+                    report.record(index, BulkResult.Outcome.MISSING);
+                    return current;
+                }
+                if (!admitsRemoval(existing)) {
+                    report.record(index, BulkResult.Outcome.REJECTED);
+                    return current;
+                }
+                report.record(index, BulkResult.Outcome.REMOVED);
+                removeSlot(identity, existing);
+                return current.without(existing.sequence());
+            });
 
-        if (existingItem.isEmpty()) {
-            logger.warn("Cannot update: {} not found with identity: {}", entityType, identity);
-            return false;
+            logger.debug("Removed {} items: {}", entityType, result);
+            return result;
+        } finally {
+            metrics.record(RepositoryMetrics.Operation.REMOVE, start);
         }
+    }
+
+    public boolean update(T newItem) {
+        long start = System.nanoTime();
+        try {
+            if (newItem == null) {
+                throw new InvalidDataException(entityType + " cannot be null");
+            }
+
+            String identity = identityExtractor.extractIdentity(newItem);
+            long stamp = lock.writeLock();
+            try {
+                Slot existing = items.get(identity);
+                if (existing == null) {
+                    logger.warn("Cannot update: {} not found with identity: {}", entityType, identity);
+                    return false;
+                }
+                validate(existing.sequence(), newItem);
+                publish(replace(snapshot.items(), identity, existing, newItem));
+            } finally {
+                unlockWrite(stamp);
+            }
 
-        items.remove(existingItem.get());
-        items.add(newItem);
+            logger.debug("Updated {}: {}", entityType, identity);
+            return true;
+        } finally {
+            metrics.record(RepositoryMetrics.Operation.UPDATE, start);
+        }
+    }
 
-        logger.info("Updated {}: {}", entityType, identity);
+    /**
+     * Changes the entity stored under {@code identity} through its setters, as one new
+     * version. The change runs under the write lock, so indexes never lag behind the
+     * entity's fields and concurrent changes apply one after the other; if it throws
+     * halfway, what it set is set back. Setters called on a stored entity any other way
+     * throw {@link IllegalStateException}. Off-heap entities are loaded, changed and stored
+     * back. The change must only call setters: reading or writing any repository from it
+     * would deadlock. Returns false if nothing is stored under {@code identity}.
+     */
+    public boolean change(String identity, Consumer<? super T> change) {
+        if (identity == null || change == null) {
+            throw new IllegalArgumentException("Identity and change cannot be null");
+        }
+        long start = System.nanoTime();
+        Commit commit = beginCommit();
+        try {
+            if (!items.containsKey(identity)) {
+                logger.warn("Cannot change: {} not found with identity: {}", entityType, identity);
+                return false;
+            }
+            try {
+                commit.change(identity, change);
+                commit.prepare();
+            } catch (RuntimeException e) {
+                commit.rollback();
+                throw e;
+            }
+            commit.publish();
+        } finally {
+            commit.unlock();
+            metrics.record(RepositoryMetrics.Operation.UPDATE, start);
+        }
+        commit.awaitDurable();
         return true;
     }
 
     public T get(int index) {
-        return items.get(index);
+        return snapshot.get(index);
     }
 
+    @SuppressWarnings("unchecked")
     public List<T> sortByDefault() {
-        if (items.isEmpty()) {
-            logger.warn(String.format("Attempted to sort an empty array %s", entityType));
-            return new ArrayList<>();
-        }
-        logger.info(String.format("Successfully sorted %s by default", entityType));
-        return items.stream().sorted().toList();
+        long start = System.nanoTime();
+        try {
+            if (snapshot.isEmpty()) {
+                logger.warn("Attempted to sort an empty array {}", entityType);
+                return new ArrayList<>();
+            }
+            logger.debug("Successfully sorted {} by default", entityType);
+            return sortByView(sortedView(DEFAULT_VIEW, () -> (Comparator<T>) Comparator.naturalOrder()));
 
+        } finally {
+            metrics.record(RepositoryMetrics.Operation.SORT, start);
+        }
     }
 
     public List<T> sortByComparator(Comparator<T> comparator) {
-        if (items.isEmpty()) {
-            logger.warn(String.format("Attempted to sort an empty array %s", entityType));
-            return new ArrayList<>();
-        }
+        long start = System.nanoTime();
+        try {
+            List<T> current = snapshot;
+            if (current.isEmpty()) {
+                logger.warn("Attempted to sort an empty array {}", entityType);
+                return new ArrayList<>();
+            }
 
-        if (comparator == null) {
-            logger.warn(String.format("Attempted to sort by null, returning the whole list %s", entityType));
-            return new ArrayList<>(items);
+            if (comparator == null) {
+                logger.warn("Attempted to sort by null, returning the whole list {}", entityType);
+                return current;
+            }
+
+            logger.debug("Successfully sorted {} by comparator", entityType);
+            return current.stream().sorted(comparator).toList();
+
+        } finally {
+            metrics.record(RepositoryMetrics.Operation.SORT, start);
         }
+    }
+
+    /**
+     * Sorts by a {@code long} key that is computed once per item up front, instead of being
+     * derived again on every comparison. Keys are then ordered without a comparator by
+     * {@link KeySort}: counting sort for narrow ranges such as years or epoch days, radix sort
+     * otherwise. Items with equal keys keep insertion order.
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> sortByKey(ToLongFunction<T> keyExtractor) {
+        long start = System.nanoTime();
+        try {
+            List<T> current = snapshot;
+            if (keyExtractor == null) {
+                logger.warn("Attempted to sort by null key, returning the whole list {}", entityType);
+                return current;
+            }
 
-        logger.info(String.format("Successfully sorted %s by comparator", entityType));
-        return items.stream().sorted(comparator).toList();
+            Object[] items = current.toArray();
+            long[] keys = new long[items.length];
+            for (int i = 0; i < items.length; i++) {
+                keys[i] = keyExtractor.applyAsLong((T) items[i]);
+            }
 
+            int[] order = KeySort.order(keys);
+            List<T> sorted = new ArrayList<>(items.length);
+            for (int position : order) {
+                sorted.add((T) items[position]);
+            }
+            logger.debug("Successfully sorted {} by key", entityType);
+            return sorted;
+        } finally {
+            metrics.record(RepositoryMetrics.Operation.SORT, start);
+        }
     }
 
+    // The scan stays lazy: it runs in the caller's terminal operation, which may stop
+    // early, and is recorded as a SCAN only once it has passed over the whole snapshot.
     protected Stream<T> findByPredicate(Predicate<T> filter) {
+        List<T> current = snapshot;
         if (filter == null) {
-            logger.warn(String.format("Tried to find without a filter %s", entityType));
-            return items.stream();
+            logger.warn("Tried to find without a filter {}", entityType);
+            return current.stream();
         }
-        return items.stream().filter(filter);
+
+        long start = System.nanoTime();
+        return whenExhausted(current.spliterator(), () -> metrics.record(RepositoryMetrics.Operation.SCAN, start))
+                .filter(filter);
     }
 
-    public List<T> sortByIdentity(String order) {
-        if (items.isEmpty()) {
-            logger.warn(String.format("Attempted to sort an empty array %s", entityType));
-            return new ArrayList<>();
-        }
+    private static <T> Stream<T> whenExhausted(Spliterator<T> source, Runnable action) {
+        return StreamSupport.stream(new Spliterators.AbstractSpliterator<T>(source.estimateSize(), source.characteristics()) {
+            private boolean exhausted;
 
-        if (order == null) {
-            logger.warn(String.format("Attempted to sort by null, returning whole list %s", entityType));
-            return new ArrayList<>(items);
-        }
+            @Override
+            public boolean tryAdvance(Consumer<? super T> consumer) {
+                if (source.tryAdvance(consumer)) {
+                    return true;
+                }
+                finish();
+                return false;
+            }
 
-        Comparator<T> baseComparator = Comparator.comparing(
-                identityExtractor::extractIdentity
-        );
+            @Override
+            public void forEachRemaining(Consumer<? super T> consumer) {
+                source.forEachRemaining(consumer);
+                finish();
+            }
 
-        Comparator<T> finalComparator = switch (order.trim().toLowerCase()) {
-            case "asc", "ascending" -> {
-                logger.info(String.format("Sorted %s by identity in ascending order", entityType));
-                yield baseComparator;
+            private void finish() {
+                if (!exhausted) {
+                    exhausted = true;
+                    action.run();
+                }
             }
-            case "desc", "descending" -> {
-                logger.info(String.format("Sorted %s by identity in descending order", entityType));
-                yield baseComparator.reversed();
+        }, false);
+    }
+
+    public List<T> sortByIdentity(String order) {
+        long start = System.nanoTime();
+        try {
+            List<T> current = snapshot;
+            if (current.isEmpty()) {
+                logger.warn("Attempted to sort an empty array {}", entityType);
+                return new ArrayList<>();
             }
-            default -> {
-                logger.warn(String.format("Invalid sort order '%s' for %s. Using ascending order.", order, entityType));
-                yield baseComparator;
+
+            if (order == null) {
+                logger.warn("Attempted to sort by null, returning whole list {}", entityType);
+                return current;
             }
-        };
 
-        return items.stream()
-                .sorted(finalComparator)
-                .collect(Collectors.toList());
+            List<T> ascending = sortByView(sortedView(IDENTITY_VIEW,
+                    () -> Comparator.comparing(identityExtractor::extractIdentity)));
+
+            return switch (order.trim().toLowerCase()) {
+                case "asc", "ascending" -> {
+                    logger.debug("Sorted {} by identity in ascending order", entityType);
+                    yield new ArrayList<>(ascending);
+                }
+                case "desc", "descending" -> {
+                    logger.debug("Sorted {} by identity in descending order", entityType);
+                    List<T> descending = new ArrayList<>(ascending);
+                    Collections.reverse(descending);
+                    yield descending;
+                }
+                default -> {
+                    logger.warn("Invalid sort order '{}' for {}. Using ascending order.", order, entityType);
+                    yield new ArrayList<>(ascending);
+                }
+            };
+        } finally {
+            metrics.record(RepositoryMetrics.Operation.SORT, start);
+        }
     }
 
-    public synchronized boolean remove(T item) {
-        if (item == null) {
-            logger.warn(String.format("Attempted to remove null %s", entityType));
-            return false;
+    /**
+     * Returns the {@code k} smallest items under {@code comparator}, in order.
+     * Uses a bounded heap, so it runs in O(n log k) and keeps at most k items.
+     */
+    public List<T> topK(Comparator<T> comparator, int k) {
+        long start = System.nanoTime();
+        try {
+            if (comparator == null || k <= 0) {
+                logger.warn("Invalid top-k request for {}: k={}", entityType, k);
+                return new ArrayList<>();
+            }
+            return select(snapshot.items(), comparator, k, null).stream()
+                    .map(Page.Cursor::last)
+                    .toList();
+        } finally {
+            metrics.record(RepositoryMetrics.Operation.SORT, start);
         }
+    }
 
-        boolean removed = items.remove(item);
-        if (removed) {
-            logger.info(String.format("Removed %s: %s", entityType, identityExtractor.extractIdentity(item)));
-        } else {
-            logger.warn(String.format("Failed to remove %s: %s", entityType, identityExtractor.extractIdentity(item)));
+    /**
+     * Returns the page starting at {@code offset} of the items ordered by {@code comparator}.
+     * Costs O(n log(offset + limit)); for deep pages prefer {@link #pageAfter}.
+     */
+    public Page<T> page(Comparator<T> comparator, int offset, int limit) {
+        long start = System.nanoTime();
+        try {
+            if (comparator == null || offset < 0 || limit <= 0) {
+                logger.warn("Invalid page request for {}: offset={}, limit={}", entityType, offset, limit);
+                return new Page<>(List.of(), null);
+            }
+            int window = (int) Math.min(Integer.MAX_VALUE - 1L, (long) offset + limit);
+            List<Page.Cursor<T>> selected = select(snapshot.items(), comparator, window + 1, null);
+            return toPage(selected.subList(Math.min(offset, selected.size()), selected.size()), limit);
+        } finally {
+            metrics.record(RepositoryMetrics.Operation.SORT, start);
         }
-        return removed;
     }
 
-    public synchronized boolean removeByIdentity(String identity) {
-        if (identity == null) {
-            logger.warn(String.format("Attempted to remove %s with null identity", entityType));
-            return false;
+    /**
+     * Returns the {@code limit} items that follow {@code cursor} in {@code comparator} order.
+     * Costs O(n log limit) however deep the cursor is.
+     */
+    public Page<T> pageAfter(Comparator<T> comparator, Page.Cursor<T> cursor, int limit) {
+        long start = System.nanoTime();
+        try {
+            if (cursor == null) {
+                return page(comparator, 0, limit);
+            }
+            if (comparator == null || limit <= 0) {
+                logger.warn("Invalid page request for {}: limit={}", entityType, limit);
+                return new Page<>(List.of(), null);
+            }
+            return toPage(select(snapshot.items(), comparator, limit + 1, cursor), limit);
+        } finally {
+            metrics.record(RepositoryMetrics.Operation.SORT, start);
         }
+    }
+
+    public boolean remove(T item) {
+        long start = System.nanoTime();
+        try {
+            if (item == null) {
+                logger.warn("Attempted to remove null {}", entityType);
+                return false;
+            }
 
-        Optional<T> itemToRemove = items.stream()
-                .filter(item -> identity.equals(identityExtractor.extractIdentity(item)))
-                .findFirst();
+            String identity = identityExtractor.extractIdentity(item);
+            boolean removed;
+            long stamp = lock.writeLock();
+            try {
+                Slot existing = items.get(identity);
+                removed = existing != null && store.load(existing.handle()).equals(item);
+                if (removed) {
+                    validateRemoval(existing);
+                    removeSlot(identity, existing);
+                    publish(snapshot.items().without(existing.sequence()));
+                }
+            } finally {
+                unlockWrite(stamp);
+            }
 
-        if (itemToRemove.isPresent()) {
-            boolean removed = items.remove(itemToRemove.get());
             if (removed) {
-                logger.info(String.format("Removed %s by identity: %s", entityType, identity));
+                logger.debug("Removed {}: {}", entityType, identity);
+            } else {
+                logger.warn("Failed to remove {}: {}", entityType, identity);
             }
             return removed;
-        } else {
-            logger.warn(String.format("No %s found with identity: %s to remove", entityType, identity));
-            return false;
+        } finally {
+            metrics.record(RepositoryMetrics.Operation.REMOVE, start);
+        }
+    }
+
+    public boolean removeByIdentity(String identity) {
+        long start = System.nanoTime();
+        try {
+            if (identity == null) {
+                logger.warn("Attempted to remove {} with null identity", entityType);
+                return false;
+            }
+
+            boolean removed;
+            long stamp = lock.writeLock();
+            try {
+                Slot existing = items.get(identity);
+                removed = existing != null;
+                if (removed) {
+                    validateRemoval(existing);
+                    removeSlot(identity, existing);
+                    publish(snapshot.items().without(existing.sequence()));
+                }
+            } finally {
+                unlockWrite(stamp);
+            }
+
+            if (removed) {
+                logger.debug("Removed {} by identity: {}", entityType, identity);
+                return true;
+            } else {
+                logger.warn("No {} found with identity: {} to remove", entityType, identity);
+                return false;
+            }
+        } finally {
+            metrics.record(RepositoryMetrics.Operation.REMOVE, start);
         }
     }
 
     public boolean contains(T item) {
-        return items.contains(item);
+        long start = System.nanoTime();
+        try {
+            if (item == null) {
+                return false;
+            }
+            String identity = identityExtractor.extractIdentity(item);
+            Slot existing = slotOf(identity);
+            return existing != null && store.load(existing.handle()).equals(item);
+        } finally {
+            metrics.record(RepositoryMetrics.Operation.FIND, start);
+        }
     }
 
     public boolean containsIdentity(String identity) {
-        return findByIdentity(identity).isPresent();
+        long start = System.nanoTime();
+        try {
+            return identity != null && slotOf(identity) != null;
+        } finally {
+            metrics.record(RepositoryMetrics.Operation.FIND, start);
+        }
     }
 
     public Optional<T> findByIdentity(String identity) {
-        if (identity == null) {
-            logger.warn(String.format("Attempted to find %s with null identity", entityType));
-            return Optional.empty();
-        }
+        long start = System.nanoTime();
+        try {
+            if (identity == null) {
+                logger.warn("Attempted to find {} with null identity", entityType);
+                return Optional.empty();
+            }
 
-        Optional<T> result = items.stream()
-                .filter(item -> identity.equals(identityExtractor.extractIdentity(item)))
-                .findFirst();
+            Slot slot = slotOf(identity);
+            Optional<T> result = Optional.ofNullable(slot == null ? null : store.load(slot.handle()));
 
-        if (result.isPresent()) {
-            logger.info(String.format("Found %s with identity: %s", entityType, identity));
-        } else {
-            logger.info(String.format("No %s found with identity: %s", entityType, identity));
-        }
+            if (result.isPresent()) {
+                logger.debug("Found {} with identity: {}", entityType, identity);
+            } else {
+                logger.debug("No {} found with identity: {}", entityType, identity);
+            }
 
-        return result;
+            return result;
+        } finally {
+            metrics.record(RepositoryMetrics.Operation.FIND, start);
+        }
     }
 
     public List<T> getAll() {
-        logger.info(String.format("Retrieved all %s items. Count: %d", entityType, items.size()));
-        return new ArrayList<>(items);
+        List<T> current = snapshot;
+        logger.debug("Retrieved all {} items. Count: {}", entityType, current.size());
+        return current;
+    }
+
+    /**
+     * Returns the current immutable version of the repository in O(1).
+     * Later mutations do not affect the returned snapshot.
+     */
+    public RepositorySnapshot<T> snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * True if entities are kept as live objects, i.e. accessors return the stored instance.
+     */
+    public boolean isStoredOnHeap() {
+        return store instanceof HeapRecordStore;
+    }
+
+    public RepositoryMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the listener told about every later change to the contents; {@code null} removes it.
+     */
+    public void setMutationListener(MutationListener<T> listener) {
+        write(() -> mutationListener = listener);
+    }
+
+    public long version() {
+        return snapshot.version();
+    }
+
+    /**
+     * Returns the version of the entity stored under {@code identity}: the repository
+     * {@link #version()} that last added, replaced or changed it in place, or -1 if no
+     * such entity is stored. A removed and re-added entity gets a new, higher version.
+     */
+    public long versionOf(String identity) {
+        if (identity == null) {
+            return -1L;
+        }
+        Slot slot = slotOf(identity);
+        return slot == null ? -1L : slot.version();
     }
 
     public int size() {
-        return items.size();
+        return snapshot.size();
     }
 
     public boolean isEmpty() {
-        return items.isEmpty();
+        return snapshot.isEmpty();
     }
 
     public void clear() {
-        int sizeBefore = items.size();
-        items.clear();
-        logger.info(String.format("Cleared repository. Removed %d %s items", sizeBefore, entityType));
+        int sizeBefore;
+        long stamp = lock.writeLock();
+        try {
+            sizeBefore = items.size();
+            Map<String, Slot> cleared = new HashMap<>(items);
+            for (Slot slot : cleared.values()) {
+                unobserve(store.load(slot.handle()));
+            }
+            items.clear();
+            indexes.values().forEach(RepositoryIndex::clear);
+            if (mutationListener != null) {
+                mutationListener.onClear();
+            }
+            undo.push(() -> cleared.forEach((identity, slot) -> reinstate(identity, slot, store.load(slot.handle()))));
+            releases.add(store::clear);
+            publish(PersistentSequence.empty());
+        } finally {
+            unlockWrite(stamp);
+        }
+        logger.debug("Cleared repository. Removed {} {} items", sizeBefore, entityType);
+    }
+
+    /**
+     * Registers a secondary index and fills it from the current contents.
+     * From then on it is maintained on every add, update and remove.
+     */
+    public void registerIndex(RepositoryIndex<T> index) {
+        if (index == null) {
+            throw new IllegalArgumentException("Index cannot be null");
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            if (indexes.containsKey(index.name())) {
+                throw new IllegalArgumentException(
+                        String.format("Index '%s' is already registered for %s", index.name(), entityType));
+            }
+            attach(index);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        logger.debug("Registered index '{}' for {}", index.name(), entityType);
+    }
+
+    /**
+     * Registers a materialised view that keeps the items ordered by {@code comparator},
+     * so {@link #sortByView(String)} can list them without sorting at request time.
+     */
+    public void registerSortedView(String viewName, Comparator<T> comparator) {
+        registerIndex(new SortedView<>(viewName, comparator));
+    }
+
+    public List<T> sortByView(String viewName) {
+        long start = System.nanoTime();
+        try {
+            SortedView<T> view = getIndex(viewName, SortedView.class);
+            return sortByView(view);
+        } finally {
+            metrics.record(RepositoryMetrics.Operation.SORT, start);
+        }
+    }
+
+    public List<T> findByIndex(String indexName, String key) {
+        long start = System.nanoTime();
+        try {
+            if (key == null) {
+                logger.warn("Attempted to find {} by index '{}' with null key", entityType, indexName);
+                return Collections.emptyList();
+            }
+            HashIndex<T> index = getIndex(indexName, HashIndex.class);
+            return read(() -> index.find(key));
+        } finally {
+            metrics.record(RepositoryMetrics.Operation.FIND, start);
+        }
+    }
+
+    public List<T> findBySubstring(String indexName, String query) {
+        long start = System.nanoTime();
+        try {
+            if (query == null) {
+                logger.warn("Attempted to search {} by index '{}' with null query", entityType, indexName);
+                return Collections.emptyList();
+            }
+            NgramIndex<T> index = getIndex(indexName, NgramIndex.class);
+            return read(() -> index.search(query));
+        } finally {
+            metrics.record(RepositoryMetrics.Operation.FIND, start);
+        }
+    }
+
+    public <K extends Comparable<K>> List<T> findInRange(String indexName, K from, K to) {
+        return findInRange(indexName, from, true, to, true);
+    }
+
+    public <K extends Comparable<K>> List<T> findInRange(String indexName,
+                                                         K from, boolean fromInclusive,
+                                                         K to, boolean toInclusive) {
+        long start = System.nanoTime();
+        try {
+            RangeIndex<T, K> index = getIndex(indexName, RangeIndex.class);
+            return read(() -> index.range(from, fromInclusive, to, toInclusive));
+        } finally {
+            metrics.record(RepositoryMetrics.Operation.FIND, start);
+        }
+    }
+
+    /**
+     * Runs a combined query. The criterion whose index estimates the fewest matches drives
+     * the scan; the other criteria and filters are checked on each of its candidates. With
+     * no usable criterion every item is scanned.
+     */
+    public List<T> query(Query<T> query) {
+        long start = System.nanoTime();
+        boolean fullScan = true;
+        try {
+            if (query == null) {
+                logger.warn("Attempted to run a null query on {}", entityType);
+                return Collections.emptyList();
+            }
+
+            Execution<T> execution = read(() -> execute(query));
+            fullScan = execution.plan().isFullScan();
+            logger.debug("Queried {}: {} matches via {}", entityType, execution.items().size(), execution.plan());
+            return execution.items();
+        } finally {
+            metrics.record(fullScan ? RepositoryMetrics.Operation.SCAN : RepositoryMetrics.Operation.FIND, start);
+        }
+    }
+
+    /**
+     * Returns the plan {@link #query(Query)} would use right now, without running it.
+     */
+    public QueryPlan explain(Query<T> query) {
+        if (query == null) {
+            throw new IllegalArgumentException("Query cannot be null");
+        }
+        return read(() -> plan(query, resolveIndexes(query)).plan());
+    }
+
+    @SuppressWarnings("unchecked")
+    protected <I extends RepositoryIndex<T>> I getIndex(String indexName, Class<?> type) {
+        RepositoryIndex<T> index = read(() -> indexes.get(indexName));
+        if (index == null || !type.isInstance(index)) {
+            throw new IllegalArgumentException(String.format("No %s named '%s' registered for %s",
+                    type.getSimpleName(), indexName, entityType));
+        }
+        return (I) index;
+    }
+
+    private record Execution<T>(List<T> items, QueryPlan plan) {
+    }
+
+    private record Planned(int driver, QueryPlan plan) {
+    }
+
+    // Caller holds the read lock or validates afterwards.
+    private List<RepositoryIndex<T>> resolveIndexes(Query<T> query) {
+        List<RepositoryIndex<T>> resolved = new ArrayList<>();
+        for (Query.Criterion<T> criterion : query.criteria()) {
+            RepositoryIndex<T> index = indexes.get(criterion.indexName());
+            if (index == null || !criterion.indexType().isInstance(index)) {
+                throw new IllegalArgumentException(String.format("No %s named '%s' registered for %s",
+                        criterion.indexType().getSimpleName(), criterion.indexName(), entityType));
+            }
+            resolved.add(index);
+        }
+        return resolved;
+    }
+
+    private Planned plan(Query<T> query, List<RepositoryIndex<T>> resolved) {
+        List<Query.Criterion<T>> criteria = query.criteria();
+        long best = snapshot.size();
+        int driver = -1;
+        for (int i = 0; i < criteria.size(); i++) {
+            long estimate = criteria.get(i).estimate(resolved.get(i), best);
+            if (estimate < best) {
+                best = estimate;
+                driver = i;
+            }
+        }
+
+        List<String> residual = new ArrayList<>();
+        for (int i = 0; i < criteria.size(); i++) {
+            if (i != driver) {
+                residual.add(criteria.get(i).toString());
+            }
+        }
+        query.filters().forEach(filter -> residual.add("filter"));
+        return new Planned(driver, new QueryPlan(driver < 0 ? null : criteria.get(driver).indexName(), best,
+                List.copyOf(residual)));
+    }
+
+    private Execution<T> execute(Query<T> query) {
+        List<RepositoryIndex<T>> resolved = resolveIndexes(query);
+        Planned planned = plan(query, resolved);
+        List<Query.Criterion<T>> criteria = query.criteria();
+        // Without an ordering the first matches in insertion order are final, so stop early.
+        int earlyStop = query.order() == null ? query.limit() : Integer.MAX_VALUE;
+
+        List<T> result = new ArrayList<>();
+        if (query.limit() > 0) {
+            Predicate<T> residual = item -> {
+                for (int i = 0; i < criteria.size(); i++) {
+                    if (i != planned.driver() && !criteria.get(i).matches(resolved.get(i), item)) {
+                        return false;
+                    }
+                }
+                for (Predicate<T> filter : query.filters()) {
+                    if (!filter.test(item)) {
+                        return false;
+                    }
+                }
+                return true;
+            };
+
+            if (planned.driver() < 0) {
+                for (T item : snapshot) {
+                    if (residual.test(item) && result.add(item) && result.size() >= earlyStop) {
+                        break;
+                    }
+                }
+            } else {
+                LongStream.Builder candidates = LongStream.builder();
+                criteria.get(planned.driver()).collect(resolved.get(planned.driver()), candidates::add);
+                for (long sequence : candidates.build().sorted().toArray()) {
+                    T item = resolve(sequence);
+                    if (item != null && residual.test(item) && result.add(item) && result.size() >= earlyStop) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (query.order() != null) {
+            result.sort(query.order());
+            if (result.size() > query.limit()) {
+                result = new ArrayList<>(result.subList(0, query.limit()));
+            }
+        }
+        return new Execution<>(result, planned.plan());
+    }
+
+    // Backfills the index from the current contents and only then makes it live,
+    // so an index that fails on existing items is never left half-registered.
+    // Must be called while holding the write lock.
+    private void attach(RepositoryIndex<T> index) {
+        for (Slot slot : items.values()) {
+            index.onAdd(slot.sequence(), store.load(slot.handle()));
+        }
+        index.bind(this::resolve);
+        // Everything backfilled is already published, so the resolver can serve it.
+        index.onPublish();
+        indexes.put(index.name(), index);
+    }
+
+    private List<T> sortByView(SortedView<T> view) {
+        return read(view::items);
+    }
+
+    // Returns the named built-in view, materialising it on first use.
+    @SuppressWarnings("unchecked")
+    private SortedView<T> sortedView(String viewName, Supplier<Comparator<T>> comparator) {
+        RepositoryIndex<T> existing = read(() -> indexes.get(viewName));
+        if (existing != null) {
+            return (SortedView<T>) existing;
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            RepositoryIndex<T> raced = indexes.get(viewName);
+            if (raced != null) {
+                return (SortedView<T>) raced;
+            }
+            SortedView<T> view = new SortedView<>(viewName, comparator.get());
+            attach(view);
+            return view;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private Page<T> toPage(List<Page.Cursor<T>> selected, int limit) {
+        boolean hasMore = selected.size() > limit;
+        List<Page.Cursor<T>> window = hasMore ? selected.subList(0, limit) : selected;
+        List<T> pageItems = window.stream().map(Page.Cursor::last).toList();
+        return new Page<>(pageItems, hasMore ? window.get(limit - 1) : null);
+    }
+
+    // Bounded-heap partial selection of the k smallest items strictly after {@code after},
+    // ordered by the comparator with the insertion sequence as tie-breaker. Only items
+    // that enter the heap are wrapped, so at most O(k) entries are alive at once.
+    private List<Page.Cursor<T>> select(PersistentSequence<Object> source, Comparator<T> comparator,
+                                        int k, Page.Cursor<T> after) {
+        Comparator<Page.Cursor<T>> order = (a, b) -> compareRanked(comparator, a.last(), a.sequence(), b.last(), b.sequence());
+        PriorityQueue<Page.Cursor<T>> heap = new PriorityQueue<>(Math.min(k, 1024), order.reversed());
+
+        source.forEachEntry((handle, sequence) -> {
+            T item = store.load(handle);
+            if (after != null && compareRanked(comparator, item, sequence, after.last(), after.sequence()) <= 0) {
+                return;
+            }
+            if (heap.size() < k) {
+                heap.add(new Page.Cursor<>(item, sequence));
+            } else {
+                Page.Cursor<T> worst = heap.peek();
+                if (compareRanked(comparator, item, sequence, worst.last(), worst.sequence()) < 0) {
+                    heap.poll();
+                    heap.add(new Page.Cursor<>(item, sequence));
+                }
+            }
+        });
+
+        List<Page.Cursor<T>> ordered = new ArrayList<>(heap);
+        ordered.sort(order);
+        return ordered;
+    }
+
+    private static <T> int compareRanked(Comparator<T> comparator, T a, long aSequence, T b, long bSequence) {
+        int result = comparator.compare(a, b);
+        return result != 0 ? result : Long.compare(aSequence, bSequence);
+    }
+
+    private PersistentSequence<Object> append(PersistentSequence<Object> current, String identity, T item) {
+        long sequence = nextSequence++;
+        Object handle = store.store(item);
+        Slot slot = new Slot(sequence, handle, pendingVersion());
+        reinstate(identity, slot, item);
+        undo.push(() -> {
+            items.remove(identity);
+            unindex(identity, slot);
+            store.release(handle);
+        });
+        return current.with(sequence, handle);
+    }
+
+    private PersistentSequence<Object> replace(PersistentSequence<Object> current, String identity, Slot existing, T newItem) {
+        Object handle = store.store(newItem);
+        items.put(identity, new Slot(existing.sequence(), handle, pendingVersion()));
+        if (!indexes.isEmpty() || isStoredOnHeap()) {
+            T oldItem = store.load(existing.handle());
+            for (RepositoryIndex<T> index : indexes.values()) {
+                index.onRemove(existing.sequence(), oldItem);
+                index.onAdd(existing.sequence(), newItem);
+            }
+            unobserve(oldItem);
+        }
+        observe(newItem);
+        recordPut(identity, newItem);
+        undo.push(() -> {
+            T oldItem = store.load(existing.handle());
+            items.put(identity, existing);
+            for (RepositoryIndex<T> index : indexes.values()) {
+                index.onRemove(existing.sequence(), newItem);
+                index.onAdd(existing.sequence(), oldItem);
+            }
+            unobserve(newItem);
+            observe(oldItem);
+            recordPut(identity, oldItem);
+            store.release(handle);
+        });
+        releases.add(() -> store.release(existing.handle()));
+        return current.with(existing.sequence(), handle);
+    }
+
+    // Stores the slot under identity and tells the indexes, the change listener and the
+    // mutation listener about its item, as an add does and a rolled back removal must.
+    private void reinstate(String identity, Slot slot, T item) {
+        items.put(identity, slot);
+        for (RepositoryIndex<T> index : indexes.values()) {
+            index.onAdd(slot.sequence(), item);
+        }
+        observe(item);
+        recordPut(identity, item);
+    }
+
+    // Takes the slot out from under identity; its store record is released on publish.
+    private void removeSlot(String identity, Slot slot) {
+        items.remove(identity);
+        unindex(identity, slot);
+        undo.push(() -> reinstate(identity, slot, store.load(slot.handle())));
+        releases.add(() -> store.release(slot.handle()));
+    }
+
+    @FunctionalInterface
+    private interface BulkStep<T, E> {
+        PersistentSequence<Object> apply(PersistentSequence<Object> current, int index, E element, BulkResult report);
+    }
+
+    // Applies one step per element inside a single write-lock section and publishes one
+    // new snapshot at the end. Null elements are reported as REJECTED, as are items
+    // that a step finds an index constraint refuses.
+    private <E> BulkResult applyBulk(List<E> elements, BulkStep<T, E> step) {
+        if (elements == null) {
+            logger.warn("Attempted a bulk operation on null {} list", entityType);
+            return new BulkResult(0);
+        }
+
+        BulkResult report = new BulkResult(elements.size());
+        long stamp = lock.writeLock();
+        try {
+            PersistentSequence<Object> current = snapshot.items();
+            int index = 0;
+            for (E element : elements) {
+                if (element == null) {
+                    report.record(index++, BulkResult.Outcome.REJECTED);
+                    continue;
+                }
+                current = step.apply(current, index++, element, report);
+                unpublished = current;
+            }
+            if (report.modified()) {
+                publish(current);
+            }
+        } finally {
+            unpublished = null;
+            unlockWrite(stamp);
+        }
+        return report;
+    }
+
+    // Lets every index veto storing item under sequence; throws before anything changes.
+    private void validate(long sequence, T item) {
+        for (RepositoryIndex<T> index : indexes.values()) {
+            index.validate(sequence, item);
+        }
+    }
+
+    // Lets every index veto removing the item in slot; throws before anything changes.
+    private void validateRemoval(Slot slot) {
+        if (indexes.isEmpty()) {
+            return;
+        }
+        T item = store.load(slot.handle());
+        for (RepositoryIndex<T> index : indexes.values()) {
+            index.validateRemove(slot.sequence(), item);
+        }
+    }
+
+    private boolean admitsRemoval(Slot slot) {
+        try {
+            validateRemoval(slot);
+            return true;
+        } catch (InvalidDataException e) {
+            logger.debug("Kept {} {}: {}", entityType,
+                    identityExtractor.extractIdentity(store.load(slot.handle())), e.getMessage());
+            return false;
+        }
+    }
+
+    // Records the item as rejected, with the reason, if an index constraint refuses it.
+    private boolean rejects(long sequence, T item, int index, BulkResult report) {
+        try {
+            validate(sequence, item);
+            return false;
+        } catch (InvalidDataException e) {
+            String identity = identityExtractor.extractIdentity(item);
+            logger.debug("Rejected {} {}: {}", entityType, identity, e.getMessage());
+            report.reject(index, String.format("%s %s: %s", entityType, identity, e.getMessage()));
+            return true;
+        }
+    }
+
+    private void unindex(String identity, Slot slot) {
+        MutationListener<T> listener = mutationListener;
+        if (listener != null) {
+            listener.onDelete(identity);
+        }
+        if (!indexes.isEmpty() || isStoredOnHeap()) {
+            T item = store.load(slot.handle());
+            for (RepositoryIndex<T> index : indexes.values()) {
+                index.onRemove(slot.sequence(), item);
+            }
+            unobserve(item);
+        }
+    }
+
+    private void observe(T item) {
+        if (item instanceof ObservableEntity<?> entity && isStoredOnHeap()) {
+            entity.addChangeListener(changeListener);
+        }
+    }
+
+    private void unobserve(T item) {
+        if (item instanceof ObservableEntity<?> entity) {
+            entity.removeChangeListener(changeListener);
+        }
+    }
+
+    // The commit running a change on this thread, which already holds the write lock; a
+    // setter called on a stored entity any other way would race with readers and indexes.
+    @SuppressWarnings("unchecked")
+    private Commit ownCommit(Object entity, String property) {
+        Commit commit = changing;
+        if (commit == null || commit.owner != Thread.currentThread()) {
+            throw new IllegalStateException(String.format(
+                    "Cannot set %s of stored %s %s directly; change it through its repository",
+                    property, entityType, identityExtractor.extractIdentity((T) entity)));
+        }
+        return commit;
+    }
+
+    // A stored entity was changed through its own setter, inside a change: let every index
+    // move just that entry. The entity must still be the one stored under its identity.
+    @SuppressWarnings("unchecked")
+    private void onEntityChange(Object entity, String property, Object oldValue, Object newValue) {
+        T item = (T) entity;
+        Commit commit = ownCommit(entity, property);
+        String identity = identityExtractor.extractIdentity(item);
+        commit.changed |= changeInPlace(identity, item, property, oldValue, newValue);
+        logger.debug("{} {} changed {}: {} -> {}", entityType, identity, property, oldValue, newValue);
+    }
+
+    // Must be called while holding the write lock; false if the item is no longer stored.
+    private boolean changeInPlace(String identity, T item, String property, Object oldValue, Object newValue) {
+        Slot slot = items.get(identity);
+        if (slot == null || store.load(slot.handle()) != item) {
+            return false;
+        }
+        for (RepositoryIndex<T> index : indexes.values()) {
+            index.onChange(slot.sequence(), item, property, oldValue);
+        }
+        items.put(identity, new Slot(slot.sequence(), slot.handle(), pendingVersion()));
+        recordPut(identity, item);
+        undo.push(() -> {
+            ((ObservableEntity<?>) item).revertChange(property, oldValue);
+            for (RepositoryIndex<T> index : indexes.values()) {
+                index.onChange(slot.sequence(), item, property, newValue);
+            }
+            items.put(identity, slot);
+            recordPut(identity, item);
+        });
+        return true;
+    }
+
+    // Materialises the item currently stored under a sequence. Used by indexes that
+    // keep only sequences; callers hold the read or write lock, or validate afterwards.
+    private T resolve(long sequence) {
+        PersistentSequence<Object> current = unpublished != null ? unpublished : snapshot.items();
+        Object handle = current.get(sequence);
+        return handle == null ? null : store.load(handle);
+    }
+
+    private void recordPut(String identity, T item) {
+        MutationListener<T> listener = mutationListener;
+        if (listener != null) {
+            listener.onPut(identity, item);
+        }
+    }
+
+    // Releases the write lock taken for a mutation, first undoing whatever it changed
+    // without publishing, e.g. because the store or an index threw halfway through. Then,
+    // without the lock, waits until what the write published is durable.
+    private void unlockWrite(long stamp) {
+        MutationListener<T> published = releaseWrite(stamp);
+        if (published != null) {
+            published.awaitDurable();
+        }
+    }
+
+    // Releases the write lock as unlockWrite does, but returns the mutation listener that
+    // recorded the published write, if any, for the caller to wait on later.
+    private MutationListener<T> releaseWrite(long stamp) {
+        MutationListener<T> published = recorder;
+        recorder = null;
+        try {
+            rollbackWrite();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return published;
+    }
+
+    // The version the next publish() will carry; entities written before it get this one.
+    private long pendingVersion() {
+        return snapshot.version() + 1;
+    }
+
+    // Must be called while holding the write lock. What the write recorded is handed to
+    // the mutation listener first; the writer waits for it to be durable only once it has
+    // released the lock, so readers and the next writer need not wait for the disk.
+    private void publish(PersistentSequence<Object> newItems) {
+        beforePublish();
+        install(newItems);
+    }
+
+    private void install(PersistentSequence<Object> newItems) {
+        snapshot = new RepositorySnapshot<>(newItems, snapshot.version() + 1,
+                store, identityExtractor, this::sequenceOf);
+        for (RepositoryIndex<T> index : indexes.values()) {
+            index.onPublish();
+        }
+        undo.clear();
+        releases.forEach(Runnable::run);
+        releases.clear();
+    }
+
+    // Lets the mutation listener record the write in progress; if it refuses, undoes the
+    // write and rethrows, leaving the published version as it was.
+    private void beforePublish() {
+        MutationListener<T> listener = mutationListener;
+        if (listener == null) {
+            return;
+        }
+        try {
+            listener.beforePublish();
+        } catch (RuntimeException e) {
+            rollbackWrite();
+            throw e;
+        }
+        recorder = listener;
+    }
+
+    // Undoes the write in progress, newest step first, keeping the records it would have
+    // released. Changes made in place through an entity's setters are set back.
+    private void rollbackWrite() {
+        recorder = null;
+        if (undo.isEmpty()) {
+            return;
+        }
+        while (!undo.isEmpty()) {
+            undo.pop().run();
+        }
+        releases.clear();
+        for (RepositoryIndex<T> index : indexes.values()) {
+            index.onPublish();
+        }
+        MutationListener<T> listener = mutationListener;
+        if (listener != null) {
+            listener.onRollback();
+        }
+    }
+
+    private long sequenceOf(String identity) {
+        Slot slot = slotOf(identity);
+        return slot == null ? -1L : slot.sequence();
+    }
+
+    // Point lookups read the primary index under an optimistic stamp instead of the read
+    // lock, whose shared counter every reader would otherwise write to. A concurrent map
+    // never loops or throws while a writer changes it, and a valid stamp proves no writer
+    // held the lock meanwhile, so the slot read is a published one; otherwise, e.g. if a
+    // unit of work has added an entry it may still roll back, the lookup retries under
+    // the read lock.
+    private Slot slotOf(String identity) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            Slot slot = items.get(identity);
+            if (lock.validate(stamp)) {
+                return slot;
+            }
+        }
+        return read(() -> items.get(identity));
+    }
+
+    /**
+     * Removes the items stored under {@code sequences} as one new version, without asking
+     * the indexes' consent, and returns them in insertion order. Used to move a sealed
+     * partition out of the repository; unknown sequences are ignored. Indexes that
+     * {@linkplain RepositoryIndex#keepsArchived keep archived items} are told about each.
+     */
+    List<T> detach(long[] sequences) {
+        long stamp = lock.writeLock();
+        try {
+            List<T> detached = new ArrayList<>(sequences.length);
+            PersistentSequence<Object> current = snapshot.items();
+            for (long sequence : LongStream.of(sequences).sorted().toArray()) {
+                Object handle = current.get(sequence);
+                if (handle == null) {
+                    continue;
+                }
+                T item = store.load(handle);
+                detached.add(item);
+                String identity = identityExtractor.extractIdentity(item);
+                removeSlot(identity, items.get(identity));
+                for (RepositoryIndex<T> index : indexes.values()) {
+                    index.onArchived(item);
+                }
+                current = current.without(sequence);
+            }
+            if (!detached.isEmpty()) {
+                publish(current);
+            }
+            return detached;
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Adds back items that were {@link #detach detached} earlier as one new version. They
+     * are appended, so they come after the items that stayed; an identity that was reused
+     * in the meantime keeps the newer item. Each item is checked against the indexes'
+     * {@linkplain RepositoryIndex#validateRestore restore constraints} and a violation
+     * restores none of them. Returns how many items were restored.
+     *
+     * @throws InvalidDataException if an index rejects one of the items
+     */
+    int restore(List<T> detached) {
+        long stamp = lock.writeLock();
+        try {
+            PersistentSequence<Object> current = snapshot.items();
+            int restored = 0;
+            for (T item : detached) {
+                String identity = identityExtractor.extractIdentity(item);
+                if (items.containsKey(identity)) {
+                    logger.warn("Not restoring {} {}: identity is in use", entityType, identity);
+                    continue;
+                }
+                for (RepositoryIndex<T> index : indexes.values()) {
+                    index.validateRestore(nextSequence, item);
+                }
+                current = append(current, identity, item);
+                unpublished = current;
+                restored++;
+            }
+            if (restored > 0) {
+                publish(current);
+            }
+            return restored;
+        } finally {
+            unpublished = null;
+            unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Whether any index {@linkplain RepositoryIndex#keepsArchived keeps archived items},
+     * so that items archived by an earlier run must be {@linkplain #adoptArchived adopted}.
+     */
+    boolean keepsArchived() {
+        return indexes.values().stream().anyMatch(RepositoryIndex::keepsArchived);
+    }
+
+    /**
+     * Tells the indexes about items an earlier run {@linkplain #detach detached} to an
+     * archive, which this run has never held.
+     */
+    void adoptArchived(List<T> archived) {
+        write(() -> {
+            for (T item : archived) {
+                for (RepositoryIndex<T> index : indexes.values()) {
+                    index.onArchived(item);
+                }
+            }
+        });
+    }
+
+    String identityOf(T item) {
+        return identityExtractor.extractIdentity(item);
+    }
+
+    long commitOrder() {
+        return commitOrder;
+    }
+
+    Commit beginCommit() {
+        return new Commit();
+    }
+
+    /**
+     * The changes a {@link UnitOfWork} makes to this repository, applied under the write
+     * lock taken on construction. Readers see none of them until {@link #publish()}, which
+     * makes them visible as one new version, once {@link #prepare()} has recorded them;
+     * {@link #rollback()} undoes them instead. Either way the owner must call
+     * {@link #unlock()}, and after publishing, {@link #awaitDurable()}.
+     */
+    final class Commit {
+        private final long stamp = lock.writeLock();
+        private final Thread owner = Thread.currentThread();
+        private PersistentSequence<Object> current = snapshot.items();
+        private boolean changed;
+        private MutationListener<T> recorded;
+
+        long versionOf(String identity) {
+            Slot slot = items.get(identity);
+            return slot == null ? -1L : slot.version();
+        }
+
+        void add(T item) {
+            String identity = identityExtractor.extractIdentity(item);
+            if (items.containsKey(identity)) {
+                throw new InvalidDataException(String.format("%s %s already exists", entityType, identity));
+            }
+            validate(nextSequence, item);
+            current = append(current, identity, item);
+            unpublished = current;
+        }
+
+        void update(T item) {
+            String identity = identityExtractor.extractIdentity(item);
+            Slot existing = existing(identity);
+            validate(existing.sequence(), item);
+            current = replace(current, identity, existing, item);
+            unpublished = current;
+        }
+
+        void remove(String identity) {
+            Slot existing = existing(identity);
+            validateRemoval(existing);
+            removeSlot(identity, existing);
+            current = current.without(existing.sequence());
+            unpublished = current;
+        }
+
+        // Runs the change against the stored instance, whose setters report back through
+        // onEntityChange. Off-heap entities are detached copies, so the changed copy
+        // replaces the stored one instead.
+        void change(String identity, Consumer<? super T> change) {
+            T item = store.load(existing(identity).handle());
+            if (!isStoredOnHeap()) {
+                change.accept(item);
+                update(item);
+                return;
+            }
+            changing = this;
+            try {
+                change.accept(item);
+            } finally {
+                changing = null;
+            }
+        }
+
+        // Hands the changes to the mutation listener; undoes them if it refuses.
+        void prepare() {
+            if (!undo.isEmpty() || changed) {
+                beforePublish();
+            }
+        }
+
+        void publish() {
+            if (!undo.isEmpty() || changed) {
+                install(current);
+            }
+        }
+
+        void rollback() {
+            rollbackWrite();
+            current = snapshot.items();
+            unpublished = null;
+        }
+
+        void unlock() {
+            unpublished = null;
+            recorded = releaseWrite(stamp);
+        }
+
+        // Waits, after unlock(), until the published changes are durable.
+        void awaitDurable() {
+            if (recorded != null) {
+                recorded.awaitDurable();
+            }
+        }
+
+        private Slot existing(String identity) {
+            Slot existing = items.get(identity);
+            if (existing == null) {
+                throw new InvalidDataException(String.format("%s %s not found", entityType, identity));
+            }
+            return existing;
+        }
+    }
+
+    /**
+     * Runs an action under the write lock, e.g. to change the state of an index so that no
+     * write validated against the old state can land afterwards.
+     */
+    protected void write(Runnable action) {
+        long stamp = lock.writeLock();
+        try {
+            action.run();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Runs a read-only action against the items and indexes under the shared read lock.
+     * Readers do not block each other, but the action may walk mutable maps and run
+     * caller-supplied predicates, so it must never observe a writer mid-mutation.
+     * The action must not write to this repository, nor call {@code read} again: the
+     * read lock is not reentrant and would deadlock behind a waiting writer.
+     */
+    protected <R> R read(Supplier<R> action) {
+        long stamp = lock.readLock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
     }
 
 }
@@ -0,0 +1,160 @@
+package com.car_rental.repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Equality index: normalised key -> sequences of the items with that key, in insertion order.
+ * Lookups cost O(1) plus one resolve per match instead of a full scan.
+ */
+public class HashIndex<T> implements RepositoryIndex<T> {
+
+    private final String name;
+    private final Function<T, String> keyExtractor;
+    private final UnaryOperator<String> normalizer;
+    // Property whose string form is the key, or null if unknown; see onChange.
+    private final String property;
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private LongFunction<T> resolver;
+
+    public HashIndex(String name, Function<T, String> keyExtractor, UnaryOperator<String> normalizer) {
+        this(name, null, keyExtractor, normalizer);
+    }
+
+    /**
+     * @param property name of the observed property whose string form is the key, so an
+     *                 in-place change of it moves the entry directly instead of searching for it
+     */
+    public HashIndex(String name, String property, Function<T, String> keyExtractor, UnaryOperator<String> normalizer) {
+        this.name = name;
+        this.property = property;
+        this.keyExtractor = keyExtractor;
+        this.normalizer = normalizer;
+    }
+
+    public HashIndex(String name, Function<T, String> keyExtractor) {
+        this(name, keyExtractor, UnaryOperator.identity());
+    }
+
+    public static UnaryOperator<String> ignoringCase() {
+        return key -> key.trim().toLowerCase();
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    public List<T> find(String key) {
+        if (key == null) {
+            return List.of();
+        }
+        PostingList matches = postings.get(normalizer.apply(key));
+        if (matches == null) {
+            return List.of();
+        }
+        List<T> result = new ArrayList<>(matches.size());
+        for (int i = 0; i < matches.size(); i++) {
+            result.add(resolver.apply(matches.get(i)));
+        }
+        return result;
+    }
+
+    int count(String key) {
+        PostingList matches = key == null ? null : postings.get(normalizer.apply(key));
+        return matches == null ? 0 : matches.size();
+    }
+
+    // Emits the sequences filed under key in insertion order.
+    void forEachSequence(String key, LongConsumer action) {
+        PostingList matches = key == null ? null : postings.get(normalizer.apply(key));
+        if (matches != null) {
+            for (int i = 0; i < matches.size(); i++) {
+                action.accept(matches.get(i));
+            }
+        }
+    }
+
+    boolean matches(T item, String key) {
+        String itemKey = keyOf(item);
+        return itemKey != null && key != null && itemKey.equals(normalizer.apply(key));
+    }
+
+    @Override
+    public void bind(LongFunction<T> resolver) {
+        this.resolver = resolver;
+    }
+
+    @Override
+    public void onAdd(long sequence, T item) {
+        String key = keyOf(item);
+        if (key == null) {
+            return;
+        }
+        postings.computeIfAbsent(key, k -> new PostingList()).add(sequence);
+    }
+
+    @Override
+    public void onRemove(long sequence, T item) {
+        if (removeFrom(keyOf(item), sequence)) {
+            return;
+        }
+
+        // The item was mutated after it was indexed, so its current key is stale.
+        for (Iterator<PostingList> it = postings.values().iterator(); it.hasNext(); ) {
+            PostingList list = it.next();
+            if (list.contains(sequence)) {
+                list.remove(sequence);
+                if (list.isEmpty()) {
+                    it.remove();
+                }
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void onChange(long sequence, T item, String changed, Object oldValue) {
+        if (property == null) {
+            RepositoryIndex.super.onChange(sequence, item, changed, oldValue);
+            return;
+        }
+        if (!property.equals(changed)) {
+            return;
+        }
+        if (!removeFrom(oldValue == null ? null : normalizer.apply(oldValue.toString()), sequence)) {
+            onRemove(sequence, item);
+        }
+        onAdd(sequence, item);
+    }
+
+    @Override
+    public void clear() {
+        postings.clear();
+    }
+
+    private boolean removeFrom(String key, long sequence) {
+        PostingList matches = key == null ? null : postings.get(key);
+        if (matches == null || !matches.contains(sequence)) {
+            return false;
+        }
+        matches.remove(sequence);
+        if (matches.isEmpty()) {
+            postings.remove(key);
+        }
+        return true;
+    }
+
+    private String keyOf(T item) {
+        String key = keyExtractor.apply(item);
+        return key == null ? null : normalizer.apply(key);
+    }
+}
@@ -0,0 +1,35 @@
+package com.car_rental.repository;
+
+/**
+ * Pass-through {@link RecordStore}: the handle is the entity, so loading costs nothing.
+ */
+final class HeapRecordStore implements RecordStore<Object> {
+
+    private static final HeapRecordStore INSTANCE = new HeapRecordStore();
+
+    private HeapRecordStore() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> RecordStore<T> instance() {
+        return (RecordStore<T>) (RecordStore<?>) INSTANCE;
+    }
+
+    @Override
+    public Object store(Object item) {
+        return item;
+    }
+
+    @Override
+    public Object load(Object handle) {
+        return handle;
+    }
+
+    @Override
+    public void release(Object handle) {
+    }
+
+    @Override
+    public void clear() {
+    }
+}
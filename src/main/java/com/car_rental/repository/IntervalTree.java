@@ -0,0 +1,200 @@
+package com.car_rental.repository;
+
+/**
+ * Mutable AVL tree of closed intervals {@code [start, end]}, ordered by start and then id,
+ * where every node also tracks the largest end in its subtree. That augmentation lets an
+ * overlap query skip any subtree that ends before the query starts, so finding a conflict
+ * costs O(log n) instead of a scan of every interval.
+ */
+final class IntervalTree {
+
+    record Interval(long start, long end, long id) {
+    }
+
+    private static final class Node {
+        final Interval interval;
+        Node left;
+        Node right;
+        int height = 1;
+        long maxEnd;
+
+        Node(Interval interval) {
+            this.interval = interval;
+            this.maxEnd = interval.end();
+        }
+    }
+
+    private Node root;
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return root == null;
+    }
+
+    void insert(long start, long end, long id) {
+        root = insert(root, new Interval(start, end, id));
+        size++;
+    }
+
+    /**
+     * Removes the interval with this start and id; returns false if there is none.
+     */
+    boolean remove(long start, long id) {
+        int before = size;
+        root = remove(root, start, id);
+        return size < before;
+    }
+
+    /**
+     * Removes the interval with this id wherever it is. O(n); only needed when the
+     * start it was inserted with is no longer known.
+     */
+    boolean removeById(long id) {
+        Interval interval = findById(root, id);
+        return interval != null && remove(interval.start(), id);
+    }
+
+    /**
+     * Returns an interval other than {@code excludedId} that shares at least one point
+     * with {@code [from, to]}, or null if there is none.
+     */
+    Interval findOverlap(long from, long to, long excludedId) {
+        return findOverlap(root, from, to, excludedId);
+    }
+
+    private static Interval findOverlap(Node node, long from, long to, long excludedId) {
+        if (node == null || node.maxEnd < from) {
+            return null;
+        }
+        Interval found = findOverlap(node.left, from, to, excludedId);
+        if (found != null) {
+            return found;
+        }
+        Interval interval = node.interval;
+        if (interval.start() > to) {
+            // Everything to the right starts even later.
+            return null;
+        }
+        if (interval.end() >= from && interval.id() != excludedId) {
+            return interval;
+        }
+        return findOverlap(node.right, from, to, excludedId);
+    }
+
+    private static Interval findById(Node node, long id) {
+        if (node == null) {
+            return null;
+        }
+        if (node.interval.id() == id) {
+            return node.interval;
+        }
+        Interval found = findById(node.left, id);
+        return found != null ? found : findById(node.right, id);
+    }
+
+    private static int compare(long start, long id, Interval interval) {
+        int result = Long.compare(start, interval.start());
+        return result != 0 ? result : Long.compare(id, interval.id());
+    }
+
+    private static Node insert(Node node, Interval interval) {
+        if (node == null) {
+            return new Node(interval);
+        }
+        if (compare(interval.start(), interval.id(), node.interval) < 0) {
+            node.left = insert(node.left, interval);
+        } else {
+            node.right = insert(node.right, interval);
+        }
+        return balance(node);
+    }
+
+    private Node remove(Node node, long start, long id) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(start, id, node.interval);
+        if (cmp < 0) {
+            node.left = remove(node.left, start, id);
+        } else if (cmp > 0) {
+            node.right = remove(node.right, start, id);
+        } else {
+            size--;
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            Node successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = removeMin(node.right);
+            successor.left = node.left;
+            return balance(successor);
+        }
+        return balance(node);
+    }
+
+    private static Node removeMin(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = removeMin(node.left);
+        return balance(node);
+    }
+
+    private static Node balance(Node node) {
+        update(node);
+        int skew = height(node.left) - height(node.right);
+        if (skew > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (skew < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static void update(Node node) {
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+        node.maxEnd = Math.max(node.interval.end(), Math.max(maxEnd(node.left), maxEnd(node.right)));
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static long maxEnd(Node node) {
+        return node == null ? Long.MIN_VALUE : node.maxEnd;
+    }
+}
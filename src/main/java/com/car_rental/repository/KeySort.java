@@ -0,0 +1,98 @@
+package com.car_rental.repository;
+
+import java.util.Arrays;
+
+/**
+ * Stable sorts of precomputed {@code long} keys that never call a comparator. Keys that
+ * span a small range, such as years or epoch days, are counting-sorted in O(n + range);
+ * any other keys are LSD radix-sorted a byte at a time, with only as many passes as the
+ * spread between the smallest and largest key needs.
+ */
+final class KeySort {
+
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
+    private static final int MIN_COUNTING_RANGE = 1 << 12;
+
+    private KeySort() {
+    }
+
+    /**
+     * Returns the positions of {@code keys} in ascending key order; equal keys keep their
+     * original relative order.
+     */
+    static int[] order(long[] keys) {
+        int n = keys.length;
+        int[] order = new int[n];
+        if (n == 0) {
+            return order;
+        }
+
+        long min = keys[0];
+        long max = keys[0];
+        for (long key : keys) {
+            min = Math.min(min, key);
+            max = Math.max(max, key);
+        }
+        // Unsigned spread, so keys anywhere in the long range are handled.
+        long spread = max - min;
+
+        if (Long.compareUnsigned(spread, Math.max(MIN_COUNTING_RANGE, 2L * n)) < 0) {
+            countingSort(keys, min, (int) spread + 1, order);
+        } else {
+            radixSort(keys, min, spread, order);
+        }
+        return order;
+    }
+
+    private static void countingSort(long[] keys, long min, int range, int[] order) {
+        int[] starts = new int[range + 1];
+        for (long key : keys) {
+            starts[(int) (key - min) + 1]++;
+        }
+        for (int i = 1; i <= range; i++) {
+            starts[i] += starts[i - 1];
+        }
+        for (int i = 0; i < keys.length; i++) {
+            order[starts[(int) (keys[i] - min)]++] = i;
+        }
+    }
+
+    private static void radixSort(long[] keys, long min, long spread, int[] order) {
+        int n = keys.length;
+        long[] shifted = new long[n];
+        for (int i = 0; i < n; i++) {
+            shifted[i] = keys[i] - min;
+            order[i] = i;
+        }
+
+        int passes = (Long.SIZE - Long.numberOfLeadingZeros(spread) + RADIX_BITS - 1) / RADIX_BITS;
+        int[] source = order;
+        int[] target = new int[n];
+        int[] starts = new int[RADIX + 1];
+        for (int pass = 0; pass < passes; pass++) {
+            int shift = pass * RADIX_BITS;
+            Arrays.fill(starts, 0);
+            for (int i = 0; i < n; i++) {
+                starts[digit(shifted[i], shift) + 1]++;
+            }
+            for (int digit = 1; digit <= RADIX; digit++) {
+                starts[digit] += starts[digit - 1];
+            }
+            for (int i = 0; i < n; i++) {
+                int position = source[i];
+                target[starts[digit(shifted[position], shift)]++] = position;
+            }
+            int[] swap = source;
+            source = target;
+            target = swap;
+        }
+        if (source != order) {
+            System.arraycopy(source, 0, order, 0, n);
+        }
+    }
+
+    private static int digit(long key, int shift) {
+        return (int) (key >>> shift) & (RADIX - 1);
+    }
+}
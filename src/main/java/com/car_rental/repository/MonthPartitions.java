@@ -0,0 +1,154 @@
+package com.car_rental.repository;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.chrono.ChronoLocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.stream.LongStream;
+
+import com.car_rental.exception.InvalidDataException;
+
+/**
+ * Range index over a date that also divides the items into calendar-month partitions.
+ * A sealed partition is read-only: the repository refuses to add items to it and to
+ * update or remove the ones it holds. A sealed partition can further be offloaded, which
+ * moves its items out of the repository; it stays sealed while offloaded.
+ *
+ * <p>State changes are made by {@link PartitionedRepository} under the repository's write
+ * lock, and queries run under its read lock, like those of any other index.
+ */
+public final class MonthPartitions<T> extends RangeIndex<T, ChronoLocalDate> {
+
+    private final Function<T, LocalDate> dateExtractor;
+    private final NavigableSet<YearMonth> sealed = new TreeSet<>();
+    private final NavigableSet<YearMonth> offloaded = new TreeSet<>();
+    private LongFunction<T> resolver;
+
+    /**
+     * @param size     items of the month currently in the repository
+     * @param sealed   true if the month is read-only
+     * @param offloaded true if the month's items were moved out of the repository
+     */
+    public record Partition(YearMonth month, int size, boolean sealed, boolean offloaded) {
+    }
+
+    public MonthPartitions(String name, Function<T, LocalDate> dateExtractor) {
+        super(name, item -> dateExtractor.apply(item));
+        this.dateExtractor = dateExtractor;
+    }
+
+    /**
+     * Every month that has items in the repository, is sealed or is offloaded, in order.
+     */
+    public List<Partition> partitions() {
+        NavigableSet<YearMonth> months = new TreeSet<>(sealed);
+        months.addAll(offloaded);
+        ChronoLocalDate min = min();
+        if (min != null) {
+            for (YearMonth month = YearMonth.from(min); !month.isAfter(YearMonth.from(max())); month = month.plusMonths(1)) {
+                months.add(month);
+            }
+        }
+
+        List<Partition> result = new ArrayList<>();
+        for (YearMonth month : months) {
+            int size = size(month);
+            if (size > 0 || sealed.contains(month) || offloaded.contains(month)) {
+                result.add(new Partition(month, size, isSealed(month), offloaded.contains(month)));
+            }
+        }
+        return result;
+    }
+
+    public int size(YearMonth month) {
+        return (int) count(month.atDay(1), month.atEndOfMonth(), Long.MAX_VALUE);
+    }
+
+    public boolean isSealed(YearMonth month) {
+        return sealed.contains(month) || offloaded.contains(month);
+    }
+
+    public boolean isOffloaded(YearMonth month) {
+        return offloaded.contains(month);
+    }
+
+    /**
+     * Offloaded months that overlap {@code [from, to]}; a {@code null} bound leaves that side open.
+     */
+    public List<YearMonth> offloadedBetween(LocalDate from, LocalDate to) {
+        if (offloaded.isEmpty()) {
+            return List.of();
+        }
+        YearMonth first = from == null ? offloaded.first() : YearMonth.from(from);
+        YearMonth last = to == null ? offloaded.last() : YearMonth.from(to);
+        if (first.isAfter(last)) {
+            return List.of();
+        }
+        return List.copyOf(offloaded.subSet(first, true, last, true));
+    }
+
+    // Sequences of the month's items, in date order.
+    long[] sequencesIn(YearMonth month) {
+        LongStream.Builder sequences = LongStream.builder();
+        forEachSequence(month.atDay(1), true, month.atEndOfMonth(), true, sequences::add);
+        return sequences.build().toArray();
+    }
+
+    void seal(YearMonth month) {
+        sealed.add(month);
+    }
+
+    void markOffloaded(YearMonth month) {
+        offloaded.add(month);
+    }
+
+    // Back in the repository, but still sealed.
+    void markLoaded(YearMonth month) {
+        offloaded.remove(month);
+        sealed.add(month);
+    }
+
+    @Override
+    public void validate(long sequence, T item) {
+        checkWritable(dateExtractor.apply(item));
+        // An update must also not move an item out of a sealed month.
+        T current = resolver == null ? null : resolver.apply(sequence);
+        if (current != null) {
+            checkWritable(dateExtractor.apply(current));
+        }
+    }
+
+    // Restoring is what brings a sealed month back, so the seal does not apply.
+    @Override
+    public void validateRestore(long sequence, T item) {
+    }
+
+    @Override
+    public void validateRemove(long sequence, T item) {
+        checkWritable(dateExtractor.apply(item));
+    }
+
+    @Override
+    public void bind(LongFunction<T> resolver) {
+        super.bind(resolver);
+        this.resolver = resolver;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        sealed.clear();
+        offloaded.clear();
+    }
+
+    private void checkWritable(LocalDate date) {
+        if (date != null && isSealed(YearMonth.from(date))) {
+            throw new InvalidDataException(String.format("Partition %s of %s is sealed", YearMonth.from(date), name()));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.car_rental.repository;
+
+/**
+ * Receives every change to the contents of a {@link GenericRepository}, e.g. to journal it.
+ * An update is reported as a put of the new item. All callbacks but {@link #awaitDurable()}
+ * run under the repository's write lock, in the order the changes are made, and must be
+ * quick. {@link #beforePublish()} runs once a write has reported its changes and before
+ * readers can see them, e.g. to buffer what was recorded; if it throws, the write is
+ * undone, reporting the changes that take it back, and the exception reaches the writer.
+ * For a {@link UnitOfWork} it runs for each repository in turn once all have applied
+ * their changes. {@link #awaitDurable()} runs on the writing thread after the write is
+ * published and the lock released, and may block until what was recorded is durable.
+ */
+public interface MutationListener<T> {
+
+    void onPut(String identity, T item);
+
+    void onDelete(String identity);
+
+    void onClear();
+
+    default void beforePublish() {
+    }
+
+    /**
+     * Called without the write lock after a write this thread made was published. Readers
+     * may already see it; if this throws, the exception reaches the writer, but the write
+     * stays.
+     */
+    default void awaitDurable() {
+    }
+
+    /**
+     * Called once a write has been undone instead of published, after the changes that
+     * take it back were reported; nothing the write reported was ever visible to readers.
+     */
+    default void onRollback() {
+    }
+}
@@ -0,0 +1,179 @@
+package com.car_rental.repository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+
+/**
+ * Case-insensitive substring index built from trigram posting lists.
+ * A query is answered by intersecting the posting lists of its trigrams, starting with
+ * the shortest, and only the surviving candidates are checked with {@code contains}.
+ * Queries shorter than three characters fall back to checking every indexed text.
+ */
+public class NgramIndex<T> implements RepositoryIndex<T> {
+
+    private static final int N = 3;
+
+    private final String name;
+    private final Function<T, String> textExtractor;
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+    // Normalised text per sequence; items are resolved only for confirmed matches.
+    private final NavigableMap<Long, String> texts = new TreeMap<>();
+    private LongFunction<T> resolver;
+
+    public NgramIndex(String name, Function<T, String> textExtractor) {
+        this.name = name;
+        this.textExtractor = textExtractor;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    public List<T> search(String query) {
+        List<T> result = new ArrayList<>();
+        forEachMatch(query, sequence -> result.add(resolver.apply(sequence)));
+        return result;
+    }
+
+    /**
+     * Upper bound on the number of matches: the shortest posting list among the query's trigrams.
+     */
+    int estimate(String query) {
+        if (query == null) {
+            return 0;
+        }
+        String needle = normalize(query);
+        if (needle.length() < N) {
+            return texts.size();
+        }
+        int smallest = Integer.MAX_VALUE;
+        for (String gram : grams(needle)) {
+            PostingList list = postings.get(gram);
+            if (list == null) {
+                return 0;
+            }
+            smallest = Math.min(smallest, list.size());
+        }
+        return smallest;
+    }
+
+    boolean matches(T item, String query) {
+        String text = textExtractor.apply(item);
+        return text != null && query != null && normalize(text).contains(normalize(query));
+    }
+
+    // Emits the sequences of confirmed matches in insertion order.
+    void forEachMatch(String query, LongConsumer action) {
+        if (query == null) {
+            return;
+        }
+        String needle = normalize(query);
+
+        if (needle.length() < N) {
+            texts.forEach((sequence, text) -> {
+                if (text.contains(needle)) {
+                    action.accept(sequence);
+                }
+            });
+            return;
+        }
+
+        List<PostingList> lists = new ArrayList<>();
+        for (String gram : grams(needle)) {
+            PostingList list = postings.get(gram);
+            if (list == null) {
+                return;
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(PostingList::size));
+
+        PostingList smallest = lists.get(0);
+        candidates:
+        for (int i = 0; i < smallest.size(); i++) {
+            long sequence = smallest.get(i);
+            for (int j = 1; j < lists.size(); j++) {
+                if (!lists.get(j).contains(sequence)) {
+                    continue candidates;
+                }
+            }
+            if (texts.get(sequence).contains(needle)) {
+                action.accept(sequence);
+            }
+        }
+    }
+
+    @Override
+    public void bind(LongFunction<T> resolver) {
+        this.resolver = resolver;
+    }
+
+    @Override
+    public void onAdd(long sequence, T item) {
+        String text = textExtractor.apply(item);
+        if (text == null) {
+            return;
+        }
+        String normalized = normalize(text);
+        texts.put(sequence, normalized);
+        for (String gram : grams(normalized)) {
+            postings.computeIfAbsent(gram, g -> new PostingList()).add(sequence);
+        }
+    }
+
+    @Override
+    public void onRemove(long sequence, T item) {
+        String text = texts.remove(sequence);
+        if (text == null) {
+            return;
+        }
+        for (String gram : grams(text)) {
+            PostingList list = postings.get(gram);
+            list.remove(sequence);
+            if (list.isEmpty()) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    // The indexed text is kept per sequence, so a change that leaves it alone costs one lookup.
+    @Override
+    public void onChange(long sequence, T item, String property, Object oldValue) {
+        String text = textExtractor.apply(item);
+        if (!Objects.equals(texts.get(sequence), text == null ? null : normalize(text))) {
+            onRemove(sequence, item);
+            onAdd(sequence, item);
+        }
+    }
+
+    @Override
+    public void clear() {
+        postings.clear();
+        texts.clear();
+    }
+
+    private static String normalize(String text) {
+        return text.trim().toLowerCase();
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + N <= text.length(); i++) {
+            grams.add(text.substring(i, i + N));
+        }
+        return grams;
+    }
+}
@@ -0,0 +1,194 @@
+package com.car_rental.repository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.car_rental.exception.DataSerializationException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * {@link RecordStore} that keeps records serialised in direct {@link ByteBuffer} arenas,
+ * outside the Java heap. Records are appended to the current arena; when it is full a new
+ * one is allocated. The heap only holds a small handle per record (arena, offset, length).
+ *
+ * <p>Arenas are never overwritten. Once more than half of a filled arena is dead, its live
+ * records are copied into the current arena and their handles re-pointed, so the old arena
+ * is freed by the garbage collector as soon as no snapshot still reads from it. Every arena
+ * but the current one therefore stays at least half live, which bounds the off-heap memory
+ * at about twice the live bytes however many updates and removals the repository sees.
+ */
+public final class OffHeapRecordStore<T> implements RecordStore<T> {
+
+    public static final int DEFAULT_ARENA_SIZE = 1 << 20;
+
+    private final Class<T> type;
+    private final int arenaSize;
+    private final ObjectMapper mapper;
+
+    private Arena arena;
+    // Bumped by clear(), so records released afterwards no longer count against any arena.
+    private int generation;
+    private long allocatedBytes;
+    private long arenaBytes;
+    private long liveBytes;
+    private int liveRecords;
+
+    // Where a record's bytes are; replaced as a whole when compaction moves the record,
+    // so a concurrent load always reads a consistent buffer, offset and length.
+    private record Location(ByteBuffer buffer, int offset, int length) {
+    }
+
+    private static final class Ref {
+        private volatile Location location;
+        // Only touched by store() and release(), which run under the repository's write lock.
+        private Arena arena;
+        private boolean released;
+    }
+
+    private static final class Arena {
+        private final ByteBuffer buffer;
+        private final int generation;
+        private final List<Ref> refs = new ArrayList<>();
+        private long deadBytes;
+
+        private Arena(int capacity, int generation) {
+            this.buffer = ByteBuffer.allocateDirect(capacity);
+            this.generation = generation;
+        }
+    }
+
+    public OffHeapRecordStore(Class<T> type) {
+        this(type, DEFAULT_ARENA_SIZE);
+    }
+
+    public OffHeapRecordStore(Class<T> type, int arenaSize) {
+        if (arenaSize <= 0) {
+            throw new IllegalArgumentException("Arena size must be positive: " + arenaSize);
+        }
+        this.type = type;
+        this.arenaSize = arenaSize;
+        this.mapper = new ObjectMapper();
+        this.mapper.registerModule(new JavaTimeModule());
+    }
+
+    @Override
+    public Object store(T item) {
+        byte[] bytes;
+        try {
+            bytes = mapper.writeValueAsBytes(item);
+        } catch (IOException e) {
+            throw new DataSerializationException("Failed to store " + type.getSimpleName() + " off-heap", e);
+        }
+
+        Ref ref = new Ref();
+        append(ref, ByteBuffer.wrap(bytes));
+        liveBytes += bytes.length;
+        liveRecords++;
+        return ref;
+    }
+
+    @Override
+    public T load(Object handle) {
+        Location location = ((Ref) handle).location;
+        // slice() gives every reader its own position, so concurrent loads never interfere.
+        ByteBuffer record = location.buffer().slice(location.offset(), location.length());
+        try {
+            return mapper.readValue(new ByteBufferBackedInputStream(record), type);
+        } catch (IOException e) {
+            throw new DataSerializationException("Failed to load " + type.getSimpleName() + " from off-heap store", e);
+        }
+    }
+
+    @Override
+    public void release(Object handle) {
+        Ref ref = (Ref) handle;
+        if (ref.released) {
+            return;
+        }
+        ref.released = true;
+        if (ref.arena.generation != generation) {
+            return;
+        }
+        int length = ref.location.length();
+        liveBytes -= length;
+        liveRecords--;
+        ref.arena.deadBytes += length;
+        compactIfSparse(ref.arena);
+    }
+
+    @Override
+    public void clear() {
+        arena = null;
+        generation++;
+        arenaBytes = 0;
+        liveBytes = 0;
+        liveRecords = 0;
+    }
+
+    /**
+     * Total size of the arenas allocated so far, including ones already reclaimed.
+     */
+    public long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Size of the arenas that still hold live records.
+     */
+    public long arenaBytes() {
+        return arenaBytes;
+    }
+
+    public long liveBytes() {
+        return liveBytes;
+    }
+
+    public int liveRecords() {
+        return liveRecords;
+    }
+
+    // Copies the record into the current arena, opening a new one when it does not fit,
+    // and points the handle at the copy.
+    private void append(Ref ref, ByteBuffer bytes) {
+        int length = bytes.remaining();
+        if (arena == null || arena.buffer.remaining() < length) {
+            Arena full = arena;
+            arena = new Arena(Math.max(arenaSize, length), generation);
+            allocatedBytes += arena.buffer.capacity();
+            arenaBytes += arena.buffer.capacity();
+            if (full != null) {
+                compactIfSparse(full);
+            }
+        }
+        int offset = arena.buffer.position();
+        arena.buffer.put(bytes);
+        arena.refs.add(ref);
+        ref.arena = arena;
+        ref.location = new Location(arena.buffer, offset, length);
+    }
+
+    // Moves the live records out of a filled arena that is more than half dead. The
+    // current arena is left alone: it is still being filled.
+    private void compactIfSparse(Arena candidate) {
+        if (candidate == arena || candidate.deadBytes * 2 <= candidate.buffer.position()) {
+            return;
+        }
+        List<Ref> live = new ArrayList<>();
+        for (Ref ref : candidate.refs) {
+            if (!ref.released && ref.arena == candidate) {
+                live.add(ref);
+            }
+        }
+        candidate.refs.clear();
+        arenaBytes -= candidate.buffer.capacity();
+
+        for (Ref ref : live) {
+            Location location = ref.location;
+            append(ref, location.buffer().slice(location.offset(), location.length()));
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.car_rental.repository;
+
+import java.util.List;
+
+/**
+ * One page of a repository listing. {@code next} is {@code null} on the last page;
+ * otherwise it can be passed back to continue right after this page.
+ */
+public record Page<T>(List<T> items, Cursor<T> next) {
+
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    /**
+     * Position just after the last item of a page: the item itself plus its insertion
+     * sequence, which breaks ties between items the comparator considers equal.
+     */
+    public record Cursor<T>(T last, long sequence) {
+    }
+}
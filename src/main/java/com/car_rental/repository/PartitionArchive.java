@@ -0,0 +1,148 @@
+package com.car_rental.repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.car_rental.exception.DataSerializationException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.CollectionType;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Directory of offloaded month partitions, one gzip-compressed JSON array per month named
+ * {@code yyyy-MM.json.gz}. A file is written to a temporary name, synced and moved into
+ * place, so a crash never leaves a half-written partition behind, and a failed write leaves
+ * no temporary file either.
+ */
+public final class PartitionArchive<T> {
+    private static final Logger logger = LoggerFactory.getLogger(PartitionArchive.class);
+
+    private static final String SUFFIX = ".json.gz";
+
+    private final Path directory;
+    private final ObjectMapper mapper;
+    private final CollectionType listType;
+
+    public PartitionArchive(Path directory, Class<T> type) {
+        if (directory == null || type == null) {
+            throw new IllegalArgumentException("Archive directory and type cannot be null");
+        }
+        this.directory = directory;
+        this.mapper = new ObjectMapper();
+        this.mapper.registerModule(new JavaTimeModule());
+        this.listType = mapper.getTypeFactory().constructCollectionType(List.class, type);
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+    public Path pathOf(YearMonth month) {
+        return directory.resolve(month + SUFFIX);
+    }
+
+    public void write(YearMonth month, List<T> items) {
+        Path target = pathOf(month);
+        Path temporary = null;
+        boolean replaced = false;
+        try {
+            Files.createDirectories(directory);
+            temporary = Files.createTempFile(directory, month.toString(), ".tmp");
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temporary))) {
+                mapper.writeValue(out, items);
+            }
+            // On disk before it is moved into place: the items it holds are detached, and
+            // journaled as gone, right after this returns.
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            replaced = true;
+            forceDirectory();
+            logger.debug("Offloaded {} items of {} to {}", items.size(), month, target);
+        } catch (IOException e) {
+            throw new DataSerializationException("Failed to offload partition " + month + " to " + target, e);
+        } finally {
+            if (!replaced && temporary != null) {
+                deleteTemporary(temporary);
+            }
+        }
+    }
+
+    // Makes the rename itself durable. Not every platform can open a directory for this,
+    // so a failure only means the move is as durable as the file system makes it anyway.
+    private void forceDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            logger.debug("Could not sync partition archive directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private void deleteTemporary(Path temporary) {
+        try {
+            Files.deleteIfExists(temporary);
+        } catch (IOException e) {
+            logger.warn("Failed to delete temporary file {}: {}", temporary, e.getMessage());
+        }
+    }
+
+    public List<T> read(YearMonth month) {
+        Path source = pathOf(month);
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(source))) {
+            return mapper.readValue(in, listType);
+        } catch (NoSuchFileException e) {
+            throw new DataSerializationException("File not found: " + source, e);
+        } catch (IOException e) {
+            throw new DataSerializationException("Failed to load partition " + month + " from " + source, e);
+        }
+    }
+
+    public void delete(YearMonth month) {
+        try {
+            Files.deleteIfExists(pathOf(month));
+        } catch (IOException e) {
+            throw new DataSerializationException("Failed to delete offloaded partition " + month, e);
+        }
+    }
+
+    /**
+     * Months with a partition file, in no particular order; none if the directory does not exist.
+     */
+    public List<YearMonth> months() {
+        List<YearMonth> months = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return months;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    months.add(YearMonth.parse(name.substring(0, name.length() - SUFFIX.length())));
+                } catch (DateTimeParseException e) {
+                    logger.warn("Ignoring unexpected file in partition archive: {}", file);
+                }
+            }
+        } catch (IOException e) {
+            throw new DataSerializationException("Failed to list partition archive " + directory, e);
+        }
+        return months;
+    }
+}
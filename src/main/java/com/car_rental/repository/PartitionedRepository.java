@@ -0,0 +1,199 @@
+package com.car_rental.repository;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Repository whose items are partitioned by calendar month of a date, through a
+ * {@link MonthPartitions} index that doubles as the range index on that date.
+ *
+ * <p>Closed months can be {@linkplain #seal sealed} read-only and then
+ * {@linkplain #offload offloaded} to a {@link PartitionArchive}, which takes their items
+ * out of memory. Reads bounded on the partition date, through {@link #findInRange} or a
+ * {@link Query#between} criterion, first load back any offloaded month they overlap; all
+ * other reads, including {@link #getAll()}, only see the months in memory.
+ */
+public abstract class PartitionedRepository<T> extends GenericRepository<T> {
+    private static final Logger logger = LoggerFactory.getLogger(PartitionedRepository.class);
+
+    private final MonthPartitions<T> partitions;
+    private volatile PartitionArchive<T> archive;
+
+    // Serialises offloading and loading back, so a month is never moved both ways at once.
+    private final Object maintenance = new Object();
+
+    protected PartitionedRepository(IdentityExtractor<T> identityExtractor, String entityType, RecordStore<T> store,
+                                    String partitionIndex, Function<T, LocalDate> partitionDate) {
+        super(identityExtractor, entityType, store);
+        this.partitions = new MonthPartitions<>(partitionIndex, partitionDate);
+        registerIndex(partitions);
+    }
+
+    /**
+     * Sets where offloaded months are kept. Months already in the archive are adopted:
+     * as offloaded if none of their items are in memory, otherwise as sealed, with the
+     * in-memory items taking precedence over the stale file. The items of offloaded
+     * months are read once if an index keeps answering for archived items.
+     */
+    public void setArchive(PartitionArchive<T> archive) {
+        synchronized (maintenance) {
+            this.archive = archive;
+            if (archive == null) {
+                return;
+            }
+            List<YearMonth> archived = archive.months();
+            List<YearMonth> offloaded = new ArrayList<>();
+            write(() -> {
+                for (YearMonth month : archived) {
+                    if (partitions.size(month) == 0) {
+                        partitions.markOffloaded(month);
+                        offloaded.add(month);
+                    } else {
+                        partitions.seal(month);
+                    }
+                }
+            });
+            if (keepsArchived()) {
+                for (YearMonth month : offloaded) {
+                    adoptArchived(archive.read(month));
+                }
+            }
+            logger.debug("Adopted {} archived partitions from {}", archived.size(), archive.directory());
+        }
+    }
+
+    public List<MonthPartitions.Partition> partitions() {
+        return read(partitions::partitions);
+    }
+
+    public void seal(YearMonth month) {
+        if (month == null) {
+            throw new IllegalArgumentException("Month cannot be null");
+        }
+        write(() -> partitions.seal(month));
+        logger.debug("Sealed partition {} of {}", month, partitions.name());
+    }
+
+    /**
+     * Seals every month before {@code month} that holds items; returns how many were newly sealed.
+     */
+    public int sealBefore(YearMonth month) {
+        if (month == null) {
+            throw new IllegalArgumentException("Month cannot be null");
+        }
+        int[] sealed = new int[1];
+        write(() -> {
+            for (MonthPartitions.Partition partition : partitions.partitions()) {
+                if (partition.month().isBefore(month) && !partition.sealed()) {
+                    partitions.seal(partition.month());
+                    sealed[0]++;
+                }
+            }
+        });
+        return sealed[0];
+    }
+
+    /**
+     * Writes a sealed month to the archive and removes its items from the repository.
+     * Returns the number of items offloaded.
+     *
+     * @throws IllegalStateException if the month is not sealed or no archive is set
+     */
+    public int offload(YearMonth month) {
+        synchronized (maintenance) {
+            if (archive == null) {
+                throw new IllegalStateException("No partition archive set for " + partitions.name());
+            }
+            long[] sequences = read(() -> {
+                if (!partitions.isSealed(month)) {
+                    throw new IllegalStateException("Partition " + month + " must be sealed before it is offloaded");
+                }
+                return partitions.isOffloaded(month) ? null : partitions.sequencesIn(month);
+            });
+            if (sequences == null) {
+                return 0;
+            }
+
+            // Sealed, so the items cannot change between reading and detaching them. The
+            // month is marked first so a concurrent bounded read waits here and loads it back.
+            List<T> items = super.findInRange(partitions.name(), month.atDay(1), true, month.atEndOfMonth(), true);
+            archive.write(month, items);
+            write(() -> partitions.markOffloaded(month));
+            int detached = detach(sequences).size();
+            logger.debug("Offloaded {} items of partition {} of {}", detached, month, partitions.name());
+            return detached;
+        }
+    }
+
+    /**
+     * Offloads every sealed month still in memory; returns the number of items offloaded.
+     */
+    public int offloadSealed() {
+        int offloaded = 0;
+        for (MonthPartitions.Partition partition : partitions()) {
+            if (partition.sealed() && !partition.offloaded()) {
+                offloaded += offload(partition.month());
+            }
+        }
+        return offloaded;
+    }
+
+    /**
+     * Brings an offloaded month back into the repository, still sealed, and deletes its
+     * archive file. Returns the number of items loaded.
+     *
+     * @throws com.car_rental.exception.InvalidDataException if an index rejects one of the
+     *         month's items, in which case the month stays offloaded and its file is kept
+     */
+    public int load(YearMonth month) {
+        synchronized (maintenance) {
+            if (!read(() -> partitions.isOffloaded(month))) {
+                return 0;
+            }
+            int restored = restore(archive.read(month));
+            write(() -> partitions.markLoaded(month));
+            archive.delete(month);
+            logger.debug("Loaded {} items of partition {} of {}", restored, month, partitions.name());
+            return restored;
+        }
+    }
+
+    @Override
+    public <K extends Comparable<K>> List<T> findInRange(String indexName,
+                                                         K from, boolean fromInclusive,
+                                                         K to, boolean toInclusive) {
+        if (partitions.name().equals(indexName)) {
+            loadBetween(from, to);
+        }
+        return super.findInRange(indexName, from, fromInclusive, to, toInclusive);
+    }
+
+    @Override
+    public List<T> query(Query<T> query) {
+        if (query != null) {
+            for (Query.Between<T, ?> range : query.rangesOn(partitions.name())) {
+                loadBetween(range.from(), range.to());
+            }
+        }
+        return super.query(query);
+    }
+
+    // Loads the offloaded months a read bounded by [from, to] overlaps. A read bounded on
+    // neither side is a read of what is in memory and loads nothing.
+    private void loadBetween(Object from, Object to) {
+        if ((from == null && to == null) || !(from == null || from instanceof LocalDate)
+                || !(to == null || to instanceof LocalDate)) {
+            return;
+        }
+        List<YearMonth> months = read(() -> partitions.offloadedBetween((LocalDate) from, (LocalDate) to));
+        for (YearMonth month : months) {
+            load(month);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.car_rental.repository;
 
 
+import java.time.LocalDate;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -10,38 +11,58 @@ import org.slf4j.LoggerFactory;
 
 import com.car_rental.model.Payment;
 
-public class PaymentRepository  extends GenericRepository<Payment> {
+public class PaymentRepository  extends PartitionedRepository<Payment> {
     private static final Logger logger = LoggerFactory.getLogger(PaymentRepository.class);
 
+    public static final String BY_RENTAL_ID = "rentalId";
+    public static final String BY_PAYMENT_DATE = "paymentDate";
+    public static final String BY_AMOUNT = "amount";
 
     public PaymentRepository(){
-        super(payment -> String.valueOf(payment.getId()), "Payment");
+        this(RecordStore.onHeap());
+    }
+
+    public PaymentRepository(RecordStore<Payment> store){
+        super(payment -> String.valueOf(payment.getId()), "Payment", store, BY_PAYMENT_DATE, Payment::getPaymentDate);
+        registerIndex(new HashIndex<>(BY_RENTAL_ID,
+                payment -> payment.getRental() == null ? null : payment.getRental().getId(),
+                HashIndex.ignoringCase()));
+        registerIndex(new RangeIndex<>(BY_AMOUNT, Payment::getAmount));
     }
 
     public List<Payment> sortByPaymentDate(){
-        return sortByComparator(Payment.byPaymentDate());
+        return findInRange(BY_PAYMENT_DATE, null, null);
     }
 
     public List<Payment> sortByAmount(){
-        return sortByComparator(Payment.byAmount());
+        return findInRange(BY_AMOUNT, null, null);
     }
 
     public Optional<Payment> findById(String id){
         if(id == null){
-            logger.warn(String.format("findById called with null id"));
+            logger.warn("findById called with null id");
             return Optional.empty();
         }
-        logger.info(String.format("Trying to find Payment by %s", id));
+        logger.debug("Trying to find Payment by {}", id);
         return findByIdentity(id);
     }
 
     public List<Payment> findByRentalId(String id){
         if(id == null){
-            logger.warn(String.format("findByRentalId called with null id"));
+            logger.warn("findByRentalId called with null id");
             return Collections.emptyList();
         }
-        logger.info(String.format("Trying to find Payment by Rental %s", id));
-        return findByPredicate(x -> x.getRental().getId().toLowerCase().equals(id.trim().toLowerCase()))
-            .toList();
+        logger.debug("Trying to find Payment by Rental {}", id);
+        return findByIndex(BY_RENTAL_ID, id);
+    }
+
+    public List<Payment> findByPaymentDateBetween(LocalDate from, LocalDate to){
+        logger.debug("Trying to find Payments made between {} and {}", from, to);
+        return findInRange(BY_PAYMENT_DATE, from, to);
+    }
+
+    public List<Payment> findByAmountBetween(double min, double max){
+        logger.debug("Trying to find Payments with amount between {} and {}", min, max);
+        return findInRange(BY_AMOUNT, min, max);
     }
 }
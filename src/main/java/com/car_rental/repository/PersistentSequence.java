@@ -0,0 +1,215 @@
+package com.car_rental.repository;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Immutable, size-augmented AVL tree keyed by a monotonically increasing sequence number.
+ * Every modification copies only the O(log n) path from the root to the changed node,
+ * so older versions stay valid and share all untouched subtrees with newer ones.
+ * In-order iteration yields values in key (i.e. insertion) order.
+ */
+final class PersistentSequence<T> implements Iterable<T> {
+
+    private static final PersistentSequence<?> EMPTY = new PersistentSequence<>(null);
+
+    private final Node<T> root;
+
+    private record Node<T>(long key, T value, Node<T> left, Node<T> right, int height, int size) {
+    }
+
+    private PersistentSequence(Node<T> root) {
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> PersistentSequence<T> empty() {
+        return (PersistentSequence<T>) EMPTY;
+    }
+
+    int size() {
+        return size(root);
+    }
+
+    boolean isEmpty() {
+        return root == null;
+    }
+
+    T get(long key) {
+        Node<T> node = root;
+        while (node != null) {
+            if (key < node.key) {
+                node = node.left;
+            } else if (key > node.key) {
+                node = node.right;
+            } else {
+                return node.value;
+            }
+        }
+        return null;
+    }
+
+    T at(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+
+        Node<T> node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index > leftSize) {
+                index -= leftSize + 1;
+                node = node.right;
+            } else {
+                return node.value;
+            }
+        }
+    }
+
+    /**
+     * Returns a sequence with {@code value} stored under {@code key}, replacing any previous value.
+     */
+    PersistentSequence<T> with(long key, T value) {
+        return new PersistentSequence<>(insert(root, key, value));
+    }
+
+    PersistentSequence<T> without(long key) {
+        Node<T> newRoot = delete(root, key);
+        return newRoot == root ? this : new PersistentSequence<>(newRoot);
+    }
+
+    /**
+     * Visits every value in key order together with its key.
+     */
+    void forEachEntry(ObjLongConsumer<T> action) {
+        Deque<Node<T>> stack = new ArrayDeque<>();
+        Node<T> node = root;
+        while (node != null || !stack.isEmpty()) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+            node = stack.pop();
+            action.accept(node.value, node.key);
+            node = node.right;
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private final Deque<Node<T>> stack = new ArrayDeque<>();
+
+            {
+                pushLeft(root);
+            }
+
+            private void pushLeft(Node<T> node) {
+                while (node != null) {
+                    stack.push(node);
+                    node = node.left;
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !stack.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                if (stack.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                Node<T> node = stack.pop();
+                pushLeft(node.right);
+                return node.value;
+            }
+        };
+    }
+
+    private static <T> Node<T> insert(Node<T> node, long key, T value) {
+        if (node == null) {
+            return node(key, value, null, null);
+        }
+        if (key < node.key) {
+            return balance(node.key, node.value, insert(node.left, key, value), node.right);
+        }
+        if (key > node.key) {
+            return balance(node.key, node.value, node.left, insert(node.right, key, value));
+        }
+        return node(key, value, node.left, node.right);
+    }
+
+    private static <T> Node<T> delete(Node<T> node, long key) {
+        if (node == null) {
+            return null;
+        }
+        if (key < node.key) {
+            Node<T> left = delete(node.left, key);
+            return left == node.left ? node : balance(node.key, node.value, left, node.right);
+        }
+        if (key > node.key) {
+            Node<T> right = delete(node.right, key);
+            return right == node.right ? node : balance(node.key, node.value, node.left, right);
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+
+        Node<T> successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(successor.key, successor.value, node.left, delete(node.right, successor.key));
+    }
+
+    private static <T> Node<T> balance(long key, T value, Node<T> left, Node<T> right) {
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+
+        if (leftHeight > rightHeight + 1) {
+            if (height(left.left) >= height(left.right)) {
+                return node(left.key, left.value, left.left, node(key, value, left.right, right));
+            }
+            Node<T> pivot = left.right;
+            return node(pivot.key, pivot.value,
+                    node(left.key, left.value, left.left, pivot.left),
+                    node(key, value, pivot.right, right));
+        }
+
+        if (rightHeight > leftHeight + 1) {
+            if (height(right.right) >= height(right.left)) {
+                return node(right.key, right.value, node(key, value, left, right.left), right.right);
+            }
+            Node<T> pivot = right.left;
+            return node(pivot.key, pivot.value,
+                    node(key, value, left, pivot.left),
+                    node(right.key, right.value, pivot.right, right.right));
+        }
+
+        return node(key, value, left, right);
+    }
+
+    private static <T> Node<T> node(long key, T value, Node<T> left, Node<T> right) {
+        return new Node<>(key, value, left, right,
+                Math.max(height(left), height(right)) + 1,
+                size(left) + size(right) + 1);
+    }
+
+    private static int height(Node<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+}
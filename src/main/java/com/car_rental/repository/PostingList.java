@@ -0,0 +1,54 @@
+package com.car_rental.repository;
+
+import java.util.Arrays;
+
+/**
+ * Growable, sorted array of unboxed sequence numbers. Sequences are handed out in
+ * increasing order, so adds are almost always appends.
+ */
+final class PostingList {
+
+    private long[] sequences = new long[4];
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    long get(int index) {
+        return sequences[index];
+    }
+
+    void add(long sequence) {
+        int position = size == 0 || sequences[size - 1] < sequence ? size : Arrays.binarySearch(sequences, 0, size, sequence);
+        if (position >= 0 && position < size) {
+            return;
+        }
+        if (position < 0) {
+            position = -position - 1;
+        }
+        if (size == sequences.length) {
+            sequences = Arrays.copyOf(sequences, size * 2);
+        }
+        System.arraycopy(sequences, position, sequences, position + 1, size - position);
+        sequences[position] = sequence;
+        size++;
+    }
+
+    void remove(long sequence) {
+        int position = Arrays.binarySearch(sequences, 0, size, sequence);
+        if (position < 0) {
+            return;
+        }
+        System.arraycopy(sequences, position + 1, sequences, position, size - position - 1);
+        size--;
+    }
+
+    boolean contains(long sequence) {
+        return Arrays.binarySearch(sequences, 0, size, sequence) >= 0;
+    }
+}
@@ -0,0 +1,248 @@
+package com.car_rental.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+
+/**
+ * A conjunction of criteria over a repository's secondary indexes, plus optional ordering
+ * and limit, run by {@link GenericRepository#query(Query)}. Each criterion names the index
+ * it is answered by: {@link #equal} a {@link HashIndex}, {@link #between} a
+ * {@link RangeIndex}, {@link #contains} an {@link NgramIndex}. The planner drives the scan
+ * from whichever criterion its index estimates to be the most selective and checks the
+ * others, and any {@link #filter} predicates, on each candidate.
+ *
+ * <p>Without {@link #orderBy}, results come back in insertion order.
+ */
+public final class Query<T> {
+
+    private final List<Criterion<T>> criteria = new ArrayList<>();
+    private final List<Predicate<T>> filters = new ArrayList<>();
+    private Comparator<T> order;
+    private int limit = Integer.MAX_VALUE;
+
+    public static <T> Query<T> create() {
+        return new Query<>();
+    }
+
+    /**
+     * Items whose key in the hash index {@code indexName} equals {@code key}.
+     */
+    public Query<T> equal(String indexName, String key) {
+        criteria.add(new Equal<>(indexName, key));
+        return this;
+    }
+
+    /**
+     * Items whose key in the range index {@code indexName} lies between {@code from} and
+     * {@code to}, both inclusive; a {@code null} bound leaves that side open.
+     */
+    public <K extends Comparable<K>> Query<T> between(String indexName, K from, K to) {
+        criteria.add(new Between<>(indexName, from, to));
+        return this;
+    }
+
+    /**
+     * Items whose text in the substring index {@code indexName} contains {@code text}, ignoring case.
+     */
+    public Query<T> contains(String indexName, String text) {
+        criteria.add(new Contains<>(indexName, text));
+        return this;
+    }
+
+    /**
+     * A condition no index can answer; it is checked on every candidate.
+     */
+    public Query<T> filter(Predicate<T> predicate) {
+        if (predicate == null) {
+            throw new IllegalArgumentException("Filter cannot be null");
+        }
+        filters.add(predicate);
+        return this;
+    }
+
+    public Query<T> orderBy(Comparator<T> comparator) {
+        this.order = comparator;
+        return this;
+    }
+
+    public Query<T> limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative: " + limit);
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    List<Criterion<T>> criteria() {
+        return Collections.unmodifiableList(criteria);
+    }
+
+    List<Predicate<T>> filters() {
+        return Collections.unmodifiableList(filters);
+    }
+
+    Comparator<T> order() {
+        return order;
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    // The between() criteria on indexName, whose bounds tell a partitioned repository
+    // which offloaded partitions the query needs.
+    List<Between<T, ?>> rangesOn(String indexName) {
+        List<Between<T, ?>> ranges = new ArrayList<>();
+        for (Criterion<T> criterion : criteria) {
+            if (criterion instanceof Between<T, ?> between && criterion.indexName().equals(indexName)) {
+                ranges.add(between);
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * One indexed condition. The planner asks each for an estimate of how many items it
+     * admits, collects candidates from the cheapest and checks the rest per item.
+     */
+    abstract static class Criterion<T> {
+        private final String indexName;
+
+        Criterion(String indexName) {
+            if (indexName == null) {
+                throw new IllegalArgumentException("Index name cannot be null");
+            }
+            this.indexName = indexName;
+        }
+
+        String indexName() {
+            return indexName;
+        }
+
+        abstract Class<?> indexType();
+
+        // Upper bound on matches; implementations may stop counting once it exceeds cap.
+        abstract long estimate(RepositoryIndex<T> index, long cap);
+
+        abstract void collect(RepositoryIndex<T> index, LongConsumer sequences);
+
+        abstract boolean matches(RepositoryIndex<T> index, T item);
+    }
+
+    private static final class Equal<T> extends Criterion<T> {
+        private final String key;
+
+        Equal(String indexName, String key) {
+            super(indexName);
+            this.key = key;
+        }
+
+        @Override
+        Class<?> indexType() {
+            return HashIndex.class;
+        }
+
+        @Override
+        long estimate(RepositoryIndex<T> index, long cap) {
+            return ((HashIndex<T>) index).count(key);
+        }
+
+        @Override
+        void collect(RepositoryIndex<T> index, LongConsumer sequences) {
+            ((HashIndex<T>) index).forEachSequence(key, sequences);
+        }
+
+        @Override
+        boolean matches(RepositoryIndex<T> index, T item) {
+            return ((HashIndex<T>) index).matches(item, key);
+        }
+
+        @Override
+        public String toString() {
+            return indexName() + " = " + key;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static final class Between<T, K extends Comparable<K>> extends Criterion<T> {
+        private final K from;
+        private final K to;
+
+        Between(String indexName, K from, K to) {
+            super(indexName);
+            this.from = from;
+            this.to = to;
+        }
+
+        K from() {
+            return from;
+        }
+
+        K to() {
+            return to;
+        }
+
+        @Override
+        Class<?> indexType() {
+            return RangeIndex.class;
+        }
+
+        @Override
+        long estimate(RepositoryIndex<T> index, long cap) {
+            return ((RangeIndex<T, K>) index).count(from, to, cap);
+        }
+
+        @Override
+        void collect(RepositoryIndex<T> index, LongConsumer sequences) {
+            ((RangeIndex<T, K>) index).forEachSequence(from, true, to, true, sequences);
+        }
+
+        @Override
+        boolean matches(RepositoryIndex<T> index, T item) {
+            return ((RangeIndex<T, K>) index).matches(item, from, to);
+        }
+
+        @Override
+        public String toString() {
+            return indexName() + " in [" + from + ", " + to + "]";
+        }
+    }
+
+    private static final class Contains<T> extends Criterion<T> {
+        private final String text;
+
+        Contains(String indexName, String text) {
+            super(indexName);
+            this.text = text;
+        }
+
+        @Override
+        Class<?> indexType() {
+            return NgramIndex.class;
+        }
+
+        @Override
+        long estimate(RepositoryIndex<T> index, long cap) {
+            return ((NgramIndex<T>) index).estimate(text);
+        }
+
+        @Override
+        void collect(RepositoryIndex<T> index, LongConsumer sequences) {
+            ((NgramIndex<T>) index).forEachMatch(text, sequences);
+        }
+
+        @Override
+        boolean matches(RepositoryIndex<T> index, T item) {
+            return ((NgramIndex<T>) index).matches(item, text);
+        }
+
+        @Override
+        public String toString() {
+            return indexName() + " contains " + text;
+        }
+    }
+}
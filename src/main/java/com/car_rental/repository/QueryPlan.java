@@ -0,0 +1,21 @@
+package com.car_rental.repository;
+
+import java.util.List;
+
+/**
+ * How {@link GenericRepository#query(Query)} runs a query: the index whose criterion drives
+ * the scan (null for a full scan), how many candidates it estimated, and the criteria that
+ * are checked on each candidate instead.
+ */
+public record QueryPlan(String drivingIndex, long estimatedCandidates, List<String> residualCriteria) {
+
+    public boolean isFullScan() {
+        return drivingIndex == null;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("QueryPlan { %s, ~%d candidates, residual=%s }",
+                isFullScan() ? "full scan" : "index " + drivingIndex, estimatedCandidates, residualCriteria);
+    }
+}
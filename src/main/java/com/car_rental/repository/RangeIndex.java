@@ -0,0 +1,174 @@
+package com.car_rental.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+
+/**
+ * Ordered index: key -> sequences of the items with that key, backed by a {@link TreeMap}.
+ * Range queries cost O(log n + k) and return matches sorted by key, then by insertion order.
+ */
+public class RangeIndex<T, K extends Comparable<K>> implements RepositoryIndex<T> {
+
+    private final String name;
+    private final Function<T, K> keyExtractor;
+    // Property the key is taken from as-is, or null if unknown; see onChange.
+    private final String property;
+
+    private final NavigableMap<K, PostingList> tree = new TreeMap<>();
+    private LongFunction<T> resolver;
+
+    public RangeIndex(String name, Function<T, K> keyExtractor) {
+        this(name, null, keyExtractor);
+    }
+
+    /**
+     * @param property name of the observed property whose value is the key, so an in-place
+     *                 change of it moves the entry directly instead of searching for it
+     */
+    public RangeIndex(String name, String property, Function<T, K> keyExtractor) {
+        this.name = name;
+        this.property = property;
+        this.keyExtractor = keyExtractor;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Returns items whose key lies between {@code from} and {@code to}.
+     * A {@code null} bound leaves that side of the range open.
+     */
+    public List<T> range(K from, boolean fromInclusive, K to, boolean toInclusive) {
+        List<T> result = new ArrayList<>();
+        forEachSequence(from, fromInclusive, to, toInclusive, sequence -> result.add(resolver.apply(sequence)));
+        return result;
+    }
+
+    /**
+     * Number of items with a key in {@code [from, to]}; stops counting once it exceeds {@code cap}.
+     */
+    long count(K from, K to, long cap) {
+        long count = 0;
+        for (PostingList matches : view(from, true, to, true).values()) {
+            count += matches.size();
+            if (count > cap) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    boolean matches(T item, K from, K to) {
+        K key = keyExtractor.apply(item);
+        return key != null
+                && (from == null || key.compareTo(from) >= 0)
+                && (to == null || key.compareTo(to) <= 0);
+    }
+
+    // Emits sequences in key order, then insertion order.
+    void forEachSequence(K from, boolean fromInclusive, K to, boolean toInclusive, LongConsumer action) {
+        for (PostingList matches : view(from, fromInclusive, to, toInclusive).values()) {
+            for (int i = 0; i < matches.size(); i++) {
+                action.accept(matches.get(i));
+            }
+        }
+    }
+
+    private NavigableMap<K, PostingList> view(K from, boolean fromInclusive, K to, boolean toInclusive) {
+        if (from != null && to != null) {
+            int cmp = from.compareTo(to);
+            if (cmp > 0 || (cmp == 0 && !(fromInclusive && toInclusive))) {
+                return Collections.emptyNavigableMap();
+            }
+            return tree.subMap(from, fromInclusive, to, toInclusive);
+        } else if (from != null) {
+            return tree.tailMap(from, fromInclusive);
+        } else if (to != null) {
+            return tree.headMap(to, toInclusive);
+        }
+        return tree;
+    }
+
+    @Override
+    public void bind(LongFunction<T> resolver) {
+        this.resolver = resolver;
+    }
+
+    public K min() {
+        return tree.isEmpty() ? null : tree.firstKey();
+    }
+
+    public K max() {
+        return tree.isEmpty() ? null : tree.lastKey();
+    }
+
+    @Override
+    public void onAdd(long sequence, T item) {
+        K key = keyExtractor.apply(item);
+        if (key == null) {
+            return;
+        }
+        tree.computeIfAbsent(key, k -> new PostingList()).add(sequence);
+    }
+
+    @Override
+    public void onRemove(long sequence, T item) {
+        if (removeFrom(keyExtractor.apply(item), sequence)) {
+            return;
+        }
+
+        // The item was mutated after it was indexed, so its current key is stale.
+        for (Iterator<PostingList> it = tree.values().iterator(); it.hasNext(); ) {
+            PostingList list = it.next();
+            if (list.contains(sequence)) {
+                list.remove(sequence);
+                if (list.isEmpty()) {
+                    it.remove();
+                }
+                return;
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onChange(long sequence, T item, String changed, Object oldValue) {
+        if (property == null) {
+            RepositoryIndex.super.onChange(sequence, item, changed, oldValue);
+            return;
+        }
+        if (!property.equals(changed)) {
+            return;
+        }
+        if (!removeFrom((K) oldValue, sequence)) {
+            onRemove(sequence, item);
+        }
+        onAdd(sequence, item);
+    }
+
+    @Override
+    public void clear() {
+        tree.clear();
+    }
+
+    private boolean removeFrom(K key, long sequence) {
+        PostingList matches = key == null ? null : tree.get(key);
+        if (matches == null || !matches.contains(sequence)) {
+            return false;
+        }
+        matches.remove(sequence);
+        if (matches.isEmpty()) {
+            tree.remove(key);
+        }
+        return true;
+    }
+}
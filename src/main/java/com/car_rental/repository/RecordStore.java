@@ -0,0 +1,30 @@
+package com.car_rental.repository;
+
+/**
+ * Storage backend for the records of a {@link GenericRepository}. The repository keeps
+ * only the opaque handle returned by {@link #store} in its identity index and snapshots,
+ * and materialises the entity through {@link #load} whenever it is accessed.
+ * {@link #store} and {@link #release} are called under the repository's write lock;
+ * {@link #load} may be called concurrently from any number of readers.
+ */
+public interface RecordStore<T> {
+
+    Object store(T item);
+
+    T load(Object handle);
+
+    /**
+     * Tells the store that the repository no longer references {@code handle}.
+     * Snapshots taken earlier may still load it, so the record must stay readable.
+     */
+    void release(Object handle);
+
+    void clear();
+
+    /**
+     * The default backend: entities stay on the heap and the handle is the entity itself.
+     */
+    static <T> RecordStore<T> onHeap() {
+        return HeapRecordStore.instance();
+    }
+}
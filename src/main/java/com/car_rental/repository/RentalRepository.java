@@ -1,59 +1,208 @@
 package com.car_rental.repository;
 
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Predicate;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.car_rental.model.Car;
+import com.car_rental.model.CarStatus;
 import com.car_rental.model.Rental;
 
-public class RentalRepository  extends GenericRepository<Rental>{
+public class RentalRepository  extends PartitionedRepository<Rental>{
     private static final Logger logger = LoggerFactory.getLogger(RentalRepository.class);
 
+    public static final String BY_CAR_LICENSE_PLATE = "carLicensePlate";
+    public static final String BY_CUSTOMER_DRIVER_LICENSE = "customerDriverLicense";
+    public static final String BY_START_DATE = "startDate";
+    public static final String BY_END_DATE = "endDate";
+    static final String AVAILABILITY = "availability";
+
+    private final LongestRental longestRental = new LongestRental();
+    private final AvailabilityIndex availability = new AvailabilityIndex(AVAILABILITY);
 
     public RentalRepository(){
-        super(rental -> String.valueOf(rental.getId()), "Rental");
+        this(RecordStore.onHeap());
+    }
+
+    public RentalRepository(RecordStore<Rental> store){
+        super(rental -> String.valueOf(rental.getId()), "Rental", store, BY_START_DATE, Rental::getStartDate);
+        registerIndex(new HashIndex<>(BY_CAR_LICENSE_PLATE,
+                rental -> rental.getCar() == null ? null : rental.getCar().getLicensePlate(),
+                HashIndex.ignoringCase()));
+        registerIndex(new HashIndex<>(BY_CUSTOMER_DRIVER_LICENSE,
+                rental -> rental.getCustomer() == null ? null : rental.getCustomer().driverLicense(),
+                HashIndex.ignoringCase()));
+        registerIndex(new RangeIndex<>(BY_END_DATE, Rental::getEndDate));
+        registerIndex(longestRental);
+        registerIndex(availability);
     }
 
     public List<Rental> sortByStartDate(){
-        return sortByComparator(Rental.byStartDate());
+        return findInRange(BY_START_DATE, null, null);
     }
 
     public List<Rental> sortByEndDate(){
-        return sortByComparator(Rental.byEndDate());
+        return findInRange(BY_END_DATE, null, null);
+    }
+
+    /**
+     * Orders rentals by length in days, as {@link Rental#compareTo} does, computing each
+     * length once instead of on every comparison.
+     */
+    public List<Rental> sortByDuration(){
+        return sortByKey(Rental.durationKey());
     }
 
     public Optional<Rental> findById(String id){
         if(id == null){
-            logger.warn(String.format("findById called with null id"));
+            logger.warn("findById called with null id");
             return Optional.empty();
         }
-        logger.info(String.format("Trying to find Rental by %s", id));
+        logger.debug("Trying to find Rental by {}", id);
         return findByIdentity(id);
     }
 
     public List<Rental> findByCarLicensePlate(String licensePlate){
         if(licensePlate == null){
-            logger.warn(String.format("findByCarLicensePlate called with null licensePlate"));
+            logger.warn("findByCarLicensePlate called with null licensePlate");
             return Collections.emptyList();
         }
-        logger.info(String.format("Trying to find Rental by Car %s", licensePlate));
-        return findByPredicate(x -> x.getCar().getLicensePlate().toLowerCase().trim()
-            .equals(licensePlate.toLowerCase().trim()))
-            .toList();
+        logger.debug("Trying to find Rental by Car {}", licensePlate);
+        return findByIndex(BY_CAR_LICENSE_PLATE, licensePlate);
     }
 
     public List<Rental> findByCustomerDriverLicense(String driverLicense){
         if(driverLicense == null){
-            logger.warn(String.format("findByCustomerDriverLicense called with null driverLicense"));
+            logger.warn("findByCustomerDriverLicense called with null driverLicense");
+            return Collections.emptyList();
+        }
+        logger.debug("Trying to find Rental by Customer {}", driverLicense);
+        return findByIndex(BY_CUSTOMER_DRIVER_LICENSE, driverLicense);
+    }
+
+    public List<Rental> findByStartDateBetween(LocalDate from, LocalDate to){
+        logger.debug("Trying to find Rentals starting between {} and {}", from, to);
+        return findInRange(BY_START_DATE, from, to);
+    }
+
+    public List<Rental> findByEndDateBetween(LocalDate from, LocalDate to){
+        logger.debug("Trying to find Rentals ending between {} and {}", from, to);
+        return findInRange(BY_END_DATE, from, to);
+    }
+
+    /**
+     * Finds rentals whose [startDate, endDate] period intersects [from, to], ordered by start date.
+     * A rental without an end date is open-ended and overlaps everything from its start on.
+     * Only rentals starting within the longest known rental duration before {@code from} are examined.
+     */
+    public List<Rental> findOverlapping(LocalDate from, LocalDate to){
+        if(from == null || to == null){
+            logger.warn("findOverlapping called with null bound");
             return Collections.emptyList();
         }
-        logger.info(String.format("Trying to find Rental by Customer %s", driverLicense));
-        return findByPredicate(x -> x.getCustomer().driverLicense().toLowerCase().trim()
-            .equals(driverLicense.toLowerCase().trim()))
+        logger.debug("Trying to find Rentals overlapping {} - {}", from, to);
+        // An open-ended rental may have started any time before from.
+        LocalDate earliest = longestRental.openEnded > 0 ? LocalDate.MIN : from.minusDays(longestRental.days);
+        return findInRange(BY_START_DATE, earliest, to).stream()
+            .filter(rental -> rental.getEndDate() == null || !rental.getEndDate().isBefore(from))
             .toList();
     }
 
+    /**
+     * True if no rental books the car between {@code from} and {@code to}. The end date of a
+     * rental is its return day, so a car is free from the day its last rental ends.
+     */
+    public boolean isCarAvailable(String licensePlate, LocalDate from, LocalDate to){
+        if(licensePlate == null || from == null || to == null){
+            logger.warn("isCarAvailable called with null argument");
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            return read(() -> availability.isFree(licensePlate, from, to));
+        } finally {
+            metrics().record(RepositoryMetrics.Operation.FIND, start);
+        }
+    }
+
+    /**
+     * Returns the cars of {@code fleet} that are not under maintenance and have no rental
+     * between {@code from} and {@code to}, in fleet order. Costs O(log n) per car.
+     */
+    public List<Car> findAvailableCars(List<Car> fleet, LocalDate from, LocalDate to){
+        if(fleet == null || from == null || to == null){
+            logger.warn("findAvailableCars called with null argument");
+            return Collections.emptyList();
+        }
+        if(to.isBefore(from)){
+            logger.warn("findAvailableCars called with {} before {}", to, from);
+            return Collections.emptyList();
+        }
+        logger.debug("Trying to find cars available {} - {}", from, to);
+        long start = System.nanoTime();
+        try {
+            return read(() -> fleet.stream().filter(car -> isBookable(car, from, to)).toList());
+        } finally {
+            metrics().record(RepositoryMetrics.Operation.FIND, start);
+        }
+    }
+
+    /**
+     * Test for whether a car is out of maintenance and unbooked between {@code from} and
+     * {@code to}, e.g. as a filter of a car query.
+     */
+    public Predicate<Car> availableBetween(LocalDate from, LocalDate to){
+        if(from == null || to == null){
+            throw new IllegalArgumentException("Availability period cannot have a null bound");
+        }
+        return car -> read(() -> isBookable(car, from, to));
+    }
+
+    // Callers hold the read lock; the lock is not reentrant, so this must not take it again.
+    private boolean isBookable(Car car, LocalDate from, LocalDate to){
+        return car.getStatus() != CarStatus.MAINTENANCE && availability.isFree(car.getLicensePlate(), from, to);
+    }
+
+    // Tracks the longest rental ever indexed and how many rentals are open-ended. The longest
+    // never shrinks on removal, and an end date set in place is seen as a removal of the
+    // already-changed rental, so the count may stay high; both only widen the window
+    // findOverlapping scans and keep it correct.
+    private static class LongestRental implements RepositoryIndex<Rental> {
+        private volatile long days;
+        private volatile int openEnded;
+
+        @Override
+        public String name() {
+            return "longestRental";
+        }
+
+        @Override
+        public void onAdd(long sequence, Rental rental) {
+            if (rental.getStartDate() != null && rental.getEndDate() != null) {
+                days = Math.max(days, ChronoUnit.DAYS.between(rental.getStartDate(), rental.getEndDate()));
+            } else if (rental.getStartDate() != null) {
+                openEnded++;
+            }
+        }
+
+        @Override
+        public void onRemove(long sequence, Rental rental) {
+            if (rental.getStartDate() != null && rental.getEndDate() == null && openEnded > 0) {
+                openEnded--;
+            }
+        }
+
+        @Override
+        public void clear() {
+            days = 0;
+            openEnded = 0;
+        }
+    }
+
 }
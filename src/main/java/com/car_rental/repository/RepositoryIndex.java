@@ -0,0 +1,88 @@
+package com.car_rental.repository;
+
+import java.util.function.LongFunction;
+
+/**
+ * A derived structure over a repository's items that {@link GenericRepository} keeps up to date.
+ * Callbacks are invoked while the repository holds its write lock; {@code sequence} is the
+ * item's stable insertion sequence number. An update is reported as a remove of the old item
+ * followed by an add of the new one under the same sequence.
+ */
+public interface RepositoryIndex<T> {
+
+    String name();
+
+    void onAdd(long sequence, T item);
+
+    void onRemove(long sequence, T item);
+
+    void clear();
+
+    /**
+     * Called when the item stored under {@code sequence} changed {@code property} in place,
+     * with the value it had before. The default re-indexes the item from scratch, which is
+     * always correct but may have to search for an entry filed under the stale value;
+     * indexes that know which property their key comes from can move it directly.
+     */
+    default void onChange(long sequence, T item, String property, Object oldValue) {
+        onRemove(sequence, item);
+        onAdd(sequence, item);
+    }
+
+    /**
+     * Called under the write lock before {@code item} is stored under {@code sequence}, as a
+     * new item or in place of the current one. Throwing rejects the write before the store
+     * or any index has been touched, which is how an index enforces a constraint.
+     */
+    default void validate(long sequence, T item) {
+    }
+
+    /**
+     * Called under the write lock before the item stored under {@code sequence} is removed.
+     * Throwing keeps the item, e.g. because it belongs to a sealed partition.
+     */
+    default void validateRemove(long sequence, T item) {
+    }
+
+    /**
+     * Called under the write lock before an item that was moved to an archive is stored
+     * again under {@code sequence}. The default applies {@link #validate}; an index whose
+     * constraint the item already passed when it was admitted, such as the seal on its
+     * partition, can relax it.
+     */
+    default void validateRestore(long sequence, T item) {
+        validate(sequence, item);
+    }
+
+    /**
+     * Whether the index keeps answering for items moved out of the repository to an
+     * archive, and so must be told about them through {@link #onArchived}.
+     */
+    default boolean keepsArchived() {
+        return false;
+    }
+
+    /**
+     * Called under the write lock for an item moved out of the repository to an archive,
+     * right after its {@link #onRemove}, and on start-up for the items an earlier run
+     * archived. An archived item comes back through {@link #onAdd} when it is restored.
+     */
+    default void onArchived(T item) {
+    }
+
+    /**
+     * Called under the write lock once the repository has published a new version, from
+     * which point the resolver passed to {@link #bind} materialises every item reported
+     * so far. Indexes that resolve items use it to drop what they held on to until then.
+     */
+    default void onPublish() {
+    }
+
+    /**
+     * Called once on registration with a function that materialises the item currently
+     * stored under a sequence. Indexes that only keep sequences use it to answer queries,
+     * so they never pin entities of an off-heap repository on the heap.
+     */
+    default void bind(LongFunction<T> resolver) {
+    }
+}
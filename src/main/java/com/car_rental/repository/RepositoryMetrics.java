@@ -0,0 +1,137 @@
+package com.car_rental.repository;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call counters and latency histograms for one repository, per operation kind.
+ * Recording is lock-free: every cell is a {@link LongAdder}, so concurrent readers
+ * and writers never contend on a shared counter. Latencies go into power-of-two
+ * nanosecond buckets, which keeps a histogram at a fixed 64 cells.
+ */
+public final class RepositoryMetrics {
+
+    public enum Operation {
+        ADD,
+        FIND,
+        UPDATE,
+        REMOVE,
+        SORT,
+        SCAN
+    }
+
+    private static final int BUCKETS = 64;
+
+    private final String entityType;
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+
+    public RepositoryMetrics(String entityType) {
+        this.entityType = entityType;
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new Recorder());
+        }
+    }
+
+    public String entityType() {
+        return entityType;
+    }
+
+    /**
+     * Records one call of {@code operation} that started at {@code startNanos}
+     * (a {@link System#nanoTime()} reading).
+     */
+    public void record(Operation operation, long startNanos) {
+        recorders.get(operation).record(System.nanoTime() - startNanos);
+    }
+
+    public Stats stats(Operation operation) {
+        return recorders.get(operation).stats();
+    }
+
+    public Map<Operation, Stats> stats() {
+        Map<Operation, Stats> result = new EnumMap<>(Operation.class);
+        recorders.forEach((operation, recorder) -> result.put(operation, recorder.stats()));
+        return result;
+    }
+
+    public void reset() {
+        recorders.values().forEach(Recorder::reset);
+    }
+
+    /**
+     * Point-in-time copy of one operation's counters. Percentiles are bucket upper bounds,
+     * so they are accurate to within a factor of two.
+     */
+    public record Stats(long count, long totalNanos, long maxNanos, long[] histogram) {
+
+        public double meanNanos() {
+            return count == 0 ? 0.0 : (double) totalNanos / count;
+        }
+
+        public long percentileNanos(double percentile) {
+            if (percentile < 0.0 || percentile > 100.0) {
+                throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+            }
+            long total = Arrays.stream(histogram).sum();
+            if (total == 0) {
+                return 0L;
+            }
+
+            long rank = Math.max(1L, (long) Math.ceil(total * percentile / 100.0));
+            long seen = 0;
+            for (int bucket = 0; bucket < histogram.length; bucket++) {
+                seen += histogram[bucket];
+                if (seen >= rank) {
+                    return Math.min(upperBound(bucket), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+
+        private static long upperBound(int bucket) {
+            return bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1;
+        }
+    }
+
+    private static final class Recorder {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+        private final LongAdder[] histogram = new LongAdder[BUCKETS];
+
+        Recorder() {
+            for (int i = 0; i < BUCKETS; i++) {
+                histogram[i] = new LongAdder();
+            }
+        }
+
+        void record(long nanos) {
+            long elapsed = Math.max(0L, nanos);
+            count.increment();
+            totalNanos.add(elapsed);
+            maxNanos.accumulate(elapsed);
+            // bucket b holds values in [2^(b-1), 2^b)
+            histogram[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(elapsed))].increment();
+        }
+
+        Stats stats() {
+            long[] buckets = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = histogram[i].sum();
+            }
+            return new Stats(count.sum(), totalNanos.sum(), maxNanos.get(), buckets);
+        }
+
+        void reset() {
+            count.reset();
+            totalNanos.reset();
+            maxNanos.reset();
+            for (LongAdder bucket : histogram) {
+                bucket.reset();
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.car_rental.repository;
+
+import java.util.AbstractList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Immutable, versioned view of a {@link GenericRepository} at one point in time.
+ * Taking a snapshot is O(1): it shares its structure with the live repository, so
+ * several queries can be run against one consistent version while writers keep going.
+ */
+public final class RepositorySnapshot<T> extends AbstractList<T> {
+
+    // Record handles in insertion order; entities are materialised through the store on access.
+    private final PersistentSequence<Object> items;
+    private final long version;
+    private final RecordStore<T> store;
+    private final IdentityExtractor<T> identityExtractor;
+    private final ToLongFunction<String> sequenceLookup;
+
+    RepositorySnapshot(PersistentSequence<Object> items,
+                       long version,
+                       RecordStore<T> store,
+                       IdentityExtractor<T> identityExtractor,
+                       ToLongFunction<String> sequenceLookup) {
+        this.items = items;
+        this.version = version;
+        this.store = store;
+        this.identityExtractor = identityExtractor;
+        this.sequenceLookup = sequenceLookup;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    @Override
+    public T get(int index) {
+        return store.load(items.at(index));
+    }
+
+    @Override
+    public int size() {
+        return items.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        Iterator<Object> handles = items.iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return handles.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (!handles.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return store.load(handles.next());
+            }
+        };
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return Spliterators.spliterator(iterator(), items.size(),
+                Spliterator.ORDERED | Spliterator.IMMUTABLE | Spliterator.NONNULL);
+    }
+
+    @Override
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Finds an item as it was in this version. The live identity index is used as a hint,
+     * so the lookup is O(log n) unless the item was removed or re-added after the snapshot.
+     */
+    public Optional<T> findByIdentity(String identity) {
+        if (identity == null) {
+            return Optional.empty();
+        }
+
+        long sequence = sequenceLookup.applyAsLong(identity);
+        if (sequence >= 0) {
+            Object handle = items.get(sequence);
+            T candidate = handle == null ? null : store.load(handle);
+            if (candidate != null && identity.equals(identityExtractor.extractIdentity(candidate))) {
+                return Optional.of(candidate);
+            }
+        }
+
+        return stream()
+                .filter(item -> identity.equals(identityExtractor.extractIdentity(item)))
+                .findFirst();
+    }
+
+    public List<T> filter(Predicate<T> predicate) {
+        return stream().filter(predicate).toList();
+    }
+
+    public List<T> sorted(Comparator<T> comparator) {
+        return stream().sorted(comparator).toList();
+    }
+
+    PersistentSequence<Object> items() {
+        return items;
+    }
+}
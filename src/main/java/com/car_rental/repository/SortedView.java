@@ -0,0 +1,90 @@
+package com.car_rental.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.function.LongFunction;
+
+/**
+ * Materialised listing of a repository's items in comparator order. Each mutation costs
+ * O(log n); reading the view is a plain O(n) pass with no sorting. Items that compare
+ * equal keep their insertion order, exactly as a stable sort of the repository would.
+ * The view keeps only sequences and resolves the items from the repository's record
+ * store, so it never pins the entities of an off-heap repository on the heap.
+ */
+public class SortedView<T> implements RepositoryIndex<T> {
+
+    private final String name;
+    private final NavigableSet<Long> sequences;
+    // Items reported since the repository last published a version, which the resolver
+    // cannot see yet; cleared on publish, so it only ever holds one write's worth.
+    private final Map<Long, T> unpublished = new HashMap<>();
+    private LongFunction<T> resolver = sequence -> {
+        throw new IllegalStateException("Sorted view '" + name() + "' is not bound to a repository");
+    };
+
+    public SortedView(String name, Comparator<T> comparator) {
+        this.name = name;
+        this.sequences = new TreeSet<>((a, b) -> {
+            int result = comparator.compare(itemAt(a), itemAt(b));
+            return result != 0 ? result : Long.compare(a, b);
+        });
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    public List<T> items() {
+        List<T> items = new ArrayList<>(sequences.size());
+        for (long sequence : sequences) {
+            items.add(itemAt(sequence));
+        }
+        return Collections.unmodifiableList(items);
+    }
+
+    @Override
+    public void bind(LongFunction<T> resolver) {
+        this.resolver = resolver;
+    }
+
+    @Override
+    public void onAdd(long sequence, T item) {
+        unpublished.put(sequence, item);
+        sequences.add(sequence);
+    }
+
+    @Override
+    public void onRemove(long sequence, T item) {
+        // Locate the entry by the item as it was indexed, not as the store now has it.
+        unpublished.put(sequence, item);
+        if (!sequences.remove(sequence)) {
+            // The item was mutated in place since it was indexed, so its position in the
+            // tree no longer matches its fields; fall back to locating it by sequence.
+            sequences.removeIf(candidate -> candidate == sequence);
+        }
+        unpublished.remove(sequence);
+    }
+
+    @Override
+    public void onPublish() {
+        unpublished.clear();
+    }
+
+    @Override
+    public void clear() {
+        sequences.clear();
+        unpublished.clear();
+    }
+
+    private T itemAt(long sequence) {
+        T item = unpublished.get(sequence);
+        return item != null ? item : resolver.apply(sequence);
+    }
+}
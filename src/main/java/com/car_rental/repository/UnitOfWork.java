@@ -0,0 +1,292 @@
+package com.car_rental.repository;
+
+import com.car_rental.exception.ConcurrentUpdateException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Changes to several repositories that take effect together or not at all, such as a
+ * checkout that adds a rental and a payment and marks the car rented.
+ *
+ * <p>Concurrency is optimistic. While the work runs, {@link #find} remembers the version
+ * of every entity it reads and {@link #add}, {@link #update} and {@link #remove} only
+ * record what to do. On commit the write locks of just the repositories involved are
+ * taken, in a fixed global order; if any entity read or written has a different version
+ * by then, another writer got in between, nothing is applied and the whole work is run
+ * again after a short randomised backoff. Otherwise the writes are applied, recorded by
+ * the repositories' mutation listeners, and each repository publishes them as one new
+ * version; the commit returns once the listeners have made them durable, which it waits
+ * for after releasing the locks. A write an index rejects (a duplicate, a missing entity,
+ * a double booking), or that a listener refuses to record, rolls back the writes already
+ * applied and is thrown to the caller without a retry.
+ *
+ * <p>The work may run several times, so it should have no side effects beyond this unit
+ * of work. It should also stage new instances, or {@link #change} the stored ones: setters
+ * called on stored entities directly throw.
+ */
+public final class UnitOfWork {
+    private static final Logger logger = LoggerFactory.getLogger(UnitOfWork.class);
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 10;
+
+    private static final long BACKOFF_NANOS = 50_000L;
+    private static final int MAX_BACKOFF_SHIFT = 8;
+
+    private final Map<GenericRepository<?>, Changes<?>> changes = new IdentityHashMap<>();
+
+    private UnitOfWork() {
+    }
+
+    public static void run(Consumer<UnitOfWork> work) {
+        call(DEFAULT_MAX_ATTEMPTS, unit -> {
+            work.accept(unit);
+            return null;
+        });
+    }
+
+    public static <R> R call(Function<UnitOfWork, R> work) {
+        return call(DEFAULT_MAX_ATTEMPTS, work);
+    }
+
+    /**
+     * Runs {@code work} and commits what it staged, retrying up to {@code maxAttempts}
+     * times while commits conflict with concurrent writers.
+     *
+     * @throws ConcurrentUpdateException if every attempt conflicted
+     */
+    public static <R> R call(int maxAttempts, Function<UnitOfWork, R> work) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Max attempts must be positive: " + maxAttempts);
+        }
+        if (work == null) {
+            throw new IllegalArgumentException("Work cannot be null");
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            UnitOfWork unit = new UnitOfWork();
+            R result = work.apply(unit);
+            if (unit.commit()) {
+                return result;
+            }
+            if (attempt == maxAttempts) {
+                throw new ConcurrentUpdateException(
+                        String.format("Unit of work still conflicted after %d attempts", maxAttempts));
+            }
+            logger.debug("Unit of work conflicted on attempt {}, retrying", attempt);
+            backoff(attempt);
+        }
+    }
+
+    /**
+     * Runs {@code action} while holding the write locks of all {@code repositories}, taken
+     * in the same global order as a commit, so no write to any of them is in progress and
+     * no unit of work is half applied: e.g. to take snapshots of them that a journal can
+     * be cut at. The action must not write to the repositories.
+     */
+    public static void runLocked(List<? extends GenericRepository<?>> repositories, Runnable action) {
+        List<GenericRepository<?>> ordered = new ArrayList<>(repositories);
+        ordered.sort(Comparator.comparingLong(GenericRepository::commitOrder));
+        List<GenericRepository<?>.Commit> locked = new ArrayList<>(ordered.size());
+        try {
+            for (GenericRepository<?> repository : ordered) {
+                locked.add(repository.beginCommit());
+            }
+            action.run();
+        } finally {
+            for (int i = locked.size() - 1; i >= 0; i--) {
+                locked.get(i).unlock();
+            }
+        }
+    }
+
+    /**
+     * Looks up an entity, seeing this unit of work's own staged writes, and records its
+     * version so the commit fails if it changes in the meantime.
+     */
+    public <T> Optional<T> find(GenericRepository<T> repository, String identity) {
+        Changes<T> staged = changesOf(repository);
+        if (staged.pending.containsKey(identity)) {
+            return Optional.ofNullable(staged.pending.get(identity));
+        }
+        staged.expect(identity);
+        return repository.findByIdentity(identity);
+    }
+
+    public <T> void add(GenericRepository<T> repository, T item) {
+        stage(repository, item, Write.Kind.ADD);
+    }
+
+    public <T> void update(GenericRepository<T> repository, T item) {
+        stage(repository, item, Write.Kind.UPDATE);
+    }
+
+    public <T> void remove(GenericRepository<T> repository, String identity) {
+        if (identity == null) {
+            throw new IllegalArgumentException("Identity cannot be null");
+        }
+        Changes<T> staged = changesOf(repository);
+        staged.expect(identity);
+        staged.writes.add(new Write<>(Write.Kind.REMOVE, identity, null, null));
+        staged.pending.put(identity, null);
+    }
+
+    /**
+     * Stages a change through the setters of the entity stored under {@code identity}, for
+     * entities others hold by reference: a status set this way is seen by every rental of
+     * the car, where an updated copy would leave them with the old instance. The change is
+     * applied on commit, once every other write of the unit of work has been accepted, to
+     * whatever instance is stored by then; {@link #find} does not see it before. If the
+     * commit fails afterwards, the fields it set are set back.
+     */
+    public <T> void change(GenericRepository<T> repository, String identity, Consumer<? super T> change) {
+        if (identity == null || change == null) {
+            throw new IllegalArgumentException("Identity and change cannot be null");
+        }
+        Changes<T> staged = changesOf(repository);
+        staged.expect(identity);
+        staged.writes.add(new Write<>(Write.Kind.CHANGE, identity, null, change));
+    }
+
+    private <T> void stage(GenericRepository<T> repository, T item, Write.Kind kind) {
+        if (item == null) {
+            throw new IllegalArgumentException("Staged item cannot be null");
+        }
+        Changes<T> staged = changesOf(repository);
+        String identity = repository.identityOf(item);
+        staged.expect(identity);
+        staged.writes.add(new Write<>(kind, identity, item, null));
+        staged.pending.put(identity, item);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Changes<T> changesOf(GenericRepository<T> repository) {
+        if (repository == null) {
+            throw new IllegalArgumentException("Repository cannot be null");
+        }
+        return (Changes<T>) changes.computeIfAbsent(repository, Changes::new);
+    }
+
+    // Returns false, having changed nothing, if any expected version moved on.
+    private boolean commit() {
+        List<Changes<?>> ordered = new ArrayList<>(changes.values());
+        if (ordered.stream().allMatch(staged -> staged.writes.isEmpty())) {
+            return ordered.stream().allMatch(Changes::isCurrent);
+        }
+        ordered.sort(Comparator.comparingLong(staged -> staged.repository.commitOrder()));
+
+        List<Changes<?>> locked = new ArrayList<>(ordered.size());
+        try {
+            for (Changes<?> staged : ordered) {
+                staged.begin();
+                locked.add(staged);
+            }
+            for (Changes<?> staged : ordered) {
+                if (!staged.isCurrentLocked()) {
+                    return false;
+                }
+            }
+            try {
+                for (Changes<?> staged : ordered) {
+                    staged.apply();
+                }
+                for (Changes<?> staged : ordered) {
+                    staged.applyChanges();
+                }
+                for (Changes<?> staged : ordered) {
+                    staged.commit.prepare();
+                }
+            } catch (RuntimeException e) {
+                for (int i = ordered.size() - 1; i >= 0; i--) {
+                    ordered.get(i).commit.rollback();
+                }
+                throw e;
+            }
+            ordered.forEach(staged -> staged.commit.publish());
+        } finally {
+            for (int i = locked.size() - 1; i >= 0; i--) {
+                locked.get(i).commit.unlock();
+            }
+        }
+        // Outside the locks, so other writers can join the same sync.
+        ordered.forEach(staged -> staged.commit.awaitDurable());
+        return true;
+    }
+
+    private static void backoff(int attempt) {
+        long ceiling = BACKOFF_NANOS << Math.min(attempt - 1, MAX_BACKOFF_SHIFT);
+        LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(ceiling));
+    }
+
+    private record Write<T>(Kind kind, String identity, T item, Consumer<? super T> change) {
+        enum Kind { ADD, UPDATE, REMOVE, CHANGE }
+    }
+
+    // Everything staged against one repository: the version each touched entity had when
+    // first seen (-1 if it did not exist), the writes in order, and their net effect
+    // per identity for find() to see (null for removed).
+    private static final class Changes<T> {
+        private final GenericRepository<T> repository;
+        private final Map<String, Long> expected = new LinkedHashMap<>();
+        private final List<Write<T>> writes = new ArrayList<>();
+        private final Map<String, T> pending = new LinkedHashMap<>();
+        private GenericRepository<T>.Commit commit;
+
+        Changes(GenericRepository<?> repository) {
+            this.repository = cast(repository);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> GenericRepository<T> cast(GenericRepository<?> repository) {
+            return (GenericRepository<T>) repository;
+        }
+
+        void expect(String identity) {
+            expected.computeIfAbsent(identity, repository::versionOf);
+        }
+
+        boolean isCurrent() {
+            return expected.entrySet().stream()
+                    .allMatch(entry -> repository.versionOf(entry.getKey()) == entry.getValue());
+        }
+
+        void begin() {
+            commit = repository.beginCommit();
+        }
+
+        boolean isCurrentLocked() {
+            return expected.entrySet().stream()
+                    .allMatch(entry -> commit.versionOf(entry.getKey()) == entry.getValue());
+        }
+
+        void apply() {
+            for (Write<T> write : writes) {
+                switch (write.kind()) {
+                    case ADD -> commit.add(write.item());
+                    case UPDATE -> commit.update(write.item());
+                    case REMOVE -> commit.remove(write.identity());
+                    case CHANGE -> { }
+                }
+            }
+        }
+
+        void applyChanges() {
+            for (Write<T> write : writes) {
+                if (write.kind() == Write.Kind.CHANGE) {
+                    commit.change(write.identity(), write.change());
+                }
+            }
+        }
+    }
+}
@@ -1,41 +1,140 @@
 package com.car_rental.serializer;
 
 import com.car_rental.exception.DataSerializationException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 public abstract class AbstractDataSerializer<T> implements DataSerializer<T> {
 
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
     protected final ObjectMapper objectMapper;
     private final Logger logger = LoggerFactory.getLogger(AbstractDataSerializer.class);
+    private volatile long memoryMapThreshold = Long.MAX_VALUE;
 
     protected AbstractDataSerializer(ObjectMapper objectMapper) {
         this.objectMapper = objectMapper;
     }
 
+    /**
+     * Files of at least {@code bytes} are read through memory mappings rather than
+     * buffered reads; a negative value turns mapping off. Off by default.
+     */
+    public void setMemoryMapThreshold(long bytes) {
+        this.memoryMapThreshold = bytes < 0 ? Long.MAX_VALUE : bytes;
+    }
+
+    protected InputStream openInput(File file) throws IOException {
+        InputStream in = file.length() >= memoryMapThreshold
+                ? new MappedFileInputStream(file.toPath())
+                : new FileInputStream(file);
+        try {
+            return Compression.decompressing(in);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
     @Override
     public void serialize(List<T> items, String filePath) throws DataSerializationException {
         validateItemsForSerialization(items);
+        serializeAll(items, filePath);
+    }
+
+    @Override
+    public int serializeAll(Iterable<? extends T> items, String filePath, Compression compression)
+            throws DataSerializationException {
+        if (items == null) {
+            throw new DataSerializationException("Cannot serialize null items");
+        }
+        if (compression == null) {
+            throw new DataSerializationException("Compression cannot be null");
+        }
         validateFilePath(filePath);
 
+        File file = new File(filePath);
+        createParentDirectories(file);
+        // Written aside and moved into place, so a crash mid-write never leaves a torn file.
+        Path temporary = Path.of(filePath + ".tmp");
+        ObjectWriter objectWriter = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        int count = 0;
+        boolean replaced = false;
         try {
-            File file = new File(filePath);
-            createParentDirectories(file);
-            objectMapper.writeValue(file, items);
-            logger.info("Successfully serialized {} items to {} file: {}",
-                    items.size(), getFormat(), filePath);
+            try (FileChannel channel = FileChannel.open(temporary,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                OutputStream buffered = new BufferedOutputStream(Channels.newOutputStream(channel), WRITE_BUFFER_SIZE) {
+                    // Leaves the channel open to be forced below.
+                    @Override
+                    public void close() throws IOException {
+                        flush();
+                    }
+                };
+                OutputStream out = compression.compressing(buffered);
+                try (SequenceWriter writer = objectWriter.writeValuesAsArray(out)) {
+                    for (T item : items) {
+                        writer.write(item);
+                        count++;
+                    }
+                }
+                // Finishes the compressed stream, if any, and flushes it into the channel.
+                out.close();
+                // On disk before it replaces the old file, which the journal may then drop.
+                channel.force(false);
+            } catch (IOException e) {
+                String errorMsg = String.format("Failed to serialize data to %s file: %s",
+                        getFormat(), filePath);
+                throw new DataSerializationException(errorMsg, e);
+            }
 
+            try {
+                Files.move(temporary, file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                String errorMsg = String.format("Failed to replace %s file: %s", getFormat(), filePath);
+                throw new DataSerializationException(errorMsg, e);
+            }
+            replaced = true;
+        } finally {
+            // Whatever failed, be it the writing, an item or the move, leaves no temporary behind.
+            if (!replaced) {
+                deleteTemporary(temporary);
+            }
+        }
+        logger.info("Successfully serialized {} items to {} file ({} compression): {}",
+                count, getFormat(), compression.codec(), filePath);
+        return count;
+    }
+
+    private void deleteTemporary(Path temporary) {
+        try {
+            Files.deleteIfExists(temporary);
         } catch (IOException e) {
-            String errorMsg = String.format("Failed to serialize data to %s file: %s",
-                    getFormat(), filePath);
-            throw new DataSerializationException(errorMsg, e);
+            logger.warn("Failed to delete temporary file {}: {}", temporary, e.getMessage());
         }
     }
 
@@ -58,7 +157,10 @@ public abstract class AbstractDataSerializer<T> implements DataSerializer<T> {
             }
 
             JavaType type = objectMapper.getTypeFactory().constructCollectionType(List.class, clazz);
-            List<T> items = objectMapper.readValue(file, type);
+            List<T> items;
+            try (InputStream in = openInput(file)) {
+                items = objectMapper.readValue(in, type);
+            }
 
             if (items == null) {
                 items = new ArrayList<>();
@@ -75,6 +177,70 @@ public abstract class AbstractDataSerializer<T> implements DataSerializer<T> {
         }
     }
 
+    @Override
+    public int deserializeInto(String filePath, Class<T> clazz, int batchSize, Consumer<List<T>> sink)
+            throws DataSerializationException {
+        validateFilePath(filePath);
+        validateClass(clazz);
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        if (sink == null) {
+            throw new IllegalArgumentException("Sink cannot be null");
+        }
+
+        File file = new File(filePath);
+        if (!file.exists()) {
+            logger.warn("File does not exist: {}.", filePath);
+            throw new DataSerializationException("File not found: " + filePath);
+        }
+
+        ObjectReader reader = objectMapper.readerFor(clazz);
+        int count = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(openInput(file))) {
+            JsonToken first = parser.nextToken();
+            if (first == null || first == JsonToken.VALUE_NULL) {
+                logger.warn("File is empty: {}. Nothing to load.", filePath);
+                return 0;
+            }
+            if (first != JsonToken.START_ARRAY) {
+                throw new DataSerializationException(String.format(
+                        "Expected a list in %s file: %s, found %s", getFormat(), filePath, first));
+            }
+
+            List<T> batch = new ArrayList<>(batchSize);
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new DataSerializationException(String.format(
+                            "Unexpected end of %s file: %s", getFormat(), filePath));
+                }
+                T item = reader.readValue(parser);
+                if (item == null) {
+                    continue;
+                }
+                batch.add(item);
+                if (batch.size() == batchSize) {
+                    sink.accept(batch);
+                    count += batch.size();
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                sink.accept(batch);
+                count += batch.size();
+            }
+
+            logger.info("Successfully streamed {} items from {} file: {}", count, getFormat(), filePath);
+            return count;
+
+        } catch (IOException e) {
+            String errorMsg = String.format("Failed to deserialize data from %s file: %s after %d items",
+                    getFormat(), filePath, count);
+            throw new DataSerializationException(errorMsg, e);
+        }
+    }
+
     @Override
     public String toString(T item) throws DataSerializationException {
         if (item == null) {
@@ -0,0 +1,94 @@
+package com.car_rental.serializer;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * How a data file is compressed when it is written. Reading never needs to be told:
+ * {@link #decompressing(InputStream)} recognises gzip and LZ4 files by their first bytes
+ * and passes anything else through, so files can switch codec between saves.
+ *
+ * <p>{@code level} applies to gzip only, from 1 (fastest) to 9 (smallest), or -1 for the
+ * {@link Deflater} default; LZ4 has a single speed.
+ */
+public record Compression(Codec codec, int level) {
+
+    public enum Codec {
+        NONE,
+        GZIP,
+        LZ4
+    }
+
+    public static final Compression NONE = new Compression(Codec.NONE, Deflater.DEFAULT_COMPRESSION);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte[] GZIP_MAGIC = {(byte) 0x1f, (byte) 0x8b};
+
+    public Compression {
+        if (codec == null) {
+            throw new IllegalArgumentException("Codec cannot be null");
+        }
+        if (level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Compression level must be -1 or between 1 and 9: " + level);
+        }
+    }
+
+    /**
+     * Parses a codec name as written in {@code config.properties}, ignoring case.
+     */
+    public static Compression of(String codec, int level) {
+        try {
+            return new Compression(Codec.valueOf(codec.trim().toUpperCase(Locale.ROOT)), level);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown compression codec: " + codec
+                    + ". Available codecs: " + Arrays.toString(Codec.values()), e);
+        }
+    }
+
+    /**
+     * Wraps {@code out} so that what is written to it is compressed; closing the returned
+     * stream finishes the compressed data and closes {@code out}.
+     */
+    public OutputStream compressing(OutputStream out) throws IOException {
+        return switch (codec) {
+            case NONE -> out;
+            case GZIP -> new GZIPOutputStream(out, BUFFER_SIZE) {
+                {
+                    def.setLevel(level);
+                }
+            };
+            case LZ4 -> new Lz4OutputStream(out);
+        };
+    }
+
+    /**
+     * Wraps {@code in} so that it yields the original bytes of a gzip or LZ4 file, or
+     * returns it unchanged apart from buffering if it is not compressed. A stream that
+     * supports mark, such as a mapped file, is not buffered again.
+     */
+    public static InputStream decompressing(InputStream in) throws IOException {
+        InputStream buffered = in.markSupported() ? in : new BufferedInputStream(in, BUFFER_SIZE);
+        buffered.mark(Lz4OutputStream.MAGIC.length);
+        byte[] head = buffered.readNBytes(Lz4OutputStream.MAGIC.length);
+        buffered.reset();
+
+        if (startsWith(head, GZIP_MAGIC)) {
+            return new GZIPInputStream(buffered, BUFFER_SIZE);
+        }
+        if (startsWith(head, Lz4OutputStream.MAGIC)) {
+            return new Lz4InputStream(buffered);
+        }
+        return buffered;
+    }
+
+    private static boolean startsWith(byte[] bytes, byte[] prefix) {
+        return bytes.length >= prefix.length && Arrays.equals(bytes, 0, prefix.length, prefix, 0, prefix.length);
+    }
+}
@@ -3,13 +3,39 @@ package com.car_rental.serializer;
 import com.car_rental.exception.DataSerializationException;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface DataSerializer<T> {
 
     void serialize(List<T> items, String filePath) throws DataSerializationException;
 
+    /**
+     * Writes {@code items} as one list, element by element, in the order the iterable
+     * yields them, and returns how many were written. Nothing but the item being written
+     * is materialised, so a repository snapshot can be saved without copying it first.
+     */
+    default int serializeAll(Iterable<? extends T> items, String filePath) throws DataSerializationException {
+        return serializeAll(items, filePath, Compression.NONE);
+    }
+
+    /**
+     * As {@link #serializeAll(Iterable, String)}, compressing the file as it is written.
+     * Loading detects the compression by itself.
+     */
+    int serializeAll(Iterable<? extends T> items, String filePath, Compression compression)
+            throws DataSerializationException;
+
     List<T> deserialize(String filePath, Class<T> clazz) throws DataSerializationException;
 
+    /**
+     * Reads the file's array one element at a time and hands the items to {@code sink} in
+     * lists of at most {@code batchSize}, so no more than one batch is held in memory.
+     * Returns the number of items read. If the file turns out to be malformed, the batches
+     * delivered before the error stay delivered.
+     */
+    int deserializeInto(String filePath, Class<T> clazz, int batchSize, Consumer<List<T>> sink)
+            throws DataSerializationException;
+
     String toString(T item);
 
     String listToString(List<T> items);
@@ -0,0 +1,190 @@
+package com.car_rental.serializer;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The LZ4 block format in plain Java: a greedy LZ77 pass with a 4-byte hash table and no
+ * entropy coding, which trades ratio for compression and decompression at memory speed.
+ * Each block is self-contained; {@link Lz4OutputStream} frames and checksums them.
+ */
+final class Lz4Block {
+
+    private static final int MIN_MATCH = 4;
+    private static final int MAX_OFFSET = 0xFFFF;
+    // The format requires the last match to start 12 bytes before the end and the last
+    // 5 bytes to be literals, so a decoder can copy in whole words without overrunning.
+    private static final int MATCH_FIND_LIMIT = 12;
+    private static final int LAST_LITERALS = 5;
+    private static final int HASH_BITS = 14;
+    private static final int SKIP_TRIGGER = 6;
+
+    private Lz4Block() {
+    }
+
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Compresses {@code src[0, length)} into {@code dst} from {@code dstOffset}, which must
+     * leave room for {@link #maxCompressedLength(int)} bytes. Returns the compressed length.
+     */
+    static int compress(byte[] src, int length, byte[] dst, int dstOffset, int[] table) {
+        int anchor = 0;
+        int out = dstOffset;
+        if (length >= MATCH_FIND_LIMIT + 1) {
+            Arrays.fill(table, -1);
+            int limit = length - MATCH_FIND_LIMIT;
+            int matchLimit = length - LAST_LITERALS;
+            int position = 0;
+            int misses = 1 << SKIP_TRIGGER;
+            while (position < limit) {
+                int sequence = readInt(src, position);
+                int hash = hash(sequence);
+                int candidate = table[hash];
+                table[hash] = position;
+                if (candidate < 0 || position - candidate > MAX_OFFSET || readInt(src, candidate) != sequence) {
+                    // Step further the longer nothing matches, so incompressible data passes quickly.
+                    position += misses++ >>> SKIP_TRIGGER;
+                    continue;
+                }
+                misses = 1 << SKIP_TRIGGER;
+
+                // Extend backwards over literals that also match, then forwards.
+                while (position > anchor && candidate > 0 && src[position - 1] == src[candidate - 1]) {
+                    position--;
+                    candidate--;
+                }
+                int matchLength = MIN_MATCH;
+                while (position + matchLength < matchLimit && src[candidate + matchLength] == src[position + matchLength]) {
+                    matchLength++;
+                }
+
+                out = writeSequence(src, anchor, position - anchor, position - candidate, matchLength, dst, out);
+                position += matchLength;
+                anchor = position;
+            }
+        }
+        return writeLastLiterals(src, anchor, length - anchor, dst, out) - dstOffset;
+    }
+
+    /**
+     * Decompresses {@code src[0, length)} into {@code dst}, which must hold exactly
+     * {@code expected} bytes of output. Fails on any input that does not decode to it.
+     */
+    static void decompress(byte[] src, int length, byte[] dst, int expected) throws IOException {
+        int in = 0;
+        int out = 0;
+        while (in < length) {
+            int token = src[in++] & 0xFF;
+
+            int literals = token >>> 4;
+            if (literals == 15) {
+                int extra;
+                do {
+                    if (in >= length) {
+                        throw corrupt();
+                    }
+                    extra = src[in++] & 0xFF;
+                    literals += extra;
+                } while (extra == 255);
+            }
+            if (literals > length - in || literals > expected - out) {
+                throw corrupt();
+            }
+            System.arraycopy(src, in, dst, out, literals);
+            in += literals;
+            out += literals;
+            if (in == length) {
+                break;
+            }
+
+            if (in + 2 > length) {
+                throw corrupt();
+            }
+            int offset = (src[in] & 0xFF) | (src[in + 1] & 0xFF) << 8;
+            in += 2;
+            int matchLength = token & 0x0F;
+            if (matchLength == 15) {
+                int extra;
+                do {
+                    if (in >= length) {
+                        throw corrupt();
+                    }
+                    extra = src[in++] & 0xFF;
+                    matchLength += extra;
+                } while (extra == 255);
+            }
+            matchLength += MIN_MATCH;
+            if (offset == 0 || offset > out || matchLength > expected - out) {
+                throw corrupt();
+            }
+            int from = out - offset;
+            if (offset >= matchLength) {
+                System.arraycopy(dst, from, dst, out, matchLength);
+                out += matchLength;
+            } else {
+                // Overlapping match: repeats the last offset bytes.
+                for (int i = 0; i < matchLength; i++) {
+                    dst[out++] = dst[from + i];
+                }
+            }
+        }
+        if (out != expected) {
+            throw corrupt();
+        }
+    }
+
+    private static int writeSequence(byte[] src, int literalStart, int literals, int offset, int matchLength,
+                                     byte[] dst, int out) {
+        int token = out++;
+        int matchCode = matchLength - MIN_MATCH;
+        dst[token] = (byte) (Math.min(literals, 15) << 4 | Math.min(matchCode, 15));
+        out = writeLength(literals, dst, out);
+        System.arraycopy(src, literalStart, dst, out, literals);
+        out += literals;
+        dst[out++] = (byte) offset;
+        dst[out++] = (byte) (offset >>> 8);
+        return writeLength(matchCode, dst, out);
+    }
+
+    private static int writeLastLiterals(byte[] src, int literalStart, int literals, byte[] dst, int out) {
+        dst[out++] = (byte) (Math.min(literals, 15) << 4);
+        out = writeLength(literals, dst, out);
+        System.arraycopy(src, literalStart, dst, out, literals);
+        return out + literals;
+    }
+
+    // Lengths of 15 and more continue in bytes of 255 and a final remainder byte.
+    private static int writeLength(int length, byte[] dst, int out) {
+        if (length >= 15) {
+            int remaining = length - 15;
+            while (remaining >= 255) {
+                dst[out++] = (byte) 255;
+                remaining -= 255;
+            }
+            dst[out++] = (byte) remaining;
+        }
+        return out;
+    }
+
+    private static int readInt(byte[] bytes, int position) {
+        return (bytes[position] & 0xFF)
+                | (bytes[position + 1] & 0xFF) << 8
+                | (bytes[position + 2] & 0xFF) << 16
+                | (bytes[position + 3] & 0xFF) << 24;
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (Integer.SIZE - HASH_BITS);
+    }
+
+    static int[] newTable() {
+        return new int[1 << HASH_BITS];
+    }
+
+    private static IOException corrupt() {
+        return new IOException("Corrupt LZ4 block");
+    }
+}
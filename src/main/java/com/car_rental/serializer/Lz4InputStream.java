@@ -0,0 +1,115 @@
+package com.car_rental.serializer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads what {@link Lz4OutputStream} wrote, verifying each block's checksum, and fails
+ * rather than return data from a truncated or damaged stream.
+ */
+final class Lz4InputStream extends InputStream {
+
+    private final InputStream in;
+    private final byte[] header = new byte[Lz4OutputStream.HEADER_SIZE];
+    private final byte[] stored = new byte[Lz4Block.maxCompressedLength(Lz4OutputStream.BLOCK_SIZE)];
+    private final byte[] block = new byte[Lz4OutputStream.BLOCK_SIZE];
+    private final CRC32C crc = new CRC32C();
+    private int position;
+    private int limit;
+    private boolean finished;
+
+    Lz4InputStream(InputStream in) throws IOException {
+        this.in = in;
+        byte[] magic = new byte[Lz4OutputStream.MAGIC.length];
+        readFully(magic, magic.length);
+        if (!Arrays.equals(magic, Lz4OutputStream.MAGIC)) {
+            throw new IOException("Not an LZ4 block stream");
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position == limit && !nextBlock()) {
+            return -1;
+        }
+        return block[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (position == limit && !nextBlock()) {
+            return -1;
+        }
+        int chunk = Math.min(len, limit - position);
+        System.arraycopy(block, position, b, off, chunk);
+        position += chunk;
+        return chunk;
+    }
+
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private boolean nextBlock() throws IOException {
+        if (finished) {
+            return false;
+        }
+        readFully(header, Integer.BYTES);
+        int rawLength = readInt(header, 0);
+        if (rawLength == 0) {
+            finished = true;
+            return false;
+        }
+        readFully(header, Integer.BYTES, Lz4OutputStream.HEADER_SIZE - Integer.BYTES);
+        int storedLength = readInt(header, Integer.BYTES);
+        int checksum = readInt(header, 2 * Integer.BYTES);
+        if (rawLength < 0 || rawLength > block.length || storedLength <= 0 || storedLength > rawLength) {
+            throw new IOException("Corrupt LZ4 block header");
+        }
+
+        if (storedLength == rawLength) {
+            readFully(block, rawLength);
+        } else {
+            readFully(stored, storedLength);
+            Lz4Block.decompress(stored, storedLength, block, rawLength);
+        }
+        crc.reset();
+        crc.update(block, 0, rawLength);
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException("LZ4 block checksum mismatch");
+        }
+        position = 0;
+        limit = rawLength;
+        return true;
+    }
+
+    private void readFully(byte[] target, int length) throws IOException {
+        readFully(target, 0, length);
+    }
+
+    private void readFully(byte[] target, int offset, int length) throws IOException {
+        int read = in.readNBytes(target, offset, length);
+        if (read < length) {
+            throw new EOFException("Truncated LZ4 block stream");
+        }
+    }
+
+    private static int readInt(byte[] bytes, int position) {
+        return (bytes[position] & 0xFF) << 24
+                | (bytes[position + 1] & 0xFF) << 16
+                | (bytes[position + 2] & 0xFF) << 8
+                | (bytes[position + 3] & 0xFF);
+    }
+}
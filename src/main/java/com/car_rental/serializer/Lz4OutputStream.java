@@ -0,0 +1,102 @@
+package com.car_rental.serializer;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32C;
+
+/**
+ * Writes data as a sequence of independently compressed {@link Lz4Block}s. Each block
+ * is {@code int rawLength, int storedLength, int CRC32C of the raw bytes}, then the
+ * stored bytes, which are the raw ones when compression would not make them smaller.
+ * A zero raw length ends the stream; the whole stream starts with {@link #MAGIC}.
+ */
+final class Lz4OutputStream extends FilterOutputStream {
+
+    static final byte[] MAGIC = {'L', 'Z', '4', 'B'};
+    static final int BLOCK_SIZE = 1 << 16;
+    static final int HEADER_SIZE = 3 * Integer.BYTES;
+
+    private final byte[] block = new byte[BLOCK_SIZE];
+    private final byte[] compressed = new byte[HEADER_SIZE + Lz4Block.maxCompressedLength(BLOCK_SIZE)];
+    private final int[] table = Lz4Block.newTable();
+    private final CRC32C crc = new CRC32C();
+    private int buffered;
+    private boolean closed;
+
+    Lz4OutputStream(OutputStream out) throws IOException {
+        super(out);
+        out.write(MAGIC);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (buffered == BLOCK_SIZE) {
+            writeBlock();
+        }
+        block[buffered++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (buffered == BLOCK_SIZE) {
+                writeBlock();
+            }
+            int chunk = Math.min(len, BLOCK_SIZE - buffered);
+            System.arraycopy(b, off, block, buffered, chunk);
+            buffered += chunk;
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+    // Blocks are only written when full or on close, so flush() leaves a partial block
+    // buffered rather than shrink the blocks.
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (buffered > 0) {
+                writeBlock();
+            }
+            writeInt(compressed, 0, 0);
+            out.write(compressed, 0, Integer.BYTES);
+            out.flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        int length = Lz4Block.compress(block, buffered, compressed, HEADER_SIZE, table);
+        crc.reset();
+        crc.update(block, 0, buffered);
+        writeInt(compressed, 0, buffered);
+        writeInt(compressed, 2 * Integer.BYTES, (int) crc.getValue());
+        if (length < buffered) {
+            writeInt(compressed, Integer.BYTES, length);
+            out.write(compressed, 0, HEADER_SIZE + length);
+        } else {
+            writeInt(compressed, Integer.BYTES, buffered);
+            out.write(compressed, 0, HEADER_SIZE);
+            out.write(block, 0, buffered);
+        }
+        buffered = 0;
+    }
+
+    static void writeInt(byte[] bytes, int position, int value) {
+        bytes[position] = (byte) (value >>> 24);
+        bytes[position + 1] = (byte) (value >>> 16);
+        bytes[position + 2] = (byte) (value >>> 8);
+        bytes[position + 3] = (byte) value;
+    }
+}
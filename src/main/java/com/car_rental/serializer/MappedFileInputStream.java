@@ -0,0 +1,125 @@
+package com.car_rental.serializer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a file through read-only memory mappings instead of {@code read} calls, so the
+ * bytes come straight from the page cache without a copy into a kernel-filled buffer.
+ * One mapping is limited to 2 GiB, so larger files are mapped a region at a time and
+ * each region is released to the garbage collector once it has been read.
+ */
+final class MappedFileInputStream extends InputStream {
+
+    static final long REGION_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long regionSize;
+    private long mapped;
+    private MappedByteBuffer region;
+    private long marked = -1;
+
+    MappedFileInputStream(Path file) throws IOException {
+        this(file, REGION_SIZE);
+    }
+
+    MappedFileInputStream(Path file, long regionSize) throws IOException {
+        if (regionSize <= 0 || regionSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Region size must be between 1 and 2^31-1: " + regionSize);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.regionSize = regionSize;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureRemaining()) {
+            return -1;
+        }
+        return region.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureRemaining()) {
+            return -1;
+        }
+        int chunk = Math.min(len, region.remaining());
+        region.get(b, off, chunk);
+        return chunk;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && ensureRemaining()) {
+            int chunk = (int) Math.min(n - skipped, region.remaining());
+            region.position(region.position() + chunk);
+            skipped += chunk;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        long remaining = size - mapped + (region == null ? 0 : region.remaining());
+        return (int) Math.min(remaining, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readLimit) {
+        marked = position();
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        if (marked < 0) {
+            throw new IOException("Stream was not marked");
+        }
+        long regionStart = region == null ? mapped : mapped - region.limit();
+        if (region != null && marked >= regionStart) {
+            region.position((int) (marked - regionStart));
+        } else {
+            // The mark lies in an earlier region: map again from there.
+            region = null;
+            mapped = marked;
+        }
+    }
+
+    private long position() {
+        return region == null ? mapped : mapped - region.remaining();
+    }
+
+    @Override
+    public void close() throws IOException {
+        region = null;
+        channel.close();
+    }
+
+    private boolean ensureRemaining() throws IOException {
+        if (region != null && region.hasRemaining()) {
+            return true;
+        }
+        if (mapped >= size) {
+            return false;
+        }
+        long length = Math.min(regionSize, size - mapped);
+        region = channel.map(FileChannel.MapMode.READ_ONLY, mapped, length);
+        mapped += length;
+        return true;
+    }
+}
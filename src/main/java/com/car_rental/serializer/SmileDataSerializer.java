@@ -0,0 +1,88 @@
+package com.car_rental.serializer;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.car_rental.exception.DataSerializationException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Smile, Jackson's binary encoding of the JSON data model. It reads and writes the same
+ * entities as {@link JsonDataSerializer}, but property names and repeated short values
+ * are written once and referred back to, and numbers are stored in binary, so files are
+ * smaller and parse without any text scanning. String forms are Base64 of the binary.
+ */
+public class SmileDataSerializer<T> extends AbstractDataSerializer<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(SmileDataSerializer.class);
+
+    public SmileDataSerializer() {
+        super(createDefaultSmileObjectMapper());
+        logger.debug("SmileDataSerializer initialized with shared value back-references enabled");
+    }
+
+    private static ObjectMapper createDefaultSmileObjectMapper() {
+        SmileFactory smileFactory = SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+
+        ObjectMapper mapper = new ObjectMapper(smileFactory);
+        mapper.registerModule(new JavaTimeModule());
+        return mapper;
+    }
+
+    @Override
+    public String toString(T item) throws DataSerializationException {
+        if (item == null) {
+            throw new DataSerializationException("Cannot serialize null item");
+        }
+        return encode(item);
+    }
+
+    @Override
+    public String listToString(List<T> items) throws DataSerializationException {
+        if (items == null) {
+            throw new DataSerializationException("Cannot serialize null list");
+        }
+        return encode(items);
+    }
+
+    @Override
+    public T fromString(String str, Class<T> clazz) throws DataSerializationException {
+        if (str == null || str.trim().isEmpty()) {
+            throw new DataSerializationException("Cannot deserialize null or empty string");
+        }
+
+        validateClass(clazz);
+
+        try {
+            T result = objectMapper.readValue(Base64.getDecoder().decode(str.trim()), clazz);
+            logger.debug("Deserialized {} item from {} string", clazz.getSimpleName(), getFormat());
+            return result;
+        } catch (IOException | IllegalArgumentException e) {
+            String errorMsg = String.format("Failed to deserialize from %s string", getFormat());
+            throw new DataSerializationException(errorMsg, e);
+        }
+    }
+
+    private String encode(Object value) throws DataSerializationException {
+        try {
+            return Base64.getEncoder().encodeToString(objectMapper.writeValueAsBytes(value));
+        } catch (IOException e) {
+            String errorMsg = String.format("Failed to serialize to %s string", getFormat());
+            throw new DataSerializationException(errorMsg, e);
+        }
+    }
+
+    @Override
+    public String getFormat() {
+        return "SMILE";
+    }
+}
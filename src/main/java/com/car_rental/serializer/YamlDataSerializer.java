@@ -2,6 +2,7 @@ package com.car_rental.serializer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.yaml.snakeyaml.LoaderOptions;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
@@ -24,9 +25,15 @@ public class YamlDataSerializer<T> extends AbstractDataSerializer<T> {
     }
 
     private static ObjectMapper createDefaultYamlObjectMapper() {
-        YAMLFactory yamlFactory = new YAMLFactory()
+        // SnakeYAML refuses documents over 3 MiB by default, well below our data volumes.
+        LoaderOptions loaderOptions = new LoaderOptions();
+        loaderOptions.setCodePointLimit(Integer.MAX_VALUE);
+
+        YAMLFactory yamlFactory = YAMLFactory.builder()
+                .loaderOptions(loaderOptions)
                 .disable(YAMLGenerator.Feature.WRITE_DOC_START_MARKER)
-                .enable(YAMLGenerator.Feature.MINIMIZE_QUOTES);
+                .enable(YAMLGenerator.Feature.MINIMIZE_QUOTES)
+                .build();
 
         ObjectMapper mapper = new ObjectMapper(yamlFactory);
         mapper.registerModule(new JavaTimeModule());
@@ -0,0 +1,21 @@
+package com.car_rental.service;
+
+public record HydrationReport(
+        int carReferencesShared,
+        int customerReferencesShared,
+        int rentalReferencesShared,
+        int unresolvedReferences,
+        long estimatedBytesSaved
+) {
+    public int totalShared() {
+        return carReferencesShared + customerReferencesShared + rentalReferencesShared;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("HydrationReport { carReferencesShared=%d, customerReferencesShared=%d," +
+                        " rentalReferencesShared=%d, unresolvedReferences=%d, estimatedKbSaved=%d }",
+                carReferencesShared, customerReferencesShared, rentalReferencesShared,
+                unresolvedReferences, estimatedBytesSaved / 1024);
+    }
+}
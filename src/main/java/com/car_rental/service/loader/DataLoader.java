@@ -1,7 +1,9 @@
 package com.car_rental.service.loader;
 
+import com.car_rental.exception.InvalidDataException;
 import com.car_rental.persistence.PersistenceManager;
 import com.car_rental.repository.*;
+import com.car_rental.service.HydrationReport;
 import com.car_rental.service.LoadResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,6 +14,9 @@ public class DataLoader {
 
     private final Logger logger = LoggerFactory.getLogger(DataLoader.class);
 
+    // Items parsed ahead of the repository; bounds what a load holds beyond the repository itself.
+    static final int BATCH_SIZE = 1000;
+
     private final PersistenceManager persistenceManager;
     private final String format;
 
@@ -25,16 +30,50 @@ public class DataLoader {
         this(persistenceManager, "JSON");
     }
 
+    /**
+     * Streams the entity file into {@code repository} a batch at a time, so the file is
+     * never held in memory as a whole and items are queryable while the rest is parsed.
+     *
+     * @throws InvalidDataException if the repository refuses items of the file, e.g. rentals
+     *                              that double-book a car; they are named in the message
+     */
     public <T> int loadEntity(String entityType, Class<T> clazz, GenericRepository<T> repository) {
         int oldSize = repository.size();
-        List<T> items = persistenceManager.load(entityType, clazz, format);
-        repository.addAll(items);
+        persistenceManager.loadInto(entityType, clazz, format, BATCH_SIZE, batch -> addLoaded(entityType, repository, batch));
         int newSize = repository.size();
         int loadedCount = newSize - oldSize;
         logger.info("Loaded {} new items of type {}", loadedCount, entityType);
         return loadedCount;
     }
 
+    // Items the repository refuses would be missing from the next save, which would then
+    // erase them from the file; fail the load instead so the file can be fixed by hand.
+    private <T> void addLoaded(String entityType, GenericRepository<T> repository, List<T> batch) {
+        BulkResult result = repository.insertAll(batch);
+        if (result.count(BulkResult.Outcome.REJECTED) > 0) {
+            throw new InvalidDataException(String.format("%d %s items of the data file were rejected: %s",
+                    result.count(BulkResult.Outcome.REJECTED), entityType, String.join("; ", result.rejections())));
+        }
+    }
+
+    /**
+     * Re-links loaded rentals and payments to the shared cars, customers and rentals held by
+     * the repositories. Must run after all of them are loaded.
+     */
+    public HydrationReport hydrate(
+            CarRepository carRepository,
+            CustomerRepository customerRepository,
+            RentalRepository rentalRepository,
+            PaymentRepository paymentRepository
+    ) {
+        ReferenceHydrator hydrator = new ReferenceHydrator(carRepository, customerRepository, rentalRepository);
+        hydrator.hydrateRentals();
+        hydrator.hydratePayments(paymentRepository);
+        HydrationReport report = hydrator.report();
+        logger.info("Hydration completed: {}", report);
+        return report;
+    }
+
     public LoadResult load(
             BranchRepository branchRepository,
             CarRepository carRepository,
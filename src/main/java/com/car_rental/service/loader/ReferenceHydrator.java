@@ -0,0 +1,159 @@
+package com.car_rental.service.loader;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.car_rental.model.Car;
+import com.car_rental.model.Customer;
+import com.car_rental.model.Payment;
+import com.car_rental.model.Rental;
+import com.car_rental.repository.CarRepository;
+import com.car_rental.repository.CustomerRepository;
+import com.car_rental.repository.GenericRepository;
+import com.car_rental.repository.PaymentRepository;
+import com.car_rental.repository.RentalRepository;
+import com.car_rental.service.HydrationReport;
+
+/**
+ * Re-links the cars, customers and rentals embedded in loaded rentals and payments to the
+ * single instance held by the corresponding repository, so every entity exists once in memory
+ * and a status change on a car is seen by all of its rentals. References that are not in a
+ * repository are still de-duplicated among themselves.
+ *
+ * <p>Hydration rewrites references in place and must run before the repositories are shared.
+ * It has no effect on repositories with an off-heap store, whose entities are copies anyway.
+ */
+public class ReferenceHydrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceHydrator.class);
+
+    // Rough HotSpot sizes with compressed oops, used only for the memory-saved estimate.
+    private static final int CAR_SHALLOW_BYTES = 40;
+    private static final int CUSTOMER_SHALLOW_BYTES = 32;
+    private static final int RENTAL_SHALLOW_BYTES = 32;
+    private static final int LOCAL_DATE_BYTES = 24;
+
+    private final CarRepository carRepository;
+    private final CustomerRepository customerRepository;
+    private final RentalRepository rentalRepository;
+
+    private final Map<String, Car> unresolvedCars = new HashMap<>();
+    private final Map<String, Customer> unresolvedCustomers = new HashMap<>();
+    private final Map<String, Rental> unresolvedRentals = new HashMap<>();
+
+    private int carsShared;
+    private int customersShared;
+    private int rentalsShared;
+    private long bytesSaved;
+
+    public ReferenceHydrator(CarRepository carRepository,
+                             CustomerRepository customerRepository,
+                             RentalRepository rentalRepository) {
+        this.carRepository = carRepository;
+        this.customerRepository = customerRepository;
+        this.rentalRepository = rentalRepository;
+    }
+
+    public void hydrateRentals() {
+        if (!rentalRepository.isStoredOnHeap()) {
+            logger.warn("Skipping rental hydration: rentals are stored off-heap");
+            return;
+        }
+        rentalRepository.getAll().forEach(this::hydrate);
+        logger.info("Hydrated {} rentals", rentalRepository.size());
+    }
+
+    public void hydratePayments(PaymentRepository paymentRepository) {
+        if (!paymentRepository.isStoredOnHeap()) {
+            logger.warn("Skipping payment hydration: payments are stored off-heap");
+            return;
+        }
+        paymentRepository.getAll().forEach(this::hydrate);
+        logger.info("Hydrated {} payments", paymentRepository.size());
+    }
+
+    public void hydrate(Rental rental) {
+        Car car = rental.getCar();
+        if (car != null) {
+            Car shared = canonical(car, car.getLicensePlate(), carRepository, unresolvedCars);
+            if (shared != car) {
+                rental.setCarReference(shared);
+                carsShared++;
+                bytesSaved += sizeOf(car);
+            }
+        }
+
+        Customer customer = rental.getCustomer();
+        if (customer != null) {
+            Customer shared = canonical(customer, customer.driverLicense(), customerRepository, unresolvedCustomers);
+            if (shared != customer) {
+                rental.setCustomer(shared);
+                customersShared++;
+                bytesSaved += sizeOf(customer);
+            }
+        }
+    }
+
+    public void hydrate(Payment payment) {
+        Rental rental = payment.getRental();
+        if (rental == null) {
+            return;
+        }
+
+        Rental shared = canonical(rental, rental.getId(), rentalRepository, unresolvedRentals);
+        if (shared != rental) {
+            payment.setRental(shared);
+            rentalsShared++;
+            bytesSaved += sizeOf(rental);
+        }
+        // Also covers rentals that only exist inside payments.
+        hydrate(shared);
+    }
+
+    public HydrationReport report() {
+        int unresolved = unresolvedCars.size() + unresolvedCustomers.size() + unresolvedRentals.size();
+        return new HydrationReport(carsShared, customersShared, rentalsShared, unresolved, bytesSaved);
+    }
+
+    private static <T> T canonical(T item, String identity, GenericRepository<T> repository, Map<String, T> unresolved) {
+        if (identity == null) {
+            return item;
+        }
+        Optional<T> known = repository.findByIdentity(identity);
+        return known.orElseGet(() -> unresolved.computeIfAbsent(identity, id -> item));
+    }
+
+    private static long sizeOf(Car car) {
+        return CAR_SHALLOW_BYTES + sizeOf(car.getLicensePlate()) + sizeOf(car.getModel());
+    }
+
+    private static long sizeOf(Customer customer) {
+        return CUSTOMER_SHALLOW_BYTES + sizeOf(customer.firstName()) + sizeOf(customer.lastName())
+                + sizeOf(customer.driverLicense()) + sizeOf(customer.birthDate());
+    }
+
+    // The rental copy is dropped together with the car and customer copies it embeds.
+    private static long sizeOf(Rental rental) {
+        long size = RENTAL_SHALLOW_BYTES + sizeOf(rental.getId()) + 2L * LOCAL_DATE_BYTES;
+        if (rental.getCar() != null) {
+            size += sizeOf(rental.getCar());
+        }
+        if (rental.getCustomer() != null) {
+            size += sizeOf(rental.getCustomer());
+        }
+        return size;
+    }
+
+    private static long sizeOf(String value) {
+        if (value == null) {
+            return 0;
+        }
+        boolean latin1 = value.chars().allMatch(c -> c < 256);
+        long bytes = 24 + 16 + (long) value.length() * (latin1 ? 1 : 2);
+        return (bytes + 7) & ~7L;
+    }
+}
@@ -8,12 +8,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.stream.Collectors;
 
+import com.car_rental.exception.InvalidDataException;
+
 
 public abstract class BaseServlet extends HttpServlet {
 
     protected static final String CONTENT_TYPE_JSON = "application/json;charset=UTF-8";
+    protected static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
     protected final Logger logger = LoggerFactory.getLogger(getClass());
     protected int requestCount = 0;
 
@@ -50,6 +56,55 @@ public abstract class BaseServlet extends HttpServlet {
         return req.getReader().lines().collect(Collectors.joining());
     }
 
+    // Query parameter helpers: a missing or blank parameter yields null, a malformed one
+    // an InvalidDataException that the servlets turn into 400 Bad Request.
+
+    protected String stringParameter(HttpServletRequest req, String name) {
+        String value = req.getParameter(name);
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    protected LocalDate dateParameter(HttpServletRequest req, String name) {
+        String value = stringParameter(req, name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value, DATE_FORMAT);
+        } catch (DateTimeParseException e) {
+            throw new InvalidDataException(String.format("Parameter '%s' must be a date in dd.MM.yyyy format", name));
+        }
+    }
+
+    protected Integer intParameter(HttpServletRequest req, String name) {
+        String value = stringParameter(req, name);
+        try {
+            return value == null ? null : Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new InvalidDataException(String.format("Parameter '%s' must be an integer", name));
+        }
+    }
+
+    protected Double doubleParameter(HttpServletRequest req, String name) {
+        String value = stringParameter(req, name);
+        try {
+            return value == null ? null : Double.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new InvalidDataException(String.format("Parameter '%s' must be a number", name));
+        }
+    }
+
+    protected int limitParameter(HttpServletRequest req) {
+        Integer limit = intParameter(req, "limit");
+        if (limit == null) {
+            return Integer.MAX_VALUE;
+        }
+        if (limit < 0) {
+            throw new InvalidDataException("Parameter 'limit' cannot be negative");
+        }
+        return limit;
+    }
+
     protected int getRequestCount() {
         return requestCount;
     }
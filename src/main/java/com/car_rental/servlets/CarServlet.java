@@ -1,13 +1,17 @@
 package com.car_rental.servlets;
 
 import java.io.IOException;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
 import com.car_rental.exception.DataSerializationException;
 import com.car_rental.exception.InvalidDataException;
 import com.car_rental.model.Car;
+import com.car_rental.model.CarStatus;
 import com.car_rental.repository.CarRepository;
+import com.car_rental.repository.Query;
+import com.car_rental.repository.RentalRepository;
 import com.car_rental.serializer.JsonDataSerializer;
 
 import jakarta.servlet.ServletException;
@@ -20,12 +24,14 @@ public class CarServlet extends BaseServlet {
 
     private JsonDataSerializer serializer;
     private CarRepository carRepository;
+    private RentalRepository rentalRepository;
 
     @Override
     public void init() throws ServletException {
         logger.info("Initializing CarServlet...");
         serializer = new JsonDataSerializer();
         carRepository = (CarRepository) getServletContext().getAttribute("carRepository");
+        rentalRepository = (RentalRepository) getServletContext().getAttribute("rentalRepository");
 
         if (carRepository == null) {
             logger.error("CarRepository not found in ServletContext");
@@ -47,6 +53,9 @@ public class CarServlet extends BaseServlet {
                 String identity = decodePathParam(pathInfo.substring(1));
                 handleGetByIdentity(identity, response);
             }
+        } catch (InvalidDataException | IllegalArgumentException e) {
+            logger.warn("Invalid query in doGet: {}", e.getMessage());
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
         } catch (DataSerializationException e) {
             logger.error("Serialization error in doGet", e);
             sendError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.getMessage());
@@ -142,20 +151,50 @@ public class CarServlet extends BaseServlet {
     private void handleGetWithFilters(HttpServletRequest req, HttpServletResponse resp)
             throws IOException, DataSerializationException {
 
-        String licensePlate = req.getParameter("license_plate");
-        String model = req.getParameter("model");
+        String licensePlate = stringParameter(req, "license_plate");
 
         List<Car> cars;
 
-        if (licensePlate != null && !licensePlate.isBlank()) {
+        if (licensePlate != null) {
             cars = carRepository.findByLicensePlate(licensePlate).map(c -> List.of(c)).orElse(List.of());
             logger.info("Filter by license plate '{}': {} cars", licensePlate, cars.size());
-        } else if (model != null && !model.isBlank()) {
-            cars = carRepository.findByModel(model);
-            logger.info("Filter by model '{}': {} cars", model, cars.size());
         } else {
-            cars = carRepository.getAll();
-            logger.info("No filters applied: {} cars", cars.size());
+            Query<Car> query = Query.create();
+            String model = stringParameter(req, "model");
+            if (model != null) {
+                query.contains(CarRepository.BY_MODEL, model);
+            }
+            String status = stringParameter(req, "status");
+            if (status != null) {
+                query.equal(CarRepository.BY_STATUS, CarStatus.parseCarStatus(status).name());
+            }
+            Integer yearFrom = intParameter(req, "year_from");
+            Integer yearTo = intParameter(req, "year_to");
+            if (yearFrom != null || yearTo != null) {
+                query.between(CarRepository.BY_YEAR, yearFrom, yearTo);
+            }
+            Double mileageMin = doubleParameter(req, "mileage_min");
+            Double mileageMax = doubleParameter(req, "mileage_max");
+            if (mileageMin != null || mileageMax != null) {
+                query.between(CarRepository.BY_MILEAGE, mileageMin, mileageMax);
+            }
+            LocalDate availableFrom = dateParameter(req, "available_from");
+            LocalDate availableTo = dateParameter(req, "available_to");
+            if (availableFrom != null && availableTo != null && rentalRepository != null) {
+                query.filter(rentalRepository.availableBetween(availableFrom, availableTo));
+            }
+            String sort = stringParameter(req, "sort");
+            if (sort != null) {
+                query.orderBy(switch (sort) {
+                    case "year" -> Car.byYear();
+                    case "mileage" -> Car.byMileage();
+                    default -> throw new InvalidDataException("Unknown sort order: " + sort);
+                });
+            }
+            query.limit(limitParameter(req));
+
+            cars = carRepository.query(query);
+            logger.info("Query {}: {} cars", carRepository.explain(query), cars.size());
         }
 
         resp.setStatus(HttpServletResponse.SC_OK);
@@ -0,0 +1,112 @@
+package com.car_rental.servlets;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.car_rental.config.AppConfig;
+import com.car_rental.config.ConfigKeys;
+import com.car_rental.exception.DataSerializationException;
+import com.car_rental.repository.GenericRepository;
+import com.car_rental.repository.RepositoryMetrics;
+import com.car_rental.serializer.JsonDataSerializer;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Admin endpoint exposing per-repository operation counts and latencies.
+ * GET returns the current figures (optionally {@code ?entity=Car}); DELETE resets them,
+ * but only where {@code admin.metrics.reset.enabled} is set, since the endpoint is not
+ * authenticated.
+ */
+@WebServlet(name = "MetricsServlet", urlPatterns = {"/admin/metrics"}, loadOnStartup = 1)
+public class MetricsServlet extends BaseServlet {
+
+    private static final String[] REPOSITORY_ATTRIBUTES = {
+            "branchRepository", "carRepository", "customerRepository", "rentalRepository", "paymentRepository"
+    };
+
+    private JsonDataSerializer<Object> serializer;
+    private List<GenericRepository<?>> repositories;
+    private boolean resetEnabled;
+
+    @Override
+    public void init() throws ServletException {
+        logger.info("Initializing MetricsServlet...");
+        serializer = new JsonDataSerializer<>();
+        repositories = new ArrayList<>();
+
+        for (String attribute : REPOSITORY_ATTRIBUTES) {
+            Object repository = getServletContext().getAttribute(attribute);
+            if (repository instanceof GenericRepository<?> genericRepository) {
+                repositories.add(genericRepository);
+            } else {
+                logger.warn("{} not found in ServletContext, skipping its metrics", attribute);
+            }
+        }
+        AppConfig config = (AppConfig) getServletContext().getAttribute("appConfig");
+        resetEnabled = config != null && config.getBooleanProperty(ConfigKeys.ADMIN_METRICS_RESET_ENABLED, false);
+        logger.info("MetricsServlet initialized with {} repositories.", repositories.size());
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+        resp.setContentType(CONTENT_TYPE_JSON);
+        String entity = req.getParameter("entity");
+
+        List<Object> report = new ArrayList<>();
+        for (GenericRepository<?> repository : repositories) {
+            RepositoryMetrics metrics = repository.metrics();
+            if (entity == null || entity.isBlank() || entity.equalsIgnoreCase(metrics.entityType())) {
+                report.add(describe(repository, metrics));
+            }
+        }
+
+        try {
+            resp.setStatus(HttpServletResponse.SC_OK);
+            resp.getWriter().write(serializer.listToString(report));
+        } catch (DataSerializationException e) {
+            logger.error("Serialization error in doGet", e);
+            sendError(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    @Override
+    protected void doDelete(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+        if (!resetEnabled) {
+            logger.warn("Rejected metrics reset: {} is not enabled", ConfigKeys.ADMIN_METRICS_RESET_ENABLED);
+            sendError(resp, HttpServletResponse.SC_FORBIDDEN, "Metrics reset is disabled");
+            return;
+        }
+        repositories.forEach(repository -> repository.metrics().reset());
+        logger.info("Repository metrics reset");
+        resp.setStatus(HttpServletResponse.SC_NO_CONTENT);
+    }
+
+    private Map<String, Object> describe(GenericRepository<?> repository, RepositoryMetrics metrics) {
+        Map<String, Object> operations = new LinkedHashMap<>();
+        metrics.stats().forEach((operation, stats) -> {
+            Map<String, Object> figures = new LinkedHashMap<>();
+            figures.put("count", stats.count());
+            figures.put("meanMicros", stats.meanNanos() / 1_000.0);
+            figures.put("p50Micros", stats.percentileNanos(50) / 1_000.0);
+            figures.put("p99Micros", stats.percentileNanos(99) / 1_000.0);
+            figures.put("maxMicros", stats.maxNanos() / 1_000.0);
+            operations.put(operation.name().toLowerCase(), figures);
+        });
+
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("entityType", metrics.entityType());
+        description.put("size", repository.size());
+        description.put("version", repository.version());
+        description.put("operations", operations);
+        return description;
+    }
+}
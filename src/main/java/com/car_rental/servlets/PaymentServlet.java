@@ -1,13 +1,20 @@
 package com.car_rental.servlets;
 
 import java.io.IOException;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
+import com.car_rental.exception.ConcurrentUpdateException;
 import com.car_rental.exception.DataSerializationException;
 import com.car_rental.exception.InvalidDataException;
+import com.car_rental.model.Car;
+import com.car_rental.model.CarStatus;
 import com.car_rental.model.Payment;
+import com.car_rental.repository.CarRepository;
 import com.car_rental.repository.PaymentRepository;
+import com.car_rental.repository.Query;
+import com.car_rental.repository.UnitOfWork;
 import com.car_rental.serializer.JsonDataSerializer;
 
 import jakarta.servlet.ServletException;
@@ -20,12 +27,14 @@ public class PaymentServlet extends BaseServlet {
 
     private JsonDataSerializer serializer;
     private PaymentRepository paymentRepository;
+    private CarRepository carRepository;
 
     @Override
     public void init() throws ServletException {
         logger.info("Initializing PaymentServlet...");
         serializer = new JsonDataSerializer();
         paymentRepository = (PaymentRepository) getServletContext().getAttribute("paymentRepository");
+        carRepository = (CarRepository) getServletContext().getAttribute("carRepository");
 
         if (paymentRepository == null) {
             logger.error("PaymentRepository not found in ServletContext");
@@ -47,6 +56,9 @@ public class PaymentServlet extends BaseServlet {
                 String identity = decodePathParam(pathInfo.substring(1));
                 handleGetByIdentity(identity, response);
             }
+        } catch (InvalidDataException | IllegalArgumentException e) {
+            logger.warn("Invalid query in doGet: {}", e.getMessage());
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
         } catch (DataSerializationException e) {
             logger.error("Serialization error in doGet", e);
             sendError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.getMessage());
@@ -62,8 +74,8 @@ public class PaymentServlet extends BaseServlet {
             String requestBody = getRequestBody(req);
             Payment payment = (Payment) serializer.fromString(requestBody, Payment.class);
 
-            boolean res = paymentRepository.add(payment);
-            if (!res) {
+            Optional<Payment> paid = checkout(payment);
+            if (paid.isEmpty()) {
                 logger.warn("Payment already exists: {}", payment.getId());
                 sendError(resp, HttpServletResponse.SC_BAD_REQUEST,
                         "Payment already exists: " + payment.getId());
@@ -71,7 +83,10 @@ public class PaymentServlet extends BaseServlet {
             }
             logger.info("Added new payment: {}", payment.getId());
             resp.setStatus(HttpServletResponse.SC_CREATED);
-            resp.getWriter().write(serializer.toString(payment));
+            resp.getWriter().write(serializer.toString(paid.get()));
+        } catch (ConcurrentUpdateException e) {
+            logger.warn("Concurrent update in doPost: {}", e.getMessage());
+            sendError(resp, HttpServletResponse.SC_CONFLICT, e.getMessage());
         } catch (InvalidDataException e) {
             logger.warn("Invalid data in doPost", e);
             sendError(resp, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
@@ -139,23 +154,74 @@ public class PaymentServlet extends BaseServlet {
         resp.setStatus(HttpServletResponse.SC_NO_CONTENT);
     }
 
+    // Adds the payment and marks the paid rental's car rented as one unit of work, so a
+    // concurrent checkout or car update cannot slip in between the two. Every attempt
+    // stores a fresh copy of the requested payment whose rental holds its own copy of the
+    // stored car as rented, so a retry starts from the request again and the stored
+    // payment never shares the car instance the unit changes in place. Returns the stored
+    // payment, or empty if one with its id already exists.
+    private Optional<Payment> checkout(Payment payment) {
+        if (payment.getRental() == null) {
+            throw new InvalidDataException("Payment " + payment.getId() + " has no rental");
+        }
+        Car rentedCar = payment.getRental().getCar();
+        return UnitOfWork.call(unit -> {
+            if (unit.find(paymentRepository, payment.getId()).isPresent()) {
+                return Optional.empty();
+            }
+            Payment paid = (Payment) serializer.fromString(serializer.toString(payment), Payment.class);
+            Optional<Car> storedCar = carRepository == null || rentedCar == null
+                    ? Optional.empty()
+                    : unit.find(carRepository, rentedCar.getLicensePlate());
+            if (storedCar.isPresent()) {
+                Car car = storedCar.get();
+                paid.getRental().setCarReference(new Car(car.getLicensePlate(), car.getModel(),
+                        car.getYear(), car.getMileage(), CarStatus.RENTED));
+                unit.change(carRepository, rentedCar.getLicensePlate(), stored -> stored.setStatus(CarStatus.RENTED));
+            }
+            unit.add(paymentRepository, paid);
+            return Optional.of(paid);
+        });
+    }
+
     private void handleGetWithFilters(HttpServletRequest req, HttpServletResponse resp)
             throws IOException, DataSerializationException {
 
-        String id = req.getParameter("id");
-        String rentalId = req.getParameter("rental_id");
+        String id = stringParameter(req, "id");
 
         List<Payment> payments;
 
-        if (id != null && !id.isBlank()) {
+        if (id != null) {
             payments = paymentRepository.findById(id).map(p -> List.of(p)).orElse(List.of());
             logger.info("Filter by ID '{}': {} payments", id, payments.size());
-        } else if (rentalId != null && !rentalId.isBlank()) {
-            payments = paymentRepository.findByRentalId(rentalId);
-            logger.info("Filter by rental ID '{}': {} payments", rentalId, payments.size());
         } else {
-            payments = paymentRepository.getAll();
-            logger.info("No filters applied: {} payments", payments.size());
+            Query<Payment> query = Query.create();
+            String rentalId = stringParameter(req, "rental_id");
+            if (rentalId != null) {
+                query.equal(PaymentRepository.BY_RENTAL_ID, rentalId);
+            }
+            LocalDate dateFrom = dateParameter(req, "date_from");
+            LocalDate dateTo = dateParameter(req, "date_to");
+            if (dateFrom != null || dateTo != null) {
+                query.between(PaymentRepository.BY_PAYMENT_DATE, dateFrom, dateTo);
+            }
+            Double amountMin = doubleParameter(req, "amount_min");
+            Double amountMax = doubleParameter(req, "amount_max");
+            if (amountMin != null || amountMax != null) {
+                query.between(PaymentRepository.BY_AMOUNT, amountMin, amountMax);
+            }
+            String sort = stringParameter(req, "sort");
+            if (sort != null) {
+                query.orderBy(switch (sort) {
+                    case "date" -> Payment.byPaymentDate();
+                    case "amount" -> Payment.byAmount();
+                    default -> throw new InvalidDataException("Unknown sort order: " + sort);
+                });
+            }
+            query.limit(limitParameter(req));
+
+            payments = paymentRepository.query(query);
+            logger.info("Query {}: {} payments", paymentRepository.explain(query), payments.size());
         }
 
         resp.setStatus(HttpServletResponse.SC_OK);
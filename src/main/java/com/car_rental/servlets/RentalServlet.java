@@ -1,12 +1,16 @@
 package com.car_rental.servlets;
 
 import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 
+import com.car_rental.exception.BookingConflictException;
 import com.car_rental.exception.DataSerializationException;
 import com.car_rental.exception.InvalidDataException;
 import com.car_rental.model.Rental;
+import com.car_rental.repository.Query;
 import com.car_rental.repository.RentalRepository;
 import com.car_rental.serializer.JsonDataSerializer;
 
@@ -47,6 +51,9 @@ public class RentalServlet extends BaseServlet {
                 String identity = decodePathParam(pathInfo.substring(1));
                 handleGetByIdentity(identity, response);
             }
+        } catch (InvalidDataException | IllegalArgumentException e) {
+            logger.warn("Invalid query in doGet: {}", e.getMessage());
+            sendError(response, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
         } catch (DataSerializationException e) {
             logger.error("Serialization error in doGet", e);
             sendError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.getMessage());
@@ -72,6 +79,9 @@ public class RentalServlet extends BaseServlet {
             logger.info("Added new rental: {}", rental.getId());
             resp.setStatus(HttpServletResponse.SC_CREATED);
             resp.getWriter().write(serializer.toString(rental));
+        } catch (BookingConflictException e) {
+            logger.warn("Booking conflict in doPost: {}", e.getMessage());
+            sendError(resp, HttpServletResponse.SC_CONFLICT, e.getMessage());
         } catch (InvalidDataException e) {
             logger.warn("Invalid data in doPost", e);
             sendError(resp, HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
@@ -110,6 +120,9 @@ public class RentalServlet extends BaseServlet {
             resp.setStatus(HttpServletResponse.SC_OK);
             resp.getWriter().write(serializer.toString(updatedRental));
 
+        } catch (BookingConflictException e) {
+            logger.warn("Booking conflict in doPut: {}", e.getMessage());
+            sendError(resp, HttpServletResponse.SC_CONFLICT, e.getMessage());
         } catch (DataSerializationException e) {
             logger.error("Serialization error in doPut", e);
             sendError(resp, HttpServletResponse.SC_BAD_REQUEST, "Invalid JSON: " + e.getMessage());
@@ -142,24 +155,46 @@ public class RentalServlet extends BaseServlet {
     private void handleGetWithFilters(HttpServletRequest req, HttpServletResponse resp)
             throws IOException, DataSerializationException {
 
-        String id = req.getParameter("id");
-        String carLicensePlate = req.getParameter("car_license_plate");
-        String customerDriverLicense = req.getParameter("customer_driver_license");
+        String id = stringParameter(req, "id");
 
         List<Rental> rentals;
 
-        if (id != null && !id.isBlank()) {
+        if (id != null) {
             rentals = rentalRepository.findById(id).map(r -> List.of(r)).orElse(List.of());
             logger.info("Filter by ID '{}': {} rentals", id, rentals.size());
-        } else if (carLicensePlate != null && !carLicensePlate.isBlank()) {
-            rentals = rentalRepository.findByCarLicensePlate(carLicensePlate);
-            logger.info("Filter by car license plate '{}': {} rentals", carLicensePlate, rentals.size());
-        } else if (customerDriverLicense != null && !customerDriverLicense.isBlank()) {
-            rentals = rentalRepository.findByCustomerDriverLicense(customerDriverLicense);
-            logger.info("Filter by customer driver license '{}': {} rentals", customerDriverLicense, rentals.size());
         } else {
-            rentals = rentalRepository.getAll();
-            logger.info("No filters applied: {} rentals", rentals.size());
+            Query<Rental> query = Query.create();
+            String carLicensePlate = stringParameter(req, "car_license_plate");
+            if (carLicensePlate != null) {
+                query.equal(RentalRepository.BY_CAR_LICENSE_PLATE, carLicensePlate);
+            }
+            String customerDriverLicense = stringParameter(req, "customer_driver_license");
+            if (customerDriverLicense != null) {
+                query.equal(RentalRepository.BY_CUSTOMER_DRIVER_LICENSE, customerDriverLicense);
+            }
+            LocalDate startFrom = dateParameter(req, "start_from");
+            LocalDate startTo = dateParameter(req, "start_to");
+            if (startFrom != null || startTo != null) {
+                query.between(RentalRepository.BY_START_DATE, startFrom, startTo);
+            }
+            LocalDate endFrom = dateParameter(req, "end_from");
+            LocalDate endTo = dateParameter(req, "end_to");
+            if (endFrom != null || endTo != null) {
+                query.between(RentalRepository.BY_END_DATE, endFrom, endTo);
+            }
+            String sort = stringParameter(req, "sort");
+            if (sort != null) {
+                query.orderBy(switch (sort) {
+                    case "start_date" -> Rental.byStartDate();
+                    case "end_date" -> Rental.byEndDate();
+                    case "duration" -> Comparator.<Rental>naturalOrder();
+                    default -> throw new InvalidDataException("Unknown sort order: " + sort);
+                });
+            }
+            query.limit(limitParameter(req));
+
+            rentals = rentalRepository.query(query);
+            logger.info("Query {}: {} rentals", rentalRepository.explain(query), rentals.size());
         }
 
         resp.setStatus(HttpServletResponse.SC_OK);
@@ -0,0 +1,399 @@
+package com.car_rental.persistence;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.car_rental.config.AppConfig;
+import com.car_rental.exception.InvalidDataException;
+import com.car_rental.model.Car;
+import com.car_rental.model.CarStatus;
+import com.car_rental.model.Customer;
+import com.car_rental.repository.CarRepository;
+import com.car_rental.repository.CustomerRepository;
+import com.car_rental.repository.RepositoryIndex;
+import com.car_rental.repository.UnitOfWork;
+
+class MutationJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    private PersistenceManager persistenceManager;
+    private Path journalDir;
+    private MutationJournal journal;
+
+    @BeforeEach
+    void setUp() {
+        AppConfig config = new AppConfig() {
+            @Override
+            public String getBaseDataPath() {
+                return tempDir.toString();
+            }
+        };
+        persistenceManager = new PersistenceManager(config);
+        journalDir = config.getJournalPath();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    private MutationJournal open(CarRepository cars, CustomerRepository customers) {
+        MutationJournal opened = new MutationJournal(journalDir, persistenceManager, true);
+        opened.register("cars", Car.class, cars);
+        opened.register("customers", Customer.class, customers);
+        return opened;
+    }
+
+    // Replays the journal into fresh repositories, as a restart would.
+    private CarRepository recoverCars() {
+        CarRepository cars = new CarRepository();
+        MutationJournal recovery = open(cars, new CustomerRepository());
+        recovery.replay();
+        return cars;
+    }
+
+    private Path lastSegment() throws IOException {
+        try (Stream<Path> files = Files.list(journalDir)) {
+            return files.sorted().reduce((first, second) -> second).orElseThrow();
+        }
+    }
+
+    // An index that holds the writer adding the car with the given plate until released.
+    private static RepositoryIndex<Car> holdingIndex(String plate, CountDownLatch reached, CountDownLatch release) {
+        return new RepositoryIndex<>() {
+            @Override
+            public String name() {
+                return "latch";
+            }
+
+            @Override
+            public void onAdd(long sequence, Car car) {
+                if (car.getLicensePlate().equals(plate)) {
+                    reached.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+
+            @Override
+            public void onRemove(long sequence, Car car) {
+            }
+
+            @Override
+            public void clear() {
+            }
+        };
+    }
+
+    // ========== Replay Tests ==========
+
+    @Test
+    @DisplayName("Replay should restore puts, updates and deletes made after startup")
+    void testReplayRestoresChanges() {
+        CarRepository cars = new CarRepository();
+        CustomerRepository customers = new CustomerRepository();
+        journal = open(cars, customers);
+        journal.replay();
+        journal.start(0);
+
+        cars.add(new Car("AA1111AA", "Toyota Camry", 2020, 10000, CarStatus.AVAILABLE));
+        cars.add(new Car("BB2222BB", "Ford Focus", 2018, 50000, CarStatus.AVAILABLE));
+        cars.update(new Car("AA1111AA", "Toyota Camry", 2020, 12000, CarStatus.RENTED));
+        cars.removeByIdentity("BB2222BB");
+        customers.add(new Customer("Olena", "Shevchenko", "ХЕН123456", "12.05.1992"));
+        journal.close();
+        journal = null;
+
+        CarRepository recovered = new CarRepository();
+        CustomerRepository recoveredCustomers = new CustomerRepository();
+        MutationJournal recovery = open(recovered, recoveredCustomers);
+        assertEquals(5, recovery.replay());
+
+        assertEquals(1, recovered.getAll().size());
+        Car car = recovered.getAll().get(0);
+        assertEquals(12000, car.getMileage());
+        assertEquals(CarStatus.RENTED, car.getStatus());
+        assertEquals(1, recoveredCustomers.getAll().size());
+    }
+
+    @Test
+    @DisplayName("In-place changes to an observed entity should be journaled")
+    void testInPlaceChangeIsJournaled() {
+        CarRepository cars = new CarRepository();
+        journal = open(cars, new CustomerRepository());
+        journal.start(0);
+
+        Car car = new Car("AA1111AA", "Toyota Camry", 2020, 10000, CarStatus.AVAILABLE);
+        cars.add(car);
+        cars.change("AA1111AA", stored -> stored.setMileage(15000));
+        journal.close();
+        journal = null;
+
+        CarRepository recovered = recoverCars();
+        assertEquals(15000, recovered.getAll().get(0).getMileage());
+    }
+
+    @Test
+    @DisplayName("Replay should stop at a record torn by a crash")
+    void testReplayStopsAtTornRecord() throws IOException {
+        CarRepository cars = new CarRepository();
+        journal = open(cars, new CustomerRepository());
+        journal.start(0);
+        cars.add(new Car("AA1111AA", "Toyota Camry", 2020, 10000, CarStatus.AVAILABLE));
+        cars.add(new Car("BB2222BB", "Ford Focus", 2018, 50000, CarStatus.AVAILABLE));
+        journal.close();
+        journal = null;
+
+        Path segment = lastSegment();
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.setLength(file.length() - 5);
+        }
+
+        CarRepository recovered = recoverCars();
+        assertEquals(1, recovered.getAll().size());
+        assertEquals("AA1111AA", recovered.getAll().get(0).getLicensePlate());
+    }
+
+    @Test
+    @DisplayName("Replay should stop at a record whose checksum does not match")
+    void testReplayStopsAtCorruptRecord() throws IOException {
+        CarRepository cars = new CarRepository();
+        journal = open(cars, new CustomerRepository());
+        journal.start(0);
+        cars.add(new Car("AA1111AA", "Toyota Camry", 2020, 10000, CarStatus.AVAILABLE));
+        cars.add(new Car("BB2222BB", "Ford Focus", 2018, 50000, CarStatus.AVAILABLE));
+        cars.add(new Car("CC3333CC", "Honda Civic", 2019, 30000, CarStatus.AVAILABLE));
+        journal.close();
+        journal = null;
+
+        Path segment = lastSegment();
+        byte[] bytes = Files.readAllBytes(segment);
+        int second = 8 + java.nio.ByteBuffer.wrap(bytes).getInt(0);
+        bytes[second + 12] ^= 0x5A;
+        Files.write(segment, bytes);
+
+        CarRepository recovered = recoverCars();
+        assertEquals(1, recovered.getAll().size(), "Nothing after the damaged record should be applied");
+    }
+
+    @Test
+    @DisplayName("Replay should drop a unit of work torn by a crash as a whole")
+    void testReplayDropsTornUnitOfWork() throws IOException {
+        CarRepository cars = new CarRepository();
+        CustomerRepository customers = new CustomerRepository();
+        journal = open(cars, customers);
+        journal.start(0);
+        cars.add(new Car("AA1111AA", "Toyota Camry", 2020, 10000, CarStatus.AVAILABLE));
+        UnitOfWork.run(unit -> {
+            unit.add(cars, new Car("BB2222BB", "Ford Focus", 2018, 50000, CarStatus.AVAILABLE));
+            unit.add(customers, new Customer("Olena", "Shevchenko", "ХЕН123456", "12.05.1992"));
+        });
+        journal.close();
+        journal = null;
+
+        Path segment = lastSegment();
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.setLength(file.length() - 5);
+        }
+
+        CarRepository recovered = new CarRepository();
+        CustomerRepository recoveredCustomers = new CustomerRepository();
+        assertEquals(1, open(recovered, recoveredCustomers).replay());
+        assertEquals(List.of("AA1111AA"), recovered.getAll().stream().map(Car::getLicensePlate).toList());
+        assertTrue(recoveredCustomers.getAll().isEmpty());
+    }
+
+    @Test
+    @DisplayName("A unit of work that is rolled back should leave nothing in the journal")
+    void testRolledBackUnitOfWorkIsNotJournaled() {
+        CarRepository cars = new CarRepository();
+        CustomerRepository customers = new CustomerRepository();
+        journal = open(cars, customers);
+        journal.start(0);
+        cars.add(new Car("AA1111AA", "Toyota Camry", 2020, 10000, CarStatus.AVAILABLE));
+
+        assertThrows(InvalidDataException.class, () -> UnitOfWork.run(unit -> {
+            unit.add(customers, new Customer("Olena", "Shevchenko", "ХЕН123456", "12.05.1992"));
+            unit.add(cars, new Car("BB2222BB", "Ford Focus", 2018, 50000, CarStatus.AVAILABLE));
+            unit.add(cars, new Car("AA1111AA", "Toyota Camry", 2020, 10000, CarStatus.AVAILABLE));
+        }));
+        cars.add(new Car("CC3333CC", "Honda Civic", 2019, 30000, CarStatus.AVAILABLE));
+
+        assertEquals(2, journal.changeCount());
+        journal.close();
+        journal = null;
+        assertEquals(List.of("AA1111AA", "CC3333CC"),
+                recoverCars().getAll().stream().map(Car::getLicensePlate).toList());
+    }
+
+    // ========== Compaction Tests ==========
+
+    @Test
+    @DisplayName("Compaction should save the repositories and drop the segments they cover")
+    void testCompactionFoldsSegmentsIntoFiles() throws IOException {
+        CarRepository cars = new CarRepository();
+        CustomerRepository customers = new CustomerRepository();
+        journal = open(cars, customers);
+        journal.start(0);
+        cars.add(new Car("AA1111AA", "Toyota Camry", 2020, 10000, CarStatus.AVAILABLE));
+        Path before = lastSegment();
+
+        journal.compact();
+        cars.add(new Car("BB2222BB", "Ford Focus", 2018, 50000, CarStatus.AVAILABLE));
+        journal.close();
+        journal = null;
+
+        assertFalse(Files.exists(before));
+        List<Car> saved = persistenceManager.load("cars", Car.class, "JSON");
+        assertEquals(1, saved.size());
+
+        CarRepository recovered = new CarRepository();
+        recovered.addAll(saved);
+        MutationJournal recovery = open(recovered, new CustomerRepository());
+        assertEquals(1, recovery.replay());
+        assertEquals(2, recovered.getAll().size());
+        assertNotNull(recovered.findByIdentity("BB2222BB").orElse(null));
+    }
+
+    @Test
+    @DisplayName("Compaction should wait for a write in progress rather than drop its records")
+    void testCompactionKeepsWriteInProgress() throws InterruptedException {
+        CarRepository cars = new CarRepository();
+        journal = open(cars, new CustomerRepository());
+        journal.start(0);
+        CountDownLatch firstAdded = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        cars.registerIndex(holdingIndex("BB2222BB", firstAdded, release));
+
+        Thread writer = new Thread(() -> cars.upsertAll(List.of(
+                new Car("AA1111AA", "Toyota Camry", 2020, 10000, CarStatus.AVAILABLE),
+                new Car("BB2222BB", "Ford Focus", 2018, 50000, CarStatus.AVAILABLE))));
+        writer.start();
+        firstAdded.await();
+        Thread compactor = new Thread(journal::compact);
+        compactor.start();
+        compactor.join(200);
+        boolean compactedWhileHeld = !compactor.isAlive();
+        release.countDown();
+        writer.join();
+        compactor.join();
+        journal.close();
+        journal = null;
+
+        assertFalse(compactedWhileHeld);
+        CarRepository recovered = new CarRepository();
+        recovered.addAll(persistenceManager.load("cars", Car.class, "JSON"));
+        open(recovered, new CustomerRepository()).replay();
+        assertTrue(recovered.findByIdentity("AA1111AA").isPresent());
+        assertTrue(recovered.findByIdentity("BB2222BB").isPresent());
+    }
+
+    @Test
+    @DisplayName("A closed journal should stop recording changes")
+    void testCloseDetachesRepositories() {
+        CarRepository cars = new CarRepository();
+        journal = open(cars, new CustomerRepository());
+        journal.start(0);
+        journal.close();
+        journal = null;
+
+        cars.add(new Car("AA1111AA", "Toyota Camry", 2020, 10000, CarStatus.AVAILABLE));
+        assertNull(recoverCars().findByIdentity("AA1111AA").orElse(null));
+    }
+
+    // ========== Group Commit Tests ==========
+
+    @Test
+    @DisplayName("A write held halfway should journal nothing until it publishes")
+    void testHeldWriteIsNotFlushedWithOthers() throws InterruptedException {
+        CarRepository cars = new CarRepository();
+        CustomerRepository customers = new CustomerRepository();
+        journal = open(cars, customers);
+        journal.start(0);
+        CountDownLatch firstAppended = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // Holds the car writer between reporting its first change and its second.
+        cars.registerIndex(holdingIndex("BB2222BB", firstAppended, release));
+
+        Thread carWriter = new Thread(() -> cars.addAll(List.of(
+                new Car("AA1111AA", "Toyota Camry", 2020, 10000, CarStatus.AVAILABLE),
+                new Car("BB2222BB", "Ford Focus", 2018, 50000, CarStatus.AVAILABLE))));
+        carWriter.start();
+        firstAppended.await();
+        customers.add(new Customer("Olena", "Shevchenko", "ХЕН123456", "12.05.1992"));
+        long changesWhileHeld = journal.changeCount();
+        release.countDown();
+        carWriter.join();
+
+        assertEquals(1, changesWhileHeld);
+        assertEquals(3, journal.changeCount());
+        assertEquals(2, journal.recordCount());
+        journal.close();
+        journal = null;
+
+        assertEquals(2, recoverCars().getAll().size());
+    }
+
+    @Test
+    @DisplayName("Concurrent writers should have every write survive")
+    void testConcurrentWritesSurvive() throws InterruptedException {
+        CarRepository cars = new CarRepository();
+        journal = open(cars, new CustomerRepository());
+        journal.start(0);
+
+        int threads = 8;
+        int perThread = 100;
+        CountDownLatch ready = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t * perThread;
+            Thread writer = new Thread(() -> {
+                try {
+                    ready.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < perThread; i++) {
+                    cars.add(new Car("CAR" + (offset + i), "Toyota Camry", 2020, 1000, CarStatus.AVAILABLE));
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+        ready.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        assertEquals(threads * perThread, journal.recordCount());
+        journal.close();
+        journal = null;
+
+        assertEquals(threads * perThread, recoverCars().getAll().size());
+    }
+}
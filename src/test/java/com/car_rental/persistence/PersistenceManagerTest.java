@@ -17,6 +17,7 @@ import com.car_rental.model.Branch;
 import com.car_rental.model.Car;
 import com.car_rental.model.CarStatus;
 import com.car_rental.model.Customer;
+import com.car_rental.repository.CarRepository;
 
 class PersistenceManagerTest {
     
@@ -173,4 +174,23 @@ class PersistenceManagerTest {
         assertEquals("BB2222BB", loaded.get(0).getLicensePlate());
         assertEquals("New Car", loaded.get(0).getModel());
     }
-}
\ No newline at end of file
+
+    
+    @Test
+    void testSaveFromRepositorySnapshot() {
+        // Arrange
+        CarRepository repository = new CarRepository();
+        repository.add(new Car("СЕ1234ЕК", "Toyota Corolla", 2019, 30000, CarStatus.AVAILABLE));
+        repository.add(new Car("АА5678КС", "Ford Focus", 2016, 55000, CarStatus.RENTED));
+        
+        // Act
+        int saved = persistenceManager.save(repository, "test_repository_cars", Car.class, "JSON");
+        List<Car> loaded = persistenceManager.load("test_repository_cars", Car.class, "JSON");
+        
+        // Assert
+        assertEquals(2, saved);
+        assertEquals(repository.getAll(), loaded);
+        assertEquals(CarStatus.RENTED, loaded.get(1).getStatus());
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.car_rental.repository;
+
+import com.car_rental.model.Car;
+import com.car_rental.model.Rental;
+import com.car_rental.support.Benchmarks;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvailabilityBenchmarkTest {
+
+    private static final int CARS = 100;
+    private static final int[] HISTORY_SIZES = {1_000, 10_000, 50_000};
+    private static final int SEARCHES = 200;
+    private static final int ROUNDS = 3;
+
+    private static RentalRepository createHistory(List<Car> fleet, int rentals) {
+        RentalRepository repository = new RentalRepository();
+        BulkResult result = repository.upsertAll(Benchmarks.rentalList(fleet, rentals, 42));
+        assertEquals(rentals, result.count(BulkResult.Outcome.ADDED));
+        return repository;
+    }
+
+    // Search start days spread over the period the history covers: rentals of 1-6 days with
+    // 0-3 free days in between take 5 days per rental on average.
+    private static List<LocalDate> searchStarts(int rentals, long seed) {
+        Random random = new Random(seed);
+        long days = rentals / CARS * 5L;
+        List<LocalDate> starts = new ArrayList<>(SEARCHES);
+        for (int i = 0; i < SEARCHES; i++) {
+            starts.add(Benchmarks.FIRST_DAY.plusDays(random.nextLong(days)));
+        }
+        return starts;
+    }
+
+    // What a search costs without the availability index: one pass over the whole history.
+    private static List<Car> scanAvailable(RentalRepository repository, List<Car> fleet, LocalDate from, LocalDate to) {
+        long lastDay = lastDay(from, to);
+        Set<String> booked = repository.getAll().stream()
+                .filter(rental -> rental.getStartDate().toEpochDay() <= lastDay
+                        && from.toEpochDay() <= lastDay(rental.getStartDate(), rental.getEndDate()))
+                .map(rental -> rental.getCar().getLicensePlate())
+                .collect(Collectors.toSet());
+        return fleet.stream().filter(car -> !booked.contains(car.getLicensePlate())).toList();
+    }
+
+    // The end date is the return day, so it is free unless the rental starts and ends on it.
+    private static long lastDay(LocalDate start, LocalDate end) {
+        return Math.max(start.toEpochDay(), end.toEpochDay() - 1);
+    }
+
+    @Test
+    @DisplayName("Free-car search should find exactly the cars a full scan of the history finds")
+    void testSearchMatchesFullScan() {
+        List<Car> fleet = Benchmarks.fleet(CARS);
+        RentalRepository repository = createHistory(fleet, 5_000);
+
+        for (LocalDate from : searchStarts(5_000, 1)) {
+            LocalDate to = from.plusDays(3);
+            assertEquals(scanAvailable(repository, fleet, from, to), repository.findAvailableCars(fleet, from, to));
+        }
+    }
+
+    @Test
+    @Tag(Benchmarks.TAG)
+    @DisplayName("Report free-car search latency as the rental history grows")
+    void testSearchLatencyAsHistoryGrows() throws Exception {
+        List<Car> fleet = Benchmarks.fleet(CARS);
+
+        for (int size : HISTORY_SIZES) {
+            RentalRepository repository = createHistory(fleet, size);
+            List<LocalDate> starts = searchStarts(size, 1);
+
+            double indexed = Benchmarks.bestMillis(ROUNDS, () -> {
+                for (LocalDate from : starts) {
+                    repository.findAvailableCars(fleet, from, from.plusDays(3));
+                }
+                return null;
+            });
+            double scan = Benchmarks.bestMillis(ROUNDS, () -> {
+                for (LocalDate from : starts) {
+                    scanAvailable(repository, fleet, from, from.plusDays(3));
+                }
+                return null;
+            });
+
+            Benchmarks.report("%d rentals over %d cars: free-car search %.1f us with interval trees, %.1f us scanning",
+                    size, CARS, indexed * 1_000 / SEARCHES, scan * 1_000 / SEARCHES);
+        }
+    }
+}
@@ -5,15 +5,19 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.NullSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import com.car_rental.model.Car;
 import com.car_rental.model.CarStatus;
+import com.car_rental.model.Customer;
+import com.car_rental.model.Rental;
 
 class CarRepositoryTest {
 
@@ -309,4 +313,255 @@ class CarRepositoryTest {
         assertEquals(2, hondaCars.size());
         assertTrue(hondaCars.stream().allMatch(car -> car.getModel().contains("Honda")));
     }
-}
\ No newline at end of file
+
+    // ========== Range query Tests ==========
+
+    @Test
+    @DisplayName("findByMileageBelow should exclude the bound and sort by mileage")
+    void testFindByMileageBelow() {
+        carRepository.add(createTestCar("CE0301CX", "Honda Civic", 2022, 50000.0));
+        carRepository.add(createTestCar("CE0302CX", "Toyota Camry", 2020, 25000.0));
+        carRepository.add(createTestCar("CE0303CX", "Mazda CX-5", 2021, 10000.0));
+
+        List<Car> result = carRepository.findByMileageBelow(50000.0);
+
+        assertEquals(List.of("CE0303CX", "CE0302CX"), result.stream().map(Car::getLicensePlate).toList());
+    }
+
+    @Test
+    @DisplayName("findByYearBetween should include both bounds")
+    void testFindByYearBetween() {
+        carRepository.add(createTestCar("CE0301CX", "Honda Civic", 2022, 15000.0));
+        carRepository.add(createTestCar("CE0302CX", "Toyota Camry", 2018, 25000.0));
+        carRepository.add(createTestCar("CE0303CX", "Mazda CX-5", 2020, 10000.0));
+
+        List<Car> result = carRepository.findByYearBetween(2020, 2022);
+
+        assertEquals(List.of("CE0303CX", "CE0301CX"), result.stream().map(Car::getLicensePlate).toList());
+    }
+
+    // ========== Substring index Tests ==========
+
+    @Test
+    @DisplayName("findByModel should match the same cars as a full substring scan")
+    void testFindByModelMatchesScan() {
+        String[] models = {"Toyota Camry", "Toyota Corolla", "Honda Civic", "Mazda CX-5", "BMW X5 M", "Audi A6 Avant"};
+        for (int i = 0; i < 300; i++) {
+            carRepository.add(createTestCar("CAR" + i, models[i % models.length] + " " + (i % 7), 2020, 1000.0 + i));
+        }
+
+        for (String query : List.of("toy", " CAMRY ", "ta co", "x5", "a", "6 av", "civic 3", "missing")) {
+            String needle = query.trim().toLowerCase();
+            List<String> expected = carRepository.getAll().stream()
+                    .filter(car -> car.getModel().toLowerCase().contains(needle))
+                    .map(Car::getLicensePlate)
+                    .toList();
+
+            assertEquals(expected, carRepository.findByModel(query).stream().map(Car::getLicensePlate).toList(),
+                    "query: " + query);
+        }
+    }
+
+    @Test
+    @DisplayName("findByModel should follow updates and removals")
+    void testFindByModelFollowsMutations() {
+        carRepository.add(createTestCar("CE0301CX", "Honda Civic", 2022, 15000.0));
+        carRepository.add(createTestCar("CE0302CX", "Toyota Camry", 2020, 25000.0));
+
+        carRepository.update(createTestCar("CE0301CX", "Toyota Supra", 2022, 15000.0));
+        carRepository.removeByIdentity("CE0302CX");
+
+        assertTrue(carRepository.findByModel("civic").isEmpty());
+        assertEquals(List.of("CE0301CX"),
+                carRepository.findByModel("toyota").stream().map(Car::getLicensePlate).toList());
+    }
+
+
+    // ========== Columnar storage Tests ==========
+
+    private void addFleet(CarRepository repository) {
+        CarStatus[] statuses = CarStatus.values();
+        String[] models = {"Toyota Camry", "Honda Civic", "BMW X3 xDrive"};
+        for (int i = 0; i < 200; i++) {
+            repository.add(createTestCar("CAR" + i, models[i % models.length],
+                    2015 + (i * 7) % 9, 1000.0 + (i * 7919) % 500, statuses[i % statuses.length]));
+        }
+    }
+
+    @Test
+    @DisplayName("Columnar repository should answer queries exactly like the row repository")
+    void testColumnarMatchesRowStorage() {
+        CarRepository columnar = new CarRepository(true);
+        addFleet(carRepository);
+        addFleet(columnar);
+
+        assertTrue(columnar.isColumnar());
+        assertFalse(carRepository.isColumnar());
+        assertEquals(carRepository.sortByYear(), columnar.sortByYear());
+        assertEquals(carRepository.sortByMileage(), columnar.sortByMileage());
+        assertEquals(carRepository.findByYearBetween(2017, 2019), columnar.findByYearBetween(2017, 2019));
+        assertEquals(carRepository.findByMileageBetween(1100.0, 1200.0), columnar.findByMileageBetween(1100.0, 1200.0));
+        assertEquals(carRepository.findByMileageBelow(1050.0), columnar.findByMileageBelow(1050.0));
+        assertEquals(carRepository.findByStatus(CarStatus.RENTED), columnar.findByStatus(CarStatus.RENTED));
+        assertEquals(carRepository.countByStatus(), columnar.countByStatus());
+        assertEquals(carRepository.countByModel(), columnar.countByModel());
+        assertEquals(carRepository.averageMileage(), columnar.averageMileage(), 1e-9);
+        assertEquals(carRepository.averageMileageByYear().keySet(), columnar.averageMileageByYear().keySet());
+    }
+
+    @Test
+    @DisplayName("Columnar repository should follow updates and removals")
+    void testColumnarFollowsMutations() {
+        CarRepository columnar = new CarRepository(true);
+        addFleet(columnar);
+
+        columnar.update(createTestCar("CAR0", "Toyota Camry", 2030, 1.0, CarStatus.MAINTENANCE));
+        for (int i = 1; i < 150; i++) {
+            columnar.removeByIdentity("CAR" + i);
+        }
+        columnar.add(createTestCar("NEW1", "Honda Civic", 2031, 2.0, CarStatus.AVAILABLE));
+
+        assertEquals(52, columnar.size());
+        assertEquals("CAR0", columnar.sortByMileage().get(0).getLicensePlate());
+        assertEquals("NEW1", columnar.sortByYear().get(51).getLicensePlate());
+        assertEquals(List.of("CAR0"), columnar.findByYearBetween(2030, 2030).stream()
+                .map(Car::getLicensePlate).toList());
+        assertEquals(columnar.getAll().stream().filter(car -> car.getStatus() == CarStatus.MAINTENANCE).count(),
+                (long) columnar.countByStatus().get(CarStatus.MAINTENANCE));
+    }
+
+    // ========== Change notification Tests ==========
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    @DisplayName("Status and mileage changes made through the repository should reach indexes and aggregates")
+    void testSetterChangesPropagate(boolean columnarMode) {
+        CarRepository repository = new CarRepository(columnarMode);
+        Car camry = createTestCar("СЕ0303СХ", "Toyota Camry", 2020, 25000.0, CarStatus.AVAILABLE);
+        repository.add(camry);
+        repository.add(createTestCar("СЕ0304СХ", "Honda Civic", 2019, 30000.0, CarStatus.AVAILABLE));
+        long version = repository.version();
+
+        assertTrue(repository.change("СЕ0303СХ", car -> {
+            car.setStatus(CarStatus.MAINTENANCE);
+            car.setMileage(40000.0);
+        }));
+
+        assertTrue(repository.version() > version);
+        assertEquals(List.of(camry), repository.findByStatus(CarStatus.MAINTENANCE));
+        assertEquals(1, repository.countByStatus().get(CarStatus.AVAILABLE));
+        assertEquals(1, repository.countByStatus().get(CarStatus.MAINTENANCE));
+        assertEquals(List.of(camry), repository.findByMileageBetween(35000.0, 45000.0));
+        assertEquals("СЕ0303СХ", repository.sortByMileage().get(1).getLicensePlate());
+        assertEquals(35000.0, repository.averageMileage(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Average mileage should not drift over many fractional updates")
+    void testAverageMileageDoesNotDrift() {
+        CarRepository repository = new CarRepository();
+        repository.add(createTestCar("СЕ0303СХ", "Toyota Camry", 2020, 25000.0, CarStatus.AVAILABLE));
+        repository.add(createTestCar("СЕ0304СХ", "Honda Civic", 2019, 30000.0, CarStatus.AVAILABLE));
+
+        for (int i = 1; i <= 10_000; i++) {
+            repository.update(createTestCar("СЕ0303СХ", "Toyota Camry", 2020, 25000.0 + i * 0.1, CarStatus.AVAILABLE));
+        }
+        repository.update(createTestCar("СЕ0303СХ", "Toyota Camry", 2020, 25000.3, CarStatus.AVAILABLE));
+
+        assertEquals(27500.15, repository.averageMileage(), 0.0);
+    }
+
+    @Test
+    @DisplayName("Booking a stored car within a change should be reflected in status queries")
+    void testRentalMarksStoredCarReserved() {
+        Car camry = createTestCar("СЕ0303СХ", "Toyota Camry", 2020, 25000.0, CarStatus.AVAILABLE);
+        carRepository.add(camry);
+
+        carRepository.change("СЕ0303СХ", car -> new Rental("R001", car,
+                new Customer("Іван", "Петренко", "АВТ123456", "01.01.1990"), "15.03.2024", "20.03.2024"));
+
+        assertEquals(List.of(camry), carRepository.findByStatus(CarStatus.RESERVED));
+        assertTrue(carRepository.findByStatus(CarStatus.AVAILABLE).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Model and year changes should move the car in substring and range indexes")
+    void testModelAndYearChangesPropagate() {
+        Car car = createTestCar("СЕ0303СХ", "Toyota Camry", 2020, 25000.0);
+        carRepository.add(car);
+
+        carRepository.change("СЕ0303СХ", stored -> {
+            stored.setModel("Skoda Octavia");
+            stored.setYear(2023);
+        });
+
+        assertTrue(carRepository.findByModel("camry").isEmpty());
+        assertEquals(List.of(car), carRepository.findByModel("octavia"));
+        assertTrue(carRepository.findByYearBetween(2020, 2020).isEmpty());
+        assertEquals(List.of(car), carRepository.findByYearBetween(2023, 2023));
+    }
+
+    @Test
+    @DisplayName("Cars that were removed or replaced should no longer affect the repository")
+    void testDetachedCarsAreIgnored() {
+        Car removed = createTestCar("СЕ0303СХ", "Toyota Camry", 2020, 25000.0);
+        Car replaced = createTestCar("СЕ0304СХ", "Honda Civic", 2019, 30000.0);
+        carRepository.add(removed);
+        carRepository.add(replaced);
+        carRepository.removeByIdentity("СЕ0303СХ");
+        carRepository.update(createTestCar("СЕ0304СХ", "Honda Civic", 2019, 31000.0));
+        long version = carRepository.version();
+
+        removed.setStatus(CarStatus.MAINTENANCE);
+        replaced.setStatus(CarStatus.MAINTENANCE);
+
+        assertEquals(version, carRepository.version());
+        assertTrue(carRepository.findByStatus(CarStatus.MAINTENANCE).isEmpty());
+        assertEquals(1, carRepository.countByStatus().get(CarStatus.AVAILABLE));
+    }
+
+    @Test
+    @DisplayName("Setters called on a stored car outside a change should be refused")
+    void testBareSetterOnStoredCarIsRefused() {
+        Car camry = createTestCar("СЕ0303СХ", "Toyota Camry", 2020, 25000.0, CarStatus.AVAILABLE);
+        carRepository.add(camry);
+        long version = carRepository.version();
+
+        assertThrows(IllegalStateException.class, () -> camry.setStatus(CarStatus.MAINTENANCE));
+        assertThrows(IllegalStateException.class, () -> camry.setMileage(40000.0));
+
+        assertEquals(CarStatus.AVAILABLE, camry.getStatus());
+        assertEquals(25000.0, camry.getMileage());
+        assertEquals(version, carRepository.version());
+        assertTrue(carRepository.findByStatus(CarStatus.MAINTENANCE).isEmpty());
+    }
+
+    @Test
+    @DisplayName("A change that throws should set the car and its indexes back")
+    void testFailedChangeIsRolledBack() {
+        Car camry = createTestCar("СЕ0303СХ", "Toyota Camry", 2020, 25000.0, CarStatus.AVAILABLE);
+        carRepository.add(camry);
+        long version = carRepository.version();
+
+        assertThrows(IllegalArgumentException.class, () -> carRepository.change("СЕ0303СХ", car -> {
+            car.setStatus(CarStatus.MAINTENANCE);
+            car.setModel("Skoda Octavia");
+            throw new IllegalArgumentException("Refused");
+        }));
+
+        assertEquals(CarStatus.AVAILABLE, camry.getStatus());
+        assertEquals("Toyota Camry", camry.getModel());
+        assertEquals(version, carRepository.version());
+        assertEquals(List.of(camry), carRepository.findByStatus(CarStatus.AVAILABLE));
+        assertEquals(List.of(camry), carRepository.findByModel("camry"));
+        assertTrue(carRepository.findByModel("octavia").isEmpty());
+        assertEquals(25000.0, carRepository.averageMileage(), 0.0);
+    }
+
+    @Test
+    @DisplayName("change should report a car that is not stored")
+    void testChangeOfMissingCar() {
+        assertFalse(carRepository.change("СЕ0303СХ", car -> car.setStatus(CarStatus.MAINTENANCE)));
+    }
+
+}
@@ -333,4 +333,35 @@ class CustomerRepositoryTest {
         assertTrue(sameBirthDate.stream().anyMatch(customer -> customer.firstName().equals("Оксана")));
         assertTrue(sameBirthDate.stream().anyMatch(customer -> customer.firstName().equals("Ігор")));
     }
-}
\ No newline at end of file
+
+    // ========== Sorted view Tests ==========
+
+    @Test
+    @DisplayName("sortByBirthDate should reflect updates and removals without re-sorting")
+    void testSortByBirthDateFollowsMutations() {
+        customerRepository.add(createTestCustomer("Іван", "Петренко", "АВТ123456", "15.05.1990"));
+        customerRepository.add(createTestCustomer("Марія", "Коваленко", "БДЕ234567", "20.03.1985"));
+        customerRepository.add(createTestCustomer("Олег", "Шевченко", "ВЖЗ345678", "10.10.2000"));
+
+        customerRepository.update(createTestCustomer("Олег", "Шевченко", "ВЖЗ345678", "01.01.1980"));
+        customerRepository.removeByIdentity("БДЕ234567");
+
+        List<Customer> sorted = customerRepository.sortByBirthDate();
+
+        assertEquals(List.of("ВЖЗ345678", "АВТ123456"), sorted.stream().map(Customer::driverLicense).toList());
+    }
+
+    @Test
+    @DisplayName("sortByLastName should keep insertion order for equal names")
+    void testSortByLastNameIsStable() {
+        customerRepository.add(createTestCustomer("Іван", "Петренко", "ВЖЗ345678", "15.05.1990"));
+        customerRepository.add(createTestCustomer("Марія", "Коваленко", "БДЕ234567", "20.03.1985"));
+        customerRepository.add(createTestCustomer("Олег", "Петренко", "АВТ123456", "10.10.2000"));
+
+        List<Customer> sorted = customerRepository.sortByLastName();
+
+        assertEquals(List.of("БДЕ234567", "ВЖЗ345678", "АВТ123456"),
+                sorted.stream().map(Customer::driverLicense).toList());
+    }
+
+}
@@ -9,9 +9,15 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.NullSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToLongFunction;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -423,4 +429,454 @@ class GenericCarRepositoryTest {
         assertTrue(sorted.isEmpty());
     }
 
-}
\ No newline at end of file
+    // ========== Primary index Tests ==========
+
+    @Test
+    @DisplayName("Update should replace car in place and keep insertion order")
+    void testUpdateKeepsInsertionOrder() {
+        carRepository.add(createTestCar("СЕ0303СХ", "Toyota Camry"));
+        carRepository.add(createTestCar("СЕ0304СХ", "Honda Civic"));
+        carRepository.add(createTestCar("СЕ0305СХ", "Mazda CX-5"));
+
+        assertTrue(carRepository.update(createTestCar("СЕ0303СХ", "Toyota Corolla")));
+
+        List<Car> all = carRepository.getAll();
+        assertEquals("СЕ0303СХ", all.get(0).getLicensePlate());
+        assertEquals("Toyota Corolla", all.get(0).getModel());
+        assertEquals("Toyota Corolla", carRepository.get(0).getModel());
+        assertEquals("СЕ0305СХ", carRepository.get(2).getLicensePlate());
+    }
+
+    @Test
+    @DisplayName("Remove by identity should keep order of remaining cars")
+    void testRemoveByIdentityKeepsOrder() {
+        carRepository.add(createTestCar("СЕ0303СХ", "Toyota Camry"));
+        carRepository.add(createTestCar("СЕ0304СХ", "Honda Civic"));
+        carRepository.add(createTestCar("СЕ0305СХ", "Mazda CX-5"));
+
+        assertTrue(carRepository.removeByIdentity("СЕ0304СХ"));
+
+        List<Car> all = carRepository.getAll();
+        assertEquals(2, all.size());
+        assertEquals("СЕ0303СХ", all.get(0).getLicensePlate());
+        assertEquals("СЕ0305СХ", all.get(1).getLicensePlate());
+        assertFalse(carRepository.containsIdentity("СЕ0304СХ"));
+    }
+
+    @Test
+    @DisplayName("AddAll should handle large batches without quadratic slowdown")
+    void testAddAllLargeBatch() {
+        List<Car> cars = new java.util.ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            cars.add(createTestCar("CAR" + i, "Toyota Camry"));
+        }
+
+        assertTimeoutPreemptively(java.time.Duration.ofSeconds(10), () -> carRepository.addAll(cars));
+
+        assertEquals(100_000, carRepository.size());
+        assertTrue(carRepository.findByIdentity("CAR99999").isPresent());
+        assertEquals("CAR0", carRepository.get(0).getLicensePlate());
+    }
+
+    // ========== snapshot() Tests ==========
+
+    @Test
+    @DisplayName("Snapshot should not change when repository is modified later")
+    void testSnapshotIsolation() {
+        carRepository.add(createTestCar("СЕ0303СХ", "Toyota Camry"));
+        carRepository.add(createTestCar("СЕ0304СХ", "Honda Civic"));
+
+        RepositorySnapshot<Car> before = carRepository.snapshot();
+
+        carRepository.removeByIdentity("СЕ0303СХ");
+        carRepository.update(createTestCar("СЕ0304СХ", "Honda Accord"));
+        carRepository.add(createTestCar("СЕ0305СХ", "Mazda CX-5"));
+
+        assertEquals(2, before.size());
+        assertEquals("Toyota Camry", before.findByIdentity("СЕ0303СХ").get().getModel());
+        assertEquals("Honda Civic", before.findByIdentity("СЕ0304СХ").get().getModel());
+        assertFalse(before.findByIdentity("СЕ0305СХ").isPresent());
+
+        RepositorySnapshot<Car> after = carRepository.snapshot();
+        assertTrue(after.version() > before.version());
+        assertEquals(List.of("СЕ0304СХ", "СЕ0305СХ"),
+                after.stream().map(Car::getLicensePlate).toList());
+    }
+
+    @Test
+    @DisplayName("Snapshot and getAll should be immutable")
+    void testSnapshotIsImmutable() {
+        carRepository.add(createTestCar("СЕ0303СХ", "Toyota Camry"));
+
+        List<Car> all = carRepository.getAll();
+
+        assertThrows(UnsupportedOperationException.class, () -> all.add(createTestCar("СЕ0304СХ", "Honda Civic")));
+        assertThrows(UnsupportedOperationException.class, () -> all.remove(0));
+        assertEquals(1, carRepository.size());
+    }
+
+    @Test
+    @DisplayName("Snapshot should keep insertion order across random removals")
+    void testSnapshotOrderAfterRandomRemovals() {
+        List<String> expected = new java.util.ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            carRepository.add(createTestCar("CAR" + i, "Toyota Camry"));
+            expected.add("CAR" + i);
+        }
+
+        java.util.Random random = new java.util.Random(42);
+        for (int i = 0; i < 1_000; i++) {
+            String identity = expected.remove(random.nextInt(expected.size()));
+            assertTrue(carRepository.removeByIdentity(identity));
+        }
+
+        RepositorySnapshot<Car> snapshot = carRepository.snapshot();
+        assertEquals(expected, snapshot.stream().map(Car::getLicensePlate).toList());
+        for (int i = 0; i < expected.size(); i += 97) {
+            assertEquals(expected.get(i), snapshot.get(i).getLicensePlate());
+        }
+    }
+
+    // ========== Sorted view Tests ==========
+
+    @Test
+    @DisplayName("sortByDefault should reflect cars added after the first call")
+    void testSortByDefaultFollowsMutations() {
+        carRepository.add(new Car("СЕ0303СХ", "BMW X7", 2022, 5000, CarStatus.RENTED));
+        carRepository.sortByDefault();
+
+        carRepository.add(new Car("СЕ0304СХ", "Audi RS6", 2020, 80000, CarStatus.AVAILABLE));
+        carRepository.update(new Car("СЕ0303СХ", "BMW X7", 2022, 5000, CarStatus.MAINTENANCE));
+
+        List<Car> sorted = carRepository.sortByDefault();
+
+        assertEquals(CarStatus.AVAILABLE, sorted.get(0).getStatus());
+        assertEquals(CarStatus.MAINTENANCE, sorted.get(1).getStatus());
+        assertEquals(List.of("СЕ0304СХ", "СЕ0303СХ"),
+                carRepository.sortByIdentity("desc").stream().map(Car::getLicensePlate).toList());
+    }
+
+    // ========== topK() / page() Tests ==========
+
+    private void addCarsWithMileage(int count) {
+        for (int i = 0; i < count; i++) {
+            Car car = createTestCar("CAR" + i, "Toyota Camry");
+            car.setMileage((i * 7919) % count);
+            carRepository.add(car);
+        }
+    }
+
+    @Test
+    @DisplayName("topK should return the k lowest-mileage cars in order")
+    void testTopK() {
+        addCarsWithMileage(1_000);
+
+        List<Car> lowest = carRepository.topK(Car.byMileage(), 20);
+
+        assertEquals(20, lowest.size());
+        assertEquals(carRepository.sortByComparator(Car.byMileage()).subList(0, 20), lowest);
+        assertTrue(carRepository.topK(Car.byMileage(), 0).isEmpty());
+    }
+
+    @Test
+    @DisplayName("page should return the requested slice of the sorted list")
+    void testPageByOffset() {
+        addCarsWithMileage(100);
+        List<Car> sorted = carRepository.sortByComparator(Car.byMileage());
+
+        Page<Car> page = carRepository.page(Car.byMileage(), 40, 25);
+
+        assertEquals(sorted.subList(40, 65), page.items());
+        assertTrue(page.hasNext());
+        assertFalse(carRepository.page(Car.byMileage(), 90, 25).hasNext());
+    }
+
+    @Test
+    @DisplayName("pageAfter should walk the whole repository without gaps or repeats, including ties")
+    void testPageAfterCursor() {
+        for (int i = 0; i < 53; i++) {
+            Car car = createTestCar("CAR" + i, "Toyota Camry");
+            car.setYear(2000 + i % 5);
+            carRepository.add(car);
+        }
+
+        List<Car> walked = new java.util.ArrayList<>();
+        Page<Car> page = carRepository.page(Car.byYear(), 0, 10);
+        walked.addAll(page.items());
+        while (page.hasNext()) {
+            page = carRepository.pageAfter(Car.byYear(), page.next(), 10);
+            walked.addAll(page.items());
+        }
+
+        assertEquals(carRepository.sortByComparator(Car.byYear()), walked);
+    }
+
+
+    // ========== Bulk operation Tests ==========
+
+    @Test
+    @DisplayName("upsertAll should add new cars, replace existing ones and report each outcome")
+    void testUpsertAll() {
+        carRepository.add(createTestCar("СЕ0303СХ", "Toyota Camry"));
+        long version = carRepository.version();
+
+        BulkResult result = carRepository.upsertAll(Arrays.asList(
+                createTestCar("СЕ0303СХ", "Honda Civic"),
+                createTestCar("СЕ0304СХ", "Ford Focus"),
+                null));
+
+        assertEquals(3, result.size());
+        assertEquals(BulkResult.Outcome.UPDATED, result.outcome(0));
+        assertEquals(BulkResult.Outcome.ADDED, result.outcome(1));
+        assertEquals(BulkResult.Outcome.REJECTED, result.outcome(2));
+        assertEquals(version + 1, carRepository.version());
+        assertEquals("Honda Civic", carRepository.findByIdentity("СЕ0303СХ").orElseThrow().getModel());
+        assertEquals("СЕ0303СХ", carRepository.getAll().get(0).getLicensePlate());
+    }
+
+    @Test
+    @DisplayName("updateAll should report unknown identities as missing and leave them out")
+    void testUpdateAll() {
+        carRepository.add(createTestCar("СЕ0303СХ", "Toyota Camry"));
+
+        BulkResult result = carRepository.updateAll(List.of(
+                createTestCar("СЕ0303СХ", "Honda Civic"),
+                createTestCar("СЕ0304СХ", "Ford Focus")));
+
+        assertEquals(1, result.count(BulkResult.Outcome.UPDATED));
+        assertEquals(BulkResult.Outcome.MISSING, result.outcome(1));
+        assertEquals(1, carRepository.size());
+        assertEquals("Honda Civic", carRepository.findByIdentity("СЕ0303СХ").orElseThrow().getModel());
+    }
+
+    @Test
+    @DisplayName("removeAllByIdentity should remove known cars in one version step")
+    void testRemoveAllByIdentity() {
+        carRepository.addAll(List.of(
+                createTestCar("СЕ0303СХ", "Toyota Camry"),
+                createTestCar("СЕ0304СХ", "Honda Civic"),
+                createTestCar("СЕ0305СХ", "Ford Focus")));
+        long version = carRepository.version();
+
+        BulkResult result = carRepository.removeAllByIdentity(List.of("СЕ0303СХ", "UNKNOWN", "СЕ0305СХ"));
+
+        assertEquals(2, result.count(BulkResult.Outcome.REMOVED));
+        assertEquals(BulkResult.Outcome.MISSING, result.outcome(1));
+        assertEquals(version + 1, carRepository.version());
+        assertEquals(List.of("СЕ0304СХ"), carRepository.getAll().stream().map(Car::getLicensePlate).toList());
+    }
+
+    @Test
+    @DisplayName("Bulk operations with nothing to change should not publish a new version")
+    void testBulkWithoutChangesKeepsVersion() {
+        long version = carRepository.version();
+
+        BulkResult result = carRepository.removeAllByIdentity(List.of("UNKNOWN"));
+
+        assertFalse(result.modified());
+        assertEquals(version, carRepository.version());
+        assertEquals(0, carRepository.updateAll(null).size());
+    }
+
+
+    // ========== Mutation listener Tests ==========
+
+    // Records nothing and refuses every write it is asked to record while failing is set.
+    private static class FailingListener implements MutationListener<Car> {
+        private boolean failing;
+
+        @Override
+        public void onPut(String identity, Car item) {
+        }
+
+        @Override
+        public void onDelete(String identity) {
+        }
+
+        @Override
+        public void onClear() {
+        }
+
+        @Override
+        public void beforePublish() {
+            if (failing) {
+                throw new IllegalStateException("journal unavailable");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("A write the mutation listener refuses to record should be undone")
+    void testWriteNotRecordedIsUndone() {
+        FailingListener listener = new FailingListener();
+        carRepository.setMutationListener(listener);
+        carRepository.registerSortedView("byModel", Comparator.comparing(Car::getModel));
+        Car camry = createTestCar("СЕ0303СХ", "Toyota Camry");
+        carRepository.addAll(List.of(camry, createTestCar("СЕ0304СХ", "Honda Civic")));
+        List<Car> before = carRepository.getAll();
+        List<Car> sortedBefore = carRepository.sortByView("byModel");
+        long version = carRepository.version();
+        long camryVersion = carRepository.versionOf("СЕ0303СХ");
+        listener.failing = true;
+
+        assertThrows(IllegalStateException.class, () -> carRepository.add(createTestCar("СЕ0305СХ", "Ford Focus")));
+        assertThrows(IllegalStateException.class, () -> carRepository.update(createTestCar("СЕ0303СХ", "Audi A4")));
+        assertThrows(IllegalStateException.class, () -> carRepository.removeByIdentity("СЕ0304СХ"));
+        assertThrows(IllegalStateException.class, () -> carRepository.upsertAll(List.of(
+                createTestCar("СЕ0303СХ", "Skoda Octavia"), createTestCar("СЕ0306СХ", "Mazda CX-5"))));
+        assertThrows(IllegalStateException.class, carRepository::clear);
+
+        assertEquals(version, carRepository.version());
+        assertEquals(before, carRepository.getAll());
+        assertEquals(sortedBefore, carRepository.sortByView("byModel"));
+        assertSame(camry, carRepository.findByIdentity("СЕ0303СХ").orElseThrow());
+        assertEquals(camryVersion, carRepository.versionOf("СЕ0303СХ"));
+        assertFalse(carRepository.containsIdentity("СЕ0305СХ"));
+        assertTrue(carRepository.containsIdentity("СЕ0304СХ"));
+
+        listener.failing = false;
+        assertTrue(carRepository.update(createTestCar("СЕ0303СХ", "Audi A4")));
+        assertEquals("Audi A4", carRepository.findByIdentity("СЕ0303СХ").orElseThrow().getModel());
+    }
+
+    @Test
+    @DisplayName("A writer waiting for durability should block neither readers nor the next writer")
+    void testDurabilityIsAwaitedOutsideTheLock() throws InterruptedException {
+        CountDownLatch waiting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean held = new AtomicBoolean();
+        carRepository.setMutationListener(new FailingListener() {
+            @Override
+            public void awaitDurable() {
+                if (held.compareAndSet(false, true)) {
+                    waiting.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        });
+        Thread writer = new Thread(() -> carRepository.add(createTestCar("СЕ0303СХ", "Toyota Camry")));
+        writer.start();
+        waiting.await();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            assertTrue(carRepository.containsIdentity("СЕ0303СХ"));
+            assertTrue(carRepository.add(createTestCar("СЕ0304СХ", "Honda Civic")));
+        });
+        assertTrue(writer.isAlive());
+        release.countDown();
+        writer.join();
+        assertEquals(2, carRepository.size());
+    }
+
+    // ========== metrics() Tests ==========
+
+    @Test
+    @DisplayName("Metrics should count each operation kind separately")
+    void testMetricsCountOperations() {
+        carRepository.add(createTestCar("СЕ0303СХ", "Toyota Camry"));
+        carRepository.addAll(List.of(createTestCar("СЕ0304СХ", "Honda Civic")));
+        carRepository.findByIdentity("СЕ0303СХ");
+        carRepository.containsIdentity("UNKNOWN");
+        carRepository.update(createTestCar("СЕ0303СХ", "Ford Focus"));
+        carRepository.sortByComparator(Car.byMileage());
+        carRepository.removeByIdentity("СЕ0304СХ");
+
+        RepositoryMetrics metrics = carRepository.metrics();
+
+        assertEquals("Car", metrics.entityType());
+        assertEquals(2, metrics.stats(RepositoryMetrics.Operation.ADD).count());
+        assertEquals(2, metrics.stats(RepositoryMetrics.Operation.FIND).count());
+        assertEquals(1, metrics.stats(RepositoryMetrics.Operation.UPDATE).count());
+        assertEquals(1, metrics.stats(RepositoryMetrics.Operation.SORT).count());
+        assertEquals(1, metrics.stats(RepositoryMetrics.Operation.REMOVE).count());
+        assertEquals(0, metrics.stats(RepositoryMetrics.Operation.SCAN).count());
+    }
+
+    @Test
+    @DisplayName("Metrics latency summary should be consistent and resettable")
+    void testMetricsLatencyAndReset() {
+        for (int i = 0; i < 100; i++) {
+            carRepository.add(createTestCar("CAR" + i, "Toyota Camry"));
+        }
+
+        RepositoryMetrics.Stats stats = carRepository.metrics().stats(RepositoryMetrics.Operation.ADD);
+        assertEquals(100, stats.count());
+        assertEquals(100, Arrays.stream(stats.histogram()).sum());
+        assertTrue(stats.percentileNanos(50) <= stats.percentileNanos(99));
+        assertTrue(stats.percentileNanos(99) <= stats.maxNanos());
+        assertTrue(stats.meanNanos() <= stats.maxNanos());
+
+        carRepository.metrics().reset();
+        assertEquals(0, carRepository.metrics().stats(RepositoryMetrics.Operation.ADD).count());
+        assertEquals(0, carRepository.metrics().stats(RepositoryMetrics.Operation.ADD).percentileNanos(99));
+    }
+
+    @Test
+    @DisplayName("findByPredicate should scan lazily and record a scan once the pass completes")
+    void testFindByPredicateIsLazy() {
+        for (int i = 0; i < 5; i++) {
+            carRepository.add(createTestCar("CAR" + i, "Model" + i));
+        }
+        int[] tested = new int[1];
+
+        Optional<Car> first = carRepository.findByPredicate(car -> {
+            tested[0]++;
+            return true;
+        }).findFirst();
+
+        assertEquals("CAR0", first.orElseThrow().getLicensePlate());
+        assertEquals(1, tested[0]);
+        assertEquals(0, carRepository.metrics().stats(RepositoryMetrics.Operation.SCAN).count());
+
+        List<Car> matches = carRepository.findByPredicate(car -> car.getLicensePlate().endsWith("3")).toList();
+
+        assertEquals(1, matches.size());
+        assertEquals(1, carRepository.metrics().stats(RepositoryMetrics.Operation.SCAN).count());
+    }
+
+    // ========== sortByKey() Tests ==========
+
+    @Test
+    @DisplayName("sortByKey should order by a narrow key and keep insertion order for ties")
+    void testSortByKeyNarrowRangeIsStable() {
+        int[] years = {2021, 2019, 2021, 2020, 2019};
+        for (int i = 0; i < years.length; i++) {
+            Car car = createTestCar("CAR" + i, "Toyota Camry");
+            car.setYear(years[i]);
+            carRepository.add(car);
+        }
+
+        List<String> sorted = carRepository.sortByKey(Car::getYear).stream().map(Car::getLicensePlate).toList();
+
+        assertEquals(List.of("CAR1", "CAR4", "CAR3", "CAR0", "CAR2"), sorted);
+    }
+
+    @Test
+    @DisplayName("sortByKey should match a stable comparator sort for keys spanning the whole long range")
+    void testSortByKeyWideRangeMatchesComparator() {
+        Random random = new Random(7);
+        long[] keys = new long[2_000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i % 10 == 0 ? Long.MIN_VALUE + random.nextInt(3) : random.nextLong() / (1 + i % 3);
+            carRepository.add(createTestCar("CAR" + i, "Toyota Camry"));
+        }
+
+        ToLongFunction<Car> key = car -> keys[Integer.parseInt(car.getLicensePlate().substring(3))];
+        assertEquals(carRepository.sortByComparator(Comparator.comparingLong(key)),
+                carRepository.sortByKey(key));
+    }
+
+    @Test
+    @DisplayName("sortByKey should handle empty repository and null key")
+    void testSortByKeyEdgeCases() {
+        assertTrue(carRepository.sortByKey(Car::getYear).isEmpty());
+
+        carRepository.add(createTestCar("СЕ0303СХ", "Toyota Camry"));
+        assertEquals(1, carRepository.sortByKey(null).size());
+    }
+
+}
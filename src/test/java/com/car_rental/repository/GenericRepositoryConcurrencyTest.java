@@ -0,0 +1,263 @@
+package com.car_rental.repository;
+
+import com.car_rental.exception.InvalidDataException;
+import com.car_rental.model.Car;
+import com.car_rental.model.CarStatus;
+import com.car_rental.support.Benchmarks;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GenericRepositoryConcurrencyTest {
+
+    private static final int PRELOADED = 10_000;
+
+    private GenericRepository<Car> carRepository;
+
+    @BeforeEach
+    void setUp() {
+        carRepository = new GenericRepository<>(Car::getLicensePlate, "Car");
+
+        List<Car> cars = new ArrayList<>();
+        for (int i = 0; i < PRELOADED; i++) {
+            cars.add(createTestCar("CAR" + i));
+        }
+        carRepository.addAll(cars);
+    }
+
+    private Car createTestCar(String licensePlate) {
+        Car car = new Car();
+        car.setLicensePlate(licensePlate);
+        car.setModel("Toyota Camry");
+        car.setYear(2020);
+        car.setMileage(50000.0);
+        car.setStatus(CarStatus.AVAILABLE);
+        return car;
+    }
+
+    @Test
+    @DisplayName("Readers running alongside writers should never see torn state")
+    void testReadersAndWritersDoNotInterfere() throws InterruptedException {
+        int readers = Math.max(2, Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(readers + 1);
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CountDownLatch done = new CountDownLatch(readers + 1);
+
+        executor.submit(() -> {
+            try {
+                for (int i = 0; i < 500; i++) {
+                    carRepository.add(createTestCar("NEW" + i));
+                    carRepository.removeByIdentity("CAR" + i);
+                }
+            } catch (Throwable t) {
+                failures.add(t);
+            } finally {
+                writing.set(false);
+                done.countDown();
+            }
+        });
+
+        for (int r = 0; r < readers; r++) {
+            executor.submit(() -> {
+                try {
+                    while (writing.get()) {
+                        List<Car> all = carRepository.getAll();
+                        assertTrue(all.size() >= PRELOADED - 500 && all.size() <= PRELOADED + 500);
+                        assertTrue(carRepository.containsIdentity("CAR" + (PRELOADED - 1)));
+                        carRepository.sortByComparator(Car.byMileage());
+                    }
+                } catch (Throwable t) {
+                    failures.add(t);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        executor.shutdownNow();
+
+        assertTrue(failures.isEmpty(), () -> "Concurrent access failed: " + failures.peek());
+        assertEquals(PRELOADED, carRepository.size());
+        assertFalse(carRepository.containsIdentity("CAR0"));
+        assertTrue(carRepository.containsIdentity("NEW499"));
+    }
+
+    @Test
+    @Tag(Benchmarks.TAG)
+    @DisplayName("Report identity lookup throughput per reader thread count, optimistic and under the read lock")
+    void testReadThroughputScalesWithCores() throws InterruptedException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        IntPredicate optimistic = i -> carRepository.containsIdentity("CAR" + i % PRELOADED);
+        // The same lookup holding the read lock, as every lookup did before.
+        IntPredicate locked = i -> carRepository.read(() -> carRepository.containsIdentity("CAR" + i % PRELOADED));
+
+        measureReads(cores, optimistic); // warm-up so every run is measured on JIT-compiled code
+        measureReads(cores, locked);
+        long singleOptimistic = measureReads(1, optimistic);
+        long singleLocked = measureReads(1, locked);
+        for (int threads = 1; threads <= cores; threads = threads == cores ? cores + 1 : Math.min(threads * 2, cores)) {
+            long optimisticLookups = threads == 1 ? singleOptimistic : measureReads(threads, optimistic);
+            long lockedLookups = threads == 1 ? singleLocked : measureReads(threads, locked);
+            Benchmarks.report("Lookups in 200 ms with %d threads: optimistic = %d (x%.2f), read-locked = %d (x%.2f)",
+                    threads, optimisticLookups, (double) optimisticLookups / singleOptimistic,
+                    lockedLookups, (double) lockedLookups / singleLocked);
+        }
+    }
+
+    private long measureReads(int threads, IntPredicate lookup) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        LongAdder lookups = new LongAdder();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            executor.submit(() -> {
+                int i = offset;
+                long count = 0;
+                while (running.get()) {
+                    lookup.test(i++);
+                    count++;
+                }
+                lookups.add(count);
+                done.countDown();
+            });
+        }
+
+        Thread.sleep(200);
+        running.set(false);
+        done.await(10, TimeUnit.SECONDS);
+        executor.shutdownNow();
+        return lookups.sum();
+    }
+
+    @Test
+    @DisplayName("A lookup should not see an entry a unit of work has added but not yet published")
+    void testLookupSkipsUnpublishedWrites() throws InterruptedException {
+        CountDownLatch reached = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        carRepository.registerIndex(new RepositoryIndex<>() {
+            @Override
+            public String name() {
+                return "holding";
+            }
+
+            @Override
+            public void onAdd(long sequence, Car item) {
+                if (item.getLicensePlate().equals("NEW0")) {
+                    reached.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+
+            @Override
+            public void onRemove(long sequence, Car item) {
+            }
+
+            @Override
+            public void clear() {
+            }
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<?> writer = executor.submit(() -> UnitOfWork.run(unit -> {
+            unit.add(carRepository, createTestCar("NEW0"));
+            unit.remove(carRepository, "CAR-MISSING");
+        }));
+        assertTrue(reached.await(10, TimeUnit.SECONDS));
+        // The entry is in the primary index by now, but the commit still holds the write lock.
+        Future<Boolean> lookup = executor.submit(() -> carRepository.containsIdentity("NEW0"));
+        assertThrows(TimeoutException.class, () -> lookup.get(100, TimeUnit.MILLISECONDS));
+        release.countDown();
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> writer.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(InvalidDataException.class, failure.getCause());
+        assertFalse(assertDoesNotThrow(() -> lookup.get(10, TimeUnit.SECONDS)));
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Query predicates should run once per candidate while a writer is active")
+    void testQueryPredicatesRunOncePerCandidate() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CountDownLatch done = new CountDownLatch(1);
+        executor.submit(() -> {
+            try {
+                for (int i = 0; writing.get(); i++) {
+                    carRepository.add(createTestCar("NEW" + i));
+                    carRepository.removeByIdentity("NEW" + i);
+                }
+            } finally {
+                done.countDown();
+            }
+        });
+
+        try {
+            for (int round = 0; round < 50; round++) {
+                LongAdder calls = new LongAdder();
+                List<Car> matches = carRepository.query(Query.<Car>create().filter(car -> {
+                    calls.increment();
+                    return true;
+                }));
+                // The writer keeps the size at PRELOADED or PRELOADED + 1; a retried
+                // scan would have run the predicate twice for every candidate.
+                assertTrue(calls.sum() == PRELOADED || calls.sum() == PRELOADED + 1,
+                        "Predicate ran " + calls.sum() + " times");
+                assertEquals(calls.sum(), matches.size());
+            }
+        } finally {
+            writing.set(false);
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Readers should hold the read lock together rather than one after another")
+    void testReadersShareTheReadLock() throws InterruptedException {
+        int readers = 2;
+        ExecutorService executor = Executors.newFixedThreadPool(readers);
+        CountDownLatch inside = new CountDownLatch(readers);
+        ConcurrentLinkedQueue<Boolean> overlapped = new ConcurrentLinkedQueue<>();
+
+        for (int r = 0; r < readers; r++) {
+            executor.submit(() -> carRepository.read(() -> {
+                inside.countDown();
+                try {
+                    overlapped.add(inside.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }));
+        }
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(List.of(true, true), List.copyOf(overlapped));
+    }
+}
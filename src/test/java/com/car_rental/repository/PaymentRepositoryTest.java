@@ -1,11 +1,14 @@
 package com.car_rental.repository;
 
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -13,6 +16,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.NullSource;
 
+import com.car_rental.exception.InvalidDataException;
 import com.car_rental.model.Car;
 import com.car_rental.model.CarStatus;
 import com.car_rental.model.Customer;
@@ -394,4 +398,50 @@ class PaymentRepositoryTest {
         assertEquals(67.89, sortedByAmount.get(0).getAmount(), 0.01);
         assertEquals(123.45, sortedByAmount.get(1).getAmount(), 0.01);
     }
-}
\ No newline at end of file
+
+    // ========== Range query Tests ==========
+
+    @Test
+    @DisplayName("findByPaymentDateBetween should return payments within the dates")
+    void testFindByPaymentDateBetween() {
+        paymentRepository.add(createTestPayment("P001", 500.0, "15.03.2024", PaymentMethod.CASH));
+        paymentRepository.add(createTestPayment("P002", 300.0, "01.03.2024", PaymentMethod.CASH));
+        paymentRepository.add(createTestPayment("P003", 700.0, "01.04.2024", PaymentMethod.CASH));
+
+        List<Payment> result = paymentRepository.findByPaymentDateBetween(
+                LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31));
+
+        assertEquals(List.of("P002", "P001"), result.stream().map(Payment::getId).toList());
+    }
+
+    @Test
+    @DisplayName("findByAmountBetween should follow amount updates")
+    void testFindByAmountBetween() {
+        paymentRepository.add(createTestPayment("P001", 500.0, "15.03.2024", PaymentMethod.CASH));
+        paymentRepository.add(createTestPayment("P002", 300.0, "01.03.2024", PaymentMethod.CASH));
+
+        paymentRepository.update(createTestPayment("P002", 900.0, "01.03.2024", PaymentMethod.CASH));
+
+        assertEquals(List.of("P001"),
+                paymentRepository.findByAmountBetween(100.0, 600.0).stream().map(Payment::getId).toList());
+        assertTrue(paymentRepository.findByAmountBetween(600.0, 100.0).isEmpty());
+    }
+
+    // ========== Partition Tests ==========
+
+    @Test
+    @DisplayName("Payments should be partitioned and sealed by month of their payment date")
+    void testPartitionsByPaymentMonth() {
+        paymentRepository.add(createTestPayment("P001", 100.0, "05.01.2024", PaymentMethod.CASH));
+        paymentRepository.add(createTestPayment("P002", 200.0, "25.02.2024", PaymentMethod.CREDIT_CARD));
+        paymentRepository.seal(YearMonth.of(2024, 1));
+
+        assertEquals(List.of(YearMonth.of(2024, 1), YearMonth.of(2024, 2)),
+                paymentRepository.partitions().stream().map(MonthPartitions.Partition::month).toList());
+        assertTrue(paymentRepository.partitions().get(0).sealed());
+        assertThrows(InvalidDataException.class, () -> paymentRepository.add(
+                createTestPayment("P003", 50.0, "31.01.2024", PaymentMethod.CASH)));
+        assertTrue(paymentRepository.add(createTestPayment("P003", 50.0, "01.02.2024", PaymentMethod.CASH)));
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.car_rental.repository;
+
+import com.car_rental.model.Rental;
+import com.car_rental.support.Benchmarks;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecordStoreBenchmarkTest {
+
+    private static final int RENTALS = 20_000;
+    private static final int LOOKUPS = 20_000;
+    private static final int ROUNDS = 3;
+
+    private static List<Rental> createRentals(int count) {
+        return Benchmarks.rentalList(Benchmarks.fleet(500), count, 7);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long retainedHeap(Supplier<RentalRepository> factory, List<RentalRepository> keepAlive) {
+        long before = usedHeap();
+        RentalRepository repository = factory.get();
+        repository.addAll(createRentals(RENTALS));
+        long after = usedHeap();
+        keepAlive.add(repository);
+        return after - before;
+    }
+
+    private static double lookupMicros(RentalRepository repository) throws Exception {
+        double millis = Benchmarks.bestMillis(ROUNDS, () -> {
+            for (int i = 0; i < LOOKUPS; i++) {
+                repository.findById("R" + (i * 17 % RENTALS));
+            }
+            return null;
+        });
+        return millis * 1_000 / LOOKUPS;
+    }
+
+    @Test
+    @DisplayName("Off-heap and heap backends should hold and find the same rentals")
+    void testOffHeapMatchesHeapBackend() {
+        List<Rental> rentals = createRentals(2_000);
+        RentalRepository heap = new RentalRepository();
+        OffHeapRecordStore<Rental> store = new OffHeapRecordStore<>(Rental.class, 4096);
+        RentalRepository offHeap = new RentalRepository(store);
+
+        assertEquals(rentals.size(), heap.upsertAll(rentals).count(BulkResult.Outcome.ADDED));
+        assertEquals(rentals.size(), offHeap.upsertAll(rentals).count(BulkResult.Outcome.ADDED));
+
+        assertEquals(rentals.size(), store.liveRecords());
+        assertEquals(heap.getAll(), offHeap.getAll());
+        for (Rental rental : rentals) {
+            assertEquals(rental, offHeap.findById(rental.getId()).orElseThrow());
+        }
+    }
+
+    @Test
+    @Tag(Benchmarks.TAG)
+    @DisplayName("Report retained heap and lookup latency of the heap and off-heap backends")
+    void testHeapFootprintAndLookupLatency() throws Exception {
+        List<RentalRepository> keepAlive = new ArrayList<>();
+        long heapBacked = retainedHeap(RentalRepository::new, keepAlive);
+        OffHeapRecordStore<Rental> store = new OffHeapRecordStore<>(Rental.class);
+        long offHeapBacked = retainedHeap(() -> new RentalRepository(store), keepAlive);
+
+        double heapLookup = lookupMicros(keepAlive.get(0));
+        double offHeapLookup = lookupMicros(keepAlive.get(1));
+
+        Benchmarks.report("%d rentals: heap backend retains %d KB; off-heap backend retains %d KB on heap "
+                        + "+ %d KB off-heap (%d KB in arenas)",
+                RENTALS, heapBacked / 1024, offHeapBacked / 1024, store.liveBytes() / 1024, store.arenaBytes() / 1024);
+        Benchmarks.report("findById: heap %.2f us, off-heap %.2f us", heapLookup, offHeapLookup);
+    }
+}
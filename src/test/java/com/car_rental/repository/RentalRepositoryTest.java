@@ -1,19 +1,30 @@
 package com.car_rental.repository;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.NullSource;
 
+import com.car_rental.exception.BookingConflictException;
+import com.car_rental.exception.DataSerializationException;
+import com.car_rental.exception.InvalidDataException;
 import com.car_rental.model.Car;
 import com.car_rental.model.CarStatus;
 import com.car_rental.model.Customer;
@@ -463,4 +474,543 @@ class RentalRepositoryTest {
         assertNotNull(retrievedRental.getEndDate());
         assertTrue(retrievedRental.getEndDate().isAfter(retrievedRental.getStartDate()));
     }
-}
\ No newline at end of file
+
+    // ========== Secondary index Tests ==========
+
+    @Test
+    @DisplayName("findByCarLicensePlate should follow updates and removals")
+    void testCarLicensePlateIndexMaintained() {
+        rentalRepository.add(createTestRental("R001", "СЕ0303СХ", "АВТ123456"));
+        rentalRepository.add(createTestRental("R002", "СЕ0303СХ", "БДЕ234567", "01.01.2020", "05.01.2020"));
+
+        rentalRepository.update(createTestRental("R001", "СЕ0304СХ", "АВТ123456"));
+        rentalRepository.removeByIdentity("R002");
+
+        assertTrue(rentalRepository.findByCarLicensePlate("СЕ0303СХ").isEmpty());
+        assertEquals(1, rentalRepository.findByCarLicensePlate("СЕ0304СХ").size());
+        assertEquals(1, rentalRepository.findByCustomerDriverLicense("АВТ123456").size());
+        assertTrue(rentalRepository.findByCustomerDriverLicense("БДЕ234567").isEmpty());
+    }
+
+    @Test
+    @DisplayName("findByCustomerDriverLicense should return matches in insertion order")
+    void testIndexResultsInInsertionOrder() {
+        rentalRepository.add(createTestRental("R003", "СЕ0303СХ", "АВТ123456"));
+        rentalRepository.add(createTestRental("R001", "СЕ0304СХ", "АВТ123456"));
+        rentalRepository.add(createTestRental("R002", "СЕ0305СХ", "АВТ123456"));
+
+        List<Rental> result = rentalRepository.findByCustomerDriverLicense("авт123456");
+
+        assertEquals(List.of("R003", "R001", "R002"), result.stream().map(Rental::getId).toList());
+    }
+
+    @Test
+    @DisplayName("Indexes should be emptied when repository is cleared")
+    void testIndexesCleared() {
+        rentalRepository.add(createTestRental("R001", "СЕ0303СХ", "АВТ123456"));
+
+        rentalRepository.clear();
+
+        assertTrue(rentalRepository.findByCarLicensePlate("СЕ0303СХ").isEmpty());
+        assertTrue(rentalRepository.findByCustomerDriverLicense("АВТ123456").isEmpty());
+    }
+
+    // ========== Range query Tests ==========
+
+    @Test
+    @DisplayName("findOverlapping should return rentals intersecting the period")
+    void testFindOverlapping() {
+        rentalRepository.add(createTestRental("R001", "СЕ0303СХ", "АВТ123456", "01.06.2024", "30.06.2024"));
+        rentalRepository.add(createTestRental("R002", "СЕ0304СХ", "БДЕ234567", "25.06.2024", "03.07.2024"));
+        rentalRepository.add(createTestRental("R003", "СЕ0305СХ", "ВЖЗ345678", "05.07.2024", "10.07.2024"));
+        rentalRepository.add(createTestRental("R004", "СЕ0306СХ", "ГИК456789", "15.07.2024", "20.07.2024"));
+        rentalRepository.add(createTestRental("R005", "СЕ0307СХ", "ДЛМ567890", "16.07.2024", "20.07.2024"));
+
+        List<Rental> result = rentalRepository.findOverlapping(LocalDate.of(2024, 7, 1), LocalDate.of(2024, 7, 15));
+
+        assertEquals(List.of("R002", "R003", "R004"), result.stream().map(Rental::getId).toList());
+    }
+
+    @Test
+    @DisplayName("findOverlapping should treat a rental without an end date as open-ended")
+    void testFindOverlappingOpenEndedRental() {
+        rentalRepository.add(createTestRental("R001", "СЕ0303СХ", "АВТ123456", "01.06.2024", "03.06.2024"));
+        Rental openEnded = new Rental();
+        openEnded.setId("R002");
+        openEnded.setCar(new Car("СЕ0304СХ", "Toyota Camry", 2020, 25000.0, CarStatus.AVAILABLE));
+        openEnded.setStartDate("01.01.2024");
+        rentalRepository.add(openEnded);
+
+        List<Rental> result = rentalRepository.findOverlapping(LocalDate.of(2024, 7, 1), LocalDate.of(2024, 7, 15));
+
+        assertEquals(List.of("R002"), result.stream().map(Rental::getId).toList());
+    }
+
+    @Test
+    @DisplayName("findByStartDateBetween should return rentals ordered by start date")
+    void testFindByStartDateBetween() {
+        rentalRepository.add(createTestRental("R001", "СЕ0303СХ", "АВТ123456", "20.03.2024", "25.03.2024"));
+        rentalRepository.add(createTestRental("R002", "СЕ0304СХ", "БДЕ234567", "10.03.2024", "15.03.2024"));
+        rentalRepository.add(createTestRental("R003", "СЕ0305СХ", "ВЖЗ345678", "01.04.2024", "05.04.2024"));
+
+        List<Rental> result = rentalRepository.findByStartDateBetween(
+                LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31));
+
+        assertEquals(List.of("R002", "R001"), result.stream().map(Rental::getId).toList());
+        assertTrue(rentalRepository.findByEndDateBetween(LocalDate.of(2024, 5, 1), null).isEmpty());
+    }
+
+
+    // ========== Off-heap storage Tests ==========
+
+    @Test
+    @DisplayName("Off-heap repository should answer queries like the heap repository")
+    void testOffHeapMatchesHeapStorage() {
+        RentalRepository offHeap = new RentalRepository(new OffHeapRecordStore<>(Rental.class, 512));
+        for (RentalRepository repository : List.of(rentalRepository, offHeap)) {
+            repository.add(createTestRental("R001", "СЕ0303СХ", "АВТ123456", "15.03.2024", "20.03.2024"));
+            repository.add(createTestRental("R002", "СЕ0304СХ", "БДЕ234567", "10.03.2024", "15.03.2024"));
+            repository.add(createTestRental("R003", "СЕ0303СХ", "ВЖЗ345678", "20.03.2024", "25.03.2024"));
+        }
+
+        assertEquals(rentalRepository.getAll(), offHeap.getAll());
+        assertEquals(rentalRepository.sortByStartDate(), offHeap.sortByStartDate());
+        assertEquals(rentalRepository.findByCarLicensePlate("СЕ0303СХ"), offHeap.findByCarLicensePlate("СЕ0303СХ"));
+        assertEquals(rentalRepository.findOverlapping(LocalDate.of(2024, 3, 14), LocalDate.of(2024, 3, 16)),
+                offHeap.findOverlapping(LocalDate.of(2024, 3, 14), LocalDate.of(2024, 3, 16)));
+        assertEquals(rentalRepository.findById("R002"), offHeap.findById("R002"));
+    }
+
+    @Test
+    @DisplayName("Off-heap repository should materialise copies and keep old snapshots readable")
+    void testOffHeapMaterialisesOnAccess() {
+        OffHeapRecordStore<Rental> store = new OffHeapRecordStore<>(Rental.class, 256);
+        RentalRepository offHeap = new RentalRepository(store);
+        Rental original = createTestRental("R001", "СЕ0303СХ", "АВТ123456", "15.03.2024", "20.03.2024");
+        offHeap.add(original);
+        offHeap.add(createTestRental("R002", "СЕ0304СХ", "БДЕ234567", "10.03.2024", "15.03.2024"));
+
+        Rental loaded = offHeap.findById("R001").orElseThrow();
+        assertEquals(original, loaded);
+        assertFalse(original == loaded);
+
+        RepositorySnapshot<Rental> before = offHeap.snapshot();
+        offHeap.removeByIdentity("R001");
+        offHeap.update(createTestRental("R002", "СЕ0305СХ", "БДЕ234567", "10.03.2024", "15.03.2024"));
+
+        assertEquals(1, store.liveRecords());
+        assertEquals(2, before.size());
+        assertEquals(original, before.findByIdentity("R001").orElseThrow());
+        assertTrue(offHeap.findByCarLicensePlate("СЕ0304СХ").isEmpty());
+        assertEquals(1, offHeap.findByCarLicensePlate("СЕ0305СХ").size());
+    }
+
+    @Test
+    @DisplayName("Sorted views of an off-heap repository should resolve items from the store")
+    void testOffHeapSortedViewResolvesFromStore() {
+        RentalRepository offHeap = new RentalRepository(new OffHeapRecordStore<>(Rental.class, 512));
+        Rental first = createTestRental("R001", "СЕ0303СХ", "АВТ123456", "15.03.2024", "25.03.2024");
+        for (RentalRepository repository : List.of(rentalRepository, offHeap)) {
+            repository.add(first);
+            repository.sortByDefault(); // materialises the default view before the writes below
+            repository.addAll(List.of(
+                    createTestRental("R002", "СЕ0304СХ", "БДЕ234567", "10.03.2024", "12.03.2024"),
+                    createTestRental("R003", "СЕ0305СХ", "ВЖЗ345678", "20.03.2024", "21.03.2024"),
+                    createTestRental("R004", "СЕ0306СХ", "АВТ123456", "01.03.2024", "05.03.2024")));
+            repository.update(createTestRental("R003", "СЕ0305СХ", "ВЖЗ345678", "20.03.2024", "30.03.2024"));
+            repository.removeByIdentity("R004");
+        }
+
+        List<Rental> sorted = offHeap.sortByDefault();
+
+        assertEquals(List.of("R002", "R001", "R003"), sorted.stream().map(Rental::getId).toList());
+        assertEquals(rentalRepository.sortByDefault(), sorted);
+        assertFalse(first == sorted.get(1));
+    }
+
+    @Test
+    @DisplayName("Off-heap store should compact sparse arenas so updates do not grow it without bound")
+    void testOffHeapCompactsDeadRecords() {
+        int arenaSize = 4096;
+        OffHeapRecordStore<Rental> store = new OffHeapRecordStore<>(Rental.class, arenaSize);
+        RentalRepository offHeap = new RentalRepository(store);
+        offHeap.add(createTestRental("R001", "СЕ0303СХ", "АВТ123456", "15.03.2024", "20.03.2024"));
+        offHeap.add(createTestRental("R002", "СЕ0304СХ", "БДЕ234567", "10.03.2024", "15.03.2024"));
+        RepositorySnapshot<Rental> before = offHeap.snapshot();
+
+        for (int i = 0; i < 2_000; i++) {
+            offHeap.update(createTestRental("R001", "СЕ" + (1000 + i) + "СХ", "АВТ123456", "15.03.2024", "20.03.2024"));
+        }
+
+        assertEquals(2, store.liveRecords());
+        assertTrue(store.allocatedBytes() > 100L * arenaSize);
+        assertTrue(store.arenaBytes() <= 2 * store.liveBytes() + 2L * arenaSize,
+                () -> store.arenaBytes() + " bytes of arenas for " + store.liveBytes() + " live bytes");
+        assertEquals("СЕ2999СХ", offHeap.findById("R001").orElseThrow().getCar().getLicensePlate());
+        assertEquals("СЕ0304СХ", offHeap.findById("R002").orElseThrow().getCar().getLicensePlate());
+        assertEquals("СЕ0303СХ", before.findByIdentity("R001").orElseThrow().getCar().getLicensePlate());
+    }
+
+    // ========== Availability Tests ==========
+
+    @Test
+    @DisplayName("add should reject a rental that double-books its car and leave the repository unchanged")
+    void testAddRejectsConflictingRental() {
+        rentalRepository.add(createTestRental("R001", "СЕ0303СХ", "АВТ123456", "15.03.2024", "20.03.2024"));
+        long version = rentalRepository.version();
+
+        Rental conflicting = createTestRental("R002", "се0303сх", "БДЕ234567", "18.03.2024", "22.03.2024");
+        BookingConflictException e = assertThrows(BookingConflictException.class,
+                () -> rentalRepository.add(conflicting));
+
+        assertTrue(e.getMessage().contains("2024-03-18"));
+        assertEquals(1, rentalRepository.size());
+        assertEquals(version, rentalRepository.version());
+        assertTrue(rentalRepository.findById("R002").isEmpty());
+        assertEquals(1, rentalRepository.findByCarLicensePlate("СЕ0303СХ").size());
+    }
+
+    @Test
+    @DisplayName("A car returned on a day can be rented again from that day")
+    void testSameDayHandover() {
+        rentalRepository.add(createTestRental("R001", "СЕ0303СХ", "АВТ123456", "15.03.2024", "20.03.2024"));
+
+        assertTrue(rentalRepository.add(createTestRental("R002", "СЕ0303СХ", "БДЕ234567", "20.03.2024", "25.03.2024")));
+        assertTrue(rentalRepository.add(createTestRental("R003", "СЕ0303СХ", "ВЖЗ345678", "10.03.2024", "15.03.2024")));
+        assertThrows(BookingConflictException.class, () -> rentalRepository.add(
+                createTestRental("R004", "СЕ0303СХ", "ГИК456789", "19.03.2024", "19.03.2024")));
+    }
+
+    @Test
+    @DisplayName("update should not conflict with the rental it replaces, only with others")
+    void testUpdateChecksOtherRentals() {
+        rentalRepository.add(createTestRental("R001", "СЕ0303СХ", "АВТ123456", "15.03.2024", "20.03.2024"));
+        rentalRepository.add(createTestRental("R002", "СЕ0303СХ", "БДЕ234567", "25.03.2024", "30.03.2024"));
+
+        assertTrue(rentalRepository.update(createTestRental("R001", "СЕ0303СХ", "АВТ123456", "14.03.2024", "22.03.2024")));
+        assertThrows(BookingConflictException.class, () -> rentalRepository.update(
+                createTestRental("R001", "СЕ0303СХ", "АВТ123456", "14.03.2024", "26.03.2024")));
+        assertEquals(LocalDate.of(2024, 3, 22), rentalRepository.findById("R001").orElseThrow().getEndDate());
+
+        rentalRepository.removeByIdentity("R002");
+        assertTrue(rentalRepository.update(createTestRental("R001", "СЕ0303СХ", "АВТ123456", "14.03.2024", "26.03.2024")));
+    }
+
+    @Test
+    @DisplayName("Bulk operations should report conflicting rentals as REJECTED")
+    void testBulkRejectsConflicts() {
+        BulkResult result = rentalRepository.upsertAll(List.of(
+                createTestRental("R001", "СЕ0303СХ", "АВТ123456", "15.03.2024", "20.03.2024"),
+                createTestRental("R002", "СЕ0303СХ", "БДЕ234567", "16.03.2024", "17.03.2024"),
+                createTestRental("R003", "СЕ0304СХ", "ВЖЗ345678", "16.03.2024", "17.03.2024")));
+
+        assertEquals(BulkResult.Outcome.ADDED, result.outcome(0));
+        assertEquals(BulkResult.Outcome.REJECTED, result.outcome(1));
+        assertEquals(BulkResult.Outcome.ADDED, result.outcome(2));
+        assertEquals(2, rentalRepository.size());
+    }
+
+    @Test
+    @DisplayName("findAvailableCars should skip booked cars and cars under maintenance")
+    void testFindAvailableCars() {
+        Car booked = new Car("СЕ0303СХ", "Toyota Camry", 2020, 25000.0, CarStatus.AVAILABLE);
+        Car free = new Car("СЕ0304СХ", "Toyota Camry", 2020, 25000.0, CarStatus.AVAILABLE);
+        Car repairing = new Car("СЕ0305СХ", "Toyota Camry", 2020, 25000.0, CarStatus.MAINTENANCE);
+        Customer customer = new Customer("Іван", "Петренко", "АВТ123456", "01.01.1990");
+        rentalRepository.add(new Rental("R001", booked, customer, "15.03.2024", "20.03.2024"));
+        rentalRepository.add(new Rental("R002", free, customer, "01.03.2024", "10.03.2024"));
+
+        List<Car> fleet = List.of(booked, free, repairing);
+        assertEquals(List.of(free), rentalRepository.findAvailableCars(fleet,
+                LocalDate.of(2024, 3, 12), LocalDate.of(2024, 3, 16)));
+        assertEquals(List.of(booked, free), rentalRepository.findAvailableCars(fleet,
+                LocalDate.of(2024, 3, 20), LocalDate.of(2024, 3, 22)));
+        assertFalse(rentalRepository.isCarAvailable("се0303сх", LocalDate.of(2024, 3, 19), LocalDate.of(2024, 3, 19)));
+
+        rentalRepository.removeByIdentity("R001");
+        assertTrue(rentalRepository.isCarAvailable("СЕ0303СХ", LocalDate.of(2024, 3, 19), LocalDate.of(2024, 3, 19)));
+    }
+
+    @Test
+    @DisplayName("insertAll should reject a double booking within the batch and name both rentals")
+    void testInsertAllNamesConflictingRentals() {
+        BulkResult result = rentalRepository.insertAll(List.of(
+                createTestRental("R001", "СЕ0303СХ", "АВТ123456", "15.03.2024", "20.03.2024"),
+                createTestRental("R002", "СЕ0303СХ", "БДЕ234567", "18.03.2024", "22.03.2024")));
+
+        assertEquals(BulkResult.Outcome.ADDED, result.outcome(0));
+        assertEquals(BulkResult.Outcome.REJECTED, result.outcome(1));
+        assertEquals(List.of("Rental R002: Car СЕ0303СХ is already booked on 2024-03-18 by rental R001"),
+                result.rejections());
+        assertEquals(1, rentalRepository.size());
+    }
+
+    // ========== Query Tests ==========
+
+    private void addQueryFixture() {
+        rentalRepository.add(createTestRental("R001", "СЕ0303СХ", "АВТ123456", "01.03.2024", "05.03.2024"));
+        rentalRepository.add(createTestRental("R002", "СЕ0303СХ", "БДЕ234567", "10.03.2024", "20.03.2024"));
+        rentalRepository.add(createTestRental("R003", "АА1111ВВ", "АВТ123456", "02.03.2024", "03.03.2024"));
+        rentalRepository.add(createTestRental("R004", "ВН2222ОО", "АВТ123456", "15.04.2024", "18.04.2024"));
+        rentalRepository.add(createTestRental("R005", "СЕ0303СХ", "АВТ123456", "01.05.2024", "10.05.2024"));
+    }
+
+    private static List<String> ids(List<Rental> rentals) {
+        return rentals.stream().map(Rental::getId).toList();
+    }
+
+    @Test
+    @DisplayName("query should combine criteria on different indexes and return rentals in insertion order")
+    void testQueryCombinesCriteria() {
+        addQueryFixture();
+
+        Query<Rental> query = Query.<Rental>create()
+                .equal(RentalRepository.BY_CAR_LICENSE_PLATE, "се0303сх")
+                .equal(RentalRepository.BY_CUSTOMER_DRIVER_LICENSE, "АВТ123456")
+                .between(RentalRepository.BY_START_DATE, LocalDate.of(2024, 3, 1), null);
+
+        assertEquals(List.of("R001", "R005"), ids(rentalRepository.query(query)));
+    }
+
+    @Test
+    @DisplayName("explain should drive the scan from the most selective index and check the rest per candidate")
+    void testExplainPicksMostSelectiveIndex() {
+        addQueryFixture();
+
+        QueryPlan plan = rentalRepository.explain(Query.<Rental>create()
+                .equal(RentalRepository.BY_CUSTOMER_DRIVER_LICENSE, "АВТ123456")
+                .between(RentalRepository.BY_START_DATE, LocalDate.of(2024, 4, 1), LocalDate.of(2024, 4, 30)));
+
+        assertEquals(RentalRepository.BY_START_DATE, plan.drivingIndex());
+        assertEquals(1, plan.estimatedCandidates());
+        assertEquals(1, plan.residualCriteria().size());
+        assertFalse(plan.isFullScan());
+    }
+
+    @Test
+    @DisplayName("A query with only filters should fall back to a full scan")
+    void testQueryWithOnlyFiltersIsFullScan() {
+        addQueryFixture();
+
+        Query<Rental> query = Query.<Rental>create()
+                .filter(rental -> rental.getEndDate().getMonthValue() == 3);
+
+        assertTrue(rentalRepository.explain(query).isFullScan());
+        assertEquals(List.of("R001", "R002", "R003"), ids(rentalRepository.query(query)));
+    }
+
+    @Test
+    @DisplayName("query should sort before applying the limit when an order is given")
+    void testQueryOrderByAndLimit() {
+        addQueryFixture();
+
+        Query<Rental> query = Query.<Rental>create()
+                .equal(RentalRepository.BY_CUSTOMER_DRIVER_LICENSE, "АВТ123456")
+                .orderBy(Rental.byStartDate().reversed())
+                .limit(2);
+
+        assertEquals(List.of("R005", "R004"), ids(rentalRepository.query(query)));
+        assertEquals(List.of("R001", "R003"),
+                ids(rentalRepository.query(Query.<Rental>create()
+                        .equal(RentalRepository.BY_CUSTOMER_DRIVER_LICENSE, "АВТ123456").limit(2))));
+    }
+
+    @Test
+    @DisplayName("query should see in-place updates and removals")
+    void testQueryReflectsUpdates() {
+        addQueryFixture();
+        rentalRepository.removeByIdentity("R001");
+        rentalRepository.update(createTestRental("R003", "АА1111ВВ", "БДЕ234567", "02.03.2024", "03.03.2024"));
+
+        Query<Rental> query = Query.<Rental>create()
+                .equal(RentalRepository.BY_CUSTOMER_DRIVER_LICENSE, "АВТ123456");
+
+        assertEquals(List.of("R004", "R005"), ids(rentalRepository.query(query)));
+    }
+
+    @Test
+    @DisplayName("query should reject criteria on unknown indexes or indexes of the wrong kind")
+    void testQueryRejectsUnknownIndex() {
+        Query<Rental> unknown = Query.<Rental>create().equal("colour", "red");
+        Query<Rental> wrongKind = Query.<Rental>create().equal(RentalRepository.BY_START_DATE, "2024-03-01");
+
+        assertThrows(IllegalArgumentException.class, () -> rentalRepository.query(unknown));
+        assertThrows(IllegalArgumentException.class, () -> rentalRepository.explain(wrongKind));
+        assertThrows(IllegalArgumentException.class, () -> Query.<Rental>create().limit(-1));
+    }
+
+    // ========== Partition Tests ==========
+
+    private void addPartitionFixture() {
+        rentalRepository.add(createTestRental("R001", "СЕ0303СХ", "АВТ123456", "03.01.2024", "05.01.2024"));
+        rentalRepository.add(createTestRental("R002", "АА1111ВВ", "АВТ123456", "20.01.2024", "02.02.2024"));
+        rentalRepository.add(createTestRental("R003", "СЕ0303СХ", "БДЕ234567", "10.02.2024", "12.02.2024"));
+        rentalRepository.add(createTestRental("R004", "ВН2222ОО", "БДЕ234567", "01.03.2024", "04.03.2024"));
+    }
+
+    @Test
+    @DisplayName("partitions should group rentals by month of their start date")
+    void testPartitionsByStartMonth() {
+        addPartitionFixture();
+
+        List<MonthPartitions.Partition> partitions = rentalRepository.partitions();
+
+        assertEquals(List.of(
+                new MonthPartitions.Partition(YearMonth.of(2024, 1), 2, false, false),
+                new MonthPartitions.Partition(YearMonth.of(2024, 2), 1, false, false),
+                new MonthPartitions.Partition(YearMonth.of(2024, 3), 1, false, false)), partitions);
+    }
+
+    @Test
+    @DisplayName("A sealed month should reject adds, updates and removals but leave other months writable")
+    void testSealedPartitionIsReadOnly() {
+        addPartitionFixture();
+        assertEquals(2, rentalRepository.sealBefore(YearMonth.of(2024, 3)));
+
+        assertThrows(InvalidDataException.class, () -> rentalRepository.add(
+                createTestRental("R005", "КА3333АК", "ВЖЗ345678", "15.01.2024", "16.01.2024")));
+        assertThrows(InvalidDataException.class, () -> rentalRepository.update(
+                createTestRental("R003", "СЕ0303СХ", "БДЕ234567", "10.03.2024", "12.03.2024")));
+        assertThrows(InvalidDataException.class, () -> rentalRepository.update(
+                createTestRental("R004", "ВН2222ОО", "БДЕ234567", "01.02.2024", "04.02.2024")));
+        assertThrows(InvalidDataException.class, () -> rentalRepository.removeByIdentity("R001"));
+        assertEquals(BulkResult.Outcome.REJECTED,
+                rentalRepository.removeAllByIdentity(List.of("R002")).outcome(0));
+        assertEquals(4, rentalRepository.size());
+
+        assertTrue(rentalRepository.add(createTestRental("R005", "КА3333АК", "ВЖЗ345678", "15.03.2024", "16.03.2024")));
+        assertTrue(rentalRepository.removeByIdentity("R004"));
+    }
+
+    @Test
+    @DisplayName("offload should move a sealed month to a compressed file that bounded reads load back")
+    void testOffloadAndLoadOnDemand(@TempDir Path archiveDirectory) {
+        addPartitionFixture();
+        rentalRepository.setArchive(new PartitionArchive<>(archiveDirectory, Rental.class));
+        rentalRepository.seal(YearMonth.of(2024, 1));
+
+        assertEquals(2, rentalRepository.offload(YearMonth.of(2024, 1)));
+
+        assertTrue(Files.exists(archiveDirectory.resolve("2024-01.json.gz")));
+        assertEquals(2, rentalRepository.size());
+        assertTrue(rentalRepository.findById("R001").isEmpty());
+        assertTrue(rentalRepository.query(Query.<Rental>create()
+                .equal(RentalRepository.BY_CUSTOMER_DRIVER_LICENSE, "АВТ123456")).isEmpty());
+
+        List<Rental> february = rentalRepository.findByStartDateBetween(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 29));
+        assertEquals(1, february.size());
+        assertTrue(rentalRepository.partitions().get(0).offloaded());
+
+        List<Rental> january = rentalRepository.findByStartDateBetween(LocalDate.of(2024, 1, 15), LocalDate.of(2024, 1, 31));
+        assertEquals(List.of("R002"), january.stream().map(Rental::getId).toList());
+        assertEquals(4, rentalRepository.size());
+        assertEquals("СЕ0303СХ", rentalRepository.findById("R001").orElseThrow().getCar().getLicensePlate());
+        assertEquals(new MonthPartitions.Partition(YearMonth.of(2024, 1), 2, true, false), rentalRepository.partitions().get(0));
+        assertFalse(Files.exists(archiveDirectory.resolve("2024-01.json.gz")));
+    }
+
+    @Test
+    @DisplayName("A query bounded on the start date should load offloaded months it overlaps")
+    void testQueryLoadsOffloadedPartitions(@TempDir Path archiveDirectory) {
+        addPartitionFixture();
+        rentalRepository.setArchive(new PartitionArchive<>(archiveDirectory, Rental.class));
+        rentalRepository.sealBefore(YearMonth.of(2024, 3));
+        assertEquals(3, rentalRepository.offloadSealed());
+
+        Query<Rental> query = Query.<Rental>create()
+                .equal(RentalRepository.BY_CUSTOMER_DRIVER_LICENSE, "БДЕ234567")
+                .between(RentalRepository.BY_START_DATE, LocalDate.of(2024, 2, 1), null);
+
+        assertEquals(List.of("R004", "R003"), rentalRepository.query(query).stream().map(Rental::getId).toList());
+        assertTrue(rentalRepository.findById("R001").isEmpty());
+        assertTrue(rentalRepository.partitions().get(0).offloaded());
+    }
+
+    @Test
+    @DisplayName("A failed offload should keep the month and leave no temporary file")
+    void testFailedOffloadLeavesNoTemporaryFile(@TempDir Path archiveDirectory) throws IOException {
+        addPartitionFixture();
+        rentalRepository.setArchive(new PartitionArchive<>(archiveDirectory, Rental.class));
+        rentalRepository.seal(YearMonth.of(2024, 1));
+        Files.createDirectories(archiveDirectory.resolve("2024-01.json.gz").resolve("occupied"));
+
+        assertThrows(DataSerializationException.class, () -> rentalRepository.offload(YearMonth.of(2024, 1)));
+
+        try (Stream<Path> files = Files.list(archiveDirectory)) {
+            assertEquals(List.of("2024-01.json.gz"), files.map(file -> file.getFileName().toString()).toList());
+        }
+        assertTrue(rentalRepository.findById("R001").isPresent());
+        assertEquals(4, rentalRepository.size());
+    }
+
+    @Test
+    @DisplayName("An offloaded rental should keep its car booked, also after a restart")
+    void testOffloadedRentalKeepsCarBooked(@TempDir Path archiveDirectory) {
+        addPartitionFixture();
+        rentalRepository.setArchive(new PartitionArchive<>(archiveDirectory, Rental.class));
+        rentalRepository.seal(YearMonth.of(2024, 1));
+        rentalRepository.offload(YearMonth.of(2024, 1));
+
+        BookingConflictException conflict = assertThrows(BookingConflictException.class, () -> rentalRepository.add(
+                createTestRental("R005", "АА1111ВВ", "ВЖЗ345678", "01.02.2024", "03.02.2024")));
+        assertTrue(conflict.getMessage().contains("R002"));
+        assertFalse(rentalRepository.isCarAvailable("АА1111ВВ", LocalDate.of(2024, 1, 25), LocalDate.of(2024, 1, 26)));
+
+        RentalRepository restarted = new RentalRepository();
+        restarted.addAll(rentalRepository.getAll());
+        restarted.setArchive(new PartitionArchive<>(archiveDirectory, Rental.class));
+        assertThrows(BookingConflictException.class, () -> restarted.add(
+                createTestRental("R005", "АА1111ВВ", "ВЖЗ345678", "01.02.2024", "03.02.2024")));
+
+        assertTrue(restarted.add(createTestRental("R005", "АА1111ВВ", "ВЖЗ345678", "02.02.2024", "03.02.2024")));
+        assertEquals(2, restarted.findByStartDateBetween(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31)).size());
+        assertTrue(restarted.isCarAvailable("СЕ0303СХ", LocalDate.of(2024, 1, 6), LocalDate.of(2024, 1, 9)));
+    }
+
+    @Test
+    @DisplayName("Loading a month back should reject a rental that double-books a car")
+    void testLoadRejectsConflictingRental(@TempDir Path archiveDirectory) {
+        addPartitionFixture();
+        PartitionArchive<Rental> archive = new PartitionArchive<>(archiveDirectory, Rental.class);
+        archive.write(YearMonth.of(2023, 12),
+                List.of(createTestRental("R000", "АА1111ВВ", "ВЖЗ345678", "28.12.2023", "21.01.2024")));
+        rentalRepository.setArchive(archive);
+
+        assertThrows(BookingConflictException.class, () -> rentalRepository.findByStartDateBetween(
+                LocalDate.of(2023, 12, 1), LocalDate.of(2023, 12, 31)));
+
+        assertTrue(rentalRepository.findById("R000").isEmpty());
+        assertTrue(rentalRepository.partitions().get(0).offloaded());
+        assertTrue(Files.exists(archiveDirectory.resolve("2023-12.json.gz")));
+        assertEquals(4, rentalRepository.size());
+    }
+
+    @Test
+    @DisplayName("offload should require a sealed month and an archive")
+    void testOffloadPreconditions(@TempDir Path archiveDirectory) {
+        addPartitionFixture();
+
+        assertThrows(IllegalStateException.class, () -> rentalRepository.offload(YearMonth.of(2024, 1)));
+        rentalRepository.setArchive(new PartitionArchive<>(archiveDirectory, Rental.class));
+        assertThrows(IllegalStateException.class, () -> rentalRepository.offload(YearMonth.of(2024, 1)));
+    }
+
+    @Test
+    @DisplayName("setArchive should adopt months a previous run offloaded")
+    void testArchiveIsAdoptedOnRestart(@TempDir Path archiveDirectory) {
+        addPartitionFixture();
+        rentalRepository.setArchive(new PartitionArchive<>(archiveDirectory, Rental.class));
+        rentalRepository.seal(YearMonth.of(2024, 1));
+        rentalRepository.offload(YearMonth.of(2024, 1));
+
+        RentalRepository restarted = new RentalRepository();
+        restarted.addAll(rentalRepository.getAll());
+        restarted.setArchive(new PartitionArchive<>(archiveDirectory, Rental.class));
+
+        assertTrue(restarted.partitions().get(0).offloaded());
+        assertThrows(InvalidDataException.class, () -> restarted.add(
+                createTestRental("R005", "КА3333АК", "ВЖЗ345678", "15.01.2024", "16.01.2024")));
+        assertEquals(2, restarted.findByStartDateBetween(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31)).size());
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.car_rental.repository;
+
+import com.car_rental.model.Customer;
+import com.car_rental.model.Rental;
+import com.car_rental.support.Benchmarks;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortKeyBenchmarkTest {
+
+    private static final int CUSTOMERS = 20_000;
+    private static final int RENTALS = 50_000;
+    private static final int ROUNDS = 5;
+
+    // What Customer.byBirthDate() cost before: a formatter per comparator, a parse per comparison.
+    private static Comparator<Customer> parsingBirthDates() {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+        return Comparator.comparing(c -> LocalDate.parse(c.birthDate(), formatter));
+    }
+
+    private static GenericRepository<Customer> customers(int count) {
+        GenericRepository<Customer> repository = new GenericRepository<>(Customer::driverLicense, "Customer");
+        repository.addAll(Benchmarks.customers(count, 1));
+        return repository;
+    }
+
+    private static RentalRepository rentals(int count) {
+        RentalRepository repository = new RentalRepository();
+        repository.addAll(Benchmarks.rentalList(Benchmarks.fleet(500), count, 2));
+        return repository;
+    }
+
+    @Test
+    @DisplayName("Precomputed birth date keys should sort customers exactly like the parsing comparator")
+    void testCustomerBirthDateKeysMatchComparator() {
+        GenericRepository<Customer> repository = customers(2_000);
+
+        assertEquals(repository.sortByComparator(parsingBirthDates()), repository.sortByKey(Customer.birthDateKey()));
+    }
+
+    @Test
+    @DisplayName("Precomputed duration keys should sort rentals exactly like Rental.compareTo")
+    void testRentalDurationKeysMatchCompareTo() {
+        RentalRepository repository = rentals(5_000);
+
+        assertEquals(repository.sortByComparator(Comparator.naturalOrder()), repository.sortByDuration());
+        assertEquals(repository.sortByComparator(Rental.byStartDate()), repository.sortByKey(Rental.startDateKey()));
+    }
+
+    @Test
+    @Tag(Benchmarks.TAG)
+    @DisplayName("Report customer sort times by parsing comparator and by precomputed birth date keys")
+    void testCustomerBirthDateSort() throws Exception {
+        GenericRepository<Customer> repository = customers(CUSTOMERS);
+        Comparator<Customer> parsing = parsingBirthDates();
+
+        double comparator = Benchmarks.bestMillis(ROUNDS, () -> repository.sortByComparator(parsing));
+        double keyed = Benchmarks.bestMillis(ROUNDS, () -> repository.sortByKey(Customer.birthDateKey()));
+        Benchmarks.report("%d customers by birth date: comparator %.1f ms, precomputed keys %.1f ms",
+                CUSTOMERS, comparator, keyed);
+    }
+
+    @Test
+    @Tag(Benchmarks.TAG)
+    @DisplayName("Report rental sort times by Rental.compareTo and by precomputed keys")
+    void testRentalDurationSort() throws Exception {
+        RentalRepository repository = rentals(RENTALS);
+
+        double comparator = Benchmarks.bestMillis(ROUNDS, () -> repository.sortByComparator(Comparator.naturalOrder()));
+        double keyed = Benchmarks.bestMillis(ROUNDS, repository::sortByDuration);
+        double startDates = Benchmarks.bestMillis(ROUNDS, () -> repository.sortByKey(Rental.startDateKey()));
+        Benchmarks.report("%d rentals: compareTo %.1f ms, duration keys %.1f ms, start date keys %.1f ms",
+                RENTALS, comparator, keyed, startDates);
+    }
+}
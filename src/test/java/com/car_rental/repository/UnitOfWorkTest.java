@@ -0,0 +1,256 @@
+package com.car_rental.repository;
+
+import com.car_rental.exception.BookingConflictException;
+import com.car_rental.exception.ConcurrentUpdateException;
+import com.car_rental.exception.InvalidDataException;
+import com.car_rental.model.Car;
+import com.car_rental.model.CarStatus;
+import com.car_rental.model.Customer;
+import com.car_rental.model.Payment;
+import com.car_rental.model.PaymentMethod;
+import com.car_rental.model.Rental;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnitOfWorkTest {
+
+    private CarRepository carRepository;
+    private RentalRepository rentalRepository;
+    private PaymentRepository paymentRepository;
+    private Customer customer;
+
+    @BeforeEach
+    void setUp() {
+        carRepository = new CarRepository();
+        rentalRepository = new RentalRepository();
+        paymentRepository = new PaymentRepository();
+        customer = new Customer("Іван", "Петренко", "АВТ123456", "01.01.1990");
+        carRepository.add(new Car("СЕ0303СХ", "Toyota Camry", 2020, 25000.0, CarStatus.AVAILABLE));
+        carRepository.add(new Car("АА1111ВВ", "Honda Civic", 2019, 30000.0, CarStatus.AVAILABLE));
+    }
+
+    // Stages a rental and its payment for the stored car and marks that car rented.
+    private void checkout(UnitOfWork unit, String rentalId, String licensePlate, String startDate, String endDate) {
+        Car car = unit.find(carRepository, licensePlate).orElseThrow();
+        // The constructors mark the car they are given, so build on a copy and share the stored car.
+        Rental rental = new Rental(rentalId, new Car(car.getLicensePlate(), car.getModel(), car.getYear(),
+                car.getMileage(), car.getStatus()), customer, startDate, endDate);
+        Payment payment = new Payment("P" + rentalId, rental, 100.0, PaymentMethod.CASH);
+        rental.setCarReference(car);
+        unit.add(rentalRepository, rental);
+        unit.add(paymentRepository, payment);
+        unit.change(carRepository, licensePlate, stored -> stored.setStatus(CarStatus.RENTED));
+    }
+
+    // ========== Commit Tests ==========
+
+    @Test
+    @DisplayName("A unit of work should apply its writes to every repository together")
+    void testCommitAppliesAllWrites() {
+        long carVersion = carRepository.version();
+
+        UnitOfWork.run(unit -> checkout(unit, "R001", "СЕ0303СХ", "01.03.2024", "05.03.2024"));
+
+        assertEquals(CarStatus.RENTED, carRepository.findByLicensePlate("СЕ0303СХ").orElseThrow().getStatus());
+        assertTrue(rentalRepository.findById("R001").isPresent());
+        assertEquals(1, paymentRepository.findByRentalId("R001").size());
+        assertEquals(carVersion + 1, carRepository.version());
+        assertEquals(1, carRepository.countByStatus().get(CarStatus.RENTED));
+    }
+
+    @Test
+    @DisplayName("A write an index rejects should roll back the writes already applied")
+    void testRejectedWriteRollsBack() {
+        UnitOfWork.run(unit -> checkout(unit, "R001", "СЕ0303СХ", "01.03.2024", "05.03.2024"));
+        Car before = carRepository.findByLicensePlate("СЕ0303СХ").orElseThrow();
+        long carVersion = carRepository.versionOf("СЕ0303СХ");
+        long rentalVersion = rentalRepository.version();
+        long paymentVersion = paymentRepository.version();
+
+        assertThrows(BookingConflictException.class, () -> UnitOfWork.run(unit -> {
+            unit.update(carRepository, new Car("АА1111ВВ", "Honda Civic", 2019, 30000.0, CarStatus.RENTED));
+            checkout(unit, "R002", "СЕ0303СХ", "03.03.2024", "07.03.2024");
+        }));
+
+        assertSame(before, carRepository.findByLicensePlate("СЕ0303СХ").orElseThrow());
+        assertEquals(carVersion, carRepository.versionOf("СЕ0303СХ"));
+        assertEquals(CarStatus.AVAILABLE, carRepository.findByLicensePlate("АА1111ВВ").orElseThrow().getStatus());
+        assertEquals(1, carRepository.countByStatus().get(CarStatus.AVAILABLE));
+        assertTrue(rentalRepository.findById("R002").isEmpty());
+        assertTrue(paymentRepository.findById("PR002").isEmpty());
+        assertEquals(rentalVersion, rentalRepository.version());
+        assertEquals(paymentVersion, paymentRepository.version());
+        assertTrue(rentalRepository.isCarAvailable("СЕ0303СХ",
+                LocalDate.of(2024, 3, 6), LocalDate.of(2024, 3, 7)));
+    }
+
+    @Test
+    @DisplayName("A staged change should land on the stored instance that rentals share")
+    void testChangeKeepsSharedInstance() {
+        Car stored = carRepository.findByLicensePlate("СЕ0303СХ").orElseThrow();
+        long carVersion = carRepository.versionOf("СЕ0303СХ");
+
+        UnitOfWork.run(unit -> checkout(unit, "R001", "СЕ0303СХ", "01.03.2024", "05.03.2024"));
+
+        Rental rental = rentalRepository.findById("R001").orElseThrow();
+        assertSame(stored, carRepository.findByLicensePlate("СЕ0303СХ").orElseThrow());
+        assertSame(stored, rental.getCar());
+        assertEquals(CarStatus.RENTED, rental.getCar().getStatus());
+        assertTrue(carRepository.versionOf("СЕ0303СХ") > carVersion);
+        assertEquals(1, carRepository.countByStatus().get(CarStatus.RENTED));
+    }
+
+    @Test
+    @DisplayName("A staged change should not be applied when another write of the unit is rejected")
+    void testChangeSkippedOnRejectedWrite() {
+        UnitOfWork.run(unit -> checkout(unit, "R001", "СЕ0303СХ", "01.03.2024", "05.03.2024"));
+        long carVersion = carRepository.versionOf("АА1111ВВ");
+
+        assertThrows(BookingConflictException.class, () -> UnitOfWork.run(unit -> {
+            unit.change(carRepository, "АА1111ВВ", car -> car.setStatus(CarStatus.MAINTENANCE));
+            checkout(unit, "R002", "СЕ0303СХ", "03.03.2024", "07.03.2024");
+        }));
+
+        assertEquals(CarStatus.AVAILABLE, carRepository.findByLicensePlate("АА1111ВВ").orElseThrow().getStatus());
+        assertEquals(carVersion, carRepository.versionOf("АА1111ВВ"));
+    }
+
+    @Test
+    @DisplayName("Removing and re-adding within a rolled back unit of work should restore the original entity")
+    void testRollbackRestoresRemovedEntity() {
+        Car original = carRepository.findByLicensePlate("СЕ0303СХ").orElseThrow();
+        List<Car> before = carRepository.getAll();
+
+        assertThrows(InvalidDataException.class, () -> UnitOfWork.run(unit -> {
+            unit.remove(carRepository, "СЕ0303СХ");
+            unit.add(carRepository, new Car("АА1111ВВ", "Honda Civic", 2019, 30000.0, CarStatus.AVAILABLE));
+        }));
+
+        assertEquals(before, carRepository.getAll());
+        assertSame(original, carRepository.findByLicensePlate("СЕ0303СХ").orElseThrow());
+        assertEquals(1, carRepository.findByModel("camry").size());
+    }
+
+    @Test
+    @DisplayName("find should see the unit of work's own staged writes")
+    void testFindSeesStagedWrites() {
+        UnitOfWork.run(unit -> {
+            unit.update(carRepository, new Car("СЕ0303СХ", "Toyota Camry", 2020, 26000.0, CarStatus.AVAILABLE));
+            unit.remove(carRepository, "АА1111ВВ");
+
+            assertEquals(26000.0, unit.find(carRepository, "СЕ0303СХ").orElseThrow().getMileage());
+            assertTrue(unit.find(carRepository, "АА1111ВВ").isEmpty());
+            assertEquals(25000.0, carRepository.findByLicensePlate("СЕ0303СХ").orElseThrow().getMileage());
+        });
+
+        assertEquals(26000.0, carRepository.findByLicensePlate("СЕ0303СХ").orElseThrow().getMileage());
+        assertFalse(carRepository.containsIdentity("АА1111ВВ"));
+    }
+
+    // ========== Versioning Tests ==========
+
+    @Test
+    @DisplayName("versionOf should advance on every write to the entity and only then")
+    void testEntityVersions() {
+        long version = carRepository.versionOf("СЕ0303СХ");
+        long other = carRepository.versionOf("АА1111ВВ");
+
+        carRepository.update(new Car("СЕ0303СХ", "Toyota Camry", 2020, 26000.0, CarStatus.AVAILABLE));
+        long updated = carRepository.versionOf("СЕ0303СХ");
+        assertTrue(updated > version);
+        assertEquals(other, carRepository.versionOf("АА1111ВВ"));
+
+        carRepository.change("СЕ0303СХ", car -> car.setMileage(27000.0));
+        assertTrue(carRepository.versionOf("СЕ0303СХ") > updated);
+
+        carRepository.removeByIdentity("СЕ0303СХ");
+        assertEquals(-1L, carRepository.versionOf("СЕ0303СХ"));
+    }
+
+    // ========== Conflict Tests ==========
+
+    @Test
+    @DisplayName("A unit of work whose read was overwritten should be retried and see the new value")
+    void testConflictIsRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        double seen = UnitOfWork.call(unit -> {
+            Car car = unit.find(carRepository, "СЕ0303СХ").orElseThrow();
+            if (attempts.incrementAndGet() == 1) {
+                carRepository.update(new Car("СЕ0303СХ", "Toyota Camry", 2020, 40000.0, CarStatus.AVAILABLE));
+            }
+            unit.update(carRepository, new Car("СЕ0303СХ", "Toyota Camry", 2020, car.getMileage() + 100, CarStatus.AVAILABLE));
+            return car.getMileage();
+        });
+
+        assertEquals(2, attempts.get());
+        assertEquals(40000.0, seen);
+        assertEquals(40100.0, carRepository.findByLicensePlate("СЕ0303СХ").orElseThrow().getMileage());
+    }
+
+    @Test
+    @DisplayName("A unit of work that conflicts on every attempt should give up with ConcurrentUpdateException")
+    void testConflictGivesUp() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(ConcurrentUpdateException.class, () -> UnitOfWork.run(unit -> {
+            unit.find(carRepository, "СЕ0303СХ");
+            attempts.incrementAndGet();
+            carRepository.change("СЕ0303СХ", car -> car.setMileage(30000.0 + attempts.get()));
+            unit.add(paymentRepository, new Payment("P" + attempts.get(),
+                    new Rental("R" + attempts.get(), new Car("ВН2222ОО", "Skoda Octavia", 2021, 1000.0, CarStatus.AVAILABLE),
+                            customer, "01.03.2024", "02.03.2024"), 100.0, PaymentMethod.CASH));
+        }));
+
+        assertEquals(UnitOfWork.DEFAULT_MAX_ATTEMPTS, attempts.get());
+        assertTrue(paymentRepository.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Concurrent read-modify-write units of work should not lose updates")
+    void testConcurrentUnitsOfWorkDoNotLoseUpdates() throws Exception {
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        int perThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        String id = "P" + thread + "_" + i;
+                        UnitOfWork.call(1_000, unit -> {
+                            Car car = unit.find(carRepository, "СЕ0303СХ").orElseThrow();
+                            unit.update(carRepository, new Car(car.getLicensePlate(), car.getModel(),
+                                    car.getYear(), car.getMileage() + 1, car.getStatus()));
+                            unit.add(paymentRepository, new Payment(id, new Rental("R" + id,
+                                    new Car("ВН2222ОО", "Skoda Octavia", 2021, 1000.0, CarStatus.AVAILABLE),
+                                    customer, "01.03.2024", "02.03.2024"), 1.0, PaymentMethod.CASH));
+                            return null;
+                        });
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int total = threads * perThread;
+        assertEquals(25000.0 + total, carRepository.findByLicensePlate("СЕ0303СХ").orElseThrow().getMileage());
+        assertEquals(total, paymentRepository.size());
+    }
+}
@@ -0,0 +1,188 @@
+package com.car_rental.serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.car_rental.exception.DataSerializationException;
+import com.car_rental.model.Car;
+import com.car_rental.model.CarStatus;
+
+class CompressionTest {
+
+    private static final Compression GZIP = new Compression(Compression.Codec.GZIP, 6);
+    private static final Compression LZ4 = new Compression(Compression.Codec.LZ4, -1);
+
+    private static byte[] compress(Compression compression, byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = compression.compressing(bytes)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] data) throws IOException {
+        try (InputStream in = Compression.decompressing(new ByteArrayInputStream(data))) {
+            return in.readAllBytes();
+        }
+    }
+
+    // Text that repeats at varying distances, like a JSON file.
+    private static byte[] text(int length) {
+        StringBuilder builder = new StringBuilder(length + 100);
+        Random random = new Random(length);
+        while (builder.length() < length) {
+            builder.append("{\"licensePlate\":\"CAR").append(random.nextInt(1000))
+                    .append("\",\"mileage\":").append(random.nextInt(200_000)).append("},");
+        }
+        return builder.substring(0, length).getBytes(StandardCharsets.UTF_8);
+    }
+
+    // ========== LZ4 Tests ==========
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 12, 13, 100, 65_535, 65_536, 65_537, 300_000})
+    @DisplayName("LZ4 should round-trip text of any length, across block boundaries")
+    void testLz4RoundTripText(int length) throws IOException {
+        byte[] data = text(length);
+        assertArrayEquals(data, decompress(compress(LZ4, data)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 20, 65_536, 200_000})
+    @DisplayName("LZ4 should store incompressible data without growing it beyond the framing")
+    void testLz4RoundTripRandom(int length) throws IOException {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        byte[] compressed = compress(LZ4, data);
+        assertArrayEquals(data, decompress(compressed));
+        int blocks = (length + Lz4OutputStream.BLOCK_SIZE - 1) / Lz4OutputStream.BLOCK_SIZE;
+        assertTrue(compressed.length <= length + 8 + blocks * Lz4OutputStream.HEADER_SIZE);
+    }
+
+    @Test
+    @DisplayName("LZ4 should round-trip long runs and overlapping matches")
+    void testLz4RoundTripRuns() throws IOException {
+        byte[] data = new byte[100_000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i < 50_000 ? 'a' : "abc".charAt(i % 3));
+        }
+        byte[] compressed = compress(LZ4, data);
+        assertArrayEquals(data, decompress(compressed));
+        assertTrue(compressed.length < 2_000, "Runs should compress to almost nothing: " + compressed.length);
+    }
+
+    @Test
+    @DisplayName("LZ4 should shrink JSON-like text")
+    void testLz4CompressesText() throws IOException {
+        byte[] data = text(1 << 20);
+        byte[] compressed = compress(LZ4, data);
+        assertTrue(compressed.length < data.length / 2, "Compressed to " + compressed.length);
+    }
+
+    @Test
+    @DisplayName("A damaged LZ4 block should fail instead of returning wrong bytes")
+    void testLz4DetectsCorruption() throws IOException {
+        byte[] compressed = compress(LZ4, text(10_000));
+        compressed[compressed.length / 2] ^= 0x10;
+        assertThrows(IOException.class, () -> decompress(compressed));
+    }
+
+    @Test
+    @DisplayName("A truncated LZ4 stream should fail instead of ending early")
+    void testLz4DetectsTruncation() throws IOException {
+        byte[] compressed = compress(LZ4, text(10_000));
+        byte[] truncated = Arrays.copyOf(compressed, compressed.length - 4);
+        assertThrows(IOException.class, () -> decompress(truncated));
+    }
+
+    // ========== Detection Tests ==========
+
+    @Test
+    @DisplayName("Loading should detect gzip, LZ4 and uncompressed data by content")
+    void testDecompressingDetectsCodec() throws IOException {
+        byte[] data = text(5_000);
+        assertArrayEquals(data, decompress(compress(GZIP, data)));
+        assertArrayEquals(data, decompress(compress(LZ4, data)));
+        assertArrayEquals(data, decompress(data));
+        assertArrayEquals(new byte[0], decompress(new byte[0]));
+    }
+
+    @Test
+    @DisplayName("Codec names should parse case-insensitively and levels should be checked")
+    void testCompressionOf() {
+        assertEquals(GZIP, Compression.of(" Gzip ", 6));
+        assertEquals(Compression.Codec.LZ4, Compression.of("lz4", -1).codec());
+        assertThrows(IllegalArgumentException.class, () -> Compression.of("zstd", -1));
+        assertThrows(IllegalArgumentException.class, () -> new Compression(Compression.Codec.GZIP, 10));
+    }
+
+    // ========== Serializer Tests ==========
+
+    @ParameterizedTest
+    @ValueSource(strings = {"none", "gzip", "lz4"})
+    @DisplayName("Serializers should load compressed files in full and in batches")
+    void testSerializerRoundTrip(String codec, @TempDir Path tempDir) throws IOException {
+        JsonDataSerializer<Car> serializer = new JsonDataSerializer<>();
+        List<Car> cars = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            cars.add(new Car("CAR" + i, "Toyota Corolla", 2019, 1000 * (i + 1), CarStatus.AVAILABLE));
+        }
+        Path filePath = tempDir.resolve("cars.json");
+
+        serializer.serializeAll(cars, filePath.toString(), Compression.of(codec, -1));
+        List<Car> batched = new ArrayList<>();
+        serializer.deserializeInto(filePath.toString(), Car.class, 100, batched::addAll);
+
+        assertEquals(cars, serializer.deserialize(filePath.toString(), Car.class));
+        assertEquals(cars, batched);
+        if (!codec.equals("none")) {
+            assertTrue(Files.size(filePath) < serializer.listToString(cars).length() / 2);
+        }
+    }
+
+    @Test
+    @DisplayName("Smile files should compress and load like text ones")
+    void testSmileWithLz4(@TempDir Path tempDir) {
+        SmileDataSerializer<Car> serializer = new SmileDataSerializer<>();
+        List<Car> cars = List.of(new Car("СЕ1234ЕК", "Toyota Corolla", 2019, 30000, CarStatus.AVAILABLE));
+        Path filePath = tempDir.resolve("cars.smile");
+
+        serializer.serializeAll(cars, filePath.toString(), LZ4);
+
+        assertEquals(cars, serializer.deserialize(filePath.toString(), Car.class));
+    }
+
+    @Test
+    @DisplayName("A corrupt compressed file should fail to load")
+    void testCorruptFileFailsToLoad(@TempDir Path tempDir) throws IOException {
+        JsonDataSerializer<Car> serializer = new JsonDataSerializer<>();
+        Path filePath = tempDir.resolve("cars.json");
+        serializer.serializeAll(List.of(new Car("СЕ1234ЕК", "Toyota Corolla", 2019, 30000, CarStatus.AVAILABLE)),
+                filePath.toString(), LZ4);
+        byte[] bytes = Files.readAllBytes(filePath);
+        bytes[bytes.length - 10] ^= 0x01;
+        Files.write(filePath, bytes);
+
+        assertThrows(DataSerializationException.class, () -> serializer.deserialize(filePath.toString(), Car.class));
+    }
+}
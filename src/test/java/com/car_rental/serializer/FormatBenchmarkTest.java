@@ -0,0 +1,100 @@
+package com.car_rental.serializer;
+
+import com.car_rental.model.Rental;
+import com.car_rental.support.Benchmarks;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FormatBenchmarkTest {
+
+    private static final int RENTALS = 20_000;
+    private static final int ROUNDS = 3;
+
+    private static final List<Compression> COMPRESSIONS = List.of(
+            new Compression(Compression.Codec.GZIP, 1),
+            new Compression(Compression.Codec.GZIP, 6),
+            new Compression(Compression.Codec.LZ4, -1));
+
+    private static List<Rental> rentals(int count) {
+        return Benchmarks.rentalList(Benchmarks.fleet(500), count, 3);
+    }
+
+    // Writes the rentals, checks they read back unchanged and returns the file size.
+    private static long roundTrip(AbstractDataSerializer<Rental> serializer, Compression compression,
+                                  List<Rental> rentals, Path file) throws Exception {
+        String path = file.toString();
+        serializer.serializeAll(rentals, path, compression);
+        assertEquals(rentals, serializer.deserialize(path, Rental.class));
+        return Files.size(file);
+    }
+
+    private static String label(AbstractDataSerializer<Rental> serializer, Compression compression) {
+        return compression.codec() == Compression.Codec.NONE
+                ? serializer.getFormat()
+                : serializer.getFormat() + "+" + compression.codec()
+                        + (compression.level() > 0 ? "-" + compression.level() : "");
+    }
+
+    private static void measure(AbstractDataSerializer<Rental> serializer, Compression compression,
+                                List<Rental> rentals, Path file) throws Exception {
+        String path = file.toString();
+        double save = Benchmarks.bestMillis(ROUNDS, () -> {
+            serializer.serializeAll(rentals, path, compression);
+            return null;
+        });
+        double load = Benchmarks.bestMillis(ROUNDS, () -> serializer.deserialize(path, Rental.class));
+        Benchmarks.report("%d rentals as %-10s: %,10d bytes, save %7.1f ms (%,.0f items/s), load %7.1f ms (%,.0f items/s)",
+                rentals.size(), label(serializer, compression), Files.size(file),
+                save, rentals.size() / (save / 1000), load, rentals.size() / (load / 1000));
+    }
+
+    @Test
+    @DisplayName("Smile should round-trip rentals in fewer bytes than JSON")
+    void testSmileIsSmallerThanJson(@TempDir Path tempDir) throws Exception {
+        List<Rental> rentals = rentals(2_000);
+
+        long json = roundTrip(new JsonDataSerializer<>(), Compression.NONE, rentals, tempDir.resolve("rentals.json"));
+        long yaml = roundTrip(new YamlDataSerializer<>(), Compression.NONE, rentals, tempDir.resolve("rentals.yaml"));
+        long smile = roundTrip(new SmileDataSerializer<>(), Compression.NONE, rentals, tempDir.resolve("rentals.smile"));
+
+        assertTrue(smile < json, "Smile should be smaller than pretty-printed JSON");
+        assertTrue(smile < yaml, "Smile should be smaller than YAML");
+    }
+
+    @Test
+    @DisplayName("Compressed JSON should round-trip rentals in a quarter of the plain size")
+    void testCompressedJsonIsSmaller(@TempDir Path tempDir) throws Exception {
+        List<Rental> rentals = rentals(2_000);
+        JsonDataSerializer<Rental> serializer = new JsonDataSerializer<>();
+
+        long plain = roundTrip(serializer, Compression.NONE, rentals, tempDir.resolve("rentals.json"));
+        for (Compression compression : COMPRESSIONS) {
+            long compressed = roundTrip(serializer, compression, rentals,
+                    tempDir.resolve("rentals-" + label(serializer, compression) + ".json"));
+            assertTrue(compressed * 4 < plain, label(serializer, compression) + " should be at least 4x smaller");
+        }
+    }
+
+    @Test
+    @Tag(Benchmarks.TAG)
+    @DisplayName("Report file size and save/load throughput of every format and codec")
+    void testFormatSizeAndThroughput(@TempDir Path tempDir) throws Exception {
+        List<Rental> rentals = rentals(RENTALS);
+        JsonDataSerializer<Rental> json = new JsonDataSerializer<>();
+
+        measure(json, Compression.NONE, rentals, tempDir.resolve("rentals.json"));
+        measure(new YamlDataSerializer<>(), Compression.NONE, rentals, tempDir.resolve("rentals.yaml"));
+        measure(new SmileDataSerializer<>(), Compression.NONE, rentals, tempDir.resolve("rentals.smile"));
+        for (Compression compression : COMPRESSIONS) {
+            measure(json, compression, rentals, tempDir.resolve("rentals-" + label(json, compression) + ".json"));
+        }
+    }
+}
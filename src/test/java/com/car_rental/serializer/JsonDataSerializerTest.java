@@ -2,16 +2,20 @@ package com.car_rental.serializer;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import com.car_rental.exception.DataSerializationException;
 import com.car_rental.model.Car;
 import com.car_rental.model.CarStatus;
 
@@ -107,4 +111,147 @@ class JsonDataSerializerTest {
             serializer.deserialize(filePath.toString(), Car.class)
         );
     }
-}
\ No newline at end of file
+
+    
+    @Test
+    void testDeserializeIntoDeliversBatches(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        List<Car> cars = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            cars.add(new Car("CAR" + i, "Toyota Corolla", 2019, 1000 * (i + 1), CarStatus.AVAILABLE));
+        }
+        Path filePath = tempDir.resolve("batched_cars.json");
+        serializer.serialize(cars, filePath.toString());
+        List<Integer> batchSizes = new ArrayList<>();
+        List<Car> received = new ArrayList<>();
+        
+        // Act
+        int count = serializer.deserializeInto(filePath.toString(), Car.class, 10, batch -> {
+            batchSizes.add(batch.size());
+            received.addAll(batch);
+        });
+        
+        // Assert
+        assertEquals(25, count);
+        assertEquals(List.of(10, 10, 5), batchSizes);
+        assertEquals(cars, received);
+    }
+    
+    @Test
+    void testDeserializeIntoRejectsNonArray(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        Path filePath = tempDir.resolve("object.json");
+        Files.writeString(filePath, "{\"licensePlate\": \"СЕ1234ЕК\"}");
+        
+        // Act & Assert
+        assertThrows(DataSerializationException.class, () ->
+            serializer.deserializeInto(filePath.toString(), Car.class, 10, batch -> { })
+        );
+    }
+    
+    @Test
+    void testDeserializeIntoKeepsBatchesBeforeTruncation(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        List<Car> cars = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            cars.add(new Car("CAR" + i, "Toyota Corolla", 2019, 1000 * (i + 1), CarStatus.AVAILABLE));
+        }
+        Path filePath = tempDir.resolve("truncated.json");
+        serializer.serialize(cars, filePath.toString());
+        String json = Files.readString(filePath);
+        Files.writeString(filePath, json.substring(0, json.lastIndexOf("CAR4")));
+        List<Car> received = new ArrayList<>();
+        
+        // Act & Assert
+        assertThrows(DataSerializationException.class, () ->
+            serializer.deserializeInto(filePath.toString(), Car.class, 2, received::addAll)
+        );
+        assertEquals(4, received.size());
+    }
+
+    
+    @Test
+    void testSerializeAllWritesFromIterator(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        int count = 1000;
+        Iterable<Car> generated = () -> IntStream.range(0, count)
+            .mapToObj(i -> new Car("CAR" + i, "Toyota Corolla", 2019, 1000 * (i + 1), CarStatus.AVAILABLE))
+            .iterator();
+        Path filePath = tempDir.resolve("generated_cars.json");
+        
+        // Act
+        int written = serializer.serializeAll(generated, filePath.toString());
+        List<Car> result = serializer.deserialize(filePath.toString(), Car.class);
+        
+        // Assert
+        assertEquals(count, written);
+        assertEquals(count, result.size());
+        assertEquals("CAR999", result.get(count - 1).getLicensePlate());
+        assertFalse(Files.exists(tempDir.resolve("generated_cars.json.tmp")));
+    }
+
+    
+    @Test
+    void testSerializeAllFailingItemLeavesNoTemporaryFile(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        List<Car> cars = List.of(new Car("СЕ1234ЕК", "Toyota Corolla", 2019, 30000, CarStatus.AVAILABLE));
+        Path filePath = tempDir.resolve("cars.json");
+        serializer.serialize(cars, filePath.toString());
+        Iterable<Car> failing = () -> IntStream.range(0, 10)
+            .mapToObj(i -> {
+                if (i == 5) {
+                    throw new IllegalStateException("generator failed");
+                }
+                return new Car("CAR" + i, "Toyota Corolla", 2019, 1000, CarStatus.AVAILABLE);
+            })
+            .iterator();
+        
+        // Act
+        assertThrows(IllegalStateException.class, () -> serializer.serializeAll(failing, filePath.toString()));
+        
+        // Assert
+        assertFalse(Files.exists(tempDir.resolve("cars.json.tmp")));
+        assertEquals(cars, serializer.deserialize(filePath.toString(), Car.class));
+    }
+
+    
+    @Test
+    void testSerializeAllFailedReplaceLeavesNoTemporaryFile(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        Path target = tempDir.resolve("cars.json");
+        Files.createDirectories(target.resolve("occupied"));
+        List<Car> cars = List.of(new Car("СЕ1234ЕК", "Toyota Corolla", 2019, 30000, CarStatus.AVAILABLE));
+        
+        // Act
+        assertThrows(DataSerializationException.class, () -> serializer.serialize(cars, target.toString()));
+        
+        // Assert
+        assertFalse(Files.exists(tempDir.resolve("cars.json.tmp")));
+        assertTrue(Files.isDirectory(target));
+    }
+
+    
+    @Test
+    void testDeserializeMemoryMapped(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        JsonDataSerializer<Car> mapped = new JsonDataSerializer<>();
+        mapped.setMemoryMapThreshold(0);
+        List<Car> cars = List.of(
+            new Car("СЕ1234ЕК", "Toyota Corolla", 2019, 30000, CarStatus.AVAILABLE),
+            new Car("АА5678КС", "Ford Focus", 2016, 55000, CarStatus.RENTED)
+        );
+        Path plainPath = tempDir.resolve("mapped.json");
+        Path compressedPath = tempDir.resolve("mapped_lz4.json");
+        serializer.serialize(cars, plainPath.toString());
+        serializer.serializeAll(cars, compressedPath.toString(), Compression.of("lz4", -1));
+        
+        // Act
+        List<Car> plain = mapped.deserialize(plainPath.toString(), Car.class);
+        List<Car> compressed = mapped.deserialize(compressedPath.toString(), Car.class);
+        
+        // Assert
+        assertEquals(cars, plain);
+        assertEquals(cars, compressed);
+    }
+
+}
@@ -0,0 +1,151 @@
+package com.car_rental.serializer;
+
+import com.car_rental.model.Rental;
+import com.car_rental.support.Benchmarks;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Buffered and memory-mapped loading of rental files. The throughput comparison is a
+ * benchmark and only runs with {@code -Pbenchmark}; file sizes default to 10 MB, pass e.g.
+ * {@code -Dbenchmark.mmap.sizes.mb=10,100,1000,4000} for larger ones. Cold-cache rounds
+ * flush the whole host's page cache, so they also need {@code -Dbenchmark.mmap.dropCaches=true}
+ * and root; inside a VM the hypervisor may still be caching the file.
+ */
+class MappedReadBenchmarkTest {
+
+    private static final int ROUNDS = 3;
+    private static final int BYTES_PER_RENTAL = 400;
+
+    private static List<Integer> sizesMb() {
+        return Arrays.stream(System.getProperty("benchmark.mmap.sizes.mb", "10").split(","))
+                .map(String::trim)
+                .map(Integer::parseInt)
+                .toList();
+    }
+
+    private static boolean dropPageCache() {
+        try {
+            Files.writeString(Path.of("/proc/sys/vm/drop_caches"), "1");
+            return true;
+        } catch (IOException | SecurityException e) {
+            return false;
+        }
+    }
+
+    private static Benchmarks.Action expecting(long expected, Benchmarks.Action load) {
+        return () -> {
+            assertEquals(expected, ((Number) load.run()).longValue());
+            return null;
+        };
+    }
+
+    private static long drain(InputStream in) throws IOException {
+        try (in) {
+            byte[] buffer = new byte[64 * 1024];
+            long total = 0;
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                total += read;
+            }
+            return total;
+        }
+    }
+
+    @Test
+    @Tag(Benchmarks.TAG)
+    @DisplayName("Report buffered and mapped read and load throughput")
+    void testMappedVersusBufferedLoad(@TempDir Path tempDir) throws Exception {
+        JsonDataSerializer<Rental> buffered = new JsonDataSerializer<>();
+        JsonDataSerializer<Rental> mapped = new JsonDataSerializer<>();
+        buffered.setMemoryMapThreshold(-1);
+        mapped.setMemoryMapThreshold(0);
+        boolean cold = Boolean.getBoolean("benchmark.mmap.dropCaches") && dropPageCache();
+        if (!cold) {
+            Benchmarks.report("Page cache is not dropped; reporting warm-cache rounds only");
+        }
+
+        for (int sizeMb : sizesMb()) {
+            int count = (int) ((long) sizeMb * 1024 * 1024 / BYTES_PER_RENTAL);
+            Path file = tempDir.resolve("rentals-" + sizeMb + "mb.json");
+            String path = file.toString();
+            buffered.serializeAll(Benchmarks.rentals(Benchmarks.fleet(500), count, 4), path);
+            long bytes = Files.size(file);
+
+            Benchmarks.Action parseBuffered = expecting(count,
+                    () -> buffered.deserializeInto(path, Rental.class, 1000, batch -> { }));
+            Benchmarks.Action parseMapped = expecting(count,
+                    () -> mapped.deserializeInto(path, Rental.class, 1000, batch -> { }));
+            Benchmarks.Action readBuffered = expecting(bytes,
+                    () -> drain(new BufferedInputStream(new FileInputStream(path), 64 * 1024)));
+            Benchmarks.Action readMapped = expecting(bytes, () -> drain(new MappedFileInputStream(file)));
+
+            for (boolean dropCache : cold ? new boolean[]{false, true} : new boolean[]{false}) {
+                Runnable beforeRound = dropCache ? MappedReadBenchmarkTest::dropPageCache : () -> { };
+                double rawBuffered = Benchmarks.bestMillis(ROUNDS, beforeRound, readBuffered);
+                double rawMapped = Benchmarks.bestMillis(ROUNDS, beforeRound, readMapped);
+                double loadBuffered = Benchmarks.bestMillis(ROUNDS, beforeRound, parseBuffered);
+                double loadMapped = Benchmarks.bestMillis(ROUNDS, beforeRound, parseMapped);
+                Benchmarks.report("%,6.0f MB %s cache: read buffered %8.1f ms, mapped %8.1f ms | "
+                                + "load buffered %8.1f ms (%,.0f MB/s), mapped %8.1f ms (%,.0f MB/s)",
+                        bytes / 1048576.0, dropCache ? "cold" : "warm", rawBuffered, rawMapped,
+                        loadBuffered, bytes / 1048576.0 / (loadBuffered / 1000),
+                        loadMapped, bytes / 1048576.0 / (loadMapped / 1000));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Files larger than one mapped region should be read across region boundaries")
+    void testReadsAcrossRegions(@TempDir Path tempDir) throws IOException {
+        byte[] data = new byte[10_000];
+        new Random(5).nextBytes(data);
+        Path file = tempDir.resolve("regions.bin");
+        Files.write(file, data);
+
+        try (InputStream in = new MappedFileInputStream(file, 4096)) {
+            assertEquals(data[0] & 0xFF, in.read());
+            assertEquals(100, in.skip(100));
+            byte[] rest = in.readAllBytes();
+            assertArrayEquals(Arrays.copyOfRange(data, 101, data.length), rest);
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    @DisplayName("Reset should return to a mark in an earlier mapped region")
+    void testResetAcrossRegions(@TempDir Path tempDir) throws IOException {
+        byte[] data = new byte[10_000];
+        new Random(6).nextBytes(data);
+        Path file = tempDir.resolve("mark.bin");
+        Files.write(file, data);
+
+        try (InputStream in = new MappedFileInputStream(file, 4096)) {
+            in.mark(0);
+            assertEquals(5000, in.readNBytes(5000).length);
+            in.reset();
+            assertArrayEquals(data, in.readAllBytes());
+
+            in.reset();
+            assertEquals(4000, in.skip(4000));
+            in.mark(0);
+            in.readNBytes(2000);
+            in.reset();
+            assertArrayEquals(Arrays.copyOfRange(data, 4000, data.length), in.readAllBytes());
+        }
+    }
+}
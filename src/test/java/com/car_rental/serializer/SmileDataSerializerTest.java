@@ -0,0 +1,85 @@
+package com.car_rental.serializer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.car_rental.exception.DataSerializationException;
+import com.car_rental.model.Car;
+import com.car_rental.model.CarStatus;
+
+class SmileDataSerializerTest {
+    
+    private final SmileDataSerializer<Car> serializer = new SmileDataSerializer<>();
+    
+    @Test
+    void testSerializeAndDeserializeCars(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        List<Car> cars = Arrays.asList(
+            new Car("СЕ1234ЕК", "Toyota Corolla", 2019, 30000, CarStatus.AVAILABLE),
+            new Car("АА5678КС", "Ford Focus", 2016, 55000, CarStatus.RENTED)
+        );
+        Path filePath = tempDir.resolve("test_cars.smile");
+        
+        // Act
+        serializer.serialize(cars, filePath.toString());
+        List<Car> deserializedCars = serializer.deserialize(filePath.toString(), Car.class);
+        
+        // Assert
+        assertNotNull(deserializedCars);
+        assertEquals(2, deserializedCars.size());
+        assertEquals("СЕ1234ЕК", deserializedCars.get(0).getLicensePlate());
+        assertEquals("Ford Focus", deserializedCars.get(1).getModel());
+        assertEquals(55000, deserializedCars.get(1).getMileage());
+        assertEquals(CarStatus.RENTED, deserializedCars.get(1).getStatus());
+    }
+    
+    @Test
+    void testFileIsBinarySmile(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        Path filePath = tempDir.resolve("header.smile");
+        
+        // Act
+        serializer.serialize(List.of(new Car("АТ9012МК", "Hyundai i30", 2021, 15000, CarStatus.MAINTENANCE)),
+            filePath.toString());
+        byte[] bytes = Files.readAllBytes(filePath);
+        
+        // Assert
+        assertTrue(bytes.length > 4);
+        assertEquals(":)\n", new String(bytes, 0, 3));
+    }
+    
+    @Test
+    void testStringRoundTrip() {
+        // Arrange
+        Car car = new Car("СЕ1234ЕК", "Toyota Corolla™", 2019, 30000, CarStatus.AVAILABLE);
+        
+        // Act
+        String encoded = serializer.toString(car);
+        Car decoded = serializer.fromString(encoded, Car.class);
+        
+        // Assert
+        assertEquals(car, decoded);
+        assertEquals("Toyota Corolla™", decoded.getModel());
+    }
+    
+    @Test
+    void testDeserializeInvalidSmile(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        Path filePath = tempDir.resolve("invalid.smile");
+        Files.writeString(filePath, "[{\"not\": \"smile\"}]");
+        
+        // Act & Assert
+        assertThrows(DataSerializationException.class, () ->
+            serializer.deserialize(filePath.toString(), Car.class)
+        );
+    }
+}
@@ -2,6 +2,7 @@ package com.car_rental.serializer;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -96,4 +97,30 @@ class YamlDataSerializerTest {
         assertTrue(content.contains("Hyundai i30"));
         assertTrue(content.contains("MAINTENANCE"));
     }
-}
\ No newline at end of file
+
+    
+    @Test
+    void testDeserializeIntoDeliversBatches(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        List<Car> cars = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            cars.add(new Car("CAR" + i, "Hyundai i30", 2021, 500 * (i + 1), CarStatus.MAINTENANCE));
+        }
+        Path filePath = tempDir.resolve("batched_cars.yaml");
+        serializer.serialize(cars, filePath.toString());
+        List<Integer> batchSizes = new ArrayList<>();
+        List<Car> received = new ArrayList<>();
+        
+        // Act
+        int count = serializer.deserializeInto(filePath.toString(), Car.class, 3, batch -> {
+            batchSizes.add(batch.size());
+            received.addAll(batch);
+        });
+        
+        // Assert
+        assertEquals(7, count);
+        assertEquals(List.of(3, 3, 1), batchSizes);
+        assertEquals(cars, received);
+    }
+
+}
@@ -1,8 +1,10 @@
 package com.car_rental.service.loader;
 
 import com.car_rental.config.AppConfig;
+import com.car_rental.exception.InvalidDataException;
 import com.car_rental.model.Branch;
 import com.car_rental.model.Car;
+import com.car_rental.model.CarStatus;
 import com.car_rental.model.Customer;
 import com.car_rental.model.Rental;
 import com.car_rental.persistence.PersistenceManager;
@@ -13,6 +15,8 @@ import com.car_rental.repository.RentalRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class DataLoaderTest {
@@ -261,5 +265,20 @@ class DataLoaderTest {
 
         assertEquals(returnedCount, finalSize - initialSize);
     }
-}
 
+    @Test
+    void loadEntity_DoubleBookedRentals_ShouldFailNamingThem() {
+        Car car = new Car("СЕ0303СХ", "Toyota Camry", 2020, 25000.0, CarStatus.AVAILABLE);
+        Customer customer = new Customer("Іван", "Петренко", "АВТ123456", "01.01.1990");
+        new PersistenceManager(new AppConfig()).save(List.of(
+                new Rental("R001", car, customer, "15.03.2024", "20.03.2024"),
+                new Rental("R002", car, customer, "18.03.2024", "22.03.2024")), "test_rentals", Rental.class, "JSON");
+        RentalRepository repo = new RentalRepository();
+
+        InvalidDataException e = assertThrows(InvalidDataException.class,
+                () -> dataLoader.loadEntity("test_rentals", Rental.class, repo));
+
+        assertTrue(e.getMessage().contains("Rental R002: Car СЕ0303СХ is already booked on 2024-03-18 by rental R001"),
+                e.getMessage());
+    }
+}
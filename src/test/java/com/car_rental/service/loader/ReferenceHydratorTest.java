@@ -0,0 +1,129 @@
+package com.car_rental.service.loader;
+
+import com.car_rental.model.Car;
+import com.car_rental.model.CarStatus;
+import com.car_rental.model.Customer;
+import com.car_rental.model.Payment;
+import com.car_rental.model.PaymentMethod;
+import com.car_rental.model.Rental;
+import com.car_rental.repository.CarRepository;
+import com.car_rental.repository.CustomerRepository;
+import com.car_rental.repository.OffHeapRecordStore;
+import com.car_rental.repository.PaymentRepository;
+import com.car_rental.repository.RentalRepository;
+import com.car_rental.service.HydrationReport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReferenceHydratorTest {
+
+    private CarRepository carRepository;
+    private CustomerRepository customerRepository;
+    private RentalRepository rentalRepository;
+    private PaymentRepository paymentRepository;
+
+    @BeforeEach
+    void setUp() {
+        carRepository = new CarRepository();
+        customerRepository = new CustomerRepository();
+        rentalRepository = new RentalRepository();
+        paymentRepository = new PaymentRepository();
+
+        carRepository.add(createCar("СЕ0303СХ"));
+        customerRepository.add(createCustomer("АВТ123456"));
+    }
+
+    private Car createCar(String licensePlate) {
+        return new Car(licensePlate, "Toyota Camry", 2020, 25000.0, CarStatus.AVAILABLE);
+    }
+
+    private Customer createCustomer(String driverLicense) {
+        return new Customer("Іван", "Петренко", driverLicense, "01.01.1990");
+    }
+
+    // Every call builds fresh copies, just like deserialising each rental separately.
+    private Rental createRental(String id, String licensePlate, String driverLicense) {
+        return createRental(id, licensePlate, driverLicense, "15.03.2024", "20.03.2024");
+    }
+
+    private Rental createRental(String id, String licensePlate, String driverLicense, String startDate, String endDate) {
+        return new Rental(id, createCar(licensePlate), createCustomer(driverLicense), startDate, endDate);
+    }
+
+    @Test
+    @DisplayName("Rentals should share the car and customer instances held by the repositories")
+    void testRentalsShareRepositoryInstances() {
+        rentalRepository.add(createRental("R001", "СЕ0303СХ", "АВТ123456"));
+        rentalRepository.add(createRental("R002", "СЕ0303СХ", "АВТ123456", "20.03.2024", "25.03.2024"));
+
+        ReferenceHydrator hydrator = new ReferenceHydrator(carRepository, customerRepository, rentalRepository);
+        hydrator.hydrateRentals();
+
+        Car car = carRepository.findByLicensePlate("СЕ0303СХ").orElseThrow();
+        Customer customer = customerRepository.findByDriverLicense("АВТ123456").orElseThrow();
+        for (Rental rental : rentalRepository.getAll()) {
+            assertSame(car, rental.getCar());
+            assertSame(customer, rental.getCustomer());
+        }
+        assertEquals(CarStatus.AVAILABLE, car.getStatus());
+
+        carRepository.change("СЕ0303СХ", stored -> stored.setStatus(CarStatus.MAINTENANCE));
+        assertEquals(CarStatus.MAINTENANCE, rentalRepository.findById("R002").orElseThrow().getCar().getStatus());
+
+        HydrationReport report = hydrator.report();
+        assertEquals(2, report.carReferencesShared());
+        assertEquals(2, report.customerReferencesShared());
+        assertEquals(0, report.unresolvedReferences());
+        assertTrue(report.estimatedBytesSaved() > 0);
+    }
+
+    @Test
+    @DisplayName("Unknown cars should still be de-duplicated among rentals")
+    void testUnresolvedReferencesAreDeduplicated() {
+        rentalRepository.add(createRental("R001", "СЕ0999СХ", "АВТ123456"));
+        rentalRepository.add(createRental("R002", "СЕ0999СХ", "АВТ123456", "20.03.2024", "25.03.2024"));
+
+        ReferenceHydrator hydrator = new ReferenceHydrator(carRepository, customerRepository, rentalRepository);
+        hydrator.hydrateRentals();
+
+        assertSame(rentalRepository.findById("R001").orElseThrow().getCar(),
+                rentalRepository.findById("R002").orElseThrow().getCar());
+        assertEquals(1, hydrator.report().carReferencesShared());
+        assertEquals(1, hydrator.report().unresolvedReferences());
+    }
+
+    @Test
+    @DisplayName("Payments should point at the rental held by the rental repository")
+    void testPaymentsShareRentals() {
+        rentalRepository.add(createRental("R001", "СЕ0303СХ", "АВТ123456"));
+        paymentRepository.add(new Payment("P001", createRental("R001", "СЕ0303СХ", "АВТ123456"), 100.0, "16.03.2024", PaymentMethod.CASH));
+        paymentRepository.add(new Payment("P002", createRental("R001", "СЕ0303СХ", "АВТ123456"), 50.0, "17.03.2024", PaymentMethod.CASH));
+
+        ReferenceHydrator hydrator = new ReferenceHydrator(carRepository, customerRepository, rentalRepository);
+        hydrator.hydrateRentals();
+        hydrator.hydratePayments(paymentRepository);
+        HydrationReport report = hydrator.report();
+
+        Rental rental = rentalRepository.findById("R001").orElseThrow();
+        for (Payment payment : paymentRepository.getAll()) {
+            assertSame(rental, payment.getRental());
+        }
+        assertEquals(2, report.rentalReferencesShared());
+        assertEquals(1, report.carReferencesShared());
+    }
+
+    @Test
+    @DisplayName("Off-heap repositories should be left alone")
+    void testOffHeapRepositoriesAreSkipped() {
+        RentalRepository offHeap = new RentalRepository(new OffHeapRecordStore<>(Rental.class));
+        offHeap.add(createRental("R001", "СЕ0303СХ", "АВТ123456"));
+
+        ReferenceHydrator hydrator = new ReferenceHydrator(carRepository, customerRepository, offHeap);
+        hydrator.hydrateRentals();
+
+        assertEquals(0, hydrator.report().totalShared());
+    }
+}
@@ -0,0 +1,126 @@
+package com.car_rental.support;
+
+import com.car_rental.model.Car;
+import com.car_rental.model.CarStatus;
+import com.car_rental.model.Customer;
+import com.car_rental.model.Rental;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Shared fixtures and timing helpers for the benchmark tests. Benchmarks are tagged
+ * {@link #TAG} and excluded from the default build; run them with {@code mvn test -Pbenchmark}.
+ * They report their measurements and never assert on them, so a slow or busy machine
+ * cannot fail a build.
+ */
+public final class Benchmarks {
+
+    public static final String TAG = "benchmark";
+
+    public static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+
+    private static final Logger logger = LoggerFactory.getLogger(Benchmarks.class);
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+    private static final int CUSTOMERS = 2_000;
+
+    private Benchmarks() {
+    }
+
+    @FunctionalInterface
+    public interface Action {
+        Object run() throws Exception;
+    }
+
+    /**
+     * Runs the action once to warm up, then returns the fastest of {@code rounds} timed runs.
+     */
+    public static double bestMillis(int rounds, Action action) throws Exception {
+        return bestMillis(rounds, () -> { }, action);
+    }
+
+    /**
+     * Like {@link #bestMillis(int, Action)}, running {@code beforeRound} untimed ahead of every round.
+     */
+    public static double bestMillis(int rounds, Runnable beforeRound, Action action) throws Exception {
+        action.run();
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            beforeRound.run();
+            long start = System.nanoTime();
+            action.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1_000_000.0;
+    }
+
+    public static void report(String format, Object... args) {
+        logger.info(String.format(format, args));
+    }
+
+    /**
+     * Cars {@code CAR0} to {@code CAR<count - 1>}, all available.
+     */
+    public static List<Car> fleet(int count) {
+        List<Car> fleet = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            fleet.add(new Car("CAR" + i, "Toyota Camry", 2015 + i % 10, 1000.0 * (i + 1), CarStatus.AVAILABLE));
+        }
+        return fleet;
+    }
+
+    /**
+     * Customers with driver licenses {@code АВТ000000} upwards and random birth dates.
+     */
+    public static List<Customer> customers(int count, long seed) {
+        Random random = new Random(seed);
+        List<Customer> customers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LocalDate birthDate = LocalDate.of(1950, 1, 1).plusDays(random.nextInt(20_000));
+            customers.add(new Customer("Іван", "Петренко", String.format("АВТ%06d", i), birthDate.format(DATE_FORMAT)));
+        }
+        return customers;
+    }
+
+    /**
+     * Rentals {@code R0} to {@code R<count - 1>}, given to the cars of {@code fleet} in turn.
+     * Each car's rentals last 1-6 days and follow one another from {@link #FIRST_DAY} with
+     * 0-3 free days in between, so none of them double-books its car. The rentals are
+     * generated as they are iterated, so a file larger than the heap can be written from them.
+     */
+    public static Iterable<Rental> rentals(List<Car> fleet, int count, long seed) {
+        return () -> new Iterator<>() {
+            private final Random random = new Random(seed);
+            private final LocalDate[] nextFree = new LocalDate[fleet.size()];
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public Rental next() {
+                int i = next++;
+                int car = i % fleet.size();
+                LocalDate start = (nextFree[car] == null ? FIRST_DAY : nextFree[car]).plusDays(random.nextInt(4));
+                LocalDate end = start.plusDays(1 + random.nextInt(6));
+                nextFree[car] = end;
+                Customer customer = new Customer("Іван", "Петренко", String.format("АВТ%06d", i % CUSTOMERS), "01.01.1990");
+                return new Rental("R" + i, fleet.get(car), customer, start.format(DATE_FORMAT), end.format(DATE_FORMAT));
+            }
+        };
+    }
+
+    public static List<Rental> rentalList(List<Car> fleet, int count, long seed) {
+        List<Rental> rentals = new ArrayList<>(count);
+        rentals(fleet, count, seed).forEach(rentals::add);
+        return rentals;
+    }
+}